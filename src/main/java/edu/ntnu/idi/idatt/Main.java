@@ -1,6 +1,18 @@
 package edu.ntnu.idi.idatt;
 
+import edu.ntnu.idi.idatt.foodstorage.Cookbook;
+import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
+import edu.ntnu.idi.idatt.metrics.OperationMetrics;
+import edu.ntnu.idi.idatt.views.BatchRunner;
 import edu.ntnu.idi.idatt.views.UserInterface;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Main class to start the FoodStorage application.
@@ -8,14 +20,47 @@ import edu.ntnu.idi.idatt.views.UserInterface;
 public class Main {
 
   /**
-   * The main method to launch the application.
+   * The main method to launch the application. Passing {@code --batch <file>} runs a command
+   * script instead of the interactive menu, and {@code --batch -} reads the script from stdin.
+   * Passing {@code --metrics-dump} prints the operation metrics when the application exits. The
+   * metrics are always published as MBeans for JMX clients such as JConsole.
    *
    * @param args the command-line arguments
    */
   public static void main(String[] args) {
+    String batchSource = null;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--batch") && i + 1 < args.length) {
+        batchSource = args[++i];
+      } else if (args[i].equals("--metrics-dump")) {
+        Runtime.getRuntime().addShutdownHook(
+            new Thread(() -> OperationMetrics.dump(System.err)));
+      }
+    }
+    OperationMetrics.registerMBeans();
+
+    if (batchSource != null) {
+      runBatch(batchSource);
+      return;
+    }
+
     System.out.println("This is your fridge!");
     UserInterface ui = new UserInterface();
     ui.init();
     ui.start();
   }
+
+  private static void runBatch(String source) {
+    BatchRunner runner = new BatchRunner(new FoodStorage(), new Cookbook());
+    Writer output = new BufferedWriter(
+        new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+
+    try (Reader input = source.equals("-")
+        ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+        : new FileReader(source, StandardCharsets.UTF_8)) {
+      runner.run(input, output);
+    } catch (IOException e) {
+      System.err.println("Error reading batch script: " + e.getMessage());
+    }
+  }
 }
@@ -1,22 +1,75 @@
 package edu.ntnu.idi.idatt.foodstorage;
 
+import edu.ntnu.idi.idatt.metrics.Operation;
+import edu.ntnu.idi.idatt.metrics.OperationMetrics;
+import edu.ntnu.idi.idatt.metrics.RecipeSuggestionEvent;
 import edu.ntnu.idi.idatt.utils.InputValidation;
+import edu.ntnu.idi.idatt.utils.NameIndex;
+import edu.ntnu.idi.idatt.utils.TextIndex;
+import edu.ntnu.idi.idatt.utils.TextStore;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * The Cookbook class manages a list of recipes.
+ * The Cookbook class manages a list of recipes. Suggestions and missing ingredients are cached
+ * until the storage, the cookbook or the current day changes.
+ *
+ * <p>Suggestions and missing ingredients can be asked for from several threads at once, also while
+ * the storage changes. Adding and removing recipes must not happen at the same time as any other
+ * call.
+ *
+ * <p>The descriptions and instructions of the recipes are kept off the heap in a text store owned
+ * by the cookbook. A removed recipe gets its texts back as strings, and once the texts of removed
+ * recipes take more room than those still in the cookbook, the rest are copied into a new store
+ * and the old one is left to the garbage collector. The store thus stays below about twice the
+ * size of the texts in the cookbook.
+ *
+ * <p>Removed recipes leave a gap in the numbering of the full-text index. Once most numbers are
+ * gaps, the recipes are numbered again in a new index, so the index and its list of documents
+ * stay within about twice the number of recipes.
  */
 public class Cookbook {
 
+  private static final long MIN_COMPACTED_BYTES = 1 << 20;
+  private static final int MIN_COMPACTED_DOCUMENTS = 64;
+
   private final List<Recipe> recipes;
+  private final Map<String, Recipe> recipesByName;
+  private final NameIndex nameSearchIndex;
+  private TextIndex textIndex;
+  private final List<Recipe> documents;      // Text index document number to recipe
+  private final Map<Recipe, Integer> documentNumbers;
+  private final Map<Recipe, Long> textBytes;  // Bytes each recipe takes in the text store
+  private TextStore textStore;
+  private long liveTextBytes;
+  private final List<CookbookListener> listeners;
+  private long modificationVersion;
+  private SuggestionCache suggestionCache;
+  private long removalCount;
+  private CoverageIndex coverageIndex;
+  private long coverageRemovalCount;
+  private final ReentrantLock cacheLock;
 
   /**
    * Constructs an empty Cookbook.
    */
   public Cookbook() {
     this.recipes = new ArrayList<>();
+    this.recipesByName = new HashMap<>();
+    this.nameSearchIndex = new NameIndex();
+    this.textIndex = new TextIndex();
+    this.documents = new ArrayList<>();
+    this.documentNumbers = new HashMap<>();
+    this.textBytes = new HashMap<>();
+    this.textStore = new TextStore(true);
+    this.listeners = new CopyOnWriteArrayList<>();
+    this.cacheLock = new ReentrantLock();
   }
 
   /**
@@ -31,6 +84,121 @@ public class Cookbook {
       throw new IllegalArgumentException("Recipe already exists in the cookbook.");
     }
     recipes.add(recipe);
+    recipesByName.put(NameIndex.normalize(recipe.getName()), recipe);
+    nameSearchIndex.add(recipe.getName());
+    documentNumbers.put(recipe, documents.size());
+    textIndex.addDocument(documents.size(), recipe.getDescription(), recipe.getInstructions());
+    documents.add(recipe);
+    long bytes = recipe.moveTextTo(textStore);
+    textBytes.put(recipe, bytes);
+    liveTextBytes += bytes;
+    modificationVersion++;
+    for (CookbookListener listener : listeners) {
+      listener.recipeAdded(recipe);
+    }
+  }
+
+  /**
+   * Removes a recipe from the cookbook.
+   *
+   * @param recipe the recipe to remove
+   * @throws IllegalArgumentException if recipe is null or not in the cookbook
+   */
+  public void removeRecipe(Recipe recipe) {
+    InputValidation.validateRecipe(recipe);
+    Integer document = documentNumbers.remove(recipe);
+    if (document == null) {
+      throw new IllegalArgumentException("Recipe not found in the cookbook.");
+    }
+    recipes.remove(recipe);
+    recipesByName.remove(NameIndex.normalize(recipe.getName()));
+    nameSearchIndex.remove(recipe.getName());
+    textIndex.removeDocument(document, recipe.getDescription(), recipe.getInstructions());
+    documents.set(document, null);
+    recipe.moveTextOutOf(textStore);
+    liveTextBytes -= textBytes.remove(recipe);
+    compactDocuments();
+    compactTextStore();
+    removalCount++;
+    modificationVersion++;
+    for (CookbookListener listener : listeners) {
+      listener.recipeRemoved(recipe);
+    }
+  }
+
+  /**
+   * Numbers the recipes again in a new text index once more than half of the document numbers
+   * belong to removed recipes.
+   */
+  private void compactDocuments() {
+    if (documents.size() < MIN_COMPACTED_DOCUMENTS
+        || documentNumbers.size() * 2 >= documents.size()) {
+      return;
+    }
+    textIndex = new TextIndex();
+    documents.clear();
+    for (Recipe recipe : recipes) {
+      documentNumbers.put(recipe, documents.size());
+      textIndex.addDocument(documents.size(), recipe.getDescription(),
+          recipe.getInstructions());
+      documents.add(recipe);
+    }
+  }
+
+  /**
+   * Copies the texts of the recipes into a new store once the texts of removed recipes take more
+   * room than them. Recipes whose texts have since moved to another cookbook are left out.
+   */
+  private void compactTextStore() {
+    long deadBytes = textStore.storedBytes() - liveTextBytes;
+    if (deadBytes < MIN_COMPACTED_BYTES || deadBytes <= liveTextBytes) {
+      return;
+    }
+    TextStore compacted = new TextStore(true);
+    liveTextBytes = 0;
+    for (Recipe recipe : recipes) {
+      long bytes = recipe.isTextIn(textStore) ? recipe.moveTextTo(compacted) : 0;
+      textBytes.put(recipe, bytes);
+      liveTextBytes += bytes;
+    }
+    textStore = compacted;
+  }
+
+  /**
+   * Returns the number of off-heap bytes the text store of the cookbook takes.
+   *
+   * @return the stored size in bytes
+   */
+  public long getStoredTextBytes() {
+    return textStore.storedBytes();
+  }
+
+  /**
+   * Registers a listener to be told about every recipe added or removed.
+   *
+   * @param listener the listener
+   */
+  public void addListener(CookbookListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Stops telling a listener about changes.
+   *
+   * @param listener the listener
+   */
+  public void removeListener(CookbookListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Returns the modification version of the cookbook, which grows every time a recipe is added or
+   * removed.
+   *
+   * @return the modification version
+   */
+  public long getModificationVersion() {
+    return modificationVersion;
   }
 
   /**
@@ -44,29 +212,196 @@ public class Cookbook {
       return null;
     }
 
-    String trimmedName = name.trim().toLowerCase();
-    for (Recipe recipe : recipes) {
-      if (recipe.getName().trim().toLowerCase().equals(trimmedName)) {
-        return recipe;
+    return recipesByName.get(NameIndex.normalize(name));
+  }
+
+  /**
+   * Searches the recipe names for partial words and small spelling mistakes. The exact name comes
+   * first, then names starting with the query, then names within one or two edits of it.
+   *
+   * @param query the text to search for
+   * @param limit the maximum number of recipes to return
+   * @return the matching recipes, best match first
+   */
+  public List<Recipe> searchRecipes(String query, int limit) {
+    List<Recipe> matches = new ArrayList<>();
+    for (String name : nameSearchIndex.search(query, limit)) {
+      matches.add(recipesByName.get(name));
+    }
+    return matches;
+  }
+
+  /**
+   * Finds the recipes whose description and instructions match a boolean query. Words must all
+   * match, alternatives can be joined with {@code OR} and words prefixed with {@code -} must not
+   * match, for example {@code potato cream OR milk -beef}.
+   *
+   * @param query the query
+   * @return the matching recipes in the order they were added
+   */
+  public List<Recipe> searchText(String query) {
+    if (query == null || query.trim().isEmpty()) {
+      return new ArrayList<>();
+    }
+    List<Recipe> matches = new ArrayList<>();
+    for (int document : textIndex.search(query)) {
+      matches.add(documents.get(document));
+    }
+    return matches;
+  }
+
+  /**
+   * Ranks the recipes whose description and instructions contain any of the query words, using
+   * the BM25 relevance score.
+   *
+   * @param query the query
+   * @param limit the maximum number of recipes to return
+   * @return the best matching recipes, most relevant first
+   */
+  public List<Recipe> searchTextRanked(String query, int limit) {
+    if (query == null || query.trim().isEmpty()) {
+      return new ArrayList<>();
+    }
+    List<Recipe> matches = new ArrayList<>();
+    for (int document : textIndex.searchRanked(query, limit)) {
+      matches.add(documents.get(document));
+    }
+    return matches;
+  }
+
+  /**
+   * Suggests recipes that can be made with the ingredients in the given storage. The result is
+   * reused for as long as neither the storage, the cookbook nor the current day changes.
+   *
+   * @param storage the storage to check against
+   * @return an unmodifiable list of recipes that can be made
+   */
+  public List<Recipe> suggestRecipes(StorageView storage) {
+    long start = System.nanoTime();
+    try {
+      InputValidation.validateFoodStorage(storage);
+      SuggestionCache cache = cacheFor(storage);
+      if (cache.getSuggestions() == null) {
+        cache.setSuggestions(Collections.unmodifiableList(computeSuggestions(storage)));
       }
+      return cache.getSuggestions();
+    } catch (RuntimeException e) {
+      OperationMetrics.recordFailure(Operation.SUGGEST_RECIPES);
+      throw e;
+    } finally {
+      OperationMetrics.record(Operation.SUGGEST_RECIPES, start);
     }
-    return null;
   }
 
   /**
-   * Suggests recipes that can be made with the ingredients in the given FoodStorage.
+   * Returns the ingredients missing to make a recipe from the given storage. The result is cached
+   * the same way as {@link #suggestRecipes(StorageView)}.
    *
-   * @param storage the FoodStorage to check against
-   * @return a list of recipes that can be made
+   * @param recipe  the recipe to check
+   * @param storage the storage to check against
+   * @return an unmodifiable map of missing ingredient names to required quantities
+   * @see Recipe#getMissingIngredients(StorageView)
+   */
+  public Map<String, Double> getMissingIngredients(Recipe recipe, StorageView storage) {
+    InputValidation.validateRecipe(recipe);
+    InputValidation.validateFoodStorage(storage);
+    SuggestionCache cache = cacheFor(storage);
+    Map<String, Double> missing = cache.getMissingIngredients(recipe);
+    if (missing == null) {
+      missing = Collections.unmodifiableMap(recipe.getMissingIngredients(storage));
+      cache.putMissingIngredients(recipe, missing);
+    }
+    return missing;
+  }
+
+  /**
+   * Finds the recipes closest to being makeable from the given storage, those missing the fewest
+   * ingredients. Only whether an unexpired ingredient is in stock counts, not how much of it, so
+   * recipes that can be made come first. Ties go to the recipe with more ingredients in stock, then
+   * to the recipe added first.
+   *
+   * <p>Recipes are ranked with bitsets of their ingredients, so a query costs a few word operations
+   * per recipe. Recipes added since the last query are appended to the bitsets, while removing a
+   * recipe makes the next query build them again for every recipe.
+   *
+   * @param storage the storage to check against
+   * @param limit   the maximum number of recipes to return
+   * @return the closest recipes, closest first
+   * @throws IllegalArgumentException if storage is null or limit is not positive
    */
-  public List<Recipe> suggestRecipes(FoodStorage storage) {
+  public List<Recipe> nearestRecipes(StorageView storage, int limit) {
     InputValidation.validateFoodStorage(storage);
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Limit must be positive.");
+    }
+    CoverageIndex index;
+    cacheLock.lock();
+    try {
+      if (coverageIndex == null || coverageRemovalCount != removalCount) {
+        coverageIndex = new CoverageIndex(recipes);
+        coverageRemovalCount = removalCount;
+      } else if (coverageIndex.size() < recipes.size()) {
+        // Recipes are only ever added at the end of the list
+        coverageIndex = coverageIndex.append(recipes.subList(coverageIndex.size(), recipes.size()));
+      }
+      index = coverageIndex;
+    } finally {
+      cacheLock.unlock();
+    }
+    return index.nearest(storage, limit);
+  }
+
+  /**
+   * Returns the cache for the given storage, starting a new one if the storage, the cookbook or the
+   * day has changed since the cached results were computed.
+   *
+   * <p>The storage version is read before the cache lock is taken, so a thread never waits for the
+   * storage while holding it. The lock is a ReentrantLock rather than a monitor so that a virtual
+   * thread waiting for it does not pin its carrier thread.
+   *
+   * @param storage the storage asked about
+   * @return the valid cache
+   */
+  private SuggestionCache cacheFor(StorageView storage) {
+    long storageVersion = storage.getModificationVersion();
+    LocalDate today = LocalDate.now();
+    cacheLock.lock();
+    try {
+      if (suggestionCache == null || !suggestionCache.isValidFor(
+          storage, storageVersion, modificationVersion, today)) {
+        suggestionCache = new SuggestionCache(storage, storageVersion, modificationVersion, today);
+      }
+      return suggestionCache;
+    } finally {
+      cacheLock.unlock();
+    }
+  }
+
+  /**
+   * Checks every recipe against the storage.
+   *
+   * @param storage the storage to check against
+   * @return a list of recipes that can be made
+   */
+  private List<Recipe> computeSuggestions(StorageView storage) {
+    RecipeSuggestionEvent event = new RecipeSuggestionEvent();
+    event.begin();
+
     List<Recipe> suggestedRecipes = new ArrayList<>();
+    int[] ingredientChecks = {0};
     for (Recipe recipe : recipes) {
-      if (recipe.canMake(storage)) {
+      if (recipe.canMake(storage, ingredientChecks)) {
         suggestedRecipes.add(recipe);
       }
     }
+
+    event.end();
+    if (event.shouldCommit()) {
+      event.setRecipeCount(recipes.size());
+      event.setIngredientChecks(ingredientChecks[0]);
+      event.setSuggestedCount(suggestedRecipes.size());
+      event.commit();
+    }
     return suggestedRecipes;
   }
 
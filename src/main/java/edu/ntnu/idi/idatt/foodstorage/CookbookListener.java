@@ -0,0 +1,21 @@
+package edu.ntnu.idi.idatt.foodstorage;
+
+/**
+ * Receives every recipe added to or removed from a {@link Cookbook}.
+ */
+public interface CookbookListener {
+
+  /**
+   * Called after a recipe has been added.
+   *
+   * @param recipe the recipe
+   */
+  void recipeAdded(Recipe recipe);
+
+  /**
+   * Called after a recipe has been removed.
+   *
+   * @param recipe the recipe
+   */
+  void recipeRemoved(Recipe recipe);
+}
@@ -0,0 +1,335 @@
+package edu.ntnu.idi.idatt.foodstorage;
+
+import edu.ntnu.idi.idatt.utils.UnitConverter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ranks the recipes of a cookbook by how many of their ingredients a storage has. Every distinct
+ * ingredient, a name together with its standard unit, is given a number, and each recipe is kept
+ * as a bitset over those numbers. The ingredients in stock become one more bitset, so counting the
+ * ingredients of a recipe that are in stock is an AND and a popcount per word.
+ *
+ * <p>The 64 most common ingredients get the numbers of the first word, which is stored for every
+ * recipe. The rest of a recipe's bitset is stored sparsely, as its non-zero words and their
+ * positions, all recipes in the same flat arrays. The first word alone often shows that a recipe
+ * cannot beat the recipes found so far, even if all its other ingredients are in stock, and then
+ * the rest is skipped.
+ *
+ * <p>Recipes added later are appended by {@link #append(List)} without building the index again.
+ * Their new ingredients get the next numbers, so the first word slowly stops holding the most
+ * common ingredients, and once an ingredient outside it is in more than twice as many recipes as
+ * the rarest one inside it, the whole index is built again. An index never changes once built:
+ * the appended index writes past the end of the arrays it shares with the old one, so a query on
+ * the old index still sees exactly the recipes it was built with.
+ */
+class CoverageIndex {
+
+  private static final int DRIFT_FACTOR = 2;
+
+  private final int size;            // Number of recipes, the arrays may be longer
+  private final Recipe[] recipes;
+  private final Map<String, Integer> ingredientIds;
+  private final int[] ingredientCounts; // Number of recipes with each ingredient
+  private final long[] firstWords;   // First word of the bitset of each recipe
+  private final int[] wordStart;     // First later word of each recipe, plus the end of the last
+  private final int[] wordPositions; // Position of each later word in a dense bitset
+  private final long[] words;
+  private final int[] required;      // Number of distinct ingredients of each recipe
+  private final int[] later;         // Number of those ingredients in the later words
+
+  /**
+   * Builds the index for a list of recipes.
+   *
+   * @param recipes the recipes to rank
+   */
+  CoverageIndex(List<Recipe> recipes) {
+    this.size = recipes.size();
+    this.recipes = recipes.toArray(new Recipe[0]);
+    this.ingredientIds = new HashMap<>();
+    this.firstWords = new long[size];
+    this.wordStart = new int[size + 1];
+    this.required = new int[size];
+    this.later = new int[size];
+
+    List<String[]> recipeKeys = new ArrayList<>(size);
+    Map<String, Integer> counts = new HashMap<>();
+    for (Recipe recipe : this.recipes) {
+      String[] keys = ingredientKeys(recipe);
+      recipeKeys.add(keys);
+      for (String key : keys) {
+        counts.merge(key, 1, Integer::sum);
+      }
+    }
+    this.ingredientCounts = new int[counts.size()];
+    counts.entrySet().stream()
+        .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+        .forEachOrdered(entry -> {
+          ingredientCounts[ingredientIds.size()] = entry.getValue();
+          ingredientIds.put(entry.getKey(), ingredientIds.size());
+        });
+
+    List<int[]> recipeIds = new ArrayList<>(size);
+    int wordCount = 0;
+    for (int r = 0; r < size; r++) {
+      int[] ids = Arrays.stream(recipeKeys.get(r)).mapToInt(ingredientIds::get).sorted().toArray();
+      recipeIds.add(ids);
+      wordCount += laterWordCount(ids);
+    }
+
+    this.wordPositions = new int[wordCount];
+    this.words = new long[wordCount];
+    for (int r = 0; r < size; r++) {
+      store(r, recipeIds.get(r));
+    }
+  }
+
+  private CoverageIndex(int size, Recipe[] recipes, Map<String, Integer> ingredientIds,
+      int[] ingredientCounts, long[] firstWords, int[] wordStart, int[] wordPositions,
+      long[] words, int[] required, int[] later) {
+    this.size = size;
+    this.recipes = recipes;
+    this.ingredientIds = ingredientIds;
+    this.ingredientCounts = ingredientCounts;
+    this.firstWords = firstWords;
+    this.wordStart = wordStart;
+    this.wordPositions = wordPositions;
+    this.words = words;
+    this.required = required;
+    this.later = later;
+  }
+
+  /**
+   * Returns the number of recipes in the index.
+   *
+   * @return the number of recipes
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns an index of these recipes followed by the added ones. The added recipes are encoded
+   * into the free space of the arrays, which double when full, so appending costs about as much
+   * as the added recipes have ingredients, plus a copy of the ingredient counts. Only the latest
+   * index of a chain may be appended to.
+   *
+   * @param added the recipes added after the recipes of this index, in the order they were added
+   * @return the new index
+   */
+  CoverageIndex append(List<Recipe> added) {
+    Map<String, Integer> ids = ingredientIds;
+    int[] counts = ingredientCounts.clone();
+    List<int[]> addedIds = new ArrayList<>(added.size());
+    int wordCount = wordStart[size];
+    for (Recipe recipe : added) {
+      String[] keys = ingredientKeys(recipe);
+      int[] recipeIds = new int[keys.length];
+      for (int i = 0; i < keys.length; i++) {
+        Integer id = ids.get(keys[i]);
+        if (id == null) {
+          if (ids == ingredientIds) {
+            // The old index keeps reading its own map
+            ids = new HashMap<>(ingredientIds);
+          }
+          id = ids.size();
+          ids.put(keys[i], id);
+        }
+        recipeIds[i] = id;
+      }
+      Arrays.sort(recipeIds);
+      counts = grow(counts, ids.size());
+      for (int id : recipeIds) {
+        counts[id]++;
+      }
+      addedIds.add(recipeIds);
+      wordCount += laterWordCount(recipeIds);
+    }
+
+    if (hasDrifted(counts, ids.size())) {
+      List<Recipe> all = new ArrayList<>(size + added.size());
+      all.addAll(Arrays.asList(recipes).subList(0, size));
+      all.addAll(added);
+      return new CoverageIndex(all);
+    }
+
+    int newSize = size + added.size();
+    CoverageIndex index = new CoverageIndex(newSize, grow(recipes, newSize), ids, counts,
+        grow(firstWords, newSize), grow(wordStart, newSize + 1), grow(wordPositions, wordCount),
+        grow(words, wordCount), grow(required, newSize), grow(later, newSize));
+    for (int i = 0; i < added.size(); i++) {
+      index.recipes[size + i] = added.get(i);
+      index.store(size + i, addedIds.get(i));
+    }
+    return index;
+  }
+
+  /**
+   * Encodes the ingredients of a recipe into the bitsets, after the words of the recipe before it.
+   *
+   * @param r   the recipe number
+   * @param ids the sorted ingredient numbers of the recipe
+   */
+  private void store(int r, int[] ids) {
+    firstWords[r] = 0;
+    later[r] = 0;
+    required[r] = ids.length;
+    int word = wordStart[r] - 1;
+    for (int i = 0; i < ids.length; i++) {
+      if (ids[i] < Long.SIZE) {
+        firstWords[r] |= 1L << ids[i];
+        continue;
+      }
+      if (i == 0 || ids[i] >>> 6 != ids[i - 1] >>> 6) {
+        word++;
+        wordPositions[word] = ids[i] >>> 6;
+        words[word] = 0;
+      }
+      words[word] |= 1L << ids[i];
+      later[r]++;
+    }
+    wordStart[r + 1] = word + 1;
+  }
+
+  /**
+   * Checks if an ingredient outside the first word is in more than twice as many recipes as the
+   * rarest ingredient inside it.
+   *
+   * @param counts the number of recipes with each ingredient
+   * @param length the number of ingredients
+   * @return true if the index should be built again
+   */
+  private static boolean hasDrifted(int[] counts, int length) {
+    if (length <= Long.SIZE) {
+      return false;
+    }
+    int rarest = Integer.MAX_VALUE;
+    for (int id = 0; id < Long.SIZE; id++) {
+      rarest = Math.min(rarest, counts[id]);
+    }
+    for (int id = Long.SIZE; id < length; id++) {
+      if (counts[id] > DRIFT_FACTOR * rarest) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int laterWordCount(int[] ids) {
+    int count = 0;
+    for (int i = 0; i < ids.length; i++) {
+      if (ids[i] >= Long.SIZE && (i == 0 || ids[i] >>> 6 != ids[i - 1] >>> 6)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static String[] ingredientKeys(Recipe recipe) {
+    return recipe.getIngredients().keySet().stream()
+        .map(name -> ingredientKey(name, recipe.getUnits().get(name)))
+        .distinct()
+        .toArray(String[]::new);
+  }
+
+  private static int[] grow(int[] array, int length) {
+    if (array.length >= length) {
+      return array;
+    }
+    return Arrays.copyOf(array, Math.max(length, 2 * array.length));
+  }
+
+  private static long[] grow(long[] array, int length) {
+    if (array.length >= length) {
+      return array;
+    }
+    return Arrays.copyOf(array, Math.max(length, 2 * array.length));
+  }
+
+  private static Recipe[] grow(Recipe[] array, int length) {
+    if (array.length >= length) {
+      return array;
+    }
+    return Arrays.copyOf(array, Math.max(length, 2 * array.length));
+  }
+
+  /**
+   * Generates the key an ingredient is numbered by.
+   *
+   * @param name the name of the ingredient
+   * @param unit the unit of the ingredient
+   * @return the lower case name followed by the standard unit
+   */
+  static String ingredientKey(String name, String unit) {
+    String standardUnit = UnitConverter.isSupportedUnit(unit)
+        ? UnitConverter.getStandardUnit(unit) : unit.trim().toLowerCase();
+    return name.trim().toLowerCase() + '\u0000' + standardUnit;
+  }
+
+  /**
+   * Finds the recipes missing the fewest ingredients in the storage. An ingredient counts as in
+   * stock if any of it has not expired, whatever the quantity. Ties go to the recipe with more
+   * ingredients in stock, then to the recipe added first.
+   *
+   * @param storage the storage to check against
+   * @param limit   the maximum number of recipes to return
+   * @return the nearest recipes, nearest first
+   */
+  List<Recipe> nearest(StorageView storage, int limit) {
+    long[] available = new long[Math.max(1, (ingredientIds.size() + 63) >>> 6)];
+    for (IngredientAggregate aggregate : storage.getAggregates()) {
+      Integer id = ingredientIds.get(ingredientKey(aggregate.getName(), aggregate.getUnit()));
+      if (id != null && aggregate.getNonExpiredQuantity() > 0) {
+        available[id >>> 6] |= 1L << id;
+      }
+    }
+
+    long[] best = new long[Math.min(limit, size)];
+    int found = 0;
+    for (int r = 0; r < size; r++) {
+      int inStock = Long.bitCount(firstWords[r] & available[0]);
+      if (found == best.length
+          && rank(required[r], inStock + later[r], r) >= best[found - 1]) {
+        continue; // Even with all later ingredients in stock it would not rank high enough
+      }
+      for (int w = wordStart[r]; w < wordStart[r + 1]; w++) {
+        inStock += Long.bitCount(words[w] & available[wordPositions[w]]);
+      }
+      long rank = rank(required[r], inStock, r);
+      if (found < best.length) {
+        found++;
+      } else if (rank >= best[found - 1]) {
+        continue;
+      }
+      int i = found - 1;
+      while (i > 0 && best[i - 1] > rank) {
+        best[i] = best[i - 1];
+        i--;
+      }
+      best[i] = rank;
+    }
+
+    List<Recipe> nearest = new ArrayList<>(found);
+    for (long rank : Arrays.copyOf(best, found)) {
+      nearest.add(recipes[(int) rank]);
+    }
+    return nearest;
+  }
+
+  /**
+   * Packs the rank of a recipe into a long that sorts the nearest recipe first: by the number of
+   * missing ingredients, then by the number in stock, most first, then by recipe number.
+   *
+   * @param required the number of ingredients of the recipe
+   * @param inStock  the number of them in stock
+   * @param recipe   the recipe number
+   * @return the rank
+   */
+  private static long rank(int required, int inStock, int recipe) {
+    return ((long) (required - inStock) << 48)
+        | ((long) (0xFFFF - Math.min(inStock, 0xFFFF)) << 32) | recipe;
+  }
+}
@@ -0,0 +1,294 @@
+package edu.ntnu.idi.idatt.foodstorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The FederatedStorage class presents several storage locations, like a fridge, a freezer and a
+ * pantry, as one read-only storage. Nothing is copied: every lookup asks the storage of each
+ * location through its own indexes and merges the answers, so the view always shows the current
+ * contents of the locations.
+ *
+ * <p>Locations are asked in the order they were given, and a lookup that needs a single lot takes
+ * it from the first location that has one. {@link #findLot(String, String)} also tells which
+ * location that is. Lots are added and removed through the storage of each location.
+ */
+public class FederatedStorage implements StorageView {
+
+  private final Map<String, FoodStorage> locations;
+
+  /**
+   * Constructs a FederatedStorage over the given locations.
+   *
+   * @param locations the storage of each location by name, in the order lots are taken from them
+   * @throws IllegalArgumentException if there are no locations, or a name or storage is missing
+   */
+  public FederatedStorage(Map<String, FoodStorage> locations) {
+    if (locations == null || locations.isEmpty()) {
+      throw new IllegalArgumentException("At least one storage location is required.");
+    }
+    this.locations = new LinkedHashMap<>();
+    for (Map.Entry<String, FoodStorage> entry : locations.entrySet()) {
+      if (entry.getKey() == null || entry.getKey().trim().isEmpty()) {
+        throw new IllegalArgumentException("Location name cannot be null or empty.");
+      }
+      if (entry.getValue() == null) {
+        throw new IllegalArgumentException("FoodStorage cannot be null.");
+      }
+      this.locations.put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Returns the names of the locations, in the order lots are taken from them.
+   *
+   * @return an unmodifiable list of location names
+   */
+  public List<String> getLocations() {
+    return Collections.unmodifiableList(new ArrayList<>(locations.keySet()));
+  }
+
+  /**
+   * Returns the storage of a location.
+   *
+   * @param location the name of the location
+   * @return the storage, or null if there is no such location
+   */
+  public FoodStorage getStorage(String location) {
+    return locations.get(location);
+  }
+
+  /**
+   * Finds the lot {@link #findIngredientByNameAndUnit(String, String)} would return, together with
+   * the location it is kept in.
+   *
+   * @param name the name of the ingredient
+   * @param unit the unit of the ingredient
+   * @return the lot and its location, or null if no location has a lot that has not expired
+   */
+  public LocatedLot findLot(String name, String unit) {
+    for (Map.Entry<String, FoodStorage> entry : locations.entrySet()) {
+      Ingredient lot = entry.getValue().findIngredientByNameAndUnit(name, unit);
+      if (lot != null) {
+        return new LocatedLot(entry.getKey(), lot);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Finds the location a lot is kept in.
+   *
+   * @param lot the lot, as returned by one of the storages
+   * @return the name of the location, or null if no location holds the lot
+   */
+  public String locationOf(Ingredient lot) {
+    if (lot == null) {
+      return null;
+    }
+    for (Map.Entry<String, FoodStorage> entry : locations.entrySet()) {
+      Ingredient stored = entry.getValue().searchIngredient(lot.getName(), lot.getUnit(),
+          lot.getPricePerUnit(), lot.getBestBeforeDate());
+      if (stored == lot) {
+        return entry.getKey();
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Ingredient searchIngredient(String name, String unit, double pricePerUnit,
+      Date bestBeforeDate) {
+    for (FoodStorage storage : locations.values()) {
+      Ingredient lot = storage.searchIngredient(name, unit, pricePerUnit, bestBeforeDate);
+      if (lot != null) {
+        return lot;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Ingredient findIngredientByNameAndUnit(String name, String unit) {
+    LocatedLot found = findLot(name, unit);
+    return found == null ? null : found.getLot();
+  }
+
+  /**
+   * Returns the combined quantity and value of every lot of an ingredient in every location. An
+   * ingredient kept in one location gives the aggregate of that storage, while one kept in several
+   * gives a new aggregate that adds theirs up as they are now.
+   *
+   * @param name the name of the ingredient
+   * @param unit any unit of the kind to look up, or the exact unit for other units
+   * @return the aggregate, or null if no location has a lot of the ingredient
+   */
+  @Override
+  public IngredientAggregate getAggregate(String name, String unit) {
+    IngredientAggregate merged = null;
+    IngredientAggregate single = null;
+    for (FoodStorage storage : locations.values()) {
+      IngredientAggregate aggregate = storage.getAggregate(name, unit);
+      if (aggregate == null) {
+        continue;
+      }
+      if (single == null) {
+        single = aggregate;
+      } else {
+        if (merged == null) {
+          merged = new IngredientAggregate(single.getName(), single.getUnit());
+          merged.addAll(single);
+        }
+        merged.addAll(aggregate);
+      }
+    }
+    return merged != null ? merged : single;
+  }
+
+  /**
+   * Returns the aggregates of every ingredient in every location, merged the same way as
+   * {@link #getAggregate(String, String)}.
+   *
+   * @return a collection of aggregates
+   */
+  @Override
+  public Collection<IngredientAggregate> getAggregates() {
+    Map<String, IngredientAggregate> merged = new LinkedHashMap<>();
+    Map<String, IngredientAggregate> shared = new LinkedHashMap<>();
+    for (FoodStorage storage : locations.values()) {
+      for (IngredientAggregate aggregate : storage.getAggregates()) {
+        String key = aggregate.getName() + '\u0000' + aggregate.getUnit();
+        IngredientAggregate first = merged.putIfAbsent(key, aggregate);
+        if (first != null) {
+          IngredientAggregate sum = shared.get(key);
+          if (sum == null) {
+            sum = new IngredientAggregate(first.getName(), first.getUnit());
+            sum.addAll(first);
+            shared.put(key, sum);
+            merged.put(key, sum);
+          }
+          sum.addAll(aggregate);
+        }
+      }
+    }
+    return new ArrayList<>(merged.values());
+  }
+
+  @Override
+  public Ingredient[] listAllIngredients() {
+    List<Ingredient> lots = new ArrayList<>();
+    for (FoodStorage storage : locations.values()) {
+      Collections.addAll(lots, storage.listAllIngredients());
+    }
+    return lots.toArray(new Ingredient[0]);
+  }
+
+  /**
+   * Lists one page of lots in the given order from every location together. Each location lists
+   * at most one page from its own index, and the pages are merged by their index keys, with lots
+   * of equal keys in location order. The cursor holds the key of the last lot and the position of
+   * its location, so the next page starts right after it in every location.
+   *
+   * @param order       the order to list the lots in
+   * @param expiredOnly true to list only expired lots
+   * @param cursor      the cursor from the previous page, or null to start from the beginning
+   * @param pageSize    the maximum number of lots on the page
+   * @return the page of lots
+   * @throws IllegalArgumentException if order is null or pageSize is not positive
+   */
+  @Override
+  public IngredientPage listIngredientsPage(IngredientOrder order, boolean expiredOnly,
+      String cursor, int pageSize) {
+    if (order == null) {
+      throw new IllegalArgumentException("Order cannot be null.");
+    }
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("Page size must be positive.");
+    }
+    String from = null;
+    int fromLocation = -1;
+    if (cursor != null) {
+      int separator = cursor.lastIndexOf('\u0000');
+      from = cursor.substring(0, separator);
+      fromLocation = Integer.parseInt(cursor.substring(separator + 1));
+    }
+
+    // One entry more than the page tells whether there is another page
+    List<LocatedEntry> merged = new ArrayList<>();
+    int position = 0;
+    for (FoodStorage storage : locations.values()) {
+      // Locations after the one of the cursor have not listed their lots at its key yet
+      boolean inclusive = position > fromLocation;
+      for (Map.Entry<String, Ingredient> entry
+          : storage.listIndexEntries(order, expiredOnly, from, inclusive, pageSize + 1)) {
+        merged.add(new LocatedEntry(entry.getKey(), position, entry.getValue()));
+      }
+      position++;
+    }
+    merged.sort(Comparator.<LocatedEntry, String>comparing(entry -> entry.key)
+        .thenComparingInt(entry -> entry.location));
+
+    boolean hasMore = merged.size() > pageSize;
+    List<Ingredient> page = new ArrayList<>(Math.min(pageSize, merged.size()));
+    for (int i = 0; i < merged.size() && i < pageSize; i++) {
+      page.add(merged.get(i).lot);
+    }
+    LocatedEntry last = hasMore ? merged.get(pageSize - 1) : null;
+    return new IngredientPage(page, last == null ? null : last.key + '\u0000' + last.location);
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (FoodStorage storage : locations.values()) {
+      size += storage.size();
+    }
+    return size;
+  }
+
+  @Override
+  public double calculateTotalValue() {
+    double total = 0;
+    for (FoodStorage storage : locations.values()) {
+      total += storage.calculateTotalValue();
+    }
+    return total;
+  }
+
+  /**
+   * Returns the sum of the modification versions of the locations. Every version only grows, so
+   * the sum grows whenever any location changes.
+   *
+   * @return the modification version
+   */
+  @Override
+  public long getModificationVersion() {
+    long version = 0;
+    for (FoodStorage storage : locations.values()) {
+      version += storage.getModificationVersion();
+    }
+    return version;
+  }
+
+  /**
+   * A lot listed from the index of a location, with its index key.
+   */
+  private static final class LocatedEntry {
+
+    private final String key;
+    private final int location;
+    private final Ingredient lot;
+
+    private LocatedEntry(String key, int location, Ingredient lot) {
+      this.key = key;
+      this.location = location;
+      this.lot = lot;
+    }
+  }
+}
@@ -1,17 +1,42 @@
 package edu.ntnu.idi.idatt.foodstorage;
 
+import edu.ntnu.idi.idatt.metrics.Operation;
+import edu.ntnu.idi.idatt.metrics.OperationMetrics;
+import edu.ntnu.idi.idatt.metrics.StorageScanEvent;
+import edu.ntnu.idi.idatt.utils.FixedPoint;
 import edu.ntnu.idi.idatt.utils.InputValidation;
+import edu.ntnu.idi.idatt.utils.NameIndex;
 import edu.ntnu.idi.idatt.utils.UnitConverter;
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The FoodStorage class manages a collection of Ingredient instances using a HashMap. It allows
  * adding, removing, searching, and listing ingredients efficiently.
+ *
+ * <p>The storage is safe to share between threads. Reads share a read lock and run in parallel,
+ * while every change takes the write lock, so readers never see a change half applied. The lots
+ * can be iterated and streamed in place, see {@link #spliterator()}.
  */
-public class FoodStorage {
+public class FoodStorage implements StorageView, Iterable<Ingredient> {
 
   /**
    * Map of ingredient keys to Ingredient instances.
@@ -19,15 +44,94 @@ public class FoodStorage {
   private final Map<String, Ingredient> ingredientMap;
 
   /**
-   * Date formatter for key generation.
+   * Every lot in one dense list, in no particular order, so the lots can be split into ranges for
+   * iteration. A removed lot is replaced by the last one.
    */
-  private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("dd.MM.yyyy");
+  private final List<Ingredient> lots;
+
+  /**
+   * The ingredient key of each lot in {@link #lots}, at the same position.
+   */
+  private final List<String> lotKeys;
+
+  /**
+   * The position of each lot in {@link #lots}, by ingredient key.
+   */
+  private final Map<String, Integer> lotPositions;
+
+  /**
+   * Lots ordered by name and then best-before date, keyed by the name, the date as an epoch day
+   * and the ingredient key.
+   */
+  private final NavigableMap<String, Ingredient> nameIndex;
+
+  /**
+   * Lots ordered by best-before date, keyed by the date followed by the ingredient key.
+   */
+  private final NavigableMap<String, Ingredient> expiryIndex;
+
+  /**
+   * Lots ordered by total value, keyed by the value followed by the ingredient key.
+   */
+  private final NavigableMap<String, Ingredient> valueIndex;
+
+  /**
+   * Combined quantity and value per ingredient name and standard unit.
+   */
+  private final Map<String, IngredientAggregate> aggregates;
+
+  /**
+   * Aggregates ordered by total quantity, keyed by the quantity followed by the aggregate key.
+   */
+  private final NavigableMap<String, IngredientAggregate> quantityIndex;
+
+  /**
+   * Prefix and fuzzy index over the names of the stored lots.
+   */
+  private final NameIndex nameSearchIndex;
+
+  /**
+   * Incremented on every change made through this storage.
+   */
+  private long modificationVersion;
+
+  /**
+   * Incremented once per call that changes the storage, and passed to the listeners so they can
+   * tell which changes belong together.
+   */
+  private long operationCount;
+
+  /**
+   * Told about every change to the lots.
+   */
+  private final List<StorageListener> listeners;
+
+  /**
+   * Guards every field above. Reads share the read lock, and every change takes the write lock.
+   */
+  private final ReentrantReadWriteLock lock;
+
+  /**
+   * Date formatter for key generation. Unlike SimpleDateFormat it can be shared between threads.
+   */
+  private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
 
   /**
    * Constructs an empty FoodStorage.
    */
   public FoodStorage() {
     this.ingredientMap = new HashMap<>();
+    this.lots = new ArrayList<>();
+    this.lotKeys = new ArrayList<>();
+    this.lotPositions = new HashMap<>();
+    this.nameIndex = new TreeMap<>();
+    this.expiryIndex = new TreeMap<>();
+    this.valueIndex = new TreeMap<>();
+    this.aggregates = new HashMap<>();
+    this.quantityIndex = new TreeMap<>();
+    this.nameSearchIndex = new NameIndex();
+    this.lock = new ReentrantReadWriteLock();
+    this.listeners = new CopyOnWriteArrayList<>();
   }
 
   /**
@@ -40,53 +144,265 @@ public class FoodStorage {
     return generateKey(
         ingredient.getName(),
         ingredient.getUnit(),
-        ingredient.getPricePerUnit(),
+        ingredient.getPricePerUnitMicros(),
         ingredient.getBestBeforeDate()
     );
   }
 
   /**
-   * Generates a unique key based on the provided attributes.
+   * Generates a unique key based on the provided attributes. Prices are told apart in whole
+   * hundredths, rounded from micro-units like in OffHeapLotStore.
    *
-   * @param name           the name of the ingredient
-   * @param unit           the unit of measurement
-   * @param pricePerUnit   the price per unit
-   * @param bestBeforeDate the best-before date
+   * @param name               the name of the ingredient
+   * @param unit               the unit of measurement
+   * @param pricePerUnitMicros the price per unit in micro-units
+   * @param bestBeforeDate     the best-before date
    * @return the unique key as a string
    */
-  private String generateKey(String name, String unit, double pricePerUnit, Date bestBeforeDate) {
-    String dateStr = DATE_FORMAT.format(bestBeforeDate);
-    return String.format("%s-%s-%.2f-%s",
+  private String generateKey(String name, String unit, long pricePerUnitMicros,
+      Date bestBeforeDate) {
+    String dateStr = DATE_FORMAT.format(bestBeforeDate.toInstant().atZone(ZoneId.systemDefault()));
+    long hundredths = FixedPoint.toHundredths(pricePerUnitMicros);
+    return String.format("%s-%s-%d.%02d-%s",
         name.trim().toLowerCase(),
         unit.trim().toLowerCase(),
-        pricePerUnit,
+        hundredths / 100,
+        hundredths % 100,
         dateStr);
   }
 
+  /**
+   * Generates the key a lot is stored under in the name index. The best-before date comes right
+   * after the name, as the rest of the ingredient key neither sorts numbers nor dates in order.
+   *
+   * @param key        the unique key of the lot
+   * @param ingredient the lot
+   * @return the name index key
+   */
+  private static String nameIndexKey(String key, Ingredient ingredient) {
+    long epochDay = ingredient.getBestBeforeDate().toInstant().atZone(ZoneId.systemDefault())
+        .toLocalDate().toEpochDay();
+    return ingredient.getName().trim().toLowerCase() + '\u0000' + sortable(epochDay) + '\u0000'
+        + key;
+  }
+
+  /**
+   * Generates the key a lot is stored under in the expiry index.
+   *
+   * @param key        the unique key of the lot
+   * @param ingredient the lot
+   * @return the expiry index key
+   */
+  private static String expiryIndexKey(String key, Ingredient ingredient) {
+    return sortable(ingredient.getBestBeforeDate().getTime()) + '\u0000' + key;
+  }
+
+  /**
+   * Generates the key a lot is stored under in the value index.
+   *
+   * @param key        the unique key of the lot
+   * @param ingredient the lot
+   * @return the value index key
+   */
+  private static String valueIndexKey(String key, Ingredient ingredient) {
+    return sortable(ingredient.getTotalValueMicros()) + '\u0000' + key;
+  }
+
+  /**
+   * Encodes a number as a fixed-width string that sorts in the same order as the number.
+   *
+   * @param value the number to encode
+   * @return the sortable string
+   */
+  private static String sortable(long value) {
+    String hex = Long.toHexString(value ^ Long.MIN_VALUE);
+    return "0".repeat(16 - hex.length()) + hex;
+  }
+
+  /**
+   * Stores a new lot and registers it in the indexes and aggregates.
+   *
+   * @param key        the unique key of the lot
+   * @param ingredient the lot to store
+   */
+  private void putLot(String key, Ingredient ingredient) {
+    ingredientMap.put(key, ingredient);
+    lotPositions.put(key, lots.size());
+    lots.add(ingredient);
+    lotKeys.add(key);
+    nameIndex.put(nameIndexKey(key, ingredient), ingredient);
+    expiryIndex.put(expiryIndexKey(key, ingredient), ingredient);
+    valueIndex.put(valueIndexKey(key, ingredient), ingredient);
+    nameSearchIndex.add(ingredient.getName());
+    updateAggregate(ingredient, 0, ingredient.getQuantityMicros(), 1);
+    modificationVersion++;
+    notifyListeners(ingredient, ingredient.getQuantity());
+  }
+
+  /**
+   * Changes the quantity of a stored lot and moves it in the value index and aggregates.
+   *
+   * @param key         the unique key of the lot
+   * @param ingredient  the stored lot
+   * @param newQuantity the new quantity of the lot in micro-units
+   */
+  private void updateQuantity(String key, Ingredient ingredient, long newQuantity) {
+    long oldQuantity = ingredient.getQuantityMicros();
+    valueIndex.remove(valueIndexKey(key, ingredient));
+    ingredient.setQuantityMicros(newQuantity);
+    valueIndex.put(valueIndexKey(key, ingredient), ingredient);
+    updateAggregate(ingredient, oldQuantity, newQuantity, 0);
+    modificationVersion++;
+    notifyListeners(ingredient, FixedPoint.toDouble(newQuantity - oldQuantity));
+  }
+
+  /**
+   * Tells the listeners about a change to a lot.
+   *
+   * @param ingredient    the lot that changed
+   * @param quantityDelta the change in quantity
+   */
+  private void notifyListeners(Ingredient ingredient, double quantityDelta) {
+    if (quantityDelta == 0) {
+      return;
+    }
+    for (StorageListener listener : listeners) {
+      listener.lotChanged(operationCount, ingredient, quantityDelta);
+    }
+  }
+
+  /**
+   * Removes a lot from the storage, the indexes and the aggregates.
+   *
+   * @param key        the unique key of the lot
+   * @param ingredient the lot to remove
+   */
+  private void dropLot(String key, Ingredient ingredient) {
+    ingredientMap.remove(key);
+    int position = lotPositions.remove(key);
+    Ingredient last = lots.remove(lots.size() - 1);
+    String lastKey = lotKeys.remove(lotKeys.size() - 1);
+    if (position < lots.size()) {
+      lots.set(position, last);
+      lotKeys.set(position, lastKey);
+      lotPositions.put(lastKey, position);
+    }
+    nameIndex.remove(nameIndexKey(key, ingredient));
+    expiryIndex.remove(expiryIndexKey(key, ingredient));
+    valueIndex.remove(valueIndexKey(key, ingredient));
+    nameSearchIndex.remove(ingredient.getName());
+    updateAggregate(ingredient, ingredient.getQuantityMicros(), 0, -1);
+  }
+
+  /**
+   * Returns the lots of one ingredient from the name index, in O(log n + lots of the name).
+   *
+   * @param name the lower case ingredient name
+   * @return a view of the lots with that name
+   */
+  private Collection<Ingredient> lotsNamed(String name) {
+    return nameIndex.subMap(name + '\u0000', name + '\u0001').values();
+  }
+
+  /**
+   * Applies the change of one lot to the aggregate of its name and unit. The deltas are taken
+   * between the converted old and new quantities and values, so the aggregate always equals the
+   * sum of its lots exactly.
+   *
+   * @param ingredient  the lot that changed
+   * @param oldQuantity the quantity before the change in micro-units, in the unit of the lot
+   * @param newQuantity the quantity after the change in micro-units, in the unit of the lot
+   * @param lotDelta    1 if the lot was added, -1 if it was removed, otherwise 0
+   */
+  private void updateAggregate(Ingredient ingredient, long oldQuantity, long newQuantity,
+      int lotDelta) {
+    String unit = ingredient.getUnit();
+    long standardDelta = newQuantity - oldQuantity;
+    if (UnitConverter.isSupportedUnit(unit)) {
+      standardDelta = UnitConverter.convertToStandardMicros(newQuantity, unit)
+          - UnitConverter.convertToStandardMicros(oldQuantity, unit);
+      unit = UnitConverter.getStandardUnit(unit);
+    }
+    long price = ingredient.getPricePerUnitMicros();
+    long valueDelta = FixedPoint.multiply(newQuantity, price)
+        - FixedPoint.multiply(oldQuantity, price);
+    String name = ingredient.getName().trim().toLowerCase();
+    String aggregateKey = aggregateKey(name, unit);
+
+    IngredientAggregate aggregate = aggregates.get(aggregateKey);
+    if (aggregate == null) {
+      aggregate = new IngredientAggregate(name, unit);
+      aggregates.put(aggregateKey, aggregate);
+    } else {
+      quantityIndex.remove(quantityIndexKey(aggregateKey, aggregate));
+    }
+
+    aggregate.apply(ingredient.getBestBeforeDate().getTime(), standardDelta, valueDelta, lotDelta);
+    if (aggregate.getLotCount() == 0) {
+      aggregates.remove(aggregateKey);
+    } else {
+      quantityIndex.put(quantityIndexKey(aggregateKey, aggregate), aggregate);
+    }
+  }
+
+  /**
+   * Generates the key an aggregate is stored under.
+   *
+   * @param name the lower case ingredient name
+   * @param unit the standard unit
+   * @return the aggregate key
+   */
+  private static String aggregateKey(String name, String unit) {
+    return name + '\u0000' + unit.trim().toLowerCase();
+  }
+
+  /**
+   * Generates the key an aggregate is stored under in the quantity index.
+   *
+   * @param aggregateKey the name and unit key of the aggregate
+   * @param aggregate    the aggregate
+   * @return the quantity index key
+   */
+  private static String quantityIndexKey(String aggregateKey, IngredientAggregate aggregate) {
+    return sortable(aggregate.getTotalQuantityMicros()) + '\u0000' + aggregateKey;
+  }
+
   /**
    * Adds an ingredient to the storage. If an ingredient with the same key already exists, it
-   * increases the quantity.
+   * increases the quantity. The storage keeps a copy, so changing the ingredient afterwards does
+   * not change the storage.
    *
    * @param ingredient the ingredient to add
    * @throws IllegalArgumentException if ingredient is null
    */
   public void addIngredient(Ingredient ingredient) {
-    InputValidation.validateIngredient(ingredient);
+    long start = System.nanoTime();
+    try {
+      InputValidation.validateIngredient(ingredient);
 
-    String key = generateKey(ingredient);
+      String key = generateKey(ingredient);
 
-    if (ingredientMap.containsKey(key)) {
-      // Increase the quantity of the existing ingredient
-      Ingredient existingIngredient = ingredientMap.get(key);
-      double newQuantity = existingIngredient.getQuantity() + ingredient.getQuantity();
-      existingIngredient.setQuantity(newQuantity);
-    } else {
-      // Add the new ingredient
-      ingredientMap.put(key, ingredient);
-
-      if (ingredient.getQuantity() == 0) {
-        ingredientMap.remove(key);
+      lock.writeLock().lock();
+      try {
+        operationCount++;
+        if (ingredientMap.containsKey(key)) {
+          // Increase the quantity of the existing ingredient
+          Ingredient existingIngredient = ingredientMap.get(key);
+          long newQuantity = Math.addExact(existingIngredient.getQuantityMicros(),
+              ingredient.getQuantityMicros());
+          updateQuantity(key, existingIngredient, newQuantity);
+        } else if (ingredient.getQuantityMicros() != 0) {
+          // Add a copy, so the caller cannot change the stored lot behind the indexes
+          putLot(key, new Ingredient(ingredient));
+        }
+      } finally {
+        lock.writeLock().unlock();
       }
+    } catch (RuntimeException e) {
+      OperationMetrics.recordFailure(Operation.ADD_INGREDIENT);
+      throw e;
+    } finally {
+      OperationMetrics.record(Operation.ADD_INGREDIENT, start);
     }
   }
 
@@ -103,31 +419,215 @@ public class FoodStorage {
    */
   public void removeIngredient(String name, String unit, double pricePerUnit,
       Date bestBeforeDate, double quantity) {
-    InputValidation.validateRemoveIngredientQuantity(quantity);
-    InputValidation.validateIngredientName(name);
-    InputValidation.validateIngredientUnit(unit);
-    InputValidation.validateBestBeforeDate(bestBeforeDate);
+    long start = System.nanoTime();
+    try {
+      InputValidation.validateRemoveIngredientQuantity(quantity);
+      InputValidation.validateIngredientName(name);
+      InputValidation.validateIngredientUnit(unit);
+      InputValidation.validateBestBeforeDate(bestBeforeDate);
+
+      String key = generateKey(name, unit, FixedPoint.toMicros(pricePerUnit), bestBeforeDate);
+      long quantityMicros = FixedPoint.toMicros(quantity);
 
-    String key = generateKey(name, unit, pricePerUnit, bestBeforeDate);
+      lock.writeLock().lock();
+      try {
+        operationCount++;
+        Ingredient ingredient = ingredientMap.get(key);
+        if (ingredient == null) {
+          throw new IllegalArgumentException("Ingredient not found in storage.");
+        }
 
-    Ingredient ingredient = ingredientMap.get(key);
-    if (ingredient == null) {
-      throw new IllegalArgumentException("Ingredient not found in storage.");
+        long currentQuantity = ingredient.getQuantityMicros();
+        if (currentQuantity < quantityMicros) {
+          throw new IllegalArgumentException("Not enough quantity to remove.");
+        }
+
+        updateQuantity(key, ingredient, currentQuantity - quantityMicros);
+
+        // Remove ingredient if quantity is zero, which is exact in micro-units
+        if (ingredient.getQuantityMicros() == 0) {
+          dropLot(key, ingredient);
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+    } catch (RuntimeException e) {
+      OperationMetrics.recordFailure(Operation.REMOVE_INGREDIENT);
+      throw e;
+    } finally {
+      OperationMetrics.record(Operation.REMOVE_INGREDIENT, start);
     }
+  }
 
-    double currentQuantity = ingredient.getQuantity();
-    if (currentQuantity < quantity) {
-      throw new IllegalArgumentException("Not enough quantity to remove.");
+  /**
+   * Cooks a recipe by taking every ingredient it needs out of the storage in one transaction. Each
+   * ingredient is taken from the non-expired lots that expire soonest, across as many lots and
+   * units of the same kind as needed, and lots that are used up are removed.
+   *
+   * <p>The lots to use are chosen under the read lock, so other readers are not held up. The write
+   * lock is only taken to check that the chosen lots still hold enough and to deduct from them.
+   * If another thread took from the same lots in between, the lots are chosen again. Either every
+   * ingredient is deducted or, if anything is short, nothing is.
+   *
+   * @param recipe the recipe to cook
+   * @return the lots taken from, with the quantity taken from each in the unit of the lot
+   * @throws IllegalArgumentException if the recipe is null or the storage does not hold enough of
+   *                                  an ingredient
+   */
+  public List<Ingredient> cook(Recipe recipe) {
+    long start = System.nanoTime();
+    try {
+      InputValidation.validateRecipe(recipe);
+      while (true) {
+        List<Deduction> deductions;
+        lock.readLock().lock();
+        try {
+          deductions = planDeductions(recipe);
+        } finally {
+          lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+          if (stillAvailable(deductions)) {
+            operationCount++;
+            List<Ingredient> taken = new ArrayList<>(deductions.size());
+            for (Deduction deduction : deductions) {
+              taken.add(deduct(deduction));
+            }
+            return taken;
+          }
+        } finally {
+          lock.writeLock().unlock();
+        }
+      }
+    } catch (RuntimeException e) {
+      OperationMetrics.recordFailure(Operation.COOK_RECIPE);
+      throw e;
+    } finally {
+      OperationMetrics.record(Operation.COOK_RECIPE, start);
+    }
+  }
+
+  /**
+   * Chooses the lots to take the ingredients of a recipe from, soonest expiry first. Must be called
+   * with a lock held.
+   *
+   * @param recipe the recipe to cook
+   * @return the quantity to take from each lot
+   * @throws IllegalArgumentException if the storage does not hold enough of an ingredient
+   */
+  private List<Deduction> planDeductions(Recipe recipe) {
+    long now = System.currentTimeMillis();
+    List<Deduction> deductions = new ArrayList<>();
+    Map<String, String> units = recipe.getUnits();
+    for (Map.Entry<String, Double> entry : recipe.getIngredients().entrySet()) {
+      String name = entry.getKey();
+      String unit = units.get(name);
+      boolean convertible = UnitConverter.isSupportedUnit(unit);
+      String standardUnit = convertible ? UnitConverter.getStandardUnit(unit) : unit;
+      long needed = FixedPoint.toMicros(entry.getValue());
+      if (convertible) {
+        needed = UnitConverter.convertToStandardMicros(needed, unit);
+      }
+
+      List<Ingredient> lots = new ArrayList<>();
+      for (Ingredient lot : lotsNamed(name)) {
+        if (lot.getBestBeforeDate().getTime() >= now && sameKind(lot.getUnit(), standardUnit)) {
+          lots.add(lot);
+        }
+      }
+      lots.sort(Comparator.comparing(Ingredient::getBestBeforeDate));
+
+      for (int i = 0; i < lots.size() && needed > 0; i++) {
+        Ingredient lot = lots.get(i);
+        long available = convertible
+            ? UnitConverter.convertToStandardMicros(lot.getQuantityMicros(), lot.getUnit())
+            : lot.getQuantityMicros();
+        long quantity = lot.getQuantityMicros();
+        if (available > needed) {
+          quantity = Math.min(quantity, convertible
+              ? UnitConverter.convertFromStandardMicros(needed, lot.getUnit()) : needed);
+        }
+        deductions.add(new Deduction(generateKey(lot), lot, quantity));
+        needed -= Math.min(available, needed);
+      }
+      if (needed > 0) {
+        throw new IllegalArgumentException(
+            "Not enough " + name + " to cook " + recipe.getName() + ".");
+      }
     }
+    return deductions;
+  }
+
+  /**
+   * Checks if two units measure the same kind of quantity.
+   *
+   * @param unit         the unit of a lot
+   * @param standardUnit the standard unit of a recipe ingredient, or its own unit if it has none
+   * @return true if the lot can be used for the ingredient
+   */
+  private static boolean sameKind(String unit, String standardUnit) {
+    String lotUnit = UnitConverter.isSupportedUnit(unit) ? UnitConverter.getStandardUnit(unit)
+        : unit;
+    return lotUnit.equalsIgnoreCase(standardUnit);
+  }
 
-    ingredient.setQuantity(currentQuantity - quantity);
+  /**
+   * Checks that every chosen lot is still stored and holds at least the quantity to take. Must be
+   * called with the write lock held.
+   *
+   * @param deductions the chosen lots
+   * @return true if every deduction can be made
+   */
+  private boolean stillAvailable(List<Deduction> deductions) {
+    Map<String, Long> remaining = new HashMap<>();
+    for (Deduction deduction : deductions) {
+      if (ingredientMap.get(deduction.key) != deduction.lot) {
+        return false;
+      }
+      long left = remaining.getOrDefault(deduction.key, deduction.lot.getQuantityMicros());
+      if (left < deduction.quantity) {
+        return false;
+      }
+      remaining.put(deduction.key, left - deduction.quantity);
+    }
+    return true;
+  }
 
-    // Remove ingredient if quantity is zero
-    if (ingredient.getQuantity() == 0) {
-      ingredientMap.remove(key);
+  /**
+   * Takes the chosen quantity from a lot, removing the lot once it is used up. Must be called with
+   * the write lock held, after {@link #stillAvailable(List)}.
+   *
+   * @param deduction the lot and quantity
+   * @return a copy of the lot holding the quantity taken
+   */
+  private Ingredient deduct(Deduction deduction) {
+    Ingredient lot = deduction.lot;
+    long left = lot.getQuantityMicros() - deduction.quantity;
+    updateQuantity(deduction.key, lot, left);
+    if (left == 0) {
+      dropLot(deduction.key, lot);
     }
+    return new Ingredient(lot.getName(), FixedPoint.toDouble(deduction.quantity), lot.getUnit(),
+        lot.getBestBeforeDate(), lot.getPricePerUnit());
   }
 
+  /**
+   * A quantity to take from one lot when cooking.
+   */
+  private static class Deduction {
+
+    private final String key;
+    private final Ingredient lot;
+    private final long quantity;   // In micro-units of the lot's unit
+
+    private Deduction(String key, Ingredient lot, long quantity) {
+      this.key = key;
+      this.lot = lot;
+      this.quantity = quantity;
+    }
+  }
 
   /**
    * Searches for an ingredient by its attributes.
@@ -138,20 +638,31 @@ public class FoodStorage {
    * @param bestBeforeDate the best-before date
    * @return the ingredient if found, null otherwise
    */
+  @Override
   public Ingredient searchIngredient(String name, String unit, double pricePerUnit,
       Date bestBeforeDate) {
-    if (name == null || name.trim().isEmpty()) {
-      return null;
-    }
-    if (unit == null || unit.trim().isEmpty()) {
-      return null;
-    }
-    if (bestBeforeDate == null) {
-      return null;
-    }
+    long start = System.nanoTime();
+    try {
+      if (name == null || name.trim().isEmpty()) {
+        return null;
+      }
+      if (unit == null || unit.trim().isEmpty()) {
+        return null;
+      }
+      if (bestBeforeDate == null || !FixedPoint.isRepresentable(pricePerUnit)) {
+        return null;
+      }
 
-    String key = generateKey(name, unit, pricePerUnit, bestBeforeDate);
-    return ingredientMap.get(key);
+      String key = generateKey(name, unit, FixedPoint.toMicros(pricePerUnit), bestBeforeDate);
+      lock.readLock().lock();
+      try {
+        return ingredientMap.get(key);
+      } finally {
+        lock.readLock().unlock();
+      }
+    } finally {
+      OperationMetrics.record(Operation.SEARCH_INGREDIENT, start);
+    }
   }
 
   /**
@@ -161,21 +672,43 @@ public class FoodStorage {
    * @param unit unit of the ingredient in the recipe
    * @return returns the desired ingredient
    */
+  @Override
   public Ingredient findIngredientByNameAndUnit(String name, String unit) {
-    if (name == null || unit == null) {
-      return null;
-    }
+    long start = System.nanoTime();
+    try {
+      if (name == null || unit == null) {
+        return null;
+      }
 
-    String trimmedName = name.trim().toLowerCase();
-    String standardUnit = UnitConverter.getStandardUnit(unit);
+      StorageScanEvent event = new StorageScanEvent();
+      event.begin();
+      String trimmedName = name.trim().toLowerCase();
+      String standardUnit = UnitConverter.getStandardUnit(unit);
+      long unitLookupTime = System.nanoTime() - start;
 
-    for (Ingredient ingredient : ingredientMap.values()) {
-      if (ingredient.getName().trim().toLowerCase().equals(trimmedName)
-          && ingredient.getUnit().equalsIgnoreCase(standardUnit) && !ingredient.isExpired()) {
-        return ingredient;
+      int lotsScanned = 0;
+      Ingredient found = null;
+      lock.readLock().lock();
+      try {
+        for (Ingredient ingredient : lotsNamed(trimmedName)) {
+          lotsScanned++;
+          if (ingredient.getUnit().equalsIgnoreCase(standardUnit) && !ingredient.isExpired()) {
+            found = ingredient;
+            break;
+          }
+        }
+      } finally {
+        lock.readLock().unlock();
       }
+      commitScan(event, "findIngredientByNameAndUnit", trimmedName, lotsScanned,
+          found == null ? 0 : 1, unitLookupTime);
+      return found;
+    } catch (RuntimeException e) {
+      OperationMetrics.recordFailure(Operation.FIND_INGREDIENT);
+      throw e;
+    } finally {
+      OperationMetrics.record(Operation.FIND_INGREDIENT, start);
     }
-    return null;
   }
 
   /**
@@ -191,26 +724,200 @@ public class FoodStorage {
       return null;
     }
 
+    StorageScanEvent event = new StorageScanEvent();
+    event.begin();
+    long start = System.nanoTime();
     String trimmedName = name.trim().toLowerCase();
     String standardUnit = UnitConverter.getStandardUnit(unit);
+    long unitLookupTime = System.nanoTime() - start;
 
-    for (Ingredient ingredient : ingredientMap.values()) {
-      if (ingredient.getName().trim().toLowerCase().equals(trimmedName)
-          && ingredient.getUnit().equalsIgnoreCase(standardUnit)) {
-        return ingredient;
+    int lotsScanned = 0;
+    Ingredient found = null;
+    lock.readLock().lock();
+    try {
+      for (Ingredient ingredient : lotsNamed(trimmedName)) {
+        lotsScanned++;
+        if (ingredient.getUnit().equalsIgnoreCase(standardUnit)) {
+          found = ingredient;
+          break;
+        }
       }
+    } finally {
+      lock.readLock().unlock();
     }
-    return null;
+    commitScan(event, "findIngredientWithExpired", trimmedName, lotsScanned,
+        found == null ? 0 : 1, unitLookupTime);
+    return found;
   }
 
 
+  /**
+   * Registers a listener to be told about every change to the lots. See {@link StorageListener}
+   * for what a listener may do.
+   *
+   * @param listener the listener
+   */
+  public void addListener(StorageListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Stops telling a listener about changes.
+   *
+   * @param listener the listener
+   */
+  public void removeListener(StorageListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Returns the modification version of the storage. The version grows by at least one every time
+   * a lot is added, changed or removed through this storage, so two equal versions mean the
+   * contents have not changed in between. Lots cannot be changed in any other way, since the
+   * storage keeps its own copy of every ingredient added and the lots it hands out are read-only.
+   *
+   * @return the modification version
+   */
+  @Override
+  public long getModificationVersion() {
+    lock.readLock().lock();
+    try {
+      return modificationVersion;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of lots in the storage.
+   *
+   * @return the number of lots
+   */
+  @Override
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return ingredientMap.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Fills in and commits a storage scan event if Flight Recorder wants it.
+   *
+   * @param event          the event that was begun before the scan
+   * @param operation      the name of the scanning method
+   * @param ingredientName the ingredient looked for, or null
+   * @param lotsScanned    the number of lots visited
+   * @param matches        the number of lots that matched
+   * @param unitLookupTime the nanoseconds spent in UnitConverter
+   */
+  private static void commitScan(StorageScanEvent event, String operation, String ingredientName,
+      int lotsScanned, int matches, long unitLookupTime) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.setOperation(operation);
+      event.setIngredientName(ingredientName);
+      event.setLotsScanned(lotsScanned);
+      event.setMatches(matches);
+      event.setUnitLookupTime(unitLookupTime);
+      event.commit();
+    }
+  }
+
+  /**
+   * Searches the names of the stored ingredients for partial words and small spelling mistakes.
+   * The exact name comes first, then names starting with the query, then names within one or two
+   * edits of it.
+   *
+   * @param query the text to search for
+   * @param limit the maximum number of names to return
+   * @return the matching ingredient names in lower case, best match first
+   */
+  public List<String> searchIngredientNames(String query, int limit) {
+    lock.readLock().lock();
+    try {
+      return nameSearchIndex.search(query, limit);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Performs an action on every lot in the storage, without copying them into an array first. The
+   * lots are passed in no particular order.
+   *
+   * @param action the action to perform on each lot
+   * @throws ConcurrentModificationException if the storage is changed during the iteration
+   * @see #spliterator()
+   */
+  @Override
+  public void forEach(Consumer<? super Ingredient> action) {
+    spliterator().forEachRemaining(action);
+  }
+
+  /**
+   * Returns an iterator over the lots in the storage, in no particular order. It fails fast in the
+   * same way as {@link #spliterator()}.
+   *
+   * @return an iterator over the lots
+   */
+  @Override
+  public Iterator<Ingredient> iterator() {
+    return Spliterators.iterator(spliterator());
+  }
+
+  /**
+   * Returns a stream of the lots in the storage, without copying them into an array first. The
+   * stream can be made parallel, and then splits the lots evenly across threads.
+   *
+   * @return a stream of the lots
+   * @throws ConcurrentModificationException from the terminal operation if the storage is changed
+   *                                         before or while the stream runs
+   * @see #spliterator()
+   */
+  public Stream<Ingredient> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+
+  /**
+   * Returns a spliterator over the lots in the storage. It reports its exact size, and splits into
+   * halves that do too, so parallel streams divide the work evenly.
+   *
+   * <p>The spliterator reads the lots in place, taking the read lock only while it collects a
+   * batch of up to 256 of them, so the action is never run with the lock held. Changing the
+   * storage while the spliterator is in use, from the action or another thread, is not supported.
+   * Like the iterators of the standard collections it fails fast on a best-effort basis: the next
+   * batch it reads throws a ConcurrentModificationException. A change made while the last batch
+   * is handed to the action is not detected, so with a storage of fewer than 256 lots, changing it
+   * from the action of a whole traversal never throws.
+   *
+   * @return a spliterator over the lots
+   */
+  @Override
+  public Spliterator<Ingredient> spliterator() {
+    lock.readLock().lock();
+    try {
+      return new LotSpliterator(0, lots.size(), modificationVersion);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
   /**
    * Returns a list of all ingredients in the storage.
    *
    * @return an array of all ingredients
    */
+  @Override
   public Ingredient[] listAllIngredients() {
-    return ingredientMap.values().toArray(new Ingredient[0]);
+    lock.readLock().lock();
+    try {
+      return ingredientMap.values().toArray(new Ingredient[0]);
+    } finally {
+      lock.readLock().unlock();
+    }
   }
 
   /**
@@ -219,9 +926,206 @@ public class FoodStorage {
    * @return an array of expired ingredients
    */
   public Ingredient[] listExpiredIngredients() {
-    return ingredientMap.values().stream()
-        .filter(Ingredient::isExpired)
-        .toArray(Ingredient[]::new);
+    StorageScanEvent event = new StorageScanEvent();
+    event.begin();
+    Ingredient[] expired;
+    int lotsScanned;
+    lock.readLock().lock();
+    try {
+      expired = ingredientMap.values().stream()
+          .filter(Ingredient::isExpired)
+          .toArray(Ingredient[]::new);
+      lotsScanned = ingredientMap.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+    commitScan(event, "listExpiredIngredients", null, lotsScanned, expired.length, 0);
+    return expired;
+  }
+
+  /**
+   * Lists one page of lots in the given order. Pass null as cursor for the first page, and the
+   * cursor of the returned page to continue. Pages are read straight from an ordered index, so a
+   * page costs O(page size) regardless of how many lots are stored. Listing only expired lots by
+   * name has to skip the fresh lots in between, while listing them by expiry does not.
+   *
+   * @param order       the order to list the lots in
+   * @param expiredOnly true to list only expired lots
+   * @param cursor      the cursor from the previous page, or null to start from the beginning
+   * @param pageSize    the maximum number of lots on the page
+   * @return the page of lots
+   * @throws IllegalArgumentException if order is null or pageSize is not positive
+   */
+  @Override
+  public IngredientPage listIngredientsPage(IngredientOrder order, boolean expiredOnly,
+      String cursor, int pageSize) {
+    if (order == null) {
+      throw new IllegalArgumentException("Order cannot be null.");
+    }
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("Page size must be positive.");
+    }
+
+    // One entry more than the page tells whether there is another page
+    List<Map.Entry<String, Ingredient>> entries =
+        listIndexEntries(order, expiredOnly, cursor, false, pageSize + 1);
+    boolean hasMore = entries.size() > pageSize;
+    List<Ingredient> page = new ArrayList<>(Math.min(pageSize, entries.size()));
+    for (int i = 0; i < entries.size() && i < pageSize; i++) {
+      page.add(entries.get(i).getValue());
+    }
+    return new IngredientPage(page, hasMore ? entries.get(pageSize - 1).getKey() : null);
+  }
+
+  /**
+   * Lists the entries of the name or expiry index from a key on, under the read lock. The keys
+   * sort in the order of the listing and are unique within this storage, which lets a
+   * {@link FederatedStorage} merge the listings of several storages into one.
+   *
+   * @param order       the order to list the lots in
+   * @param expiredOnly true to list only expired lots
+   * @param from        the key to start from, or null to start from the beginning
+   * @param inclusive   true to include the entry at the key itself
+   * @param limit       the maximum number of entries
+   * @return the entries, in order
+   */
+  List<Map.Entry<String, Ingredient>> listIndexEntries(IngredientOrder order,
+      boolean expiredOnly, String from, boolean inclusive, int limit) {
+    lock.readLock().lock();
+    try {
+      NavigableMap<String, Ingredient> index =
+          order == IngredientOrder.NAME ? nameIndex : expiryIndex;
+      boolean filterExpired = expiredOnly;
+      if (expiredOnly && order == IngredientOrder.EXPIRY) {
+        // Expired lots are exactly the ones dated before now
+        index = index.headMap(sortable(System.currentTimeMillis()), false);
+        filterExpired = false;
+      }
+      if (from != null) {
+        index = index.tailMap(from, inclusive);
+      }
+
+      // The size of a tail or head view is counted entry by entry, so size by the whole index
+      List<Map.Entry<String, Ingredient>> entries =
+          new ArrayList<>(Math.min(limit, nameIndex.size()));
+      Iterator<Map.Entry<String, Ingredient>> iterator = index.entrySet().iterator();
+      while (iterator.hasNext() && entries.size() < limit) {
+        Map.Entry<String, Ingredient> entry = iterator.next();
+        if (!filterExpired || entry.getValue().isExpired()) {
+          entries.add(Map.entry(entry.getKey(), entry.getValue()));
+        }
+      }
+      return entries;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the combined quantity and value of every lot of an ingredient, in O(1). Lots in any
+   * volume unit are combined in liters and lots in any weight unit in kilograms.
+   *
+   * @param name the name of the ingredient
+   * @param unit any unit of the kind to look up, or the exact unit for other units
+   * @return the aggregate, or null if no lot of the ingredient is stored
+   */
+  @Override
+  public IngredientAggregate getAggregate(String name, String unit) {
+    if (name == null || name.trim().isEmpty() || unit == null || unit.trim().isEmpty()) {
+      return null;
+    }
+    String standardUnit = UnitConverter.isSupportedUnit(unit)
+        ? UnitConverter.getStandardUnit(unit) : unit;
+    lock.readLock().lock();
+    try {
+      return aggregates.get(aggregateKey(name.trim().toLowerCase(), standardUnit));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the aggregates of every ingredient in the storage.
+   *
+   * @return a copy of the collection of aggregates
+   */
+  @Override
+  public Collection<IngredientAggregate> getAggregates() {
+    lock.readLock().lock();
+    try {
+      return new ArrayList<>(aggregates.values());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the lots that expire soonest and have not expired yet, read from the expiry index in
+   * O(log n + k).
+   *
+   * @param k the maximum number of lots to return
+   * @return up to k lots, soonest best-before date first
+   * @throws IllegalArgumentException if k is negative
+   */
+  public List<Ingredient> soonestExpiring(int k) {
+    validateCount(k);
+    lock.readLock().lock();
+    try {
+      return firstValues(expiryIndex.tailMap(sortable(System.currentTimeMillis()), true), k);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the lots with the highest total value, read from the value index in O(log n + k).
+   *
+   * @param k the maximum number of lots to return
+   * @return up to k lots, most valuable first
+   * @throws IllegalArgumentException if k is negative
+   */
+  public List<Ingredient> highestValue(int k) {
+    validateCount(k);
+    lock.readLock().lock();
+    try {
+      return firstValues(valueIndex.descendingMap(), k);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the ingredients with the largest combined quantity over all their lots, read from the
+   * quantity index in O(log n + k). Quantities are compared in standard units, so liters and
+   * kilograms are ranked against each other by their numbers.
+   *
+   * @param k the maximum number of ingredients to return
+   * @return up to k aggregates, largest quantity first
+   * @throws IllegalArgumentException if k is negative
+   */
+  public List<IngredientAggregate> largestQuantities(int k) {
+    validateCount(k);
+    lock.readLock().lock();
+    try {
+      return firstValues(quantityIndex.descendingMap(), k);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static void validateCount(int k) {
+    if (k < 0) {
+      throw new IllegalArgumentException("Number of results cannot be negative.");
+    }
+  }
+
+  private static <T> List<T> firstValues(NavigableMap<String, T> index, int k) {
+    List<T> result = new ArrayList<>(Math.min(k, index.size()));
+    Iterator<T> iterator = index.values().iterator();
+    while (iterator.hasNext() && result.size() < k) {
+      result.add(iterator.next());
+    }
+    return result;
   }
 
   /**
@@ -229,10 +1133,25 @@ public class FoodStorage {
    *
    * @return the total value in NOK
    */
+  @Override
   public double calculateTotalValue() {
-    return ingredientMap.values().stream()
-        .mapToDouble(Ingredient::getTotalValue)
-        .sum();
+    long start = System.nanoTime();
+    StorageScanEvent event = new StorageScanEvent();
+    event.begin();
+    int lotsScanned = 0;
+    lock.readLock().lock();
+    try {
+      lotsScanned = ingredientMap.size();
+      long value = 0;
+      for (Ingredient ingredient : ingredientMap.values()) {
+        value += ingredient.getTotalValueMicros();
+      }
+      return FixedPoint.toDouble(value);
+    } finally {
+      lock.readLock().unlock();
+      commitScan(event, "calculateTotalValue", null, lotsScanned, lotsScanned, 0);
+      OperationMetrics.record(Operation.TOTAL_VALUE, start);
+    }
   }
 
   /**
@@ -241,9 +1160,116 @@ public class FoodStorage {
    * @return the total value of expired ingredients in NOK
    */
   public double calculateExpiredIngredientsValue() {
-    return ingredientMap.values().stream()
-        .filter(Ingredient::isExpired)
-        .mapToDouble(Ingredient::getTotalValue)
-        .sum();
+    long start = System.nanoTime();
+    StorageScanEvent event = new StorageScanEvent();
+    event.begin();
+    int matches = 0;
+    int lotsScanned = 0;
+    lock.readLock().lock();
+    try {
+      lotsScanned = ingredientMap.size();
+      long value = 0;
+      for (Ingredient ingredient : ingredientMap.values()) {
+        if (ingredient.isExpired()) {
+          value += ingredient.getTotalValueMicros();
+          matches++;
+        }
+      }
+      return FixedPoint.toDouble(value);
+    } finally {
+      lock.readLock().unlock();
+      commitScan(event, "calculateExpiredIngredientsValue", null, lotsScanned, matches, 0);
+      OperationMetrics.record(Operation.EXPIRED_VALUE, start);
+    }
+  }
+
+  /**
+   * A range of positions in the dense lot list, bound to the modification version it was created
+   * at.
+   */
+  private class LotSpliterator implements Spliterator<Ingredient> {
+
+    private static final int BATCH_SIZE = 256;
+
+    private int index;
+    private final int fence;
+    private final long expectedVersion;
+
+    private LotSpliterator(int index, int fence, long expectedVersion) {
+      this.index = index;
+      this.fence = fence;
+      this.expectedVersion = expectedVersion;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Ingredient> action) {
+      if (action == null) {
+        throw new NullPointerException();
+      }
+      if (index >= fence) {
+        return false;
+      }
+      Ingredient lot;
+      lock.readLock().lock();
+      try {
+        checkVersion();
+        lot = lots.get(index++);
+      } finally {
+        lock.readLock().unlock();
+      }
+      action.accept(lot);
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Ingredient> action) {
+      if (action == null) {
+        throw new NullPointerException();
+      }
+      Ingredient[] batch = new Ingredient[Math.min(BATCH_SIZE, Math.max(0, fence - index))];
+      while (index < fence) {
+        int count = Math.min(batch.length, fence - index);
+        lock.readLock().lock();
+        try {
+          checkVersion();
+          for (int i = 0; i < count; i++) {
+            batch[i] = lots.get(index + i);
+          }
+        } finally {
+          lock.readLock().unlock();
+        }
+        index += count;
+        for (int i = 0; i < count; i++) {
+          action.accept(batch[i]);
+        }
+      }
+    }
+
+    @Override
+    public Spliterator<Ingredient> trySplit() {
+      int middle = (index + fence) >>> 1;
+      if (middle <= index) {
+        return null;
+      }
+      LotSpliterator prefix = new LotSpliterator(index, middle, expectedVersion);
+      index = middle;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+      return SIZED | SUBSIZED | NONNULL | DISTINCT;
+    }
+
+    private void checkVersion() {
+      if (modificationVersion != expectedVersion) {
+        throw new ConcurrentModificationException("FoodStorage changed during iteration.");
+      }
+    }
   }
 }
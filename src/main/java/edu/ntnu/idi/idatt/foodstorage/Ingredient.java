@@ -1,25 +1,35 @@
 package edu.ntnu.idi.idatt.foodstorage;
 
+import edu.ntnu.idi.idatt.utils.FixedPoint;
 import edu.ntnu.idi.idatt.utils.InputValidation;
-import java.text.SimpleDateFormat;
+import edu.ntnu.idi.idatt.utils.ValidationResult;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
 
 /**
  * The Ingredient class represents a grocery item or ingredient. It holds information about the
  * ingredient's name, quantity, unit of measurement, best-before date, and price per unit.
+ *
+ * <p>The quantity and price are stored in micro-units, see {@link FixedPoint}, so sums and
+ * differences of quantities are exact. The double getters and setters convert to and from them.
+ *
+ * <p>A FoodStorage keeps its own read-only copy of every ingredient added to it, so the lots it
+ * hands out cannot be changed behind its back.
  */
 public class Ingredient {
 
   private final String name;
-  private double quantity;
+  private long quantityMicros;
   private final String unit;
   private final Date bestBeforeDate;
-  private final double pricePerUnit;
+  private final long pricePerUnitMicros;
+  private final boolean stored;
 
   /**
-   * Date formatter for parsing and formatting dates.
+   * Date formatter for formatting dates. Unlike SimpleDateFormat it can be shared between threads.
    */
-  private static final SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy");
+  private static final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("dd.MM.yyyy");
 
   /**
    * Constructs an Ingredient with the specified name, quantity, unit, best-before date, and price
@@ -42,10 +52,48 @@ public class Ingredient {
     InputValidation.validateBestBeforeDate(bestBeforeDate);
 
     this.name = name.trim();
-    this.quantity = quantity;
+    this.quantityMicros = FixedPoint.toMicros(quantity);
     this.unit = unit.trim();
-    this.pricePerUnit = pricePerUnit;
+    this.pricePerUnitMicros = FixedPoint.toMicros(pricePerUnit);
     this.bestBeforeDate = new Date(bestBeforeDate.getTime());
+    this.stored = false;
+  }
+
+  /**
+   * Constructs the read-only copy of an ingredient that a FoodStorage keeps as a lot. Only the
+   * storage changes its quantity, through {@link #setQuantityMicros(long)}.
+   *
+   * @param ingredient the ingredient to copy
+   */
+  Ingredient(Ingredient ingredient) {
+    this.name = ingredient.name;
+    this.quantityMicros = ingredient.quantityMicros;
+    this.unit = ingredient.unit;
+    this.bestBeforeDate = ingredient.bestBeforeDate;
+    this.pricePerUnitMicros = ingredient.pricePerUnitMicros;
+    this.stored = true;
+  }
+
+  /**
+   * Creates an Ingredient if the parameters are valid, and otherwise records every problem in the
+   * result instead of throwing. Meant for bulk imports, where building an exception for each bad
+   * row costs far more than checking it.
+   *
+   * @param name           the name of the ingredient
+   * @param quantity       the amount of the ingredient
+   * @param unit           the unit of measurement for the ingredient
+   * @param bestBeforeDate the best-before date of the ingredient
+   * @param pricePerUnit   the price per unit
+   * @param result         where the problems are recorded
+   * @return the new Ingredient, or null if any parameter is invalid
+   */
+  public static Ingredient tryCreate(String name, double quantity, String unit,
+      Date bestBeforeDate, double pricePerUnit, ValidationResult result) {
+    if (!InputValidation.checkIngredient(name, quantity, unit, bestBeforeDate, pricePerUnit,
+        result)) {
+      return null;
+    }
+    return new Ingredient(name, quantity, unit, bestBeforeDate, pricePerUnit);
   }
 
   public String getName() {
@@ -53,18 +101,38 @@ public class Ingredient {
   }
 
   public double getQuantity() {
-    return quantity;
+    return FixedPoint.toDouble(quantityMicros);
+  }
+
+  public long getQuantityMicros() {
+    return quantityMicros;
   }
 
   /**
    * Sets the quantity of the ingredient.
    *
    * @param quantity the new quantity of the ingredient
-   * @throws IllegalArgumentException if the specified quantity is negative
+   * @throws IllegalArgumentException      if the specified quantity is negative
+   * @throws UnsupportedOperationException if the ingredient is a lot kept by a FoodStorage
    */
   public void setQuantity(double quantity) {
+    if (stored) {
+      throw new UnsupportedOperationException(
+          "A stored lot can only be changed through its FoodStorage.");
+    }
     InputValidation.validateIngredientQuantity(quantity);
-    this.quantity = quantity;
+    this.quantityMicros = FixedPoint.toMicros(quantity);
+  }
+
+  /**
+   * Sets the quantity of the ingredient in micro-units.
+   *
+   * @param quantityMicros the new quantity of the ingredient in micro-units
+   * @throws IllegalArgumentException if the specified quantity is negative
+   */
+  void setQuantityMicros(long quantityMicros) {
+    InputValidation.validateIngredientQuantity(quantityMicros);
+    this.quantityMicros = quantityMicros;
   }
 
   public String getUnit() {
@@ -76,7 +144,11 @@ public class Ingredient {
   }
 
   public double getPricePerUnit() {
-    return pricePerUnit;
+    return FixedPoint.toDouble(pricePerUnitMicros);
+  }
+
+  public long getPricePerUnitMicros() {
+    return pricePerUnitMicros;
   }
 
   /**
@@ -94,15 +166,24 @@ public class Ingredient {
    * @return total value
    */
   public double getTotalValue() {
-    return quantity * pricePerUnit;
+    return FixedPoint.toDouble(getTotalValueMicros());
+  }
+
+  /**
+   * Calculates the total value of the ingredient in micro-units, rounded to the nearest micro-unit.
+   *
+   * @return total value in micro-units
+   */
+  public long getTotalValueMicros() {
+    return FixedPoint.multiply(quantityMicros, pricePerUnitMicros);
   }
 
   @Override
   public String toString() {
-    String dateStr = dateFormat.format(bestBeforeDate);
-    String formattedQuantity = String.format("%.2f", quantity);
+    String dateStr = dateFormat.format(bestBeforeDate.toInstant().atZone(ZoneId.systemDefault()));
+    String formattedQuantity = String.format("%.2f", getQuantity());
     return name + ": " + formattedQuantity + " " + unit + ", Best before: "
-        + dateStr + ", Price: " + pricePerUnit;
+        + dateStr + ", Price: " + getPricePerUnit();
   }
 
 }
@@ -0,0 +1,189 @@
+package edu.ntnu.idi.idatt.foodstorage;
+
+import edu.ntnu.idi.idatt.utils.FixedPoint;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The IngredientAggregate class holds the combined quantity and value of every lot of one
+ * ingredient in a FoodStorage. Lots in different units of the same kind are converted to the
+ * standard unit, liter or kilogram, before they are added up. The storage keeps the aggregate up
+ * to date on every change, so it is always read without scanning the lots. Quantities and values
+ * are summed in micro-units, so the sums are exact and never drift from the lots they are made of.
+ *
+ * <p>To know how much has not expired yet, the fresh quantity is also kept per best-before date.
+ * Reading the non-expired quantity moves the dates that have passed since the last read out of the
+ * fresh quantity, so each date is moved only once and reads cost O(1) amortized.
+ */
+public class IngredientAggregate {
+
+  private final String name;
+  private final String unit;
+  private final TreeMap<Long, DateBucket> freshByDate;
+  private long totalQuantityMicros;
+  private long totalValueMicros;
+  private long nonExpiredQuantityMicros;
+  private long expiredBefore;
+  private int lotCount;
+
+  /**
+   * Constructs an empty IngredientAggregate.
+   *
+   * @param name the lower case name of the ingredient
+   * @param unit the standard unit the quantities are expressed in
+   */
+  IngredientAggregate(String name, String unit) {
+    this.name = name;
+    this.unit = unit;
+    this.freshByDate = new TreeMap<>();
+    this.expiredBefore = Long.MIN_VALUE;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getUnit() {
+    return unit;
+  }
+
+  /**
+   * Returns the total quantity of all lots, in the standard unit.
+   *
+   * @return the total quantity
+   */
+  public synchronized double getTotalQuantity() {
+    return FixedPoint.toDouble(totalQuantityMicros);
+  }
+
+  /**
+   * Returns the total quantity of all lots, in micro-units of the standard unit.
+   *
+   * @return the total quantity in micro-units
+   */
+  public synchronized long getTotalQuantityMicros() {
+    return totalQuantityMicros;
+  }
+
+  /**
+   * Returns the total value of all lots.
+   *
+   * @return the total value in NOK
+   */
+  public synchronized double getTotalValue() {
+    return FixedPoint.toDouble(totalValueMicros);
+  }
+
+  /**
+   * Returns the total quantity of the lots that have not expired yet, in the standard unit.
+   *
+   * @return the non-expired quantity
+   */
+  public synchronized double getNonExpiredQuantity() {
+    expireUntil(System.currentTimeMillis());
+    return FixedPoint.toDouble(nonExpiredQuantityMicros);
+  }
+
+  /**
+   * Returns the total quantity of the lots that have not expired yet, in micro-units of the
+   * standard unit.
+   *
+   * @return the non-expired quantity in micro-units
+   */
+  public synchronized long getNonExpiredQuantityMicros() {
+    expireUntil(System.currentTimeMillis());
+    return nonExpiredQuantityMicros;
+  }
+
+  /**
+   * Returns the number of lots the aggregate is made of.
+   *
+   * @return the number of lots
+   */
+  public synchronized int getLotCount() {
+    return lotCount;
+  }
+
+  /**
+   * Applies a change of one lot to the aggregate.
+   *
+   * @param bestBefore    the best-before time of the lot in milliseconds
+   * @param quantityDelta the change in quantity, in micro-units of the standard unit
+   * @param valueDelta    the change in value, in micro-units
+   * @param lotDelta      1 if the lot was added, -1 if it was removed, otherwise 0
+   */
+  synchronized void apply(long bestBefore, long quantityDelta, long valueDelta, int lotDelta) {
+    totalQuantityMicros += quantityDelta;
+    totalValueMicros += valueDelta;
+    lotCount += lotDelta;
+
+    expireUntil(System.currentTimeMillis());
+    if (bestBefore < expiredBefore) {
+      return;
+    }
+    DateBucket bucket = freshByDate.computeIfAbsent(bestBefore, time -> new DateBucket());
+    bucket.quantity += quantityDelta;
+    bucket.lots += lotDelta;
+    nonExpiredQuantityMicros += quantityDelta;
+    if (bucket.lots == 0) {
+      nonExpiredQuantityMicros -= bucket.quantity;
+      freshByDate.remove(bestBefore);
+    }
+  }
+
+  /**
+   * Adds every lot of another aggregate of the same ingredient to this one, as the other aggregate
+   * is now. Used to combine the aggregates of several storages.
+   *
+   * @param other the aggregate to add
+   */
+  void addAll(IngredientAggregate other) {
+    synchronized (other) {
+      other.expireUntil(System.currentTimeMillis());
+      long freshQuantity = 0;
+      int freshLots = 0;
+      for (Map.Entry<Long, DateBucket> entry : other.freshByDate.entrySet()) {
+        DateBucket bucket = entry.getValue();
+        apply(entry.getKey(), bucket.quantity, 0, bucket.lots);
+        freshQuantity += bucket.quantity;
+        freshLots += bucket.lots;
+      }
+      // The expired lots only count towards the totals
+      apply(Long.MIN_VALUE, other.totalQuantityMicros - freshQuantity, other.totalValueMicros,
+          other.lotCount - freshLots);
+    }
+  }
+
+  /**
+   * Moves every date before the given time out of the fresh quantity.
+   *
+   * @param now the current time in milliseconds
+   */
+  private void expireUntil(long now) {
+    if (now <= expiredBefore) {
+      return;
+    }
+    Map.Entry<Long, DateBucket> first = freshByDate.firstEntry();
+    while (first != null && first.getKey() < now) {
+      nonExpiredQuantityMicros -= first.getValue().quantity;
+      freshByDate.pollFirstEntry();
+      first = freshByDate.firstEntry();
+    }
+    expiredBefore = now;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return name + ": " + String.format("%.2f", getTotalQuantity()) + " " + unit
+        + " in " + lotCount + " lot(s), value: " + String.format("%.2f", getTotalValue());
+  }
+
+  /**
+   * The fresh quantity and number of lots sharing one best-before date.
+   */
+  private static class DateBucket {
+
+    private long quantity;   // In micro-units
+    private int lots;
+  }
+}
@@ -0,0 +1,17 @@
+package edu.ntnu.idi.idatt.foodstorage;
+
+/**
+ * The orders in which the lots of a FoodStorage can be listed page by page.
+ */
+public enum IngredientOrder {
+
+  /**
+   * Alphabetical by ingredient name, and soonest best-before date first within a name.
+   */
+  NAME,
+
+  /**
+   * Soonest best-before date first.
+   */
+  EXPIRY
+}
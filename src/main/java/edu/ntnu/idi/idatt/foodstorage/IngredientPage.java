@@ -0,0 +1,52 @@
+package edu.ntnu.idi.idatt.foodstorage;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of ingredients listed from a FoodStorage, together with the cursor that continues the
+ * listing where this page stopped.
+ */
+public class IngredientPage {
+
+  private final List<Ingredient> ingredients;
+  private final String nextCursor;
+
+  /**
+   * Constructs an IngredientPage.
+   *
+   * @param ingredients the ingredients on this page
+   * @param nextCursor  the cursor for the next page, or null if this is the last page
+   */
+  public IngredientPage(List<Ingredient> ingredients, String nextCursor) {
+    this.ingredients = Collections.unmodifiableList(ingredients);
+    this.nextCursor = nextCursor;
+  }
+
+  /**
+   * Returns the ingredients on this page.
+   *
+   * @return an unmodifiable list of ingredients
+   */
+  public List<Ingredient> getIngredients() {
+    return ingredients;
+  }
+
+  /**
+   * Returns the cursor to pass when requesting the next page.
+   *
+   * @return the cursor, or null if there are no more pages
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  /**
+   * Checks if there is another page after this one.
+   *
+   * @return true if there are more ingredients to list
+   */
+  public boolean hasNext() {
+    return nextCursor != null;
+  }
+}
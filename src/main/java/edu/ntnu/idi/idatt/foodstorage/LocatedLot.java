@@ -0,0 +1,35 @@
+package edu.ntnu.idi.idatt.foodstorage;
+
+/**
+ * The LocatedLot class is a lot found through a {@link FederatedStorage}, together with the name
+ * of the storage location it is kept in.
+ */
+public class LocatedLot {
+
+  private final String location;
+  private final Ingredient lot;
+
+  /**
+   * Constructs a LocatedLot.
+   *
+   * @param location the name of the storage location
+   * @param lot      the lot
+   */
+  public LocatedLot(String location, Ingredient lot) {
+    this.location = location;
+    this.lot = lot;
+  }
+
+  public String getLocation() {
+    return location;
+  }
+
+  public Ingredient getLot() {
+    return lot;
+  }
+
+  @Override
+  public String toString() {
+    return lot + " (" + location + ")";
+  }
+}
@@ -0,0 +1,61 @@
+package edu.ntnu.idi.idatt.foodstorage;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The MealPlan class is the result of a {@link MealPlanner}: one recipe per day starting today,
+ * together with how much of the stock that would otherwise expire it uses up.
+ */
+public class MealPlan {
+
+  private final List<Recipe> meals;
+  private final double savedValue;
+  private final double expiringValue;
+
+  /**
+   * Constructs a MealPlan.
+   *
+   * @param meals         the recipe to cook on each day, starting today
+   * @param savedValue    the value of the expiring stock the meals use up
+   * @param expiringValue the value of all stock expiring within the planning horizon
+   */
+  public MealPlan(List<Recipe> meals, double savedValue, double expiringValue) {
+    this.meals = Collections.unmodifiableList(meals);
+    this.savedValue = savedValue;
+    this.expiringValue = expiringValue;
+  }
+
+  /**
+   * Returns the recipes to cook, one per day starting today.
+   *
+   * @return an unmodifiable list of recipes
+   */
+  public List<Recipe> getMeals() {
+    return meals;
+  }
+
+  /**
+   * Returns the value of the stock expiring within the horizon that the meals use up.
+   *
+   * @return the saved value in NOK
+   */
+  public double getSavedValue() {
+    return savedValue;
+  }
+
+  /**
+   * Returns the value of all stock expiring within the horizon, planned for or not.
+   *
+   * @return the expiring value in NOK
+   */
+  public double getExpiringValue() {
+    return expiringValue;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Meal plan of %d meal(s) saving %.2f of %.2f NOK expiring",
+        meals.size(), savedValue, expiringValue);
+  }
+}
@@ -0,0 +1,347 @@
+package edu.ntnu.idi.idatt.foodstorage;
+
+import edu.ntnu.idi.idatt.utils.FixedPoint;
+import edu.ntnu.idi.idatt.utils.InputValidation;
+import edu.ntnu.idi.idatt.utils.UnitConverter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The MealPlanner class picks one recipe per day over a planning horizon so that as much as
+ * possible of the stock that would expire within the horizon gets used first. Meals share the
+ * stock: every planned meal takes its ingredients from the lots that expire soonest and are still
+ * fresh on the day it is cooked, and later meals only get what is left.
+ *
+ * <p>A greedy pass first adds, day by day, the recipe that uses up the most expiring value. The
+ * plan is then improved by local search, trying random replacements, insertions, removals and
+ * swaps of meals and keeping every change that saves more, until the time budget runs out. The
+ * greedy plan is always finished, even if that takes longer than the budget.
+ *
+ * <p>Quantities are taken from the lots in micro-units, so a meal that needs exactly what is left
+ * can be made. Only the values being maximized are kept as doubles.
+ */
+public class MealPlanner {
+
+  private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+  private static final double EPSILON = 1e-9;  // Smallest value gain worth keeping
+
+  private final int horizonDays;
+  private final long timeBudgetMillis;
+  private final long seed;
+
+  /**
+   * Constructs a MealPlanner.
+   *
+   * @param horizonDays      the number of days to plan for, one meal per day
+   * @param timeBudgetMillis how long planning may take, 0 for the greedy plan only
+   * @throws IllegalArgumentException if the horizon is not positive or the budget is negative
+   */
+  public MealPlanner(int horizonDays, long timeBudgetMillis) {
+    this(horizonDays, timeBudgetMillis, 42);
+  }
+
+  /**
+   * Constructs a MealPlanner with a fixed seed for the local search, so plans can be reproduced.
+   *
+   * @param horizonDays      the number of days to plan for, one meal per day
+   * @param timeBudgetMillis how long planning may take, 0 for the greedy plan only
+   * @param seed             the seed for choosing local search moves
+   * @throws IllegalArgumentException if the horizon is not positive or the budget is negative
+   */
+  public MealPlanner(int horizonDays, long timeBudgetMillis, long seed) {
+    if (horizonDays <= 0) {
+      throw new IllegalArgumentException("Planning horizon must be at least one day.");
+    }
+    if (timeBudgetMillis < 0) {
+      throw new IllegalArgumentException("Time budget cannot be negative.");
+    }
+    this.horizonDays = horizonDays;
+    this.timeBudgetMillis = timeBudgetMillis;
+    this.seed = seed;
+  }
+
+  /**
+   * Plans the meals for the horizon from the recipes in the cookbook and the stock in the storage.
+   * Neither is changed.
+   *
+   * @param storage  the storage to use the stock of
+   * @param cookbook the cookbook to pick recipes from
+   * @return the best plan found within the time budget
+   * @throws IllegalArgumentException if storage or cookbook is null
+   */
+  public MealPlan plan(StorageView storage, Cookbook cookbook) {
+    InputValidation.validateFoodStorage(storage);
+    if (cookbook == null) {
+      throw new IllegalArgumentException("Cookbook cannot be null.");
+    }
+    long deadline = System.nanoTime() + timeBudgetMillis * 1_000_000;
+    long now = System.currentTimeMillis();
+    Stock stock = new Stock(storage.listAllIngredients(), now, now + horizonDays * DAY_MILLIS);
+
+    List<Recipe> recipes = new ArrayList<>();
+    List<Requirement> requirements = new ArrayList<>();
+    for (Recipe recipe : cookbook.getAllRecipes()) {
+      Requirement requirement = stock.compile(recipe);
+      if (requirement != null) {
+        recipes.add(recipe);
+        requirements.add(requirement);
+      }
+    }
+    Requirement[] candidates = requirements.toArray(new Requirement[0]);
+
+    List<Integer> best = greedy(stock, candidates);
+    double bestValue = stock.evaluate(best, candidates);
+    if (candidates.length > 0) {
+      Random random = new Random(seed);
+      while (System.nanoTime() < deadline) {
+        List<Integer> neighbour = neighbour(best, candidates.length, random);
+        double value = stock.evaluate(neighbour, candidates);
+        if (value > bestValue + EPSILON) {
+          best = neighbour;
+          bestValue = value;
+        }
+      }
+    }
+
+    List<Recipe> meals = new ArrayList<>();
+    for (int index : best) {
+      meals.add(recipes.get(index));
+    }
+    return new MealPlan(meals, bestValue, stock.expiringValue);
+  }
+
+  /**
+   * Builds a plan day by day, each day adding the recipe that uses up the most expiring value.
+   *
+   * @param stock      the stock to plan with
+   * @param candidates the compiled recipes
+   * @return the recipe indexes of the plan
+   */
+  private List<Integer> greedy(Stock stock, Requirement[] candidates) {
+    long[] remaining = stock.quantities.clone();
+    List<Integer> plan = new ArrayList<>();
+    for (int day = 0; day < horizonDays; day++) {
+      int bestIndex = -1;
+      double bestGain = EPSILON;
+      for (int i = 0; i < candidates.length; i++) {
+        double gain = stock.consume(remaining, candidates[i], day, false);
+        if (gain > bestGain) {
+          bestGain = gain;
+          bestIndex = i;
+        }
+      }
+      if (bestIndex < 0) {
+        break;
+      }
+      stock.consume(remaining, candidates[bestIndex], day, true);
+      plan.add(bestIndex);
+    }
+    return plan;
+  }
+
+  /**
+   * Makes a random small change to a plan.
+   *
+   * @param plan       the plan to change
+   * @param candidates the number of recipes to choose from
+   * @param random     the source of randomness
+   * @return a changed copy of the plan
+   */
+  private List<Integer> neighbour(List<Integer> plan, int candidates, Random random) {
+    List<Integer> result = new ArrayList<>(plan);
+    int move = result.isEmpty() ? 1 : random.nextInt(4);
+    if (move == 1 && result.size() >= horizonDays) {
+      move = 0;
+    }
+    switch (move) {
+      case 0:
+        result.set(random.nextInt(result.size()), random.nextInt(candidates));
+        break;
+      case 1:
+        result.add(random.nextInt(result.size() + 1), random.nextInt(candidates));
+        break;
+      case 2:
+        result.remove(random.nextInt(result.size()));
+        break;
+      default:
+        int first = random.nextInt(result.size());
+        int second = random.nextInt(result.size());
+        result.set(first, result.set(second, result.get(first)));
+    }
+    return result;
+  }
+
+  /**
+   * The ingredients of one recipe as indexes into the stock groups and standard quantities in
+   * micro-units.
+   */
+  private static class Requirement {
+
+    private final int[] groups;
+    private final long[] amounts;
+
+    private Requirement(int[] groups, long[] amounts) {
+      this.groups = groups;
+      this.amounts = amounts;
+    }
+  }
+
+  /**
+   * A flat copy of the fresh lots, grouped by ingredient name and standard unit and sorted by
+   * best-before date within each group.
+   */
+  private static class Stock {
+
+    private final Map<String, Integer> groupIndex;
+    private final int[] groupStart;
+    private final long[] quantities;   // Standard micro-units
+    private final double[] prices;     // Value per standard micro-unit
+    private final long[] expiries;
+    private final long now;
+    private final long horizonEnd;
+    private final double expiringValue;
+
+    private Stock(Ingredient[] ingredients, long now, long horizonEnd) {
+      this.now = now;
+      this.horizonEnd = horizonEnd;
+      List<Ingredient> fresh = new ArrayList<>();
+      Map<Ingredient, String> keys = new HashMap<>();
+      for (Ingredient ingredient : ingredients) {
+        if (ingredient.getBestBeforeDate().getTime() >= now) {
+          fresh.add(ingredient);
+          keys.put(ingredient, groupKey(ingredient));
+        }
+      }
+      fresh.sort(Comparator.comparing((Ingredient ingredient) -> keys.get(ingredient))
+          .thenComparing(Ingredient::getBestBeforeDate));
+
+      this.groupIndex = new HashMap<>();
+      List<Integer> starts = new ArrayList<>();
+      this.quantities = new long[fresh.size()];
+      this.prices = new double[fresh.size()];
+      this.expiries = new long[fresh.size()];
+      long expiringMicros = 0;
+      for (int i = 0; i < fresh.size(); i++) {
+        Ingredient lot = fresh.get(i);
+        String key = keys.get(lot);
+        if (!groupIndex.containsKey(key)) {
+          groupIndex.put(key, starts.size());
+          starts.add(i);
+        }
+        quantities[i] = standardMicros(lot.getQuantityMicros(), lot.getUnit());
+        prices[i] = quantities[i] == 0 ? 0 : lot.getTotalValue() / quantities[i];
+        expiries[i] = lot.getBestBeforeDate().getTime();
+        if (expiries[i] < horizonEnd) {
+          expiringMicros = Math.addExact(expiringMicros, lot.getTotalValueMicros());
+        }
+      }
+      starts.add(fresh.size());
+      this.groupStart = starts.stream().mapToInt(Integer::intValue).toArray();
+      this.expiringValue = FixedPoint.toDouble(expiringMicros);
+    }
+
+    private static String groupKey(Ingredient ingredient) {
+      return groupKey(ingredient.getName(), ingredient.getUnit());
+    }
+
+    private static String groupKey(String name, String unit) {
+      String standardUnit = UnitConverter.isSupportedUnit(unit)
+          ? UnitConverter.getStandardUnit(unit) : unit.trim().toLowerCase();
+      return name.trim().toLowerCase() + '\u0000' + standardUnit;
+    }
+
+    private static long standardMicros(long quantityMicros, String unit) {
+      return UnitConverter.isSupportedUnit(unit)
+          ? UnitConverter.convertToStandardMicros(quantityMicros, unit) : quantityMicros;
+    }
+
+    /**
+     * Compiles a recipe against the stock.
+     *
+     * @param recipe the recipe
+     * @return the requirement, or null if the recipe can never use any expiring stock
+     */
+    private Requirement compile(Recipe recipe) {
+      Map<String, Double> ingredients = recipe.getIngredients();
+      Map<String, String> units = recipe.getUnits();
+      int[] groups = new int[ingredients.size()];
+      long[] amounts = new long[ingredients.size()];
+      boolean usesExpiring = false;
+      int i = 0;
+      for (Map.Entry<String, Double> entry : ingredients.entrySet()) {
+        String unit = units.get(entry.getKey());
+        Integer group = unit == null ? null : groupIndex.get(groupKey(entry.getKey(), unit));
+        if (group == null || !FixedPoint.isRepresentable(entry.getValue())) {
+          return null;
+        }
+        groups[i] = group;
+        amounts[i] = standardMicros(FixedPoint.toMicros(entry.getValue()), unit);
+        usesExpiring |= expiries[groupStart[group]] < horizonEnd;
+        i++;
+      }
+      return usesExpiring ? new Requirement(groups, amounts) : null;
+    }
+
+    /**
+     * Takes the ingredients of a recipe cooked on the given day from the lots that expire soonest
+     * among those still fresh that day.
+     *
+     * @param remaining   the quantity left in every lot, in standard micro-units
+     * @param requirement the recipe
+     * @param day         the day the recipe is cooked, 0 for today
+     * @param commit      true to subtract the quantities taken, false to only compute the gain
+     * @return the value taken from lots expiring within the horizon, or -1 if the recipe cannot
+     *         be made that day
+     */
+    private double consume(long[] remaining, Requirement requirement, int day,
+        boolean commit) {
+      long freshUntil = now + day * DAY_MILLIS;
+      double gain = 0;
+      for (int i = 0; i < requirement.groups.length; i++) {
+        int group = requirement.groups[i];
+        long needed = requirement.amounts[i];
+        for (int lot = groupStart[group]; lot < groupStart[group + 1] && needed > 0; lot++) {
+          if (expiries[lot] < freshUntil) {
+            continue;
+          }
+          long taken = Math.min(needed, remaining[lot]);
+          if (expiries[lot] < horizonEnd) {
+            gain += taken * prices[lot];
+          }
+          if (commit) {
+            remaining[lot] -= taken;
+          }
+          needed -= taken;
+        }
+        if (needed > 0) {
+          return -1;
+        }
+      }
+      return gain;
+    }
+
+    /**
+     * Computes the value a plan uses up.
+     *
+     * @param plan       the recipe indexes, one per day
+     * @param candidates the compiled recipes
+     * @return the saved value, or -1 if any meal cannot be made on its day
+     */
+    private double evaluate(List<Integer> plan, Requirement[] candidates) {
+      long[] remaining = quantities.clone();
+      double total = 0;
+      for (int day = 0; day < plan.size(); day++) {
+        Requirement requirement = candidates[plan.get(day)];
+        if (consume(remaining, requirement, day, false) < 0) {
+          return -1;
+        }
+        total += consume(remaining, requirement, day, true);
+      }
+      return total;
+    }
+  }
+}
@@ -0,0 +1,530 @@
+package edu.ntnu.idi.idatt.foodstorage;
+
+import edu.ntnu.idi.idatt.utils.FixedPoint;
+import edu.ntnu.idi.idatt.utils.InputValidation;
+import edu.ntnu.idi.idatt.utils.UnitConverter;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The OffHeapLotStore class stores lots outside the Java heap with the Foreign Memory API, for
+ * storages of tens of millions of lots where a heap of Ingredient objects and string keys would
+ * make full garbage collections long. It follows the semantics of {@link FoodStorage}: lots with
+ * the same name, unit, price and best-before day are merged, lots are removed once their quantity
+ * reaches zero, and lookups ignore case.
+ *
+ * <p>Every lot is a fixed-width record of 56 bytes in one memory segment, with names and units
+ * replaced by numbers from a small dictionary on the heap, and quantities and prices in micro-units
+ * like in Ingredient. An open-addressing hash table of record numbers, also off-heap, finds a lot
+ * by its key. Removing a lot moves the last record into its place, so the records stay dense. Both
+ * segments are doubled when full; each lives in its own arena, which is closed as soon as the
+ * segment is replaced, and {@link #close()} frees the rest.
+ *
+ * <p>Lots are returned as new Ingredient objects, so changing them does not change the store. The
+ * store is safe to share between threads in the same way as FoodStorage.
+ */
+public class OffHeapLotStore implements AutoCloseable {
+
+  private static final long RECORD_SIZE = 56;
+  private static final long KEY_NAME = 0;
+  private static final long NAME = 4;
+  private static final long KEY_UNIT = 8;
+  private static final long UNIT = 12;
+  private static final long DAY = 16;
+  private static final long BEST_BEFORE = 24;
+  private static final long PRICE_CENTS = 32;
+  private static final long PRICE_MICROS = 40;
+  private static final long QUANTITY_MICROS = 48;
+
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT;
+  private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG;
+
+  private final Map<String, Integer> stringIds;
+  private final List<String> strings;
+  private final ReentrantReadWriteLock lock;
+  private Arena recordArena;
+  private MemorySegment records;
+  private long recordCapacity;
+  private long size;
+  private Arena indexArena;
+  private MemorySegment index;   // Record number + 1 per slot, 0 for an empty slot
+  private long indexMask;
+  private boolean closed;
+
+  /**
+   * Constructs an empty OffHeapLotStore.
+   */
+  public OffHeapLotStore() {
+    this.stringIds = new HashMap<>();
+    this.strings = new ArrayList<>();
+    this.lock = new ReentrantReadWriteLock();
+    this.recordArena = Arena.ofShared();
+    this.recordCapacity = INITIAL_CAPACITY;
+    this.records = recordArena.allocate(RECORD_SIZE * recordCapacity, 8);
+    this.indexArena = Arena.ofShared();
+    this.index = allocateIndex(indexArena, INITIAL_CAPACITY * 2L);
+    this.indexMask = INITIAL_CAPACITY * 2L - 1;
+  }
+
+  /**
+   * Adds a lot. If a lot with the same key is already stored, its quantity is increased.
+   *
+   * @param ingredient the lot to add
+   * @throws IllegalArgumentException if ingredient is null
+   * @throws IllegalStateException    if the store is closed
+   */
+  public void addIngredient(Ingredient ingredient) {
+    InputValidation.validateIngredient(ingredient);
+    lock.writeLock().lock();
+    try {
+      checkOpen();
+      Key key = keyOf(ingredient.getName(), ingredient.getUnit(), ingredient.getPricePerUnit(),
+          ingredient.getBestBeforeDate(), true);
+      long record = find(key);
+      if (record >= 0) {
+        setQuantity(record, Math.addExact(quantity(record), ingredient.getQuantityMicros()));
+      } else if (ingredient.getQuantityMicros() != 0) {
+        insert(key, ingredient);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a quantity of a lot, and the lot itself once nothing is left.
+   *
+   * @param name           the name of the ingredient
+   * @param unit           the unit of measurement
+   * @param pricePerUnit   the price per unit
+   * @param bestBeforeDate the best-before date
+   * @param quantity       the quantity to remove
+   * @throws IllegalArgumentException if quantity is negative, the lot is not found, or it holds
+   *                                  less than the quantity
+   * @throws IllegalStateException    if the store is closed
+   */
+  public void removeIngredient(String name, String unit, double pricePerUnit,
+      Date bestBeforeDate, double quantity) {
+    InputValidation.validateRemoveIngredientQuantity(quantity);
+    InputValidation.validateIngredientName(name);
+    InputValidation.validateIngredientUnit(unit);
+    InputValidation.validateBestBeforeDate(bestBeforeDate);
+    lock.writeLock().lock();
+    try {
+      checkOpen();
+      Key key = keyOf(name, unit, pricePerUnit, bestBeforeDate, false);
+      long record = key == null ? -1 : find(key);
+      if (record < 0) {
+        throw new IllegalArgumentException("Ingredient not found in storage.");
+      }
+      long currentQuantity = quantity(record);
+      long quantityMicros = FixedPoint.toMicros(quantity);
+      if (currentQuantity < quantityMicros) {
+        throw new IllegalArgumentException("Not enough quantity to remove.");
+      }
+      setQuantity(record, currentQuantity - quantityMicros);
+      if (quantity(record) == 0) {
+        delete(record);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Searches for a lot by its attributes.
+   *
+   * @param name           the name of the ingredient
+   * @param unit           the unit of measurement
+   * @param pricePerUnit   the price per unit
+   * @param bestBeforeDate the best-before date
+   * @return a copy of the lot if found, null otherwise
+   * @throws IllegalStateException if the store is closed
+   */
+  public Ingredient searchIngredient(String name, String unit, double pricePerUnit,
+      Date bestBeforeDate) {
+    if (name == null || name.trim().isEmpty() || unit == null || unit.trim().isEmpty()
+        || bestBeforeDate == null) {
+      return null;
+    }
+    lock.readLock().lock();
+    try {
+      checkOpen();
+      Key key = keyOf(name, unit, pricePerUnit, bestBeforeDate, false);
+      long record = key == null ? -1 : find(key);
+      return record < 0 ? null : toIngredient(record);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Finds a lot of an ingredient in the standard unit that has not expired. Only the numbers in
+   * the records are compared, so no object is read until a match is found.
+   *
+   * @param name name of the ingredient
+   * @param unit any unit of the kind to look for
+   * @return a copy of a matching lot, or null if there is none
+   * @throws IllegalStateException if the store is closed
+   */
+  public Ingredient findIngredientByNameAndUnit(String name, String unit) {
+    if (name == null || unit == null) {
+      return null;
+    }
+    String standardUnit = UnitConverter.getStandardUnit(unit);
+    lock.readLock().lock();
+    try {
+      checkOpen();
+      Integer nameId = stringIds.get(name.trim().toLowerCase());
+      Integer unitId = stringIds.get(standardUnit);
+      if (nameId == null || unitId == null) {
+        return null;
+      }
+      long now = System.currentTimeMillis();
+      for (long record = 0; record < size; record++) {
+        long offset = record * RECORD_SIZE;
+        if (records.get(INT, offset + KEY_NAME) == nameId
+            && records.get(INT, offset + KEY_UNIT) == unitId
+            && records.get(LONG, offset + BEST_BEFORE) >= now) {
+          return toIngredient(record);
+        }
+      }
+      return null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of lots in the store.
+   *
+   * @return the number of lots
+   */
+  public long size() {
+    lock.readLock().lock();
+    try {
+      return size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns copies of all lots in the store.
+   *
+   * @return an array of all lots
+   * @throws IllegalStateException if the store is closed
+   */
+  public Ingredient[] listAllIngredients() {
+    lock.readLock().lock();
+    try {
+      checkOpen();
+      Ingredient[] result = new Ingredient[Math.toIntExact(size)];
+      for (int record = 0; record < result.length; record++) {
+        result[record] = toIngredient(record);
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Calculates the total value of all lots.
+   *
+   * @return the total value in NOK
+   * @throws IllegalStateException if the store is closed
+   */
+  public double calculateTotalValue() {
+    return sumValue(Long.MAX_VALUE);
+  }
+
+  /**
+   * Calculates the total value of the lots that have expired.
+   *
+   * @return the total value of expired lots in NOK
+   * @throws IllegalStateException if the store is closed
+   */
+  public double calculateExpiredIngredientsValue() {
+    return sumValue(System.currentTimeMillis());
+  }
+
+  /**
+   * Returns the number of off-heap bytes allocated for records and the index.
+   *
+   * @return the allocated size in bytes
+   */
+  public long allocatedBytes() {
+    lock.readLock().lock();
+    try {
+      return closed ? 0 : records.byteSize() + index.byteSize();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Frees the off-heap memory. The store cannot be used afterwards, and closing it again does
+   * nothing.
+   */
+  @Override
+  public void close() {
+    lock.writeLock().lock();
+    try {
+      if (!closed) {
+        closed = true;
+        recordArena.close();
+        indexArena.close();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Lot store is closed.");
+    }
+  }
+
+  private double sumValue(long bestBeforeLimit) {
+    lock.readLock().lock();
+    try {
+      checkOpen();
+      long value = 0;
+      for (long offset = 0; offset < size * RECORD_SIZE; offset += RECORD_SIZE) {
+        if (records.get(LONG, offset + BEST_BEFORE) < bestBeforeLimit) {
+          value += FixedPoint.multiply(records.get(LONG, offset + QUANTITY_MICROS),
+              records.get(LONG, offset + PRICE_MICROS));
+        }
+      }
+      return FixedPoint.toDouble(value);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Builds the key of a lot, the same attributes FoodStorage builds its string keys from.
+   *
+   * @param name         the name
+   * @param unit         the unit
+   * @param pricePerUnit the price, compared in whole øre
+   * @param bestBefore   the best-before date, compared by day
+   * @param create       true to add unknown names and units to the dictionary
+   * @return the key, or null if the price cannot be stored or create is false and the name or
+   *         unit has never been stored
+   */
+  private Key keyOf(String name, String unit, double pricePerUnit, Date bestBefore,
+      boolean create) {
+    if (!FixedPoint.isRepresentable(pricePerUnit)) {
+      return null;
+    }
+    Integer nameId = idOf(name.trim().toLowerCase(), create);
+    Integer unitId = idOf(unit.trim().toLowerCase(), create);
+    if (nameId == null || unitId == null) {
+      return null;
+    }
+    long day = Instant.ofEpochMilli(bestBefore.getTime()).atZone(ZoneId.systemDefault())
+        .toLocalDate().toEpochDay();
+    return new Key(nameId, unitId, FixedPoint.toHundredths(FixedPoint.toMicros(pricePerUnit)),
+        day);
+  }
+
+  private Integer idOf(String string, boolean create) {
+    return create ? Integer.valueOf(intern(string)) : stringIds.get(string);
+  }
+
+  private int intern(String string) {
+    Integer id = stringIds.get(string);
+    if (id == null) {
+      id = strings.size();
+      strings.add(string);
+      stringIds.put(string, id);
+    }
+    return id;
+  }
+
+  private static long hash(int nameId, int unitId, long priceCents, long day) {
+    long hash = nameId * 0x9E3779B97F4A7C15L;
+    hash = (hash ^ unitId) * 0xC2B2AE3D27D4EB4FL;
+    hash = (hash ^ priceCents) * 0x165667B19E3779F9L;
+    hash = (hash ^ day) * 0x9E3779B97F4A7C15L;
+    return hash ^ (hash >>> 29);
+  }
+
+  private long slotOf(long record) {
+    long offset = record * RECORD_SIZE;
+    return hash(records.get(INT, offset + KEY_NAME), records.get(INT, offset + KEY_UNIT),
+        records.get(LONG, offset + PRICE_CENTS), records.get(LONG, offset + DAY)) & indexMask;
+  }
+
+  /**
+   * Finds the record of a key by linear probing.
+   *
+   * @param key the key
+   * @return the record number, or -1 if the key is not stored
+   */
+  private long find(Key key) {
+    long slot = hash(key.nameId, key.unitId, key.priceCents, key.day) & indexMask;
+    while (true) {
+      int entry = index.getAtIndex(INT, slot);
+      if (entry == 0) {
+        return -1;
+      }
+      long offset = (entry - 1L) * RECORD_SIZE;
+      if (records.get(INT, offset + KEY_NAME) == key.nameId
+          && records.get(INT, offset + KEY_UNIT) == key.unitId
+          && records.get(LONG, offset + PRICE_CENTS) == key.priceCents
+          && records.get(LONG, offset + DAY) == key.day) {
+        return entry - 1L;
+      }
+      slot = (slot + 1) & indexMask;
+    }
+  }
+
+  private void insert(Key key, Ingredient ingredient) {
+    if (size == recordCapacity) {
+      growRecords();
+    }
+    if ((size + 1) * 2 > indexMask + 1) {
+      growIndex();
+    }
+    long record = size;
+    long offset = record * RECORD_SIZE;
+    records.set(INT, offset + KEY_NAME, key.nameId);
+    records.set(INT, offset + NAME, intern(ingredient.getName()));
+    records.set(INT, offset + KEY_UNIT, key.unitId);
+    records.set(INT, offset + UNIT, intern(ingredient.getUnit()));
+    records.set(LONG, offset + DAY, key.day);
+    records.set(LONG, offset + BEST_BEFORE, ingredient.getBestBeforeDate().getTime());
+    records.set(LONG, offset + PRICE_CENTS, key.priceCents);
+    records.set(LONG, offset + PRICE_MICROS, ingredient.getPricePerUnitMicros());
+    records.set(LONG, offset + QUANTITY_MICROS, ingredient.getQuantityMicros());
+    size++;
+    index.setAtIndex(INT, emptySlotFor(record), (int) (record + 1));
+  }
+
+  private long emptySlotFor(long record) {
+    long slot = slotOf(record);
+    while (index.getAtIndex(INT, slot) != 0) {
+      slot = (slot + 1) & indexMask;
+    }
+    return slot;
+  }
+
+  /**
+   * Deletes a record by moving the last record into its place, and removes it from the index with
+   * backward-shift deletion, so no tombstones are left behind.
+   *
+   * @param record the record to delete
+   */
+  private void delete(long record) {
+    long slot = slotOf(record);
+    while (index.getAtIndex(INT, slot) != record + 1) {
+      slot = (slot + 1) & indexMask;
+    }
+    long hole = slot;
+    long next = (hole + 1) & indexMask;
+    while (index.getAtIndex(INT, next) != 0) {
+      long home = slotOf(index.getAtIndex(INT, next) - 1L);
+      // Move the entry back if the hole lies between its home slot and where it is now
+      if (((next - home) & indexMask) >= ((next - hole) & indexMask)) {
+        index.setAtIndex(INT, hole, index.getAtIndex(INT, next));
+        hole = next;
+      }
+      next = (next + 1) & indexMask;
+    }
+    index.setAtIndex(INT, hole, 0);
+
+    long last = size - 1;
+    if (record != last) {
+      long lastSlot = slotOf(last);
+      while (index.getAtIndex(INT, lastSlot) != last + 1) {
+        lastSlot = (lastSlot + 1) & indexMask;
+      }
+      MemorySegment.copy(records, last * RECORD_SIZE, records, record * RECORD_SIZE,
+          RECORD_SIZE);
+      index.setAtIndex(INT, lastSlot, (int) (record + 1));
+    }
+    size--;
+  }
+
+  private void growRecords() {
+    if (recordCapacity * 2 > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Lot store is full.");
+    }
+    Arena arena = Arena.ofShared();
+    MemorySegment grown = arena.allocate(RECORD_SIZE * recordCapacity * 2, 8);
+    MemorySegment.copy(records, 0, grown, 0, RECORD_SIZE * size);
+    recordArena.close();
+    recordArena = arena;
+    records = grown;
+    recordCapacity *= 2;
+  }
+
+  private void growIndex() {
+    long capacity = (indexMask + 1) * 2;
+    Arena arena = Arena.ofShared();
+    MemorySegment grown = allocateIndex(arena, capacity);
+    indexArena.close();
+    indexArena = arena;
+    index = grown;
+    indexMask = capacity - 1;
+    for (long record = 0; record < size; record++) {
+      index.setAtIndex(INT, emptySlotFor(record), (int) (record + 1));
+    }
+  }
+
+  private static MemorySegment allocateIndex(Arena arena, long slots) {
+    MemorySegment segment = arena.allocate(slots * Integer.BYTES, Integer.BYTES);
+    segment.fill((byte) 0);
+    return segment;
+  }
+
+  private long quantity(long record) {
+    return records.get(LONG, record * RECORD_SIZE + QUANTITY_MICROS);
+  }
+
+  private void setQuantity(long record, long quantity) {
+    InputValidation.validateIngredientQuantity(quantity);
+    records.set(LONG, record * RECORD_SIZE + QUANTITY_MICROS, quantity);
+  }
+
+  private Ingredient toIngredient(long record) {
+    long offset = record * RECORD_SIZE;
+    return new Ingredient(strings.get(records.get(INT, offset + NAME)),
+        FixedPoint.toDouble(records.get(LONG, offset + QUANTITY_MICROS)),
+        strings.get(records.get(INT, offset + UNIT)),
+        new Date(records.get(LONG, offset + BEST_BEFORE)),
+        FixedPoint.toDouble(records.get(LONG, offset + PRICE_MICROS)));
+  }
+
+  /**
+   * The attributes that identify a lot, with names and units as dictionary numbers.
+   */
+  private static class Key {
+
+    private final int nameId;
+    private final int unitId;
+    private final long priceCents;
+    private final long day;
+
+    private Key(int nameId, int unitId, long priceCents, long day) {
+      this.nameId = nameId;
+      this.unitId = unitId;
+      this.priceCents = priceCents;
+      this.day = day;
+    }
+  }
+}
@@ -1,24 +1,36 @@
 package edu.ntnu.idi.idatt.foodstorage;
 
+import edu.ntnu.idi.idatt.metrics.RecipeCheckEvent;
+import edu.ntnu.idi.idatt.utils.FixedPoint;
 import edu.ntnu.idi.idatt.utils.InputValidation;
+import edu.ntnu.idi.idatt.utils.TextStore;
+import edu.ntnu.idi.idatt.utils.UnitConverter;
+import edu.ntnu.idi.idatt.utils.ValidationResult;
+import java.math.BigInteger;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * The Recipe class represents a recipe with a name, description, instructions, and a list of
- * required ingredients with their quantities and units.
+ * required ingredients with their quantities and units. The quantities make the given number of
+ * servings, one unless stated otherwise.
+ *
+ * <p>While a recipe is in a {@link Cookbook}, its description and instructions are kept off the
+ * heap in the text store of the cookbook and only read back when they are asked for, since
+ * checking and suggesting recipes needs nothing but the ingredients. A recipe outside any cookbook
+ * keeps them as plain strings.
  */
 public class Recipe {
 
   private final String name;
-  private final String description;
-  private final String instructions;
+  private volatile Text text;
   private final Map<String, Double> ingredients; // Ingredient name to quantity
   private final Map<String, String> units;       // Ingredient name to unit
+  private final int servings;
 
   /**
-   * Constructs a Recipe with the specified parameters.
+   * Constructs a Recipe for one serving with the specified parameters.
    *
    * @param name         the name of the recipe
    * @param description  a brief description of the recipe
@@ -29,6 +41,22 @@ public class Recipe {
    */
   public Recipe(String name, String description, String instructions,
       Map<String, Double> ingredients, Map<String, String> units) {
+    this(name, description, instructions, ingredients, units, 1);
+  }
+
+  /**
+   * Constructs a Recipe with the specified parameters.
+   *
+   * @param name         the name of the recipe
+   * @param description  a brief description of the recipe
+   * @param instructions preparation instructions
+   * @param ingredients  a map of ingredient names to required quantities
+   * @param units        a map of ingredient names to their units
+   * @param servings     the number of servings the quantities make
+   * @throws IllegalArgumentException if any parameter is invalid
+   */
+  public Recipe(String name, String description, String instructions,
+      Map<String, Double> ingredients, Map<String, String> units, int servings) {
 
     InputValidation.validateRecipeName(name);
     InputValidation.validateDescription(description);
@@ -36,10 +64,10 @@ public class Recipe {
     InputValidation.validateIngredientsMap(ingredients);
     InputValidation.validateUnitsMap(units);
     InputValidation.validateIngredientAndUnitsSize(ingredients, units);
+    InputValidation.validateServings(servings);
 
     this.name = name.trim();
-    this.description = description.trim();
-    this.instructions = instructions.trim();
+    this.servings = servings;
 
     // Create defensive copies of the ingredient maps
     this.ingredients = new HashMap<>();
@@ -49,12 +77,54 @@ public class Recipe {
       Double quantity = ingredients.get(ingredientName);
       String unit = units.get(ingredientName);
 
+      InputValidation.validateIngredientName(ingredientName);
       InputValidation.validateIngredientQuantity(ingredientName, quantity);
       InputValidation.validateIngredientUnit(ingredientName, unit);
 
       this.ingredients.put(ingredientName.trim().toLowerCase(), quantity);
       this.units.put(ingredientName.trim().toLowerCase(), unit.trim());
     }
+
+    this.text = new Text(description.trim(), instructions.trim());
+  }
+
+  /**
+   * Creates a Recipe if the parameters are valid, and otherwise records every problem in the
+   * result instead of throwing. Meant for bulk imports, where building an exception for each bad
+   * row costs far more than checking it.
+   *
+   * @param name         the name of the recipe
+   * @param description  a brief description of the recipe
+   * @param instructions preparation instructions
+   * @param ingredients  a map of ingredient names to required quantities
+   * @param units        a map of ingredient names to their units
+   * @param servings     the number of servings the quantities make
+   * @param result       where the problems are recorded
+   * @return the new Recipe, or null if any parameter is invalid
+   */
+  public static Recipe tryCreate(String name, String description, String instructions,
+      Map<String, Double> ingredients, Map<String, String> units, int servings,
+      ValidationResult result) {
+    if (!InputValidation.checkRecipe(name, description, instructions, ingredients, units,
+        servings, result)) {
+      return null;
+    }
+    return new Recipe(name, description, instructions, ingredients, units, servings);
+  }
+
+  /**
+   * Constructs a copy of a recipe with other quantities, sharing the stored text.
+   *
+   * @param source      the recipe to copy
+   * @param ingredients the validated quantities of the copy
+   * @param servings    the number of servings of the copy
+   */
+  private Recipe(Recipe source, Map<String, Double> ingredients, int servings) {
+    this.name = source.name;
+    this.text = source.text;
+    this.ingredients = ingredients;
+    this.units = source.units;
+    this.servings = servings;
   }
 
   /**
@@ -72,7 +142,7 @@ public class Recipe {
    * @return the recipe description
    */
   public String getDescription() {
-    return description;
+    return text.getDescription();
   }
 
   /**
@@ -81,7 +151,7 @@ public class Recipe {
    * @return the instructions
    */
   public String getInstructions() {
-    return instructions;
+    return text.getInstructions();
   }
 
   /**
@@ -103,34 +173,139 @@ public class Recipe {
   }
 
   /**
-   * Checks if the recipe can be made with the ingredients available in the given FoodStorage.
+   * Returns the number of servings the quantities of the recipe make.
+   *
+   * @return the number of servings
+   */
+  public int getServings() {
+    return servings;
+  }
+
+  /**
+   * Returns a copy of the recipe with every quantity scaled to make another number of servings.
+   *
+   * @param servings the number of servings the copy should make
+   * @return the scaled recipe
+   * @throws IllegalArgumentException if the number of servings is not positive
+   */
+  public Recipe scale(int servings) {
+    InputValidation.validateServings(servings);
+    double factor = (double) servings / this.servings;
+    Map<String, Double> scaled = new HashMap<>();
+    for (Map.Entry<String, Double> entry : ingredients.entrySet()) {
+      scaled.put(entry.getKey(), entry.getValue() * factor);
+    }
+    return new Recipe(this, scaled, servings);
+  }
+
+  /**
+   * Computes how many whole servings of the recipe the stock in the storage supports, in one pass
+   * over the ingredients. For each ingredient the non-expired quantity of every lot, converted to
+   * liters or kilograms, is divided by what one serving needs, and the smallest result is taken.
+   * Both are compared in micro-units, so exactly enough stock always counts as enough.
+   *
+   * @param storage the storage to check against
+   * @return the number of servings that can be made, 0 if any ingredient is missing
+   * @throws IllegalArgumentException if the storage is null
+   */
+  public int maxServings(StorageView storage) {
+    InputValidation.validateFoodStorage(storage);
+    long max = Integer.MAX_VALUE;
+    for (Map.Entry<String, Double> entry : ingredients.entrySet()) {
+      String unit = units.get(entry.getKey());
+      IngredientAggregate stock = storage.getAggregate(entry.getKey(), unit);
+      if (stock == null || !FixedPoint.isRepresentable(entry.getValue())) {
+        return 0;
+      }
+      long neededMicros = FixedPoint.toMicros(entry.getValue());
+      if (UnitConverter.isSupportedUnit(unit)) {
+        neededMicros = UnitConverter.convertToStandardMicros(neededMicros, unit);
+      }
+      if (neededMicros == 0) {
+        continue;
+      }
+      max = Math.min(max, wholeServings(stock.getNonExpiredQuantityMicros(), neededMicros));
+      if (max < 1) {
+        return 0;
+      }
+    }
+    return (int) max;
+  }
+
+  /**
+   * Computes how many whole servings a stock gives when the recipe needs a quantity for all its
+   * servings, as stock * servings / needed rounded down.
    *
-   * @param storage the FoodStorage to check against
+   * @param stockMicros  the stock in micro-units
+   * @param neededMicros the quantity the recipe needs in micro-units, positive
+   * @return the number of whole servings
+   */
+  private long wholeServings(long stockMicros, long neededMicros) {
+    if (stockMicros <= Long.MAX_VALUE / servings) {
+      return stockMicros * servings / neededMicros;
+    }
+    return BigInteger.valueOf(stockMicros).multiply(BigInteger.valueOf(servings))
+        .divide(BigInteger.valueOf(neededMicros))
+        .min(BigInteger.valueOf(Long.MAX_VALUE)).longValue();
+  }
+
+  /**
+   * Checks if the recipe can be made with the ingredients available in the given storage.
+   *
+   * @param storage the storage to check against
    * @return true if the recipe can be made, false otherwise
    */
-  public boolean canMake(FoodStorage storage) {
+  public boolean canMake(StorageView storage) {
+    return canMake(storage, new int[1]);
+  }
+
+  /**
+   * Checks if the recipe can be made, and counts the ingredients looked up. The check stops at the
+   * first ingredient that is missing, so the count is often lower than the number of ingredients.
+   *
+   * @param storage          the storage to check against
+   * @param ingredientChecks the first element is increased by the number of ingredients looked up
+   * @return true if the recipe can be made, false otherwise
+   */
+  boolean canMake(StorageView storage, int[] ingredientChecks) {
     InputValidation.validateFoodStorage(storage);
+    RecipeCheckEvent event = new RecipeCheckEvent();
+    event.begin();
+
+    int checks = 0;
+    boolean makeable = true;
     for (String ingredientName : ingredients.keySet()) {
       Double requiredQuantity = ingredients.get(ingredientName);
       String requiredUnit = units.get(ingredientName);
+      checks++;
 
       // Quantities and units are already in standard units
       Ingredient ingredient = storage.findIngredientByNameAndUnit(ingredientName, requiredUnit);
 
       if (ingredient == null || ingredient.getQuantity() < requiredQuantity) {
-        return false;
+        makeable = false;
+        break;
       }
     }
-    return true;
+
+    ingredientChecks[0] += checks;
+    event.end();
+    if (event.shouldCommit()) {
+      event.setRecipeName(name);
+      event.setIngredientChecks(checks);
+      event.setMakeable(makeable);
+      event.commit();
+    }
+    return makeable;
   }
 
   /**
    * Returns a map of missing ingredients and their required quantities.
    *
-   * @param storage the FoodStorage to check against
+   * @param storage the storage to check against
    * @return a map of missing ingredient names to required quantities
    */
-  public Map<String, Double> getMissingIngredients(FoodStorage storage) {
+  public Map<String, Double> getMissingIngredients(StorageView storage) {
     InputValidation.validateFoodStorage(storage);
     Map<String, Double> missingIngredients = new HashMap<>();
 
@@ -151,10 +326,89 @@ public class Recipe {
     return missingIngredients;
   }
 
+  /**
+   * Moves the description and instructions into a store, unless they are already there.
+   *
+   * @param store the store to move them into
+   * @return the number of bytes they take in the store
+   */
+  long moveTextTo(TextStore store) {
+    Text current = text;
+    if (current.store != store) {
+      current = new Text(store, current.getDescription(), current.getInstructions());
+      text = current;
+    }
+    return current.storedBytes;
+  }
+
+  /**
+   * Moves the description and instructions from a store back onto the heap. Nothing is done if
+   * they are kept somewhere else.
+   *
+   * @param store the store to move them out of
+   */
+  void moveTextOutOf(TextStore store) {
+    Text current = text;
+    if (current.store == store) {
+      text = new Text(current.getDescription(), current.getInstructions());
+    }
+  }
+
+  /**
+   * Tells whether the description and instructions are kept in a store.
+   *
+   * @param store the store
+   * @return true if they are in the store
+   */
+  boolean isTextIn(TextStore store) {
+    return text.store == store;
+  }
+
   @Override
   public String toString() {
     return "Recipe: " + name
-        + "\nDescription: " + description
-        + "\nInstructions: " + instructions;
+        + "\nDescription: " + getDescription()
+        + "\nInstructions: " + getInstructions();
+  }
+
+  /**
+   * The description and instructions, either as strings or as handles into a store. Never changed,
+   * so a recipe can swap it while other threads read it.
+   */
+  private static final class Text {
+
+    private final TextStore store;
+    private final String description;
+    private final String instructions;
+    private final long descriptionHandle;
+    private final long instructionsHandle;
+    private final long storedBytes;
+
+    private Text(String description, String instructions) {
+      this.store = null;
+      this.description = description;
+      this.instructions = instructions;
+      this.descriptionHandle = -1;
+      this.instructionsHandle = -1;
+      this.storedBytes = 0;
+    }
+
+    private Text(TextStore store, String description, String instructions) {
+      long before = store.storedBytes();
+      this.store = store;
+      this.description = null;
+      this.instructions = null;
+      this.descriptionHandle = store.append(description);
+      this.instructionsHandle = store.append(instructions);
+      this.storedBytes = store.storedBytes() - before;
+    }
+
+    private String getDescription() {
+      return store == null ? description : store.read(descriptionHandle);
+    }
+
+    private String getInstructions() {
+      return store == null ? instructions : store.read(instructionsHandle);
+    }
   }
 }
@@ -0,0 +1,42 @@
+package edu.ntnu.idi.idatt.foodstorage;
+
+/**
+ * The ShoppingItem class is one line of a {@link ShoppingList}: an ingredient and how much of it
+ * is needed, in liters or kilograms when the unit can be converted.
+ */
+public class ShoppingItem {
+
+  private final String name;
+  private final String unit;
+  private final double quantity;
+
+  /**
+   * Constructs a ShoppingItem.
+   *
+   * @param name     the lower case name of the ingredient
+   * @param unit     the standard unit of the quantity
+   * @param quantity the quantity needed
+   */
+  public ShoppingItem(String name, String unit, double quantity) {
+    this.name = name;
+    this.unit = unit;
+    this.quantity = quantity;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getUnit() {
+    return unit;
+  }
+
+  public double getQuantity() {
+    return quantity;
+  }
+
+  @Override
+  public String toString() {
+    return name + ": " + String.format("%.2f", quantity) + " " + unit;
+  }
+}
@@ -0,0 +1,145 @@
+package edu.ntnu.idi.idatt.foodstorage;
+
+import edu.ntnu.idi.idatt.utils.FixedPoint;
+import edu.ntnu.idi.idatt.utils.InputValidation;
+import edu.ntnu.idi.idatt.utils.UnitConverter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The ShoppingList class adds up the ingredients of many planned recipes, for example a week of
+ * meals, and tells what has to be bought on top of the stock in a FoodStorage.
+ *
+ * <p>The same recipe may be planned several times, or for a number of servings other than the one
+ * it is written for. Quantities of the same ingredient are added up
+ * in liters or kilograms, so one recipe asking for 2 dl milk and another for 1 liter give one line
+ * of 1.2 liter. The stock is then subtracted with one lookup per ingredient in the aggregates the
+ * storage keeps, without going through its lots. Quantities are added up and subtracted in
+ * micro-units, like the storage keeps them, so a stock that exactly covers the plan leaves
+ * nothing to buy.
+ */
+public class ShoppingList {
+
+  private final Map<Recipe, Double> recipes;
+
+  /**
+   * Constructs an empty ShoppingList.
+   */
+  public ShoppingList() {
+    this.recipes = new LinkedHashMap<>();
+  }
+
+  /**
+   * Plans a recipe to be made a number of times.
+   *
+   * @param recipe the recipe
+   * @param times  how many times the recipe is made
+   * @return this shopping list
+   * @throws IllegalArgumentException if the recipe is null or times is not positive
+   */
+  public ShoppingList addRecipe(Recipe recipe, int times) {
+    InputValidation.validateRecipe(recipe);
+    if (times <= 0) {
+      throw new IllegalArgumentException("A recipe must be planned at least once.");
+    }
+    recipes.merge(recipe, (double) times, Double::sum);
+    return this;
+  }
+
+  /**
+   * Plans a recipe to be made for a number of servings, scaling its quantities from the number of
+   * servings it is written for.
+   *
+   * @param recipe   the recipe
+   * @param servings how many servings to make
+   * @return this shopping list
+   * @throws IllegalArgumentException if the recipe is null or servings is not positive
+   */
+  public ShoppingList addServings(Recipe recipe, int servings) {
+    InputValidation.validateRecipe(recipe);
+    InputValidation.validateServings(servings);
+    recipes.merge(recipe, (double) servings / recipe.getServings(), Double::sum);
+    return this;
+  }
+
+  /**
+   * Returns how many times each planned recipe is made. Planning a recipe for fewer servings than
+   * it is written for makes it a fraction of a time.
+   *
+   * @return the recipes in the order they were first planned
+   */
+  public Map<Recipe, Double> getRecipes() {
+    return new LinkedHashMap<>(recipes);
+  }
+
+  /**
+   * Returns everything the planned recipes need, ignoring the stock.
+   *
+   * @return one item per ingredient and standard unit, sorted by name
+   */
+  public List<ShoppingItem> getRequirements() {
+    List<ShoppingItem> requirements = new ArrayList<>();
+    for (Map.Entry<String, Long> required : aggregateRequirements().entrySet()) {
+      requirements.add(toItem(required.getKey(), required.getValue()));
+    }
+    return requirements;
+  }
+
+  /**
+   * Returns what has to be bought to make every planned recipe, after using the stock that has
+   * not expired.
+   *
+   * @param storage the storage to take stock from
+   * @return one item per ingredient short, sorted by name
+   * @throws IllegalArgumentException if the storage is null
+   */
+  public List<ShoppingItem> getPurchases(StorageView storage) {
+    InputValidation.validateFoodStorage(storage);
+    List<ShoppingItem> purchases = new ArrayList<>();
+    for (Map.Entry<String, Long> required : aggregateRequirements().entrySet()) {
+      String key = required.getKey();
+      int separator = key.indexOf('\u0000');
+      IngredientAggregate stock =
+          storage.getAggregate(key.substring(0, separator), key.substring(separator + 1));
+      long available = stock == null ? 0 : stock.getNonExpiredQuantityMicros();
+      if (available < required.getValue()) {
+        purchases.add(toItem(key, required.getValue() - available));
+      }
+    }
+    return purchases;
+  }
+
+  /**
+   * Adds up the ingredients of every planned recipe by name and standard unit, in micro-units.
+   *
+   * @return the required micro-units keyed by name and unit, separated by a null character
+   */
+  private Map<String, Long> aggregateRequirements() {
+    Map<String, Long> requirements = new TreeMap<>();
+    for (Map.Entry<Recipe, Double> planned : recipes.entrySet()) {
+      Recipe recipe = planned.getKey();
+      Map<String, String> units = recipe.getUnits();
+      for (Map.Entry<String, Double> entry : recipe.getIngredients().entrySet()) {
+        String unit = units.get(entry.getKey());
+        long quantityMicros = FixedPoint.toMicros(entry.getValue() * planned.getValue());
+        if (UnitConverter.isSupportedUnit(unit)) {
+          quantityMicros = UnitConverter.convertToStandardMicros(quantityMicros, unit);
+          unit = UnitConverter.getStandardUnit(unit);
+        } else {
+          unit = unit.toLowerCase();
+        }
+        requirements.merge(entry.getKey() + '\u0000' + unit, quantityMicros, Math::addExact);
+      }
+    }
+    return requirements;
+  }
+
+  private static ShoppingItem toItem(String key, long quantityMicros) {
+    int separator = key.indexOf('\u0000');
+    return new ShoppingItem(key.substring(0, separator), key.substring(separator + 1),
+        FixedPoint.toDouble(quantityMicros));
+  }
+}
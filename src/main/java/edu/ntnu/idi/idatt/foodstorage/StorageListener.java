@@ -0,0 +1,18 @@
+package edu.ntnu.idi.idatt.foodstorage;
+
+/**
+ * Receives every change made to the lots of a {@link FoodStorage}. Listeners are called by the
+ * thread making the change while the storage is locked for writing, so they must be quick and must
+ * not call back into the storage.
+ */
+public interface StorageListener {
+
+  /**
+   * Called after the quantity of a lot has changed.
+   *
+   * @param operation     a number shared by every change made by the same call to the storage
+   * @param lot           the lot that changed, with the quantity it has after the change
+   * @param quantityDelta the change in quantity, in the unit of the lot
+   */
+  void lotChanged(long operation, Ingredient lot, double quantityDelta);
+}
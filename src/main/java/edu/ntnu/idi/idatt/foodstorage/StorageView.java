@@ -0,0 +1,91 @@
+package edu.ntnu.idi.idatt.foodstorage;
+
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * The read-only side of a storage: the lookups and aggregates that recipes, the cookbook, the meal
+ * planner and the shopping list need. It is implemented by a single {@link FoodStorage} and by a
+ * {@link FederatedStorage} that presents several storages as one.
+ */
+public interface StorageView {
+
+  /**
+   * Searches for a lot by its attributes.
+   *
+   * @param name           the name of the ingredient
+   * @param unit           the unit of measurement
+   * @param pricePerUnit   the price per unit
+   * @param bestBeforeDate the best-before date
+   * @return the lot if found, null otherwise
+   */
+  Ingredient searchIngredient(String name, String unit, double pricePerUnit, Date bestBeforeDate);
+
+  /**
+   * Finds a lot of an ingredient that has not expired, in the standard unit of the given unit.
+   *
+   * @param name the name of the ingredient
+   * @param unit the unit of the ingredient
+   * @return a lot that has not expired, or null if there is none
+   */
+  Ingredient findIngredientByNameAndUnit(String name, String unit);
+
+  /**
+   * Returns the combined quantity and value of every lot of an ingredient.
+   *
+   * @param name the name of the ingredient
+   * @param unit any unit of the kind to look up, or the exact unit for other units
+   * @return the aggregate, or null if no lot of the ingredient is stored
+   */
+  IngredientAggregate getAggregate(String name, String unit);
+
+  /**
+   * Returns the aggregates of every ingredient.
+   *
+   * @return a collection of aggregates
+   */
+  Collection<IngredientAggregate> getAggregates();
+
+  /**
+   * Returns every lot.
+   *
+   * @return an array of lots
+   */
+  Ingredient[] listAllIngredients();
+
+  /**
+   * Lists one page of lots in the given order. Pass null as cursor for the first page, and the
+   * cursor of the returned page to continue.
+   *
+   * @param order       the order to list the lots in
+   * @param expiredOnly true to list only expired lots
+   * @param cursor      the cursor from the previous page, or null to start from the beginning
+   * @param pageSize    the maximum number of lots on the page
+   * @return the page of lots
+   * @throws IllegalArgumentException if order is null or pageSize is not positive
+   */
+  IngredientPage listIngredientsPage(IngredientOrder order, boolean expiredOnly, String cursor,
+      int pageSize);
+
+  /**
+   * Returns the number of lots.
+   *
+   * @return the number of lots
+   */
+  int size();
+
+  /**
+   * Calculates the total value of every lot.
+   *
+   * @return the total value in NOK
+   */
+  double calculateTotalValue();
+
+  /**
+   * Returns the modification version, which grows every time a lot is added, changed or removed,
+   * so two equal versions mean the contents have not changed in between.
+   *
+   * @return the modification version
+   */
+  long getModificationVersion();
+}
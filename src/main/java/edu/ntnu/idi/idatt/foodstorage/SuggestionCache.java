@@ -0,0 +1,73 @@
+package edu.ntnu.idi.idatt.foodstorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the recipe suggestions and missing ingredients computed for one storage at one storage
+ * version, cookbook version and day. The cache is only valid while all three stay the same, since
+ * any of them changing can change which recipes can be made.
+ *
+ * <p>The cached results can be read and filled in from several threads at once.
+ */
+class SuggestionCache {
+
+  private final StorageView storage;
+  private final long storageVersion;
+  private final long cookbookVersion;
+  private final LocalDate day;
+  private final Map<Recipe, Map<String, Double>> missingIngredients;
+  private volatile List<Recipe> suggestions;
+
+  /**
+   * Constructs an empty SuggestionCache for the given key.
+   *
+   * @param storage         the storage the results are computed for
+   * @param storageVersion  the modification version of the storage
+   * @param cookbookVersion the modification version of the cookbook
+   * @param day             the day the results are computed on
+   */
+  SuggestionCache(StorageView storage, long storageVersion, long cookbookVersion,
+      LocalDate day) {
+    this.storage = storage;
+    this.storageVersion = storageVersion;
+    this.cookbookVersion = cookbookVersion;
+    this.day = day;
+    this.missingIngredients = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Checks if the cached results are still valid for the given key.
+   *
+   * @param storage         the storage asked about
+   * @param storageVersion  the current modification version of the storage
+   * @param cookbookVersion the current modification version of the cookbook
+   * @param day             the current day
+   * @return true if the cached results can be reused
+   */
+  boolean isValidFor(StorageView storage, long storageVersion, long cookbookVersion,
+      LocalDate day) {
+    return this.storage == storage
+        && this.storageVersion == storageVersion
+        && this.cookbookVersion == cookbookVersion
+        && this.day.equals(day);
+  }
+
+  List<Recipe> getSuggestions() {
+    return suggestions;
+  }
+
+  void setSuggestions(List<Recipe> suggestions) {
+    this.suggestions = suggestions;
+  }
+
+  Map<String, Double> getMissingIngredients(Recipe recipe) {
+    return missingIngredients.get(recipe);
+  }
+
+  void putMissingIngredients(Recipe recipe, Map<String, Double> missing) {
+    missingIngredients.put(recipe, missing);
+  }
+}
@@ -0,0 +1,249 @@
+package edu.ntnu.idi.idatt.foodstorage;
+
+/**
+ * The UndoHistory class lets changes to a FoodStorage and a Cookbook be undone and redone. It
+ * listens to both and records each change as a small delta: the lot and how much its quantity
+ * changed, or the recipe and whether it was added or removed. No copy of the storage or cookbook
+ * is ever made.
+ *
+ * <p>Deltas are kept in a ring buffer of fixed capacity, so memory stays bounded and the oldest
+ * changes are forgotten once it is full. Changes made by one call, such as cooking a recipe that
+ * takes from several lots, share a group number and are undone and redone together, or not at
+ * all. A single change made of more deltas than the capacity cannot be undone: it is forgotten
+ * together with every change before it. Undoing or redoing a change costs O(1) per delta it is
+ * made of.
+ *
+ * <p>The history is meant to be used by one user interface thread.
+ */
+public class UndoHistory {
+
+  private static final double RECIPE_ADDED = 1;
+  private static final double RECIPE_REMOVED = -1;
+
+  private final FoodStorage storage;
+  private final Cookbook cookbook;
+  private final Object[] subjects;   // Ingredient lot or Recipe
+  private final double[] deltas;     // Quantity change, or RECIPE_ADDED and RECIPE_REMOVED
+  private final long[] groups;
+  private int start;
+  private int size;
+  private int done;
+  private long groupCount;
+  private long lastStorageOperation;
+  private long forgottenGroup;
+  private int replayDirection;       // -1 while deltas are undone, 1 while redone, else 0
+
+  /**
+   * Constructs an UndoHistory and starts recording the changes to the storage and cookbook.
+   *
+   * @param storage  the storage to record
+   * @param cookbook the cookbook to record
+   * @param capacity the maximum number of deltas to remember
+   * @throws IllegalArgumentException if storage or cookbook is null or capacity is not positive
+   */
+  public UndoHistory(FoodStorage storage, Cookbook cookbook, int capacity) {
+    if (storage == null || cookbook == null) {
+      throw new IllegalArgumentException("FoodStorage and Cookbook cannot be null.");
+    }
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive.");
+    }
+    this.storage = storage;
+    this.cookbook = cookbook;
+    this.subjects = new Object[capacity];
+    this.deltas = new double[capacity];
+    this.groups = new long[capacity];
+    this.lastStorageOperation = -1;
+    this.forgottenGroup = -1;
+
+    storage.addListener(this::lotChanged);
+    cookbook.addListener(new CookbookListener() {
+      @Override
+      public void recipeAdded(Recipe recipe) {
+        record(recipe, RECIPE_ADDED, ++groupCount);
+      }
+
+      @Override
+      public void recipeRemoved(Recipe recipe) {
+        record(recipe, RECIPE_REMOVED, ++groupCount);
+      }
+    });
+  }
+
+  /**
+   * Checks if there is a change to undo.
+   *
+   * @return true if {@link #undo()} will change something
+   */
+  public boolean canUndo() {
+    return done > 0;
+  }
+
+  /**
+   * Checks if there is an undone change to redo.
+   *
+   * @return true if {@link #redo()} will change something
+   */
+  public boolean canRedo() {
+    return done < size;
+  }
+
+  /**
+   * Returns the number of deltas remembered, both done and undone.
+   *
+   * @return the number of deltas
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Checks if the storage or cookbook is being changed by an undo right now, so listeners can tell
+   * a change that takes back an earlier one from a new change. Deltas made again to keep a failed
+   * redo whole count as an undo too.
+   *
+   * @return true while a change is being undone
+   */
+  public boolean isUndoing() {
+    return replayDirection < 0;
+  }
+
+  /**
+   * Undoes the most recent change that has not been undone. If any delta of the change cannot be
+   * undone, the deltas already undone are made again, so the change stays done as a whole.
+   *
+   * @return true if a change was undone, false if there was nothing to undo
+   * @throws IllegalArgumentException if the storage no longer allows the change to be undone
+   */
+  public boolean undo() {
+    if (!canUndo()) {
+      return false;
+    }
+    replay(-1);
+    return true;
+  }
+
+  /**
+   * Redoes the most recently undone change. If any delta of the change cannot be redone, the
+   * deltas already redone are undone again, so the change stays undone as a whole.
+   *
+   * @return true if a change was redone, false if there was nothing to redo
+   * @throws IllegalArgumentException if the storage no longer allows the change to be redone
+   */
+  public boolean redo() {
+    if (!canRedo()) {
+      return false;
+    }
+    replay(1);
+    return true;
+  }
+
+  /**
+   * Undoes or redoes the group next to the done position as one change.
+   *
+   * @param direction -1 to undo the last done group, 1 to redo the first undone group
+   */
+  private void replay(int direction) {
+    int first = done;
+    long group = groups[slot(direction < 0 ? done - 1 : done)];
+    replayDirection = direction;
+    try {
+      while (direction < 0 ? done > 0 && groups[slot(done - 1)] == group
+          : done < size && groups[slot(done)] == group) {
+        int slot = slot(direction < 0 ? done - 1 : done);
+        apply(subjects[slot], direction * deltas[slot]);
+        done += direction;
+      }
+    } catch (RuntimeException e) {
+      // Take back the deltas already replayed, newest first
+      replayDirection = -direction;
+      while (done != first) {
+        int slot = slot(direction < 0 ? done : done - 1);
+        apply(subjects[slot], -direction * deltas[slot]);
+        done -= direction;
+      }
+      throw e;
+    } finally {
+      replayDirection = 0;
+    }
+  }
+
+  private void lotChanged(long operation, Ingredient lot, double quantityDelta) {
+    if (operation != lastStorageOperation) {
+      lastStorageOperation = operation;
+      groupCount++;
+    }
+    record(lot, quantityDelta, groupCount);
+  }
+
+  /**
+   * Appends a delta, forgetting every undone delta and, when the buffer is full, the oldest group.
+   *
+   * @param subject the lot or recipe that changed
+   * @param delta   the change
+   * @param group   the group of the change
+   */
+  private void record(Object subject, double delta, long group) {
+    if (replayDirection != 0 || group == forgottenGroup) {
+      return;
+    }
+    size = done;
+    if (size == subjects.length) {
+      long oldest = groups[start];
+      if (oldest == group) {
+        // The group alone is larger than the buffer and could only be kept in part, so it is
+        // forgotten, together with everything before it
+        for (int i = 0; i < size; i++) {
+          subjects[slot(i)] = null;
+        }
+        start = 0;
+        size = 0;
+        done = 0;
+        forgottenGroup = group;
+        return;
+      }
+      // Drop the whole oldest group so it is never undone halfway
+      while (size > 0 && groups[start] == oldest) {
+        subjects[start] = null;
+        start = (start + 1) % subjects.length;
+        size--;
+      }
+    }
+    int slot = slot(size);
+    subjects[slot] = subject;
+    deltas[slot] = delta;
+    groups[slot] = group;
+    size++;
+    done = size;
+  }
+
+  /**
+   * Makes one delta happen again, or its opposite when undoing.
+   *
+   * @param subject the lot or recipe
+   * @param delta   the change to make
+   */
+  private void apply(Object subject, double delta) {
+    if (subject instanceof Recipe) {
+      Recipe recipe = (Recipe) subject;
+      if (delta > 0) {
+        cookbook.addRecipe(recipe);
+      } else {
+        cookbook.removeRecipe(recipe);
+      }
+      return;
+    }
+    Ingredient lot = (Ingredient) subject;
+    if (delta > 0) {
+      storage.addIngredient(new Ingredient(lot.getName(), delta, lot.getUnit(),
+          lot.getBestBeforeDate(), lot.getPricePerUnit()));
+    } else {
+      storage.removeIngredient(lot.getName(), lot.getUnit(), lot.getPricePerUnit(),
+          lot.getBestBeforeDate(), -delta);
+    }
+  }
+
+  private int slot(int index) {
+    return (start + index) % subjects.length;
+  }
+}
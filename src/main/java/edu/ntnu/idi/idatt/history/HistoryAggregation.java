@@ -0,0 +1,33 @@
+package edu.ntnu.idi.idatt.history;
+
+/**
+ * The ways the days in a bucket of a downsampled {@link StockHistory} query are combined into one
+ * value.
+ */
+public enum HistoryAggregation {
+
+  /**
+   * The sum of the days, for counters like the wasted value.
+   */
+  SUM,
+
+  /**
+   * The smallest value of a day.
+   */
+  MIN,
+
+  /**
+   * The largest value of a day.
+   */
+  MAX,
+
+  /**
+   * The average of the days that were sampled, rounded to the nearest whole unit.
+   */
+  AVERAGE,
+
+  /**
+   * The value of the last day sampled, for gauges like the stock value.
+   */
+  LAST
+}
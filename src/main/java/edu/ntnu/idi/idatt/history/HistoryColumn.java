@@ -0,0 +1,65 @@
+package edu.ntnu.idi.idatt.history;
+
+/**
+ * The columns of a {@link StockHistory}, one value of each per day. Gauges are the state of the
+ * storage when the day was sampled, while counters add up what happened during the day.
+ */
+public enum HistoryColumn {
+
+  /**
+   * The total value of every lot, in micro-units of NOK.
+   */
+  STOCK_VALUE(true, false),
+
+  /**
+   * The total value of the expired lots, in micro-units of NOK.
+   */
+  EXPIRED_VALUE(true, false),
+
+  /**
+   * The number of lots.
+   */
+  LOT_COUNT(false, false),
+
+  /**
+   * The value of the stock added during the day, in micro-units of NOK.
+   */
+  ADDED_VALUE(true, true),
+
+  /**
+   * The value of the lots used before they expired during the day, in micro-units of NOK.
+   */
+  CONSUMED_VALUE(true, true),
+
+  /**
+   * The value of the expired lots thrown out during the day, in micro-units of NOK.
+   */
+  WASTED_VALUE(true, true);
+
+  private final boolean micros;
+  private final boolean counter;
+
+  HistoryColumn(boolean micros, boolean counter) {
+    this.micros = micros;
+    this.counter = counter;
+  }
+
+  /**
+   * Checks if the values of the column are amounts in micro-units.
+   *
+   * @return true for amounts in micro-units, false for plain counts
+   */
+  public boolean isMicros() {
+    return micros;
+  }
+
+  /**
+   * Checks if the column adds up what happened during the day. Two samples of the same day are
+   * added together in a counter, while a gauge keeps the latest.
+   *
+   * @return true for a counter, false for a gauge
+   */
+  public boolean isCounter() {
+    return counter;
+  }
+}
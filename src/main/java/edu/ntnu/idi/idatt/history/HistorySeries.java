@@ -0,0 +1,83 @@
+package edu.ntnu.idi.idatt.history;
+
+import edu.ntnu.idi.idatt.utils.FixedPoint;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * One column of a {@link StockHistory} over a range of days, oldest first. For a downsampled query
+ * each day is the first day of its bucket.
+ */
+public class HistorySeries {
+
+  private final HistoryColumn column;
+  private final long[] epochDays;
+  private final long[] values;
+
+  /**
+   * Constructs a HistorySeries from the first entries of the arrays, which are copied.
+   *
+   * @param column    the column the values are from
+   * @param epochDays the days, counted from 1970-01-01
+   * @param values    the value of each day
+   * @param size      the number of entries to take
+   */
+  HistorySeries(HistoryColumn column, long[] epochDays, long[] values, int size) {
+    this.column = column;
+    this.epochDays = Arrays.copyOf(epochDays, size);
+    this.values = Arrays.copyOf(values, size);
+  }
+
+  public HistoryColumn getColumn() {
+    return column;
+  }
+
+  /**
+   * Returns the number of days in the series.
+   *
+   * @return the number of days
+   */
+  public int size() {
+    return values.length;
+  }
+
+  /**
+   * Returns a day of the series.
+   *
+   * @param index the position in the series, from 0
+   * @return the day
+   */
+  public LocalDate getDay(int index) {
+    return LocalDate.ofEpochDay(epochDays[index]);
+  }
+
+  /**
+   * Returns the value of a day as it is stored: micro-units for amounts and whole numbers for
+   * counts.
+   *
+   * @param index the position in the series, from 0
+   * @return the stored value
+   */
+  public long getRawValue(int index) {
+    return values[index];
+  }
+
+  /**
+   * Returns the value of a day, in NOK for amounts.
+   *
+   * @param index the position in the series, from 0
+   * @return the value
+   */
+  public double getValue(int index) {
+    return column.isMicros() ? FixedPoint.toDouble(values[index]) : values[index];
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder(column.name());
+    for (int i = 0; i < values.length; i++) {
+      text.append(i == 0 ? ": " : ", ").append(getDay(i)).append('=').append(getValue(i));
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,656 @@
+package edu.ntnu.idi.idatt.history;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The StockHistory class keeps one sample per day of the {@link HistoryColumn columns} in a file,
+ * so trends like the expired value per day can be followed over years. Samples are recorded in day
+ * order, usually by a {@link StockHistoryRecorder}.
+ *
+ * <p>The file is a sequence of blocks of up to 256 days. Within a block every column is stored on
+ * its own, each value as the difference from the day before in a variable number of bytes, so a
+ * value that changes little from day to day takes one or two bytes instead of eight. Each block
+ * starts with the first and last day and the sum, minimum, maximum and last value of every column,
+ * and only these headers are kept in memory. A range query reads just the blocks that overlap the
+ * range, found by binary search, and a downsampled query takes a block that falls inside a single
+ * bucket straight from its header without reading it.
+ *
+ * <p>The last block is written again every time a sample is recorded, so every recorded sample is
+ * on disk. It is never written over its previous version: the open block has two slots after the
+ * sealed blocks and every version goes into the slot not holding the newest one. Each version is
+ * numbered and ends with a checksum, and when the file is opened the newest complete version is
+ * used. A stop in the middle of a write therefore loses at most the sample being recorded. When a
+ * full block is sealed while its newest version is in the second slot, it is first copied into the
+ * first one, so the sealed blocks follow each other without gaps.
+ */
+public class StockHistory implements Closeable {
+
+  private static final int FILE_MAGIC = 0x46534854;  // "FSHT"
+  private static final int FILE_VERSION = 2;
+  private static final int FILE_HEADER_SIZE = 8;
+  private static final int BLOCK_MAGIC = 0x424c4b31; // "BLK1"
+  private static final int BLOCK_SIZE = 256;
+  private static final int COLUMNS = HistoryColumn.values().length;
+
+  // Per column in the block header: sum, minimum, maximum and last value
+  private static final int SUM = 0;
+  private static final int MIN = 1;
+  private static final int MAX = 2;
+  private static final int LAST = 3;
+  private static final int SUMMARY_SIZE = 4;
+
+  // Magic and body length, version, count, first and last day, summaries and column lengths
+  private static final int BLOCK_HEADER_SIZE = 8 + 8 + 4 + 8 + 8 + COLUMNS * SUMMARY_SIZE * 8
+      + (COLUMNS + 1) * 4;
+  private static final int MAX_BLOCK_SIZE = BLOCK_HEADER_SIZE + (COLUMNS + 1) * BLOCK_SIZE * 10 + 4;
+
+  private final FileChannel channel;
+  private final List<Block> blocks;
+  private final long[] tailDays;
+  private final long[][] tailValues;
+  private final long[] scratchDays;
+  private final long[] scratchValues;
+  private final ByteBuffer buffer;
+  private final CRC32 crc;
+  private int tailCount;
+  private long tailOffset;   // Where the first of the two slots of the open block starts
+  private int tailSlot;      // The slot holding the newest version of the open block
+  private int tailLength;
+  private long version;      // Of the newest block version written
+
+  /**
+   * Opens the history kept in a file, creating the file if it does not exist.
+   *
+   * @param file the file to keep the history in
+   * @throws IOException              if the file cannot be read or written, or is not a history
+   * @throws IllegalArgumentException if file is null
+   */
+  public StockHistory(Path file) throws IOException {
+    if (file == null) {
+      throw new IllegalArgumentException("File cannot be null.");
+    }
+    this.blocks = new ArrayList<>();
+    this.tailDays = new long[BLOCK_SIZE];
+    this.tailValues = new long[COLUMNS][BLOCK_SIZE];
+    this.scratchDays = new long[BLOCK_SIZE];
+    this.scratchValues = new long[BLOCK_SIZE];
+    this.buffer = ByteBuffer.allocate(MAX_BLOCK_SIZE);
+    this.crc = new CRC32();
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    try {
+      load(file);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Records the sample of a day. A day that is already recorded is updated: the counters are added
+   * to and the gauges replaced, see {@link HistoryColumn#isCounter()}.
+   *
+   * @param day    the day of the sample
+   * @param values the value of every column, indexed by {@link HistoryColumn#ordinal()}
+   * @throws IOException              if the sample cannot be written
+   * @throws IllegalArgumentException if day or values is null, values does not have one value per
+   *                                  column, or day is before the last day recorded
+   */
+  public synchronized void record(LocalDate day, long[] values) throws IOException {
+    if (day == null) {
+      throw new IllegalArgumentException("Day cannot be null.");
+    }
+    if (values == null || values.length != COLUMNS) {
+      throw new IllegalArgumentException("Expected one value for each of the " + COLUMNS
+          + " columns.");
+    }
+    long epochDay = day.toEpochDay();
+    long lastDay = tailCount > 0 ? tailDays[tailCount - 1] : Long.MIN_VALUE;
+    if (epochDay < lastDay) {
+      throw new IllegalArgumentException("Samples must be recorded in day order, the last day "
+          + "recorded is " + LocalDate.ofEpochDay(lastDay) + ".");
+    }
+
+    if (epochDay == lastDay) {
+      for (HistoryColumn column : HistoryColumn.values()) {
+        int c = column.ordinal();
+        tailValues[c][tailCount - 1] = column.isCounter()
+            ? tailValues[c][tailCount - 1] + values[c] : values[c];
+      }
+    } else {
+      if (tailCount == BLOCK_SIZE) {
+        if (tailSlot == 1) {
+          writeTail();
+        }
+        // The full block is now on disk in the first slot, so only its header has to be kept
+        blocks.add(new Block(tailOffset, tailLength, version, tailCount, tailDays[0],
+            tailDays[tailCount - 1], summarize(tailValues, tailCount)));
+        tailOffset += tailLength;
+        tailLength = 0;
+        tailCount = 0;
+        // So the first version of the new block goes into the first slot
+        tailSlot = 1;
+      }
+      tailDays[tailCount] = epochDay;
+      for (int c = 0; c < COLUMNS; c++) {
+        tailValues[c][tailCount] = values[c];
+      }
+      tailCount++;
+    }
+    writeTail();
+  }
+
+  /**
+   * Returns the number of days recorded.
+   *
+   * @return the number of days
+   */
+  public synchronized int size() {
+    int size = tailCount;
+    for (Block block : blocks) {
+      size += block.count;
+    }
+    return size;
+  }
+
+  /**
+   * Returns the first day recorded.
+   *
+   * @return the first day, or null if nothing is recorded
+   */
+  public synchronized LocalDate getFirstDay() {
+    if (!blocks.isEmpty()) {
+      return LocalDate.ofEpochDay(blocks.get(0).firstDay);
+    }
+    return tailCount > 0 ? LocalDate.ofEpochDay(tailDays[0]) : null;
+  }
+
+  /**
+   * Returns the last day recorded.
+   *
+   * @return the last day, or null if nothing is recorded
+   */
+  public synchronized LocalDate getLastDay() {
+    return tailCount > 0 ? LocalDate.ofEpochDay(tailDays[tailCount - 1]) : null;
+  }
+
+  /**
+   * Returns the value of a column on every recorded day in a range. Only the blocks that overlap
+   * the range are read.
+   *
+   * @param column the column to read
+   * @param from   the first day of the range
+   * @param to     the last day of the range, inclusive
+   * @return the recorded days in the range and their values
+   * @throws IOException              if the file cannot be read
+   * @throws IllegalArgumentException if any argument is null or from is after to
+   */
+  public synchronized HistorySeries read(HistoryColumn column, LocalDate from, LocalDate to)
+      throws IOException {
+    validateRange(column, from, to);
+    long fromDay = from.toEpochDay();
+    long toDay = to.toEpochDay();
+    int capacity = (int) Math.min(size(), toDay - fromDay + 1);
+    long[] days = new long[capacity];
+    long[] values = new long[capacity];
+    int count = 0;
+
+    for (int b = firstBlockEndingFrom(fromDay); b <= blocks.size(); b++) {
+      int rows = rowsOf(b, column, fromDay, toDay);
+      if (rows < 0) {
+        break;
+      }
+      long[] rowDays = b < blocks.size() ? scratchDays : tailDays;
+      long[] rowValues = b < blocks.size() ? scratchValues : tailValues[column.ordinal()];
+      for (int i = 0; i < rows; i++) {
+        if (rowDays[i] >= fromDay && rowDays[i] <= toDay) {
+          days[count] = rowDays[i];
+          values[count] = rowValues[i];
+          count++;
+        }
+      }
+    }
+    return new HistorySeries(column, days, values, count);
+  }
+
+  /**
+   * Combines the values of a column in a range into buckets of a fixed number of days, counted
+   * from the first day of the range, like one value per week or per year. Buckets without any
+   * recorded day are left out.
+   *
+   * @param column      the column to read
+   * @param from        the first day of the range and of the first bucket
+   * @param to          the last day of the range, inclusive
+   * @param bucketDays  the number of days in each bucket
+   * @param aggregation how the days in a bucket are combined
+   * @return the first day of every bucket with a recorded day, and its combined value
+   * @throws IOException              if the file cannot be read
+   * @throws IllegalArgumentException if any argument is null, from is after to or bucketDays is
+   *                                  not positive
+   */
+  public synchronized HistorySeries downsample(HistoryColumn column, LocalDate from,
+      LocalDate to, int bucketDays, HistoryAggregation aggregation) throws IOException {
+    validateRange(column, from, to);
+    if (bucketDays <= 0) {
+      throw new IllegalArgumentException("Bucket days must be positive.");
+    }
+    if (aggregation == null) {
+      throw new IllegalArgumentException("Aggregation cannot be null.");
+    }
+    long fromDay = from.toEpochDay();
+    long toDay = to.toEpochDay();
+    if (tailCount == 0) {
+      return new HistorySeries(column, new long[0], new long[0], 0);
+    }
+    // Only the buckets between the first and last recorded day in the range are allocated
+    long firstRecorded = Math.max(fromDay,
+        blocks.isEmpty() ? tailDays[0] : blocks.get(0).firstDay);
+    long lastRecorded = Math.min(toDay, tailDays[tailCount - 1]);
+    if (firstRecorded > lastRecorded) {
+      return new HistorySeries(column, new long[0], new long[0], 0);
+    }
+    long firstBucket = (firstRecorded - fromDay) / bucketDays;
+    int bucketCount = (int) ((lastRecorded - fromDay) / bucketDays - firstBucket + 1);
+    Buckets buckets = new Buckets(bucketCount);
+
+    int c = column.ordinal();
+    for (int b = firstBlockEndingFrom(fromDay); b <= blocks.size(); b++) {
+      if (b < blocks.size()) {
+        Block block = blocks.get(b);
+        if (block.firstDay > toDay) {
+          break;
+        }
+        long bucket = (block.firstDay - fromDay) / bucketDays;
+        if (block.firstDay >= fromDay && block.lastDay <= toDay
+            && bucket == (block.lastDay - fromDay) / bucketDays) {
+          long[] summary = block.summary;
+          buckets.add((int) (bucket - firstBucket), block.count, summary[c * SUMMARY_SIZE + SUM],
+              summary[c * SUMMARY_SIZE + MIN], summary[c * SUMMARY_SIZE + MAX],
+              summary[c * SUMMARY_SIZE + LAST]);
+          continue;
+        }
+      }
+      int rows = rowsOf(b, column, fromDay, toDay);
+      if (rows < 0) {
+        break;
+      }
+      long[] rowDays = b < blocks.size() ? scratchDays : tailDays;
+      long[] rowValues = b < blocks.size() ? scratchValues : tailValues[c];
+      for (int i = 0; i < rows; i++) {
+        if (rowDays[i] >= fromDay && rowDays[i] <= toDay) {
+          long value = rowValues[i];
+          int bucket = (int) ((rowDays[i] - fromDay) / bucketDays - firstBucket);
+          buckets.add(bucket, 1, value, value, value, value);
+        }
+      }
+    }
+
+    long[] days = new long[bucketCount];
+    long[] values = new long[bucketCount];
+    int count = 0;
+    for (int i = 0; i < bucketCount; i++) {
+      if (buckets.counts[i] > 0) {
+        days[count] = fromDay + (firstBucket + i) * bucketDays;
+        values[count] = buckets.value(i, aggregation);
+        count++;
+      }
+    }
+    return new HistorySeries(column, days, values, count);
+  }
+
+  /**
+   * Closes the file. Every recorded sample is already written.
+   *
+   * @throws IOException if the file cannot be closed
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    channel.close();
+  }
+
+  private static void validateRange(HistoryColumn column, LocalDate from, LocalDate to) {
+    if (column == null) {
+      throw new IllegalArgumentException("Column cannot be null.");
+    }
+    if (from == null || to == null) {
+      throw new IllegalArgumentException("Range cannot be null.");
+    }
+    if (from.isAfter(to)) {
+      throw new IllegalArgumentException("Range cannot start after it ends.");
+    }
+  }
+
+  /**
+   * Finds the first sealed block that ends on or after a day. The open block at the end, which is
+   * not in the list, is numbered as the block after the last sealed one.
+   */
+  private int firstBlockEndingFrom(long epochDay) {
+    int low = 0;
+    int high = blocks.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (blocks.get(middle).lastDay < epochDay) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Makes the days and the values of a column of a block available: a sealed block is decoded into
+   * the scratch arrays, while the open block is already in the tail arrays.
+   *
+   * @return the number of rows, or -1 if the block starts after the range
+   */
+  private int rowsOf(int block, HistoryColumn column, long fromDay, long toDay)
+      throws IOException {
+    if (block == blocks.size()) {
+      return tailCount == 0 || tailDays[0] > toDay ? -1 : tailCount;
+    }
+    Block sealed = blocks.get(block);
+    if (sealed.firstDay > toDay) {
+      return -1;
+    }
+    readFully(sealed.offset, sealed.length);
+    decodeColumn(columnStart(0), sealed.count, scratchDays);
+    decodeColumn(columnStart(column.ordinal() + 1), sealed.count, scratchValues);
+    return sealed.count;
+  }
+
+  /**
+   * Finds where a column of the block in the buffer starts. Column 0 is the days, followed by the
+   * columns in the order of {@link HistoryColumn}.
+   */
+  private int columnStart(int column) {
+    int start = BLOCK_HEADER_SIZE;
+    for (int i = 0; i < column; i++) {
+      start += buffer.getInt(BLOCK_HEADER_SIZE - (COLUMNS + 1 - i) * 4);
+    }
+    return start;
+  }
+
+  private void decodeColumn(int start, int count, long[] into) {
+    buffer.position(start);
+    long previous = 0;
+    for (int i = 0; i < count; i++) {
+      long zigzag = 0;
+      int shift = 0;
+      byte next;
+      do {
+        next = buffer.get();
+        zigzag |= (long) (next & 0x7F) << shift;
+        shift += 7;
+      } while (next < 0);
+      previous += (zigzag >>> 1) ^ -(zigzag & 1);
+      into[i] = previous;
+    }
+  }
+
+  /**
+   * Encodes the open block into the buffer and writes it into the slot not holding the newest
+   * version, which stays intact until the new one is complete.
+   */
+  private void writeTail() throws IOException {
+    buffer.clear();
+    buffer.putInt(BLOCK_MAGIC).putInt(0).putLong(version + 1);
+    buffer.putInt(tailCount).putLong(tailDays[0]).putLong(tailDays[tailCount - 1]);
+    for (long value : summarize(tailValues, tailCount)) {
+      buffer.putLong(value);
+    }
+    int lengthsAt = buffer.position();
+    buffer.position(lengthsAt + (COLUMNS + 1) * 4);
+    for (int i = 0; i <= COLUMNS; i++) {
+      int start = buffer.position();
+      encodeColumn(i == 0 ? tailDays : tailValues[i - 1], tailCount);
+      buffer.putInt(lengthsAt + i * 4, buffer.position() - start);
+    }
+    int bodyLength = buffer.position() - 8;
+    buffer.putInt(4, bodyLength);
+    crc.reset();
+    crc.update(buffer.array(), 8, bodyLength);
+    buffer.putInt((int) crc.getValue());
+    buffer.flip();
+
+    int slot = 1 - tailSlot;
+    int length = buffer.limit();
+    long position = tailOffset + (long) slot * MAX_BLOCK_SIZE;
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+    channel.force(false);
+    version++;
+    tailSlot = slot;
+    tailLength = length;
+  }
+
+  private void encodeColumn(long[] column, int count) {
+    long previous = 0;
+    for (int i = 0; i < count; i++) {
+      long delta = column[i] - previous;
+      long zigzag = (delta << 1) ^ (delta >> 63);
+      while ((zigzag & ~0x7FL) != 0) {
+        buffer.put((byte) (zigzag | 0x80));
+        zigzag >>>= 7;
+      }
+      buffer.put((byte) zigzag);
+      previous = column[i];
+    }
+  }
+
+  private static long[] summarize(long[][] values, int count) {
+    long[] summary = new long[COLUMNS * SUMMARY_SIZE];
+    for (int c = 0; c < COLUMNS; c++) {
+      long sum = 0;
+      long min = Long.MAX_VALUE;
+      long max = Long.MIN_VALUE;
+      for (int i = 0; i < count; i++) {
+        sum += values[c][i];
+        min = Math.min(min, values[c][i]);
+        max = Math.max(max, values[c][i]);
+      }
+      summary[c * SUMMARY_SIZE + SUM] = sum;
+      summary[c * SUMMARY_SIZE + MIN] = min;
+      summary[c * SUMMARY_SIZE + MAX] = max;
+      summary[c * SUMMARY_SIZE + LAST] = values[c][count - 1];
+    }
+    return summary;
+  }
+
+  /**
+   * Reads the headers of every block and the newest version of the open block, which stays open
+   * for new samples. Blocks are read up to the first one that is incomplete, fails its checksum or
+   * is not newer than the block before it, which makes it a leftover of an earlier slot. The open
+   * block is the newest of the last block read and the blocks in the second slot after its start
+   * and after its end, and the file is cut off after it.
+   */
+  private void load(Path file) throws IOException {
+    long size = channel.size();
+    tailSlot = 1;
+    if (size == 0) {
+      buffer.clear();
+      buffer.putInt(FILE_MAGIC).putInt(FILE_VERSION).flip();
+      channel.write(buffer, 0);
+      tailOffset = FILE_HEADER_SIZE;
+      return;
+    }
+    if (size < FILE_HEADER_SIZE) {
+      throw new IOException("Not a stock history file: " + file);
+    }
+    readFully(0, FILE_HEADER_SIZE);
+    if (buffer.getInt() != FILE_MAGIC || buffer.getInt() != FILE_VERSION) {
+      throw new IOException("Not a stock history file: " + file);
+    }
+
+    long offset = FILE_HEADER_SIZE;
+    Block block;
+    while ((block = readBlock(offset, size)) != null && block.version > version) {
+      blocks.add(block);
+      version = block.version;
+      offset += block.length;
+    }
+    tailOffset = offset;
+
+    Block last = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+    Block tail = null;
+    if (last != null) {
+      // Either the newest version of the open block is in its second slot, or the last block
+      // read is the open block itself
+      tail = readBlock(last.offset + MAX_BLOCK_SIZE, size);
+      if (tail == null || tail.version <= version) {
+        tail = last;
+        tailSlot = 0;
+      }
+      blocks.remove(blocks.size() - 1);
+      tailOffset = last.offset;
+    }
+    // Unless the last block read was sealed and the first version of the next one was cut off
+    block = readBlock(offset + MAX_BLOCK_SIZE, size);
+    if (block != null && block.version > (tail == null ? version : tail.version)) {
+      if (last != null) {
+        blocks.add(last);
+      }
+      tail = block;
+      tailOffset = offset;
+      tailSlot = 1;
+    }
+
+    long end = offset;
+    if (tail != null) {
+      readFully(tail.offset, tail.length);
+      decodeColumn(columnStart(0), tail.count, tailDays);
+      for (int c = 0; c < COLUMNS; c++) {
+        decodeColumn(columnStart(c + 1), tail.count, tailValues[c]);
+      }
+      tailCount = tail.count;
+      tailLength = tail.length;
+      version = tail.version;
+      end = tail.offset + tail.length;
+    }
+    if (end < size) {
+      channel.truncate(end);
+    }
+  }
+
+  /**
+   * Reads the header of the block at an offset, leaving the block in the buffer.
+   *
+   * @return the header, or null if there is no complete block with a valid checksum there
+   */
+  private Block readBlock(long offset, long size) throws IOException {
+    if (offset + 8 > size) {
+      return null;
+    }
+    readFully(offset, 8);
+    int magic = buffer.getInt();
+    int bodyLength = buffer.getInt();
+    int length = 8 + bodyLength + 4;
+    if (magic != BLOCK_MAGIC || bodyLength < BLOCK_HEADER_SIZE - 8 || length > MAX_BLOCK_SIZE
+        || offset + length > size) {
+      return null;
+    }
+    readFully(offset, length);
+    crc.reset();
+    crc.update(buffer.array(), 8, bodyLength);
+    if (buffer.getInt(8 + bodyLength) != (int) crc.getValue()) {
+      return null;
+    }
+    buffer.position(8);
+    long blockVersion = buffer.getLong();
+    int count = buffer.getInt();
+    long firstDay = buffer.getLong();
+    long lastDay = buffer.getLong();
+    long[] summary = new long[COLUMNS * SUMMARY_SIZE];
+    for (int i = 0; i < summary.length; i++) {
+      summary[i] = buffer.getLong();
+    }
+    return new Block(offset, length, blockVersion, count, firstDay, lastDay, summary);
+  }
+
+  private void readFully(long position, int length) throws IOException {
+    buffer.clear().limit(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Unexpected end of stock history file.");
+      }
+    }
+    buffer.flip();
+  }
+
+  /**
+   * The header of a sealed block, kept in memory.
+   */
+  private static final class Block {
+
+    private final long offset;
+    private final int length;
+    private final long version;
+    private final int count;
+    private final long firstDay;
+    private final long lastDay;
+    private final long[] summary;
+
+    private Block(long offset, int length, long version, int count, long firstDay, long lastDay,
+        long[] summary) {
+      this.offset = offset;
+      this.length = length;
+      this.version = version;
+      this.count = count;
+      this.firstDay = firstDay;
+      this.lastDay = lastDay;
+      this.summary = summary;
+    }
+  }
+
+  /**
+   * The running count, sum, minimum, maximum and last value of each bucket of a downsampled query.
+   */
+  private static final class Buckets {
+
+    private final long[] counts;
+    private final long[] sums;
+    private final long[] mins;
+    private final long[] maxs;
+    private final long[] lasts;
+
+    private Buckets(int size) {
+      counts = new long[size];
+      sums = new long[size];
+      mins = new long[size];
+      maxs = new long[size];
+      lasts = new long[size];
+      Arrays.fill(mins, Long.MAX_VALUE);
+      Arrays.fill(maxs, Long.MIN_VALUE);
+    }
+
+    private void add(int bucket, long count, long sum, long min, long max, long last) {
+      counts[bucket] += count;
+      sums[bucket] += sum;
+      mins[bucket] = Math.min(mins[bucket], min);
+      maxs[bucket] = Math.max(maxs[bucket], max);
+      lasts[bucket] = last;
+    }
+
+    private long value(int bucket, HistoryAggregation aggregation) {
+      return switch (aggregation) {
+        case SUM -> sums[bucket];
+        case MIN -> mins[bucket];
+        case MAX -> maxs[bucket];
+        case AVERAGE -> Math.floorDiv(sums[bucket] + counts[bucket] / 2, counts[bucket]);
+        case LAST -> lasts[bucket];
+      };
+    }
+  }
+}
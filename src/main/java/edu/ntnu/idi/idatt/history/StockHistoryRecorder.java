@@ -0,0 +1,140 @@
+package edu.ntnu.idi.idatt.history;
+
+import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.foodstorage.StorageListener;
+import edu.ntnu.idi.idatt.foodstorage.UndoHistory;
+import edu.ntnu.idi.idatt.utils.FixedPoint;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The StockHistoryRecorder class fills a {@link StockHistory} from a FoodStorage. It listens to
+ * every change of the storage and counts the value added, the value used before it expired and
+ * the value of expired lots thrown out. Once a day, {@link #sample(LocalDate)} records those
+ * counters together with the total value, the expired value and the number of lots, and starts
+ * counting again from zero.
+ *
+ * <p>Changes are counted in a few atomic fields, so listening adds almost nothing to a change of
+ * the storage. When given the {@link UndoHistory} of the storage, undoing a change takes it back
+ * out of the counter it was added to, so undoing an added lot lowers the added value instead of
+ * counting as consumed. A day can thus end up with a negative count when a change of an earlier day
+ * is undone. Without it, undoing a change counts as the opposite change.
+ */
+public final class StockHistoryRecorder implements StorageListener {
+
+  private final FoodStorage storage;
+  private final StockHistory history;
+  private final UndoHistory undoHistory;
+  private final AtomicLong addedMicros;
+  private final AtomicLong consumedMicros;
+  private final AtomicLong wastedMicros;
+
+  /**
+   * Constructs a StockHistoryRecorder and starts listening to the storage.
+   *
+   * @param storage the storage to record
+   * @param history where the samples are recorded
+   * @throws IllegalArgumentException if storage or history is null
+   */
+  public StockHistoryRecorder(FoodStorage storage, StockHistory history) {
+    this(storage, history, null);
+  }
+
+  /**
+   * Constructs a StockHistoryRecorder that tells undone changes apart, and starts listening to the
+   * storage.
+   *
+   * @param storage     the storage to record
+   * @param history     where the samples are recorded
+   * @param undoHistory the undo history of the storage, or null
+   * @throws IllegalArgumentException if storage or history is null
+   */
+  public StockHistoryRecorder(FoodStorage storage, StockHistory history,
+      UndoHistory undoHistory) {
+    if (storage == null) {
+      throw new IllegalArgumentException("FoodStorage cannot be null.");
+    }
+    if (history == null) {
+      throw new IllegalArgumentException("StockHistory cannot be null.");
+    }
+    this.storage = storage;
+    this.history = history;
+    this.undoHistory = undoHistory;
+    this.addedMicros = new AtomicLong();
+    this.consumedMicros = new AtomicLong();
+    this.wastedMicros = new AtomicLong();
+    storage.addListener(this);
+  }
+
+  @Override
+  public void lotChanged(long operation, Ingredient lot, double quantityDelta) {
+    long valueMicros = FixedPoint.multiply(FixedPoint.toMicros(Math.abs(quantityDelta)),
+        lot.getPricePerUnitMicros());
+    if (undoHistory != null && undoHistory.isUndoing()) {
+      // Takes back an earlier change, so it is taken out of the counter it went into
+      if (quantityDelta < 0) {
+        addedMicros.addAndGet(-valueMicros);
+      } else if (lot.isExpired()) {
+        wastedMicros.addAndGet(-valueMicros);
+      } else {
+        consumedMicros.addAndGet(-valueMicros);
+      }
+    } else if (quantityDelta > 0) {
+      addedMicros.addAndGet(valueMicros);
+    } else if (lot.isExpired()) {
+      wastedMicros.addAndGet(valueMicros);
+    } else {
+      consumedMicros.addAndGet(valueMicros);
+    }
+  }
+
+  /**
+   * Records the state of the storage and the changes counted since the last sample as the sample
+   * of a day. Sampling the same day again adds the new counts to it.
+   *
+   * @param day the day of the sample
+   * @throws IOException              if the sample cannot be written
+   * @throws IllegalArgumentException if day is null or before the last day recorded
+   */
+  public void sample(LocalDate day) throws IOException {
+    if (day == null) {
+      throw new IllegalArgumentException("Day cannot be null.");
+    }
+    long[] values = new long[HistoryColumn.values().length];
+    values[HistoryColumn.STOCK_VALUE.ordinal()] =
+        FixedPoint.toMicros(storage.calculateTotalValue());
+    values[HistoryColumn.EXPIRED_VALUE.ordinal()] =
+        FixedPoint.toMicros(storage.calculateExpiredIngredientsValue());
+    values[HistoryColumn.LOT_COUNT.ordinal()] = storage.size();
+    values[HistoryColumn.ADDED_VALUE.ordinal()] = addedMicros.getAndSet(0);
+    values[HistoryColumn.CONSUMED_VALUE.ordinal()] = consumedMicros.getAndSet(0);
+    values[HistoryColumn.WASTED_VALUE.ordinal()] = wastedMicros.getAndSet(0);
+    try {
+      history.record(day, values);
+    } catch (IOException | RuntimeException e) {
+      // Keep the counts for the next sample rather than losing them
+      addedMicros.addAndGet(values[HistoryColumn.ADDED_VALUE.ordinal()]);
+      consumedMicros.addAndGet(values[HistoryColumn.CONSUMED_VALUE.ordinal()]);
+      wastedMicros.addAndGet(values[HistoryColumn.WASTED_VALUE.ordinal()]);
+      throw e;
+    }
+  }
+
+  /**
+   * Records the sample of today, see {@link #sample(LocalDate)}.
+   *
+   * @throws IOException if the sample cannot be written
+   */
+  public void sample() throws IOException {
+    sample(LocalDate.now());
+  }
+
+  /**
+   * Stops listening to the storage. The history is not closed.
+   */
+  public void stop() {
+    storage.removeListener(this);
+  }
+}
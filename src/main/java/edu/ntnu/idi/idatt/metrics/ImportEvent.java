@@ -0,0 +1,38 @@
+package edu.ntnu.idi.idatt.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for importing a script of commands into a storage and cookbook.
+ */
+@Name("edu.ntnu.idi.idatt.Import")
+@Label("Import")
+@Category({"FoodStorage", "Import"})
+@Description("Runs a batch script against a storage and cookbook")
+public class ImportEvent extends Event {
+
+  @Label("Commands")
+  private int commandCount;
+
+  @Label("Failed Commands")
+  private int failedCount;
+
+  @Label("Lots After Import")
+  private int lotCount;
+
+  public void setCommandCount(int commandCount) {
+    this.commandCount = commandCount;
+  }
+
+  public void setFailedCount(int failedCount) {
+    this.failedCount = failedCount;
+  }
+
+  public void setLotCount(int lotCount) {
+    this.lotCount = lotCount;
+  }
+}
@@ -0,0 +1,179 @@
+package edu.ntnu.idi.idatt.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A log-linear latency histogram in the style of HdrHistogram. Every power of two is split into
+ * eight sub-buckets, which keeps the relative error of a reported value below 12.5 percent while
+ * covering the whole range of a long in under 500 buckets.
+ *
+ * <p>Recording is lock-free and does not allocate. Each thread writes to one of several stripes
+ * chosen from its thread id, so threads recording at the same time rarely touch the same counters.
+ * The stripes are only merged when a snapshot is taken.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+  private static final int COUNT = BUCKETS;
+  private static final int SUM = BUCKETS + 1;
+  private static final int MAX = BUCKETS + 2;
+  private static final int STRIPE_LENGTH = BUCKETS + 3;
+
+  private final AtomicLongArray[] stripes;
+  private final int stripeMask;
+
+  /**
+   * Constructs a LatencyHistogram with one stripe per available processor, rounded up to a power
+   * of two.
+   */
+  public LatencyHistogram() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    int stripeCount = Integer.highestOneBit(Math.max(1, processors - 1)) << 1;
+    this.stripes = new AtomicLongArray[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      stripes[i] = new AtomicLongArray(STRIPE_LENGTH);
+    }
+    this.stripeMask = stripeCount - 1;
+  }
+
+  /**
+   * Records one measured value.
+   *
+   * @param nanos the measured latency in nanoseconds, negative values are recorded as zero
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    AtomicLongArray stripe = stripes[(int) Thread.currentThread().threadId() & stripeMask];
+
+    stripe.incrementAndGet(bucketIndex(value));
+    stripe.incrementAndGet(COUNT);
+    stripe.addAndGet(SUM, value);
+
+    long max = stripe.get(MAX);
+    while (value > max && !stripe.compareAndSet(MAX, max, value)) {
+      max = stripe.get(MAX);
+    }
+  }
+
+  /**
+   * Merges all stripes into a point-in-time snapshot.
+   *
+   * @return the snapshot
+   */
+  public Snapshot snapshot() {
+    long[] counts = new long[BUCKETS];
+    long count = 0;
+    long sum = 0;
+    long max = 0;
+    for (AtomicLongArray stripe : stripes) {
+      for (int i = 0; i < BUCKETS; i++) {
+        counts[i] += stripe.get(i);
+      }
+      count += stripe.get(COUNT);
+      sum += stripe.get(SUM);
+      max = Math.max(max, stripe.get(MAX));
+    }
+    return new Snapshot(counts, count, sum, max);
+  }
+
+  /**
+   * Clears all recorded values.
+   */
+  public void reset() {
+    for (AtomicLongArray stripe : stripes) {
+      for (int i = 0; i < STRIPE_LENGTH; i++) {
+        stripe.set(i, 0);
+      }
+    }
+  }
+
+  /**
+   * Finds the bucket a value belongs to.
+   *
+   * @param value the non-negative value
+   * @return the bucket index
+   */
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Returns the highest value that falls into the given bucket.
+   *
+   * @param index the bucket index
+   * @return the highest value of the bucket
+   */
+  static long bucketUpperBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = index % SUB_BUCKETS;
+    long width = 1L << (exponent - SUB_BUCKET_BITS);
+    return ((SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+  }
+
+  /**
+   * A merged, immutable view of the histogram at one point in time.
+   */
+  public static class Snapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    private Snapshot(long[] counts, long count, long sum, long max) {
+      this.counts = counts;
+      this.count = count;
+      this.sum = sum;
+      this.max = max;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getMax() {
+      return max;
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     *
+     * @return the mean, or 0 if nothing was recorded
+     */
+    public double getMean() {
+      return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded values fall.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the upper bound of the bucket holding the percentile, never above the maximum
+     */
+    public long getPercentile(double percentile) {
+      if (count == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(bucketUpperBound(i), max);
+        }
+      }
+      return max;
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package edu.ntnu.idi.idatt.metrics;
+
+/**
+ * The storage and cookbook operations that are measured by {@link OperationMetrics}.
+ */
+public enum Operation {
+
+  ADD_INGREDIENT("addIngredient"),
+  REMOVE_INGREDIENT("removeIngredient"),
+  COOK_RECIPE("cook"),
+  SEARCH_INGREDIENT("searchIngredient"),
+  FIND_INGREDIENT("findIngredientByNameAndUnit"),
+  SUGGEST_RECIPES("suggestRecipes"),
+  TOTAL_VALUE("calculateTotalValue"),
+  EXPIRED_VALUE("calculateExpiredIngredientsValue");
+
+  private final String methodName;
+
+  Operation(String methodName) {
+    this.methodName = methodName;
+  }
+
+  /**
+   * Returns the name of the method this operation measures.
+   *
+   * @return the method name
+   */
+  public String getMethodName() {
+    return methodName;
+  }
+}
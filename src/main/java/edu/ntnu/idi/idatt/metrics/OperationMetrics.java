@@ -0,0 +1,195 @@
+package edu.ntnu.idi.idatt.metrics;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Collects call counts, failures and latency histograms for every {@link Operation}. The
+ * statistics can be published as MBeans under {@value #DOMAIN} and printed as a table.
+ */
+public class OperationMetrics {
+
+  /**
+   * The JMX domain the operation MBeans are registered under.
+   */
+  public static final String DOMAIN = "edu.ntnu.idi.idatt";
+
+  private static final Operation[] OPERATIONS = Operation.values();
+  private static final LatencyHistogram[] HISTOGRAMS = new LatencyHistogram[OPERATIONS.length];
+  private static final LongAdder[] FAILURES = new LongAdder[OPERATIONS.length];
+
+  private static boolean registered;
+
+  static {
+    for (int i = 0; i < OPERATIONS.length; i++) {
+      HISTOGRAMS[i] = new LatencyHistogram();
+      FAILURES[i] = new LongAdder();
+    }
+  }
+
+  private OperationMetrics() {
+  }
+
+  /**
+   * Records one call of an operation.
+   *
+   * @param operation  the operation that was called
+   * @param startNanos the value of {@link System#nanoTime()} when the call started
+   */
+  public static void record(Operation operation, long startNanos) {
+    HISTOGRAMS[operation.ordinal()].record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Records that a call of an operation ended with an exception. The call itself is still recorded
+   * through {@link #record(Operation, long)}.
+   *
+   * @param operation the operation that failed
+   */
+  public static void recordFailure(Operation operation) {
+    FAILURES[operation.ordinal()].increment();
+  }
+
+  /**
+   * Returns a snapshot of the latency histogram of an operation.
+   *
+   * @param operation the operation
+   * @return the snapshot
+   */
+  public static LatencyHistogram.Snapshot snapshot(Operation operation) {
+    return HISTOGRAMS[operation.ordinal()].snapshot();
+  }
+
+  /**
+   * Returns how many calls of an operation ended with an exception.
+   *
+   * @param operation the operation
+   * @return the number of failed calls
+   */
+  public static long getFailures(Operation operation) {
+    return FAILURES[operation.ordinal()].sum();
+  }
+
+  /**
+   * Clears the statistics of every operation.
+   */
+  public static void reset() {
+    for (int i = 0; i < OPERATIONS.length; i++) {
+      HISTOGRAMS[i].reset();
+      FAILURES[i].reset();
+    }
+  }
+
+  /**
+   * Registers one MBean per operation with the platform MBean server. Calling this more than once
+   * has no effect.
+   *
+   * @throws IllegalStateException if the MBeans cannot be registered
+   */
+  public static synchronized void registerMBeans() {
+    if (registered) {
+      return;
+    }
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      for (Operation operation : OPERATIONS) {
+        ObjectName name = new ObjectName(
+            DOMAIN + ":type=Operations,name=" + operation.getMethodName());
+        if (!server.isRegistered(name)) {
+          server.registerMBean(new OperationStats(operation), name);
+        }
+      }
+    } catch (JMException e) {
+      throw new IllegalStateException("Could not register operation metrics: " + e.getMessage(), e);
+    }
+    registered = true;
+  }
+
+  /**
+   * Prints the statistics of every operation that has been called as a table.
+   *
+   * @param out where the table is printed
+   */
+  public static void dump(PrintStream out) {
+    out.println("Operation metrics (latencies in microseconds):");
+    out.printf("%-34s %10s %8s %10s %10s %10s %10s %10s%n",
+        "operation", "count", "failed", "mean", "p50", "p99", "p99.9", "max");
+    for (Operation operation : OPERATIONS) {
+      LatencyHistogram.Snapshot snapshot = snapshot(operation);
+      if (snapshot.getCount() == 0) {
+        continue;
+      }
+      out.printf("%-34s %10d %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+          operation.getMethodName(),
+          snapshot.getCount(),
+          getFailures(operation),
+          snapshot.getMean() / 1_000.0,
+          snapshot.getPercentile(50) / 1_000.0,
+          snapshot.getPercentile(99) / 1_000.0,
+          snapshot.getPercentile(99.9) / 1_000.0,
+          snapshot.getMax() / 1_000.0);
+    }
+  }
+
+  /**
+   * The MBean published for one operation.
+   */
+  private static class OperationStats implements OperationStatsMXBean {
+
+    private final Operation operation;
+
+    private OperationStats(Operation operation) {
+      this.operation = operation;
+    }
+
+    @Override
+    public long getCount() {
+      return snapshot(operation).getCount();
+    }
+
+    @Override
+    public long getFailures() {
+      return OperationMetrics.getFailures(operation);
+    }
+
+    @Override
+    public double getMeanMicros() {
+      return snapshot(operation).getMean() / 1_000.0;
+    }
+
+    @Override
+    public double getP50Micros() {
+      return snapshot(operation).getPercentile(50) / 1_000.0;
+    }
+
+    @Override
+    public double getP90Micros() {
+      return snapshot(operation).getPercentile(90) / 1_000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+      return snapshot(operation).getPercentile(99) / 1_000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+      return snapshot(operation).getPercentile(99.9) / 1_000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+      return snapshot(operation).getMax() / 1_000.0;
+    }
+
+    @Override
+    public void reset() {
+      HISTOGRAMS[operation.ordinal()].reset();
+      FAILURES[operation.ordinal()].reset();
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package edu.ntnu.idi.idatt.metrics;
+
+/**
+ * Management interface for the statistics of one measured operation, published through JMX by
+ * {@link OperationMetrics}.
+ */
+public interface OperationStatsMXBean {
+
+  /**
+   * Returns how many times the operation has been called.
+   *
+   * @return the number of calls
+   */
+  long getCount();
+
+  /**
+   * Returns how many calls ended with an exception.
+   *
+   * @return the number of failed calls
+   */
+  long getFailures();
+
+  double getMeanMicros();
+
+  double getP50Micros();
+
+  double getP90Micros();
+
+  double getP99Micros();
+
+  double getP999Micros();
+
+  double getMaxMicros();
+
+  /**
+   * Clears the statistics of the operation.
+   */
+  void reset();
+}
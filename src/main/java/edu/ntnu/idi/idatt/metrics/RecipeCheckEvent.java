@@ -0,0 +1,41 @@
+package edu.ntnu.idi.idatt.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one call of Recipe.canMake.
+ */
+@Name("edu.ntnu.idi.idatt.RecipeCheck")
+@Label("Recipe Check")
+@Category({"FoodStorage", "Cookbook"})
+@Description("Checks if a single recipe can be made from a storage")
+@StackTrace(false)
+public class RecipeCheckEvent extends Event {
+
+  @Label("Recipe")
+  private String recipeName;
+
+  @Label("Ingredients Checked")
+  @Description("Number of ingredients looked up before the check was decided")
+  private int ingredientChecks;
+
+  @Label("Makeable")
+  private boolean makeable;
+
+  public void setRecipeName(String recipeName) {
+    this.recipeName = recipeName;
+  }
+
+  public void setIngredientChecks(int ingredientChecks) {
+    this.ingredientChecks = ingredientChecks;
+  }
+
+  public void setMakeable(boolean makeable) {
+    this.makeable = makeable;
+  }
+}
@@ -0,0 +1,44 @@
+package edu.ntnu.idi.idatt.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one run of Cookbook.suggestRecipes. The recipe checks and storage
+ * scans done during the run are recorded as separate events nested inside its time span.
+ */
+@Name("edu.ntnu.idi.idatt.RecipeSuggestion")
+@Label("Recipe Suggestion")
+@Category({"FoodStorage", "Cookbook"})
+@Description("Checks every recipe in the cookbook against a storage")
+@StackTrace(false)
+public class RecipeSuggestionEvent extends Event {
+
+  @Label("Recipes")
+  @Description("Number of recipes checked")
+  private int recipeCount;
+
+  @Label("Ingredients Checked")
+  @Description("Number of recipe ingredients looked up in the storage")
+  private int ingredientChecks;
+
+  @Label("Suggested")
+  @Description("Number of recipes that can be made")
+  private int suggestedCount;
+
+  public void setRecipeCount(int recipeCount) {
+    this.recipeCount = recipeCount;
+  }
+
+  public void setIngredientChecks(int ingredientChecks) {
+    this.ingredientChecks = ingredientChecks;
+  }
+
+  public void setSuggestedCount(int suggestedCount) {
+    this.suggestedCount = suggestedCount;
+  }
+}
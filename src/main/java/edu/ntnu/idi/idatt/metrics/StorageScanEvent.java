@@ -0,0 +1,58 @@
+package edu.ntnu.idi.idatt.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for a FoodStorage operation that walks over the stored lots.
+ */
+@Name("edu.ntnu.idi.idatt.StorageScan")
+@Label("Storage Scan")
+@Category({"FoodStorage", "Storage"})
+@Description("Walks over the lots of a storage")
+@StackTrace(false)
+public class StorageScanEvent extends Event {
+
+  @Label("Operation")
+  private String operation;
+
+  @Label("Ingredient")
+  @Description("The ingredient looked for, if the scan is a lookup")
+  private String ingredientName;
+
+  @Label("Lots Scanned")
+  private int lotsScanned;
+
+  @Label("Matches")
+  private int matches;
+
+  @Label("Unit Lookup Time")
+  @Description("Time spent in UnitConverter before the scan started")
+  @Timespan(Timespan.NANOSECONDS)
+  private long unitLookupTime;
+
+  public void setOperation(String operation) {
+    this.operation = operation;
+  }
+
+  public void setIngredientName(String ingredientName) {
+    this.ingredientName = ingredientName;
+  }
+
+  public void setLotsScanned(int lotsScanned) {
+    this.lotsScanned = lotsScanned;
+  }
+
+  public void setMatches(int matches) {
+    this.matches = matches;
+  }
+
+  public void setUnitLookupTime(long unitLookupTime) {
+    this.unitLookupTime = unitLookupTime;
+  }
+}
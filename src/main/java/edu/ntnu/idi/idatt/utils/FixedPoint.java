@@ -0,0 +1,108 @@
+package edu.ntnu.idi.idatt.utils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * The FixedPoint class converts between decimal numbers and micro-units, whole millionths stored
+ * in a long. Quantities and prices are kept in micro-units so that adding and subtracting them is
+ * exact: a lot that is used up reaches exactly zero, and sums kept up to date change by change do
+ * not drift away from the sum of their parts.
+ */
+public class FixedPoint {
+
+  /**
+   * The number of micro-units in one unit.
+   */
+  public static final long SCALE = 1_000_000;
+
+  private static final double MAX_VALUE = Long.MAX_VALUE / (double) SCALE;
+  private static final BigDecimal BIG_SCALE = BigDecimal.valueOf(SCALE);
+
+  /**
+   * Converts a number to micro-units, rounding to the nearest millionth.
+   *
+   * @param value the number
+   * @return the number in micro-units
+   * @throws IllegalArgumentException if the number is not finite or too large
+   */
+  public static long toMicros(double value) {
+    if (!isRepresentable(value)) {
+      throw new IllegalArgumentException(outOfRangeMessage(value));
+    }
+    return Math.round(value * SCALE);
+  }
+
+  /**
+   * Checks if a number can be converted to micro-units.
+   *
+   * @param value the number
+   * @return true if the number is finite and small enough
+   */
+  public static boolean isRepresentable(double value) {
+    return !Double.isNaN(value) && Math.abs(value) < MAX_VALUE;
+  }
+
+  /**
+   * Returns the message given when a number cannot be converted to micro-units.
+   *
+   * @param value the number
+   * @return the message
+   */
+  public static String outOfRangeMessage(double value) {
+    return "Value " + value + " is out of range.";
+  }
+
+  /**
+   * Converts micro-units back to a number.
+   *
+   * @param micros the number in micro-units
+   * @return the number
+   */
+  public static double toDouble(long micros) {
+    return micros / (double) SCALE;
+  }
+
+  /**
+   * Rounds micro-units half away from zero to whole hundredths, the precision prices are told
+   * apart by. A price of 1.005 gives 101, the same as when it is written with two decimals.
+   *
+   * @param micros the number in micro-units
+   * @return the number in hundredths
+   */
+  public static long toHundredths(long micros) {
+    long perHundredth = SCALE / 100;
+    long quotient = micros / perHundredth;
+    long remainder = micros % perHundredth;
+    if (Math.abs(remainder) * 2 >= perHundredth) {
+      quotient += Long.signum(remainder);
+    }
+    return quotient;
+  }
+
+  /**
+   * Multiplies two numbers in micro-units, rounding the product half away from zero to the
+   * nearest micro-unit.
+   *
+   * @param first  the first number in micro-units
+   * @param second the second number in micro-units
+   * @return the product in micro-units
+   * @throws ArithmeticException if the product does not fit in a long
+   */
+  public static long multiply(long first, long second) {
+    long high = Math.multiplyHigh(first, second);
+    long low = first * second;
+    if (high == (low >> 63) && low != Long.MIN_VALUE) {
+      long quotient = low / SCALE;
+      long remainder = low % SCALE;
+      if (Math.abs(remainder) * 2 >= SCALE) {
+        quotient += Long.signum(remainder);
+      }
+      return quotient;
+    }
+    // The exact product needs more than 64 bits, which only very large values do
+    BigInteger product = BigInteger.valueOf(first).multiply(BigInteger.valueOf(second));
+    return new BigDecimal(product).divide(BIG_SCALE, 0, RoundingMode.HALF_UP).longValueExact();
+  }
+}
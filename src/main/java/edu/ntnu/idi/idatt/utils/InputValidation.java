@@ -1,16 +1,34 @@
 package edu.ntnu.idi.idatt.utils;
 
-import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
 import edu.ntnu.idi.idatt.foodstorage.Ingredient;
 import edu.ntnu.idi.idatt.foodstorage.Recipe;
+import edu.ntnu.idi.idatt.foodstorage.StorageView;
 import java.util.Date;
 import java.util.Map;
 
 /**
  * Handles all input validation and exception throwing for the application.
+ *
+ * <p>Ingredients and recipes can also be checked without throwing, see
+ * {@link #checkIngredient(String, double, String, Date, double, ValidationResult)}. The checks find
+ * the same problems and give the same messages as the validations that throw, but record every
+ * problem in a {@link ValidationResult}, which is far cheaper on bulk imports with many bad rows.
  */
 public class InputValidation {
 
+  private static final String RECIPE_NAME_EMPTY = "Recipe name cannot be null or empty.";
+  private static final String DESCRIPTION_NULL = "Description cannot be null.";
+  private static final String INSTRUCTIONS_NULL = "Instructions cannot be null.";
+  private static final String INGREDIENTS_EMPTY = "Ingredients cannot be null or empty.";
+  private static final String UNITS_EMPTY = "Units cannot be null or empty.";
+  private static final String SIZES_DIFFER = "Ingredients and unit maps must have the same size.";
+  private static final String SERVINGS_NOT_POSITIVE = "Servings must be positive.";
+  private static final String INGREDIENT_NAME_EMPTY = "Ingredient name cannot be null or empty.";
+  private static final String QUANTITY_NEGATIVE = "Ingredient quantity cannot be negative.";
+  private static final String UNIT_EMPTY = "Ingredient unit cannot be null or empty.";
+  private static final String PRICE_NEGATIVE = "Price cannot be negative.";
+  private static final String DATE_NULL = "Best-before date cannot be null.";
+
   /**
    * Validates the recipe name.
    *
@@ -19,7 +37,7 @@ public class InputValidation {
    */
   public static void validateRecipeName(String name) {
     if (name == null || name.trim().isEmpty()) {
-      throw new IllegalArgumentException("Recipe name cannot be null or empty.");
+      throw new IllegalArgumentException(RECIPE_NAME_EMPTY);
     }
   }
 
@@ -31,7 +49,7 @@ public class InputValidation {
    */
   public static void validateDescription(String description) {
     if (description == null) {
-      throw new IllegalArgumentException("Description cannot be null.");
+      throw new IllegalArgumentException(DESCRIPTION_NULL);
     }
   }
 
@@ -43,7 +61,7 @@ public class InputValidation {
    */
   public static void validateInstructions(String instructions) {
     if (instructions == null) {
-      throw new IllegalArgumentException("Instructions cannot be null.");
+      throw new IllegalArgumentException(INSTRUCTIONS_NULL);
     }
   }
 
@@ -55,7 +73,7 @@ public class InputValidation {
    */
   public static void validateIngredientsMap(Map<String, Double> ingredients) {
     if (ingredients == null || ingredients.isEmpty()) {
-      throw new IllegalArgumentException("Ingredients cannot be null or empty.");
+      throw new IllegalArgumentException(INGREDIENTS_EMPTY);
     }
   }
 
@@ -67,7 +85,7 @@ public class InputValidation {
    */
   public static void validateUnitsMap(Map<String, String> units) {
     if (units == null || units.isEmpty()) {
-      throw new IllegalArgumentException("Units cannot be null or empty.");
+      throw new IllegalArgumentException(UNITS_EMPTY);
     }
   }
 
@@ -82,8 +100,7 @@ public class InputValidation {
       Map<String, Double> ingredients,
       Map<String, String> units) {
     if (ingredients.size() != units.size()) {
-      throw new IllegalArgumentException(
-          "Ingredients and unit maps must have the same size.");
+      throw new IllegalArgumentException(SIZES_DIFFER);
     }
   }
 
@@ -96,8 +113,7 @@ public class InputValidation {
    */
   public static void validateIngredientQuantity(String ingredientName, Double quantity) {
     if (quantity == null || quantity <= 0) {
-      throw new IllegalArgumentException(
-          "Quantity for ingredient '" + ingredientName + "' must be positive.");
+      throw new IllegalArgumentException(recipeQuantityMessage(ingredientName));
     }
   }
 
@@ -109,7 +125,7 @@ public class InputValidation {
    */
   public static void validateIngredientQuantity(double quantity) {
     if (quantity < 0) {
-      throw new IllegalArgumentException("Ingredient quantity cannot be negative.");
+      throw new IllegalArgumentException(QUANTITY_NEGATIVE);
     }
   }
 
@@ -121,7 +137,7 @@ public class InputValidation {
    */
   public static void validateIngredientUnit(String unit) {
     if (unit == null || unit.trim().isEmpty()) {
-      throw new IllegalArgumentException("Ingredient unit cannot be null or empty.");
+      throw new IllegalArgumentException(UNIT_EMPTY);
     }
   }
 
@@ -134,8 +150,7 @@ public class InputValidation {
    */
   public static void validateIngredientUnit(String ingredientName, String unit) {
     if (unit == null || unit.trim().isEmpty()) {
-      throw new IllegalArgumentException(
-          "Unit for ingredient '" + ingredientName + "' cannot be null or empty.");
+      throw new IllegalArgumentException(recipeUnitMessage(ingredientName));
     }
   }
 
@@ -152,12 +167,12 @@ public class InputValidation {
   }
 
   /**
-   * Validates that a FoodStorage object is not null.
+   * Validates that a storage is not null.
    *
-   * @param storage the FoodStorage object to validate
+   * @param storage the storage to validate
    * @throws IllegalArgumentException if the storage is null
    */
-  public static void validateFoodStorage(FoodStorage storage) {
+  public static void validateFoodStorage(StorageView storage) {
     if (storage == null) {
       throw new IllegalArgumentException("FoodStorage cannot be null.");
     }
@@ -171,7 +186,7 @@ public class InputValidation {
    */
   public static void validateIngredientName(String name) {
     if (name == null || name.trim().isEmpty()) {
-      throw new IllegalArgumentException("Ingredient name cannot be null or empty.");
+      throw new IllegalArgumentException(INGREDIENT_NAME_EMPTY);
     }
   }
 
@@ -183,7 +198,7 @@ public class InputValidation {
    */
   public static void validatePricePerUnit(double pricePerUnit) {
     if (pricePerUnit < 0) {
-      throw new IllegalArgumentException("Price cannot be negative.");
+      throw new IllegalArgumentException(PRICE_NEGATIVE);
     }
   }
 
@@ -195,7 +210,7 @@ public class InputValidation {
    */
   public static void validateBestBeforeDate(Date bestBeforeDate) {
     if (bestBeforeDate == null) {
-      throw new IllegalArgumentException("Best-before date cannot be null.");
+      throw new IllegalArgumentException(DATE_NULL);
     }
   }
 
@@ -222,4 +237,119 @@ public class InputValidation {
       throw new IllegalArgumentException("Ingredient cannot be null.");
     }
   }
+
+  /**
+   * Validates the number of servings of a recipe.
+   *
+   * @param servings the number of servings
+   * @throws IllegalArgumentException if the number of servings is not positive
+   */
+  public static void validateServings(int servings) {
+    if (servings <= 0) {
+      throw new IllegalArgumentException(SERVINGS_NOT_POSITIVE);
+    }
+  }
+
+  /**
+   * Checks the parameters of an Ingredient without throwing. Every problem found is added to the
+   * result, with the same message the Ingredient constructor would throw.
+   *
+   * @param name           the name of the ingredient
+   * @param quantity       the quantity
+   * @param unit           the unit of measurement
+   * @param bestBeforeDate the best-before date
+   * @param pricePerUnit   the price per unit
+   * @param result         where the problems are recorded
+   * @return true if no problem was found
+   */
+  public static boolean checkIngredient(String name, double quantity, String unit,
+      Date bestBeforeDate, double pricePerUnit, ValidationResult result) {
+    int errors = result.getErrorCount();
+    if (name == null || name.trim().isEmpty()) {
+      result.reject("name", INGREDIENT_NAME_EMPTY);
+    }
+    if (quantity < 0) {
+      result.reject("quantity", QUANTITY_NEGATIVE);
+    } else if (!FixedPoint.isRepresentable(quantity)) {
+      result.reject("quantity", FixedPoint.outOfRangeMessage(quantity));
+    }
+    if (unit == null || unit.trim().isEmpty()) {
+      result.reject("unit", UNIT_EMPTY);
+    }
+    if (pricePerUnit < 0) {
+      result.reject("pricePerUnit", PRICE_NEGATIVE);
+    } else if (!FixedPoint.isRepresentable(pricePerUnit)) {
+      result.reject("pricePerUnit", FixedPoint.outOfRangeMessage(pricePerUnit));
+    }
+    if (bestBeforeDate == null) {
+      result.reject("bestBeforeDate", DATE_NULL);
+    }
+    return result.getErrorCount() == errors;
+  }
+
+  /**
+   * Checks the parameters of a Recipe without throwing. Every problem found is added to the
+   * result, with the same message the Recipe constructor would throw.
+   *
+   * @param name         the name of the recipe
+   * @param description  the description
+   * @param instructions the instructions
+   * @param ingredients  a map of ingredient names to required quantities
+   * @param units        a map of ingredient names to their units
+   * @param servings     the number of servings the quantities make
+   * @param result       where the problems are recorded
+   * @return true if no problem was found
+   */
+  public static boolean checkRecipe(String name, String description, String instructions,
+      Map<String, Double> ingredients, Map<String, String> units, int servings,
+      ValidationResult result) {
+    int errors = result.getErrorCount();
+    if (name == null || name.trim().isEmpty()) {
+      result.reject("name", RECIPE_NAME_EMPTY);
+    }
+    if (description == null) {
+      result.reject("description", DESCRIPTION_NULL);
+    }
+    if (instructions == null) {
+      result.reject("instructions", INSTRUCTIONS_NULL);
+    }
+    if (servings <= 0) {
+      result.reject("servings", SERVINGS_NOT_POSITIVE);
+    }
+    if (ingredients == null || ingredients.isEmpty()) {
+      result.reject("ingredients", INGREDIENTS_EMPTY);
+    }
+    if (units == null || units.isEmpty()) {
+      result.reject("units", UNITS_EMPTY);
+    }
+    if (ingredients == null || ingredients.isEmpty() || units == null || units.isEmpty()) {
+      return false;
+    }
+    if (ingredients.size() != units.size()) {
+      result.reject("units", SIZES_DIFFER);
+    }
+    for (Map.Entry<String, Double> entry : ingredients.entrySet()) {
+      if (entry.getKey() == null || entry.getKey().trim().isEmpty()) {
+        result.reject("ingredients", INGREDIENT_NAME_EMPTY);
+        continue;
+      }
+      Double quantity = entry.getValue();
+      String unit = units.get(entry.getKey());
+      if (quantity == null || quantity <= 0) {
+        result.reject("ingredients", recipeQuantityMessage(entry.getKey()));
+      }
+      if (unit == null || unit.trim().isEmpty()) {
+        result.reject("units", recipeUnitMessage(entry.getKey()));
+      }
+    }
+    return result.getErrorCount() == errors;
+  }
+
+  private static String recipeQuantityMessage(String ingredientName) {
+    return "Quantity for ingredient '" + ingredientName + "' must be positive.";
+  }
+
+  private static String recipeUnitMessage(String ingredientName) {
+    return "Unit for ingredient '" + ingredientName + "' cannot be null or empty.";
+  }
 }
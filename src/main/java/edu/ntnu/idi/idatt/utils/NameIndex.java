@@ -0,0 +1,467 @@
+package edu.ntnu.idi.idatt.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * The NameIndex class finds names by exact match, by prefix and by small spelling mistakes.
+ * Names are kept in one sorted set per name length, so prefix lookups can walk the lengths from
+ * the shortest and stop once enough names are found. Fuzzy lookups use a deletion index: every
+ * name is filed under its length and each way of deleting up to two letters from its first
+ * {@value #PREFIX_LENGTH} letters. A name within two edits of the query shares at least one such
+ * key with it, so only the few names under the keys of the query are compared with it, however
+ * many names share its letters elsewhere.
+ *
+ * <p>The deletion index takes up to 29 entries per name, or about 350 bytes per name with its
+ * hash table. In return a search looks up at most 145 keys and compares the query with the few
+ * hundred names filed under them at worst, and no search ever walks all names: with a million
+ * names every search in the NameSearchBenchmark takes well under a millisecond.
+ *
+ * <p>Each name is reference counted, so the same name can be added once per lot or recipe and
+ * stays in the index until it has been removed as many times.
+ */
+public class NameIndex {
+
+  /**
+   * Only the deletions of this many first letters of a name are indexed.
+   */
+  private static final int PREFIX_LENGTH = 7;
+
+  /**
+   * The largest edit distance of a fuzzy match.
+   */
+  private static final int MAX_DISTANCE = 2;
+
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private final Map<String, Integer> counts;
+  private final NavigableMap<Integer, NavigableSet<String>> namesByLength;
+  private final DeletionTable deletions;
+
+  /**
+   * Constructs an empty NameIndex.
+   */
+  public NameIndex() {
+    this.counts = new HashMap<>();
+    this.namesByLength = new TreeMap<>();
+    this.deletions = new DeletionTable();
+  }
+
+  /**
+   * Normalizes a name the way the index compares names: trimmed, lower case and with single
+   * spaces between words.
+   *
+   * @param name the name to normalize
+   * @return the normalized name
+   */
+  public static String normalize(String name) {
+    return WHITESPACE.matcher(name.trim().toLowerCase()).replaceAll(" ");
+  }
+
+  /**
+   * Adds one reference to a name.
+   *
+   * @param name the name to add
+   * @throws IllegalArgumentException if the name is null or empty
+   */
+  public void add(String name) {
+    if (name == null || name.trim().isEmpty()) {
+      throw new IllegalArgumentException("Name cannot be null or empty.");
+    }
+    String normalized = normalize(name);
+    if (counts.merge(normalized, 1, Integer::sum) == 1) {
+      namesByLength.computeIfAbsent(normalized.length(), length -> new TreeSet<>())
+          .add(normalized);
+      for (long variant : deletionHashes(normalized, MAX_DISTANCE)) {
+        deletions.add(deletionKey(normalized.length(), variant), normalized);
+      }
+    }
+  }
+
+  /**
+   * Removes one reference to a name. The name disappears from the index once every reference is
+   * removed. Removing a name that is not in the index does nothing.
+   *
+   * @param name the name to remove
+   */
+  public void remove(String name) {
+    if (name == null || name.trim().isEmpty()) {
+      return;
+    }
+    String normalized = normalize(name);
+    Integer count = counts.get(normalized);
+    if (count == null) {
+      return;
+    }
+    if (count > 1) {
+      counts.put(normalized, count - 1);
+      return;
+    }
+
+    counts.remove(normalized);
+    NavigableSet<String> sameLength = namesByLength.get(normalized.length());
+    sameLength.remove(normalized);
+    if (sameLength.isEmpty()) {
+      namesByLength.remove(normalized.length());
+    }
+    for (long variant : deletionHashes(normalized, MAX_DISTANCE)) {
+      deletions.remove(deletionKey(normalized.length(), variant), normalized);
+    }
+  }
+
+  /**
+   * Checks if a name is in the index.
+   *
+   * @param name the name to look for
+   * @return true if the name has at least one reference
+   */
+  public boolean contains(String name) {
+    return name != null && counts.containsKey(normalize(name));
+  }
+
+  /**
+   * Returns the number of distinct names in the index.
+   *
+   * @return the number of names
+   */
+  public int size() {
+    return counts.size();
+  }
+
+  /**
+   * Searches for names matching the query. The exact match comes first, then names starting with
+   * the query ordered from shortest to longest, then names within a small edit distance of the
+   * query ordered by distance. One edit is allowed for queries up to four letters, two edits for
+   * longer queries.
+   *
+   * <p>Prefix matches are read from the shortest names up and no more than the limit are looked
+   * at, so a short query matching most of the index costs one lookup per name length.
+   *
+   * @param query the text to search for
+   * @param limit the maximum number of names to return
+   * @return the normalized matching names, best match first
+   */
+  public List<String> search(String query, int limit) {
+    if (query == null || query.trim().isEmpty() || limit <= 0) {
+      return new ArrayList<>();
+    }
+    String normalized = normalize(query);
+    Set<String> results = new LinkedHashSet<>();
+
+    // The exact match is the first name of the shortest length a prefix match can have
+    String end = normalized + Character.MAX_VALUE;
+    for (NavigableSet<String> sameLength
+        : namesByLength.tailMap(normalized.length(), true).values()) {
+      for (String name : sameLength.subSet(normalized, true, end, false)) {
+        if (results.size() >= limit) {
+          return new ArrayList<>(results);
+        }
+        results.add(name);
+      }
+    }
+
+    if (results.size() < limit) {
+      for (String name : fuzzyMatches(normalized)) {
+        if (results.size() >= limit) {
+          break;
+        }
+        results.add(name);
+      }
+    }
+    return new ArrayList<>(results);
+  }
+
+  /**
+   * Finds the names within the allowed edit distance of the query, closest first.
+   *
+   * @param query the normalized query
+   * @return the matching names
+   */
+  private List<String> fuzzyMatches(String query) {
+    int maxDistance = query.length() <= 4 ? 1 : 2;
+    long[] variants = deletionHashes(query, maxDistance);
+    Set<String> checked = new HashSet<>();
+    int[][] rows = new int[3][query.length() + maxDistance + 2];
+    List<String> matches = new ArrayList<>();
+    Map<String, Integer> distances = new HashMap<>();
+
+    for (int length = Math.max(1, query.length() - maxDistance);
+        length <= query.length() + maxDistance; length++) {
+      for (long variant : variants) {
+        long key = deletionKey(length, variant);
+        for (int entry = deletions.first(key); entry >= 0; entry = deletions.next(entry)) {
+          String name = deletions.name(entry);
+          if (!checked.add(name)) {
+            continue;
+          }
+          int distance = boundedEditDistance(query, name, maxDistance, rows);
+          if (distance <= maxDistance) {
+            matches.add(name);
+            distances.put(name, distance);
+          }
+        }
+      }
+    }
+
+    matches.sort(Comparator.<String>comparingInt(distances::get)
+        .thenComparing(Comparator.naturalOrder()));
+    return matches;
+  }
+
+  /**
+   * Hashes every way of deleting up to the given number of letters from the first
+   * {@value #PREFIX_LENGTH} letters of a name. Deleting different letters can leave the same
+   * text, which is hashed once.
+   *
+   * <p>Each edit removes at most one letter from these first letters on either side, or shifts
+   * one letter in from behind them, so two names within d edits of each other leave a common
+   * text after at most d deletions on each side.
+   *
+   * @param name       the normalized name
+   * @param maxDeleted the largest number of letters to delete
+   * @return the distinct hashes, in ascending order
+   */
+  private static long[] deletionHashes(String name, int maxDeleted) {
+    int prefixLength = Math.min(name.length(), PREFIX_LENGTH);
+    long[] hashes = new long[1 << prefixLength];
+    int count = 0;
+    for (int deleted = 0; deleted < 1 << prefixLength; deleted++) {
+      if (Integer.bitCount(deleted) > maxDeleted) {
+        continue;
+      }
+      // FNV-1a over the letters that are kept
+      long hash = 0xcbf29ce484222325L;
+      for (int i = 0; i < prefixLength; i++) {
+        if ((deleted & 1 << i) == 0) {
+          hash = (hash ^ name.charAt(i)) * 0x100000001b3L;
+        }
+      }
+      hashes[count++] = hash;
+    }
+
+    Arrays.sort(hashes, 0, count);
+    int distinct = 0;
+    for (int i = 0; i < count; i++) {
+      if (distinct == 0 || hashes[i] != hashes[distinct - 1]) {
+        hashes[distinct++] = hashes[i];
+      }
+    }
+    return Arrays.copyOf(hashes, distinct);
+  }
+
+  /**
+   * Combines a deletion hash with the length of the full name into a key of the deletion table.
+   * Keys are never zero, since zero marks a free slot of the table.
+   *
+   * @param length  the length of the full name
+   * @param variant the deletion hash
+   * @return the key
+   */
+  private static long deletionKey(int length, long variant) {
+    long key = variant ^ length * 0x9e3779b97f4a7c15L;
+    key = (key ^ key >>> 33) * 0xff51afd7ed558ccdL;
+    key = (key ^ key >>> 33) * 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return key == 0 ? 1 : key;
+  }
+
+  /**
+   * Computes the edit distance between two strings, counting an insertion, a deletion, a changed
+   * letter or two swapped neighbouring letters as one edit each. Only the cells within the limit
+   * of the diagonal are computed, and it gives up as soon as the distance is certain to exceed
+   * the limit.
+   *
+   * @param a     the first string
+   * @param b     the second string
+   * @param limit the highest distance of interest
+   * @param rows  three rows of at least b.length() + 2 cells to compute the distance in, which
+   *              saves allocating them for every name compared
+   * @return the distance, or limit + 1 if it is larger than the limit
+   */
+  static int boundedEditDistance(String a, String b, int limit, int[][] rows) {
+    if (Math.abs(a.length() - b.length()) > limit) {
+      return limit + 1;
+    }
+    int outside = limit + 1;
+    int[] beforePrevious = rows[0];
+    int[] previous = rows[1];
+    int[] current = rows[2];
+    for (int j = 0; j <= Math.min(b.length(), limit); j++) {
+      previous[j] = j;
+    }
+    previous[Math.min(b.length(), limit) + 1] = outside;
+
+    for (int i = 1; i <= a.length(); i++) {
+      int from = Math.max(1, i - limit);
+      int to = Math.min(b.length(), i + limit);
+      current[from - 1] = from == 1 && i <= limit ? i : outside;
+      current[to + 1] = outside;
+      int rowMinimum = current[from - 1];
+      for (int j = from; j <= to; j++) {
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        int distance = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1),
+            previous[j - 1] + cost);
+        if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2)
+            && a.charAt(i - 2) == b.charAt(j - 1)) {
+          distance = Math.min(distance, beforePrevious[j - 2] + 1);
+        }
+        current[j] = Math.min(distance, outside);
+        rowMinimum = Math.min(rowMinimum, current[j]);
+      }
+      if (rowMinimum > limit) {
+        return outside;
+      }
+      int[] swap = beforePrevious;
+      beforePrevious = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[b.length()];
+  }
+
+  /**
+   * A hash table from deletion keys to the names filed under them. Keys live in an open
+   * addressing table and names in linked entries of two parallel arrays, which takes a fraction
+   * of the memory of a map of sets. Entries of removed names are reused, and keys left without
+   * names are dropped whenever the table is rehashed.
+   *
+   * <p>Lookups do not change the table, so any number of them can run at the same time as long
+   * as no name is added or removed.
+   */
+  private static final class DeletionTable {
+
+    private long[] keys;
+    private int[] heads;
+    private int usedSlots;
+    private String[] entryNames;
+    private int[] entryNext;
+    private int entryCount;
+    private int freeEntry;
+
+    private DeletionTable() {
+      this.keys = new long[1 << 10];
+      this.heads = new int[keys.length];
+      this.entryNames = new String[1 << 10];
+      this.entryNext = new int[entryNames.length];
+      this.freeEntry = -1;
+    }
+
+    /**
+     * Returns the first entry filed under a key.
+     *
+     * @param key the key
+     * @return the entry, or -1 if there is none
+     */
+    private int first(long key) {
+      int slot = slotOf(key);
+      return keys[slot] == 0 ? -1 : heads[slot];
+    }
+
+    private int next(int entry) {
+      return entryNext[entry];
+    }
+
+    private String name(int entry) {
+      return entryNames[entry];
+    }
+
+    private void add(long key, String name) {
+      int slot = slotOf(key);
+      if (keys[slot] == 0) {
+        if ((usedSlots + 1) * 4L > keys.length * 3L) {
+          rehash();
+          slot = slotOf(key);
+        }
+        keys[slot] = key;
+        heads[slot] = -1;
+        usedSlots++;
+      }
+
+      int entry = freeEntry;
+      if (entry >= 0) {
+        freeEntry = entryNext[entry];
+      } else {
+        if (entryCount == entryNames.length) {
+          entryNames = Arrays.copyOf(entryNames, entryCount * 2);
+          entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+        }
+        entry = entryCount++;
+      }
+      entryNames[entry] = name;
+      entryNext[entry] = heads[slot];
+      heads[slot] = entry;
+    }
+
+    private void remove(long key, String name) {
+      int slot = slotOf(key);
+      if (keys[slot] == 0) {
+        return;
+      }
+      for (int entry = heads[slot], previous = -1; entry >= 0;
+          previous = entry, entry = entryNext[entry]) {
+        if (entryNames[entry].equals(name)) {
+          if (previous < 0) {
+            heads[slot] = entryNext[entry];
+          } else {
+            entryNext[previous] = entryNext[entry];
+          }
+          entryNames[entry] = null;
+          entryNext[entry] = freeEntry;
+          freeEntry = entry;
+          return;
+        }
+      }
+    }
+
+    /**
+     * Finds the slot holding a key, or the free slot where it belongs.
+     */
+    private int slotOf(long key) {
+      int mask = keys.length - 1;
+      int slot = (int) (key ^ key >>> 32) & mask;
+      while (keys[slot] != 0 && keys[slot] != key) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    /**
+     * Drops the keys without names, and doubles the table if it is still more than half full.
+     */
+    private void rehash() {
+      long[] oldKeys = keys;
+      int[] oldHeads = heads;
+      int live = 0;
+      for (int slot = 0; slot < oldKeys.length; slot++) {
+        if (oldKeys[slot] != 0 && oldHeads[slot] >= 0) {
+          live++;
+        }
+      }
+
+      int capacity = live * 2 > oldKeys.length ? oldKeys.length * 2 : oldKeys.length;
+      keys = new long[capacity];
+      heads = new int[capacity];
+      usedSlots = 0;
+      for (int slot = 0; slot < oldKeys.length; slot++) {
+        if (oldKeys[slot] != 0 && oldHeads[slot] >= 0) {
+          int newSlot = slotOf(oldKeys[slot]);
+          keys[newSlot] = oldKeys[slot];
+          heads[newSlot] = oldHeads[slot];
+          usedSlots++;
+        }
+      }
+    }
+  }
+}
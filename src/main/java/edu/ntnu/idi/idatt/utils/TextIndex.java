@@ -0,0 +1,437 @@
+package edu.ntnu.idi.idatt.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * The TextIndex class is an inverted index for full-text search over numbered documents. Each term
+ * maps to a posting list of the documents containing it, stored as variable-length encoded gaps
+ * between document numbers followed by the term frequency, so common terms take about two bytes
+ * per document.
+ *
+ * <p>Documents have to be added in increasing order of their numbers, which lets every posting
+ * list be appended to without re-encoding. Removed documents are marked as deleted and skipped
+ * by queries, and a posting list is encoded again without them once they make up more than half
+ * of it. Each term counts the live documents containing it, so ranking weighs terms by the
+ * documents that can still be found.
+ *
+ * <p>Boolean queries accept terms that must all match, alternatives joined by {@code OR} and
+ * terms prefixed with {@code -} that must not match, for example {@code potato cream OR milk
+ * -beef}. Ranked queries score every document matching any term with Okapi BM25.
+ */
+public class TextIndex {
+
+  private static final double K1 = 1.2;
+  private static final double B = 0.75;
+  private static final int MIN_TOKEN_LENGTH = 2;
+
+  private final Map<String, PostingList> postings;
+  private final BitSet deleted;
+  private int[] documentLengths;
+  private int lastDocument;
+  private int documentCount;
+  private long totalLength;
+
+  /**
+   * Constructs an empty TextIndex.
+   */
+  public TextIndex() {
+    this.postings = new HashMap<>();
+    this.deleted = new BitSet();
+    this.documentLengths = new int[16];
+    this.lastDocument = -1;
+  }
+
+  /**
+   * Splits text into lower case terms of letters and digits. Terms shorter than two characters are
+   * dropped, since they are mostly step numbers and abbreviations.
+   *
+   * @param text the text to split
+   * @return the terms in the order they appear
+   */
+  public static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (inWord && start < 0) {
+        start = i;
+      } else if (!inWord && start >= 0) {
+        if (i - start >= MIN_TOKEN_LENGTH) {
+          tokens.add(text.substring(start, i).toLowerCase());
+        }
+        start = -1;
+      }
+    }
+    return tokens;
+  }
+
+  /**
+   * Indexes the text of a document.
+   *
+   * @param document the document number, higher than every number added before
+   * @param texts    the fields of the document, indexed as one text
+   * @throws IllegalArgumentException if the document number is not higher than the last one
+   */
+  public void addDocument(int document, String... texts) {
+    if (document <= lastDocument) {
+      throw new IllegalArgumentException("Documents must be added in increasing order.");
+    }
+
+    Map<String, Integer> frequencies = new HashMap<>();
+    int length = 0;
+    for (String text : texts) {
+      for (String token : tokenize(text)) {
+        frequencies.merge(token, 1, Integer::sum);
+        length++;
+      }
+    }
+    for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+      postings.computeIfAbsent(entry.getKey(), t -> new PostingList())
+          .append(document, entry.getValue());
+    }
+
+    if (document >= documentLengths.length) {
+      documentLengths = Arrays.copyOf(documentLengths,
+          Math.max(document + 1, documentLengths.length * 2));
+    }
+    documentLengths[document] = length;
+    lastDocument = document;
+    documentCount++;
+    totalLength += length;
+  }
+
+  /**
+   * Marks a document as deleted so queries no longer return it. The fields have to be the ones
+   * the document was added with, since they tell which terms lose a document.
+   *
+   * @param document the document number
+   * @param texts    the fields the document was indexed with
+   */
+  public void removeDocument(int document, String... texts) {
+    if (document < 0 || document > lastDocument || deleted.get(document)) {
+      return;
+    }
+    deleted.set(document);
+    documentCount--;
+    totalLength -= documentLengths[document];
+
+    Set<String> terms = new HashSet<>();
+    for (String text : texts) {
+      terms.addAll(tokenize(text));
+    }
+    for (String term : terms) {
+      PostingList list = postings.get(term);
+      if (list == null) {
+        continue;
+      }
+      list.liveDocuments--;
+      if (list.liveDocuments <= 0) {
+        postings.remove(term);
+      } else if (list.liveDocuments * 2 < list.documentFrequency) {
+        list.removeDeleted(deleted);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of documents that are indexed and not deleted.
+   *
+   * @return the number of documents
+   */
+  public int size() {
+    return documentCount;
+  }
+
+  /**
+   * Returns the number of bytes used by the encoded posting lists.
+   *
+   * @return the size of the posting lists in bytes
+   */
+  public long postingBytes() {
+    long bytes = 0;
+    for (PostingList list : postings.values()) {
+      bytes += list.size;
+    }
+    return bytes;
+  }
+
+  /**
+   * Finds the documents matching a boolean query.
+   *
+   * @param query the query, see the class description for the syntax
+   * @return the matching document numbers in increasing order
+   */
+  public int[] search(String query) {
+    int[] result = null;
+    List<int[]> excluded = new ArrayList<>();
+    int[] alternatives = null;
+    boolean joinNext = false;
+
+    for (String word : query.trim().split("\\s+")) {
+      if (word.equals("OR")) {
+        joinNext = alternatives != null;
+        continue;
+      }
+      boolean negated = word.startsWith("-");
+      List<String> terms = tokenize(negated ? word.substring(1) : word);
+      if (terms.isEmpty()) {
+        continue;
+      }
+      int[] matches = documentsWithAll(terms);
+
+      if (negated) {
+        excluded.add(matches);
+      } else if (joinNext) {
+        alternatives = union(alternatives, matches);
+      } else {
+        if (alternatives != null) {
+          result = result == null ? alternatives : intersect(result, alternatives);
+        }
+        alternatives = matches;
+      }
+      joinNext = false;
+    }
+    if (alternatives != null) {
+      result = result == null ? alternatives : intersect(result, alternatives);
+    }
+    if (result == null) {
+      return new int[0];
+    }
+    for (int[] exclusion : excluded) {
+      result = subtract(result, exclusion);
+    }
+    return result;
+  }
+
+  /**
+   * Ranks the documents containing any of the query terms with Okapi BM25. Terms prefixed with
+   * {@code -} exclude documents, and {@code OR} is ignored since every term is optional.
+   *
+   * @param query the query
+   * @param limit the maximum number of documents to return
+   * @return the best matching document numbers, highest score first
+   */
+  public int[] searchRanked(String query, int limit) {
+    if (limit <= 0 || documentCount == 0) {
+      return new int[0];
+    }
+    double averageLength = (double) totalLength / documentCount;
+    float[] scores = new float[lastDocument + 1];
+    BitSet matched = new BitSet(lastDocument + 1);
+    BitSet excluded = new BitSet();
+
+    for (String word : query.trim().split("\\s+")) {
+      boolean negated = word.startsWith("-");
+      for (String term : tokenize(negated ? word.substring(1) : word)) {
+        PostingList list = postings.get(term);
+        if (list == null) {
+          continue;
+        }
+        if (negated) {
+          list.forEach((document, frequency) -> excluded.set(document));
+          continue;
+        }
+        double idf = Math.log(1 + (documentCount - list.liveDocuments + 0.5)
+            / (list.liveDocuments + 0.5));
+        list.forEach((document, frequency) -> {
+          double norm = K1 * (1 - B + B * documentLengths[document] / averageLength);
+          scores[document] += (float) (idf * frequency * (K1 + 1) / (frequency + norm));
+          matched.set(document);
+        });
+      }
+    }
+    matched.andNot(excluded);
+    matched.andNot(deleted);
+
+    PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1,
+        (a, b) -> scores[a] != scores[b] ? Float.compare(scores[a], scores[b]) : b - a);
+    for (int document = matched.nextSetBit(0); document >= 0;
+        document = matched.nextSetBit(document + 1)) {
+      best.add(document);
+      if (best.size() > limit) {
+        best.poll();
+      }
+    }
+    int[] result = new int[best.size()];
+    for (int i = result.length - 1; i >= 0; i--) {
+      result[i] = best.poll();
+    }
+    return result;
+  }
+
+  /**
+   * Finds the live documents containing every one of the terms.
+   *
+   * @param terms the terms
+   * @return the matching document numbers in increasing order
+   */
+  private int[] documentsWithAll(List<String> terms) {
+    int[] result = null;
+    for (String term : terms) {
+      PostingList list = postings.get(term);
+      if (list == null) {
+        return new int[0];
+      }
+      int[] documents = list.documents(deleted);
+      result = result == null ? documents : intersect(result, documents);
+    }
+    return result;
+  }
+
+  private static int[] intersect(int[] a, int[] b) {
+    int[] result = new int[Math.min(a.length, b.length)];
+    int i = 0;
+    int j = 0;
+    int size = 0;
+    while (i < a.length && j < b.length) {
+      if (a[i] < b[j]) {
+        i++;
+      } else if (a[i] > b[j]) {
+        j++;
+      } else {
+        result[size++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(result, size);
+  }
+
+  private static int[] union(int[] a, int[] b) {
+    int[] result = new int[a.length + b.length];
+    int i = 0;
+    int j = 0;
+    int size = 0;
+    while (i < a.length || j < b.length) {
+      if (j >= b.length || (i < a.length && a[i] < b[j])) {
+        result[size++] = a[i++];
+      } else if (i >= a.length || b[j] < a[i]) {
+        result[size++] = b[j++];
+      } else {
+        result[size++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(result, size);
+  }
+
+  private static int[] subtract(int[] a, int[] b) {
+    int[] result = new int[a.length];
+    int j = 0;
+    int size = 0;
+    for (int value : a) {
+      while (j < b.length && b[j] < value) {
+        j++;
+      }
+      if (j >= b.length || b[j] != value) {
+        result[size++] = value;
+      }
+    }
+    return Arrays.copyOf(result, size);
+  }
+
+  /**
+   * Receives the entries of a posting list while it is decoded.
+   */
+  private interface PostingConsumer {
+
+    void accept(int document, int frequency);
+  }
+
+  /**
+   * The documents containing one term, encoded as pairs of variable-length integers: the gap from
+   * the previous document number and the number of times the term occurs.
+   */
+  private static class PostingList {
+
+    private byte[] bytes = new byte[8];
+    private int size;
+    private int lastDocument = -1;
+    private int documentFrequency;  // Documents encoded, deleted ones included
+    private int liveDocuments;
+
+    private void append(int document, int frequency) {
+      writeVarInt(document - lastDocument);
+      writeVarInt(frequency);
+      lastDocument = document;
+      documentFrequency++;
+      liveDocuments++;
+    }
+
+    /**
+     * Encodes the list again without the deleted documents.
+     *
+     * @param deleted the deleted document numbers
+     */
+    private void removeDeleted(BitSet deleted) {
+      PostingList kept = new PostingList();
+      forEach((document, frequency) -> {
+        if (!deleted.get(document)) {
+          kept.append(document, frequency);
+        }
+      });
+      bytes = kept.bytes;
+      size = kept.size;
+      lastDocument = kept.lastDocument;
+      documentFrequency = kept.documentFrequency;
+      liveDocuments = kept.liveDocuments;
+    }
+
+    private void writeVarInt(int value) {
+      if (size + 5 > bytes.length) {
+        bytes = Arrays.copyOf(bytes, bytes.length * 2);
+      }
+      while ((value & ~0x7F) != 0) {
+        bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      bytes[size++] = (byte) value;
+    }
+
+    private void forEach(PostingConsumer consumer) {
+      int position = 0;
+      int document = -1;
+      while (position < size) {
+        int gap = 0;
+        int shift = 0;
+        byte current;
+        do {
+          current = bytes[position++];
+          gap |= (current & 0x7F) << shift;
+          shift += 7;
+        } while (current < 0);
+
+        int frequency = 0;
+        shift = 0;
+        do {
+          current = bytes[position++];
+          frequency |= (current & 0x7F) << shift;
+          shift += 7;
+        } while (current < 0);
+
+        document += gap;
+        consumer.accept(document, frequency);
+      }
+    }
+
+    private int[] documents(BitSet deleted) {
+      int[] result = new int[documentFrequency];
+      int[] count = new int[1];
+      forEach((document, frequency) -> {
+        if (!deleted.get(document)) {
+          result[count[0]++] = document;
+        }
+      });
+      return Arrays.copyOf(result, count[0]);
+    }
+  }
+}
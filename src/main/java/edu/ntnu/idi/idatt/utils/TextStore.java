@@ -0,0 +1,164 @@
+package edu.ntnu.idi.idatt.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The TextStore class keeps texts outside the Java heap in direct byte buffers, so large amounts
+ * of rarely read text, like recipe descriptions and instructions, neither fill the heap nor have
+ * to be traced by the garbage collector. A text is appended once and read back through the handle
+ * it was given, and is only decoded into a String when it is read.
+ *
+ * <p>The store is append-only: texts are never removed or changed, so a handle stays valid for as
+ * long as the store exists, and the memory is only given back when the store itself is garbage
+ * collected. An owner that removes texts should therefore count the bytes it no longer needs and
+ * copy the rest into a new store once they get too many, like {@code Cookbook} does. Texts are
+ * written into chunks of one megabyte. When compression is turned on, texts longer than a few
+ * hundred bytes are compressed with Deflate if that makes them smaller.
+ *
+ * <p>Appends are serialized, while reads take no lock and can run from any number of threads,
+ * also during an append.
+ */
+public class TextStore {
+
+  private static final int CHUNK_SIZE = 1 << 20;
+  private static final int HEADER_SIZE = 8;
+  private static final int MIN_COMPRESSED_LENGTH = 256;
+
+  private final boolean compressed;
+  private final Deflater deflater;
+  private volatile Chunk[] chunks;  // Replaced, never changed, when a chunk is added
+  private volatile long storedBytes;
+
+  /**
+   * Constructs an empty TextStore.
+   *
+   * @param compressed true to compress long texts
+   */
+  public TextStore(boolean compressed) {
+    this.compressed = compressed;
+    this.deflater = new Deflater(Deflater.BEST_SPEED);
+    this.chunks = new Chunk[0];
+  }
+
+  /**
+   * Appends a text to the store.
+   *
+   * @param text the text to store
+   * @return the handle to read the text back with
+   * @throws IllegalArgumentException if the text is null
+   */
+  public synchronized long append(String text) {
+    if (text == null) {
+      throw new IllegalArgumentException("Text cannot be null.");
+    }
+    byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+    byte[] stored = raw;
+    if (compressed && raw.length >= MIN_COMPRESSED_LENGTH) {
+      byte[] deflated = deflate(raw);
+      if (deflated.length < raw.length) {
+        stored = deflated;
+      }
+    }
+
+    int recordSize = HEADER_SIZE + stored.length;
+    Chunk[] current = chunks;
+    Chunk chunk = current.length == 0 ? null : current[current.length - 1];
+    if (chunk == null || chunk.buffer.capacity() - chunk.used < recordSize) {
+      chunk = new Chunk(ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, recordSize)));
+      current = Arrays.copyOf(current, current.length + 1);
+      current[current.length - 1] = chunk;
+      chunks = current;
+    }
+    int position = chunk.used;
+    chunk.buffer.putInt(position, stored.length);
+    chunk.buffer.putInt(position + 4, raw.length);
+    chunk.buffer.put(position + HEADER_SIZE, stored);
+    // Written last, so a reader that sees the new length also sees the record
+    chunk.used = position + recordSize;
+    storedBytes += recordSize;
+    return ((long) (current.length - 1) << 32) | position;
+  }
+
+  /**
+   * Reads a text back from the store.
+   *
+   * @param handle the handle returned when the text was appended
+   * @return the text
+   * @throws IllegalArgumentException if the handle does not belong to this store
+   */
+  public String read(long handle) {
+    int chunkIndex = (int) (handle >>> 32);
+    int position = (int) handle;
+    Chunk[] current = chunks;
+    if (chunkIndex >= current.length || position < 0
+        || position + HEADER_SIZE > current[chunkIndex].used) {
+      throw new IllegalArgumentException("Invalid text handle.");
+    }
+    ByteBuffer chunk = current[chunkIndex].buffer;
+    int storedLength = chunk.getInt(position);
+    int rawLength = chunk.getInt(position + 4);
+    byte[] stored = new byte[storedLength];
+    chunk.get(position + HEADER_SIZE, stored);
+    byte[] raw = storedLength == rawLength ? stored : inflate(stored, rawLength);
+    return new String(raw, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the number of off-heap bytes the stored texts take, headers included.
+   *
+   * @return the stored size in bytes
+   */
+  public long storedBytes() {
+    return storedBytes;
+  }
+
+  private byte[] deflate(byte[] raw) {
+    deflater.reset();
+    deflater.setInput(raw);
+    deflater.finish();
+    ByteArrayOutputStream output = new ByteArrayOutputStream(raw.length / 2);
+    byte[] buffer = new byte[4096];
+    while (!deflater.finished()) {
+      output.write(buffer, 0, deflater.deflate(buffer));
+    }
+    return output.toByteArray();
+  }
+
+  private static byte[] inflate(byte[] stored, int rawLength) {
+    // One inflater per read keeps reads free of locks, and only long texts are compressed
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(stored);
+      byte[] raw = new byte[rawLength];
+      int length = 0;
+      while (length < rawLength && !inflater.finished()) {
+        length += inflater.inflate(raw, length, rawLength - length);
+      }
+      return raw;
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Stored text is corrupt.", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * A direct buffer and how much of it is written. Only bytes below {@code used} are read, and
+   * they never change once written.
+   */
+  private static final class Chunk {
+
+    private final ByteBuffer buffer;
+    private volatile int used;
+
+    private Chunk(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+  }
+}
@@ -5,39 +5,40 @@ import java.util.Map;
 
 /**
  * The UnitConverter class converts units that use a different measurement unit than liter and
- * kilo.
+ * kilo. The conversion factors are kept in micro-units, so converting micro-unit quantities is
+ * exact down to a millionth of a liter or kilogram.
  */
 public class UnitConverter {
 
-  private static final Map<String, Double> VOLUME_CONVERSION_FACTORS = new HashMap<>();
-  private static final Map<String, Double> WEIGHT_CONVERSION_FACTORS = new HashMap<>();
+  private static final Map<String, Long> VOLUME_CONVERSION_FACTORS = new HashMap<>();
+  private static final Map<String, Long> WEIGHT_CONVERSION_FACTORS = new HashMap<>();
   private static final Map<String, String> STANDARD_UNIT_MAP = new HashMap<>();
 
   static {
-    // Volume units to liters
-    VOLUME_CONVERSION_FACTORS.put("ml", 0.001);
-    VOLUME_CONVERSION_FACTORS.put("milliliter", 0.001);
-    VOLUME_CONVERSION_FACTORS.put("milliliters", 0.001);
-    VOLUME_CONVERSION_FACTORS.put("cl", 0.01);
-    VOLUME_CONVERSION_FACTORS.put("centiliter", 0.01);
-    VOLUME_CONVERSION_FACTORS.put("centiliters", 0.01);
-    VOLUME_CONVERSION_FACTORS.put("dl", 0.1);
-    VOLUME_CONVERSION_FACTORS.put("deciliter", 0.1);
-    VOLUME_CONVERSION_FACTORS.put("deciliters", 0.1);
-    VOLUME_CONVERSION_FACTORS.put("l", 1.0);
-    VOLUME_CONVERSION_FACTORS.put("liter", 1.0);
-    VOLUME_CONVERSION_FACTORS.put("liters", 1.0);
+    // Volume units to micro-liters per unit
+    VOLUME_CONVERSION_FACTORS.put("ml", 1_000L);
+    VOLUME_CONVERSION_FACTORS.put("milliliter", 1_000L);
+    VOLUME_CONVERSION_FACTORS.put("milliliters", 1_000L);
+    VOLUME_CONVERSION_FACTORS.put("cl", 10_000L);
+    VOLUME_CONVERSION_FACTORS.put("centiliter", 10_000L);
+    VOLUME_CONVERSION_FACTORS.put("centiliters", 10_000L);
+    VOLUME_CONVERSION_FACTORS.put("dl", 100_000L);
+    VOLUME_CONVERSION_FACTORS.put("deciliter", 100_000L);
+    VOLUME_CONVERSION_FACTORS.put("deciliters", 100_000L);
+    VOLUME_CONVERSION_FACTORS.put("l", 1_000_000L);
+    VOLUME_CONVERSION_FACTORS.put("liter", 1_000_000L);
+    VOLUME_CONVERSION_FACTORS.put("liters", 1_000_000L);
 
-    // Weight units to kilograms
-    WEIGHT_CONVERSION_FACTORS.put("mg", 0.000001);
-    WEIGHT_CONVERSION_FACTORS.put("milligram", 0.000001);
-    WEIGHT_CONVERSION_FACTORS.put("milligrams", 0.000001);
-    WEIGHT_CONVERSION_FACTORS.put("g", 0.001);
-    WEIGHT_CONVERSION_FACTORS.put("gram", 0.001);
-    WEIGHT_CONVERSION_FACTORS.put("grams", 0.001);
-    WEIGHT_CONVERSION_FACTORS.put("kg", 1.0);
-    WEIGHT_CONVERSION_FACTORS.put("kilogram", 1.0);
-    WEIGHT_CONVERSION_FACTORS.put("kilograms", 1.0);
+    // Weight units to micro-kilograms per unit
+    WEIGHT_CONVERSION_FACTORS.put("mg", 1L);
+    WEIGHT_CONVERSION_FACTORS.put("milligram", 1L);
+    WEIGHT_CONVERSION_FACTORS.put("milligrams", 1L);
+    WEIGHT_CONVERSION_FACTORS.put("g", 1_000L);
+    WEIGHT_CONVERSION_FACTORS.put("gram", 1_000L);
+    WEIGHT_CONVERSION_FACTORS.put("grams", 1_000L);
+    WEIGHT_CONVERSION_FACTORS.put("kg", 1_000_000L);
+    WEIGHT_CONVERSION_FACTORS.put("kilogram", 1_000_000L);
+    WEIGHT_CONVERSION_FACTORS.put("kilograms", 1_000_000L);
 
     // Map units to standard units
     VOLUME_CONVERSION_FACTORS.keySet().forEach(unit -> STANDARD_UNIT_MAP.put(unit, "liter"));
@@ -52,20 +53,71 @@ public class UnitConverter {
    * @return returns the correct unit conversion
    */
   public static double convertToStandardUnits(double amount, String unit) {
+    return amount * FixedPoint.toDouble(factorMicros(unit));
+  }
+
+  /**
+   * Converts a quantity in micro-units from the specified unit to micro-units of the standard unit
+   * (liter or kilogram), rounding to the nearest micro-unit.
+   *
+   * @param amountMicros the amount of the ingredient in micro-units
+   * @param unit         the unit of the ingredient
+   * @return the amount in micro-units of the standard unit
+   */
+  public static long convertToStandardMicros(long amountMicros, String unit) {
+    return FixedPoint.multiply(amountMicros, factorMicros(unit));
+  }
+
+  /**
+   * Converts a quantity in micro-units of the standard unit (liter or kilogram) to micro-units of
+   * the specified unit. The conversion is exact, since every factor divides one million.
+   *
+   * @param standardMicros the amount in micro-units of the standard unit
+   * @param unit           the unit to convert to
+   * @return the amount in micro-units of the given unit
+   * @throws ArithmeticException if the result does not fit in a long
+   */
+  public static long convertFromStandardMicros(long standardMicros, String unit) {
+    return Math.multiplyExact(standardMicros, FixedPoint.SCALE / factorMicros(unit));
+  }
+
+  /**
+   * Returns the size of one of the given unit in micro-units of its standard unit.
+   *
+   * @param unit the unit
+   * @return the conversion factor in micro-units
+   */
+  private static long factorMicros(String unit) {
     String normalizedUnit = unit.trim().toLowerCase();
 
     if (VOLUME_CONVERSION_FACTORS.containsKey(normalizedUnit)) {
-      double factor = VOLUME_CONVERSION_FACTORS.get(normalizedUnit);
-      return amount * factor; // Convert to liters
+      return VOLUME_CONVERSION_FACTORS.get(normalizedUnit);
     } else if (WEIGHT_CONVERSION_FACTORS.containsKey(normalizedUnit)) {
-      double factor = WEIGHT_CONVERSION_FACTORS.get(normalizedUnit);
-      return amount * factor; // Convert to kilograms
+      return WEIGHT_CONVERSION_FACTORS.get(normalizedUnit);
     } else {
-      throw new IllegalArgumentException("Invalid unit '" + unit
-          +
-          "'. Supported units include volume units (ml, cl, dl, l) and weight units (mg, g, kg).");
+      throw new IllegalArgumentException(invalidUnitMessage(unit));
     }
+  }
+
+  /**
+   * Returns the message given when a unit cannot be converted.
+   *
+   * @param unit the unit
+   * @return the message
+   */
+  public static String invalidUnitMessage(String unit) {
+    return "Invalid unit '" + unit + "'. "
+        + "Supported units include volume units (ml, cl, dl, l) and weight units (mg, g, kg).";
+  }
 
+  /**
+   * Checks if the given unit is a volume or weight unit that can be converted.
+   *
+   * @param unit the unit to check
+   * @return true if the unit is supported
+   */
+  public static boolean isSupportedUnit(String unit) {
+    return unit != null && STANDARD_UNIT_MAP.containsKey(unit.trim().toLowerCase());
   }
 
   /**
@@ -79,9 +131,7 @@ public class UnitConverter {
     if (STANDARD_UNIT_MAP.containsKey(normalizedUnit)) {
       return STANDARD_UNIT_MAP.get(normalizedUnit);
     } else {
-      throw new IllegalArgumentException("Invalid unit '" + unit
-          + "'. "
-          + "Supported units include volume units (ml, cl, dl, l) and weight units (mg, g, kg).");
+      throw new IllegalArgumentException(invalidUnitMessage(unit));
     }
   }
 
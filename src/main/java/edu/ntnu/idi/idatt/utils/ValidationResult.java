@@ -0,0 +1,98 @@
+package edu.ntnu.idi.idatt.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The ValidationResult class collects the problems found when input is validated without throwing.
+ * Each problem is the name of the field it concerns and the message the throwing validation in
+ * {@link InputValidation} would have given.
+ *
+ * <p>A result is meant to be reused: clear it before each row of a bulk import, and once its lists
+ * have grown, validating a row allocates nothing but the messages of the problems found.
+ */
+public class ValidationResult {
+
+  private final List<String> fields;
+  private final List<String> messages;
+
+  /**
+   * Constructs an empty ValidationResult.
+   */
+  public ValidationResult() {
+    this.fields = new ArrayList<>();
+    this.messages = new ArrayList<>();
+  }
+
+  /**
+   * Removes every problem, so the result can be used for the next validation.
+   */
+  public void clear() {
+    fields.clear();
+    messages.clear();
+  }
+
+  /**
+   * Records a problem.
+   *
+   * @param field   the name of the field the problem concerns
+   * @param message the description of the problem
+   */
+  public void reject(String field, String message) {
+    fields.add(field);
+    messages.add(message);
+  }
+
+  /**
+   * Checks if no problem has been recorded since the result was last cleared.
+   *
+   * @return true if the input was valid
+   */
+  public boolean isValid() {
+    return messages.isEmpty();
+  }
+
+  /**
+   * Returns the number of problems recorded.
+   *
+   * @return the number of problems
+   */
+  public int getErrorCount() {
+    return messages.size();
+  }
+
+  /**
+   * Returns the field a problem concerns.
+   *
+   * @param index the number of the problem, from 0
+   * @return the name of the field
+   */
+  public String getField(int index) {
+    return fields.get(index);
+  }
+
+  /**
+   * Returns the description of a problem.
+   *
+   * @param index the number of the problem, from 0
+   * @return the message
+   */
+  public String getMessage(int index) {
+    return messages.get(index);
+  }
+
+  /**
+   * Returns the descriptions of every problem, in the order they were found.
+   *
+   * @return an unmodifiable view of the messages
+   */
+  public List<String> getMessages() {
+    return Collections.unmodifiableList(messages);
+  }
+
+  @Override
+  public String toString() {
+    return String.join(" ", messages);
+  }
+}
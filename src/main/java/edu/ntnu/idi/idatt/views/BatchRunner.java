@@ -0,0 +1,434 @@
+package edu.ntnu.idi.idatt.views;
+
+import edu.ntnu.idi.idatt.foodstorage.Cookbook;
+import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.foodstorage.Recipe;
+import edu.ntnu.idi.idatt.metrics.ImportEvent;
+import edu.ntnu.idi.idatt.utils.InputValidation;
+import edu.ntnu.idi.idatt.utils.UnitConverter;
+import edu.ntnu.idi.idatt.utils.ValidationResult;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Runs a script of commands against a FoodStorage and a Cookbook without the interactive menu.
+ * Every result is written through a single buffered writer, and a timing summary per command is
+ * printed when the script ends.
+ *
+ * <p>Bad {@code add} and {@code recipe} rows are rejected without throwing any exception, so an
+ * import with many bad rows runs about as fast as a clean one, and every problem of a row is
+ * reported, not just the first.
+ *
+ * <p>One command per line, blank lines and lines starting with '#' are skipped:
+ * <pre>
+ * add &lt;name&gt; &lt;unit&gt; &lt;quantity&gt; &lt;dd.MM.yyyy&gt; &lt;price&gt;
+ * remove &lt;name&gt; &lt;unit&gt; &lt;price&gt; &lt;dd.MM.yyyy&gt; &lt;quantity&gt;
+ * search &lt;name&gt; &lt;unit&gt;
+ * list
+ * expired
+ * value
+ * expired-value
+ * report csv|json [expired]
+ * recipe &lt;name&gt; | &lt;description&gt; | &lt;instructions&gt;
+ *     | &lt;name&gt; &lt;quantity&gt; &lt;unit&gt;, ...
+ * suggest
+ * cook &lt;recipe name&gt;
+ * </pre>
+ */
+public class BatchRunner {
+
+  private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("dd.MM.yyyy");
+  private static final Pattern NUMBER =
+      Pattern.compile("[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?");
+
+  private final FoodStorage storage;
+  private final Cookbook cookbook;
+  private final Map<String, CommandStats> stats;
+  private final ValidationResult validation;
+  private PrintWriter out;
+
+  /**
+   * Constructs a BatchRunner that executes commands against the given storage and cookbook.
+   *
+   * @param storage  the FoodStorage to run the commands against
+   * @param cookbook the Cookbook to run the commands against
+   */
+  public BatchRunner(FoodStorage storage, Cookbook cookbook) {
+    this.storage = storage;
+    this.cookbook = cookbook;
+    this.stats = new LinkedHashMap<>();
+    this.validation = new ValidationResult();
+  }
+
+  /**
+   * Reads every command from the input, executes it and writes the results followed by the timing
+   * summary to the output. The output is flushed once the script is done.
+   *
+   * @param input  the script to run
+   * @param output where the results are written
+   * @throws IOException if the script cannot be read
+   */
+  public void run(Reader input, Writer output) throws IOException {
+    out = new PrintWriter(output);
+    ImportEvent event = new ImportEvent();
+    event.begin();
+    int commandCount = 0;
+    int failedCount = 0;
+    BufferedReader reader = input instanceof BufferedReader buffered
+        ? buffered : new BufferedReader(input, 1 << 16);
+
+    String line;
+    int lineNumber = 0;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+
+      String[] parts = line.split("\\s+", 2);
+      String command = parts[0].toLowerCase();
+      String arguments = parts.length > 1 ? parts[1] : "";
+
+      long start = System.nanoTime();
+      boolean success = execute(lineNumber, command, arguments);
+      long elapsed = System.nanoTime() - start;
+      commandCount++;
+      if (!success) {
+        failedCount++;
+      }
+
+      stats.computeIfAbsent(command, c -> new CommandStats()).record(elapsed, success);
+    }
+
+    event.end();
+    if (event.shouldCommit()) {
+      event.setCommandCount(commandCount);
+      event.setFailedCount(failedCount);
+      event.setLotCount(storage.size());
+      event.commit();
+    }
+
+    printSummary();
+    out.flush();
+  }
+
+  private boolean execute(int lineNumber, String command, String arguments) {
+    try {
+      switch (command) {
+        case "add":
+          return addIngredient(lineNumber, arguments.split("\\s+"));
+        case "remove":
+          removeIngredient(arguments.split("\\s+"));
+          break;
+        case "search":
+          searchIngredient(arguments.split("\\s+"));
+          break;
+        case "list":
+          printIngredients(storage.listAllIngredients(), "No ingredients in storage.");
+          break;
+        case "expired":
+          printIngredients(storage.listExpiredIngredients(), "No expired ingredients in storage");
+          break;
+        case "value":
+          out.printf("Total value of all ingredients: %.2f%n", storage.calculateTotalValue());
+          break;
+        case "expired-value":
+          out.printf("Value of all expired ingredients: %.2f%n",
+              storage.calculateExpiredIngredientsValue());
+          break;
+        case "report":
+          writeReport(arguments.split("\\s+"));
+          break;
+        case "recipe":
+          return addRecipe(lineNumber, arguments.split("\\|"));
+        case "suggest":
+          suggestRecipes();
+          break;
+        case "cook":
+          cookRecipe(arguments);
+          break;
+        default:
+          out.println("Line " + lineNumber + ": unknown command '" + command + "'");
+          return false;
+      }
+      return true;
+    } catch (ParseException e) {
+      out.println("Line " + lineNumber + ": invalid date format, expected dd.MM.yyyy.");
+    } catch (IllegalArgumentException e) {
+      out.println("Line " + lineNumber + ": " + e.getMessage());
+    } catch (IOException e) {
+      out.println("Line " + lineNumber + ": could not write report: " + e.getMessage());
+    }
+    return false;
+  }
+
+  private boolean addIngredient(int lineNumber, String[] args) {
+    validation.clear();
+    if (args.length < 5 || args[0].isBlank()) {
+      validation.reject("arguments", "Expected: add <name> <unit> <quantity> <dd.MM.yyyy> <price>");
+      return reportRejected(lineNumber);
+    }
+    String name = args[0].toLowerCase();
+    String unit = args[1].toLowerCase();
+    double quantity = checkNumber(args[2], "quantity");
+    Date bestBeforeDate = checkDate(args[3]);
+    double pricePerUnit = checkNumber(args[4], "pricePerUnit");
+    boolean supportedUnit = UnitConverter.isSupportedUnit(unit);
+    if (!supportedUnit) {
+      validation.reject("unit", UnitConverter.invalidUnitMessage(unit));
+    }
+    boolean parsed = validation.isValid();
+
+    // Fields that could not be read are left out of the checks of the Ingredient
+    double standardQuantity = Double.isNaN(quantity) ? 0
+        : supportedUnit ? UnitConverter.convertToStandardUnits(quantity, unit) : quantity;
+    String standardUnit = supportedUnit ? UnitConverter.getStandardUnit(unit) : unit;
+    Ingredient ingredient = Ingredient.tryCreate(name, standardQuantity, standardUnit,
+        bestBeforeDate == null ? new Date(0) : bestBeforeDate,
+        Double.isNaN(pricePerUnit) ? 0 : pricePerUnit, validation);
+    if (!parsed || ingredient == null) {
+      return reportRejected(lineNumber);
+    }
+    storage.addIngredient(ingredient);
+    out.println("Ingredient successfully added!");
+    return true;
+  }
+
+  private void removeIngredient(String[] args) throws ParseException {
+    requireArguments(args, 5, "remove <name> <unit> <price> <dd.MM.yyyy> <quantity>");
+    String name = args[0].toLowerCase();
+    String unit = args[1].toLowerCase();
+    double pricePerUnit = parseNumber(args[2]);
+    Date bestBeforeDate = DATE_FORMAT.parse(args[3]);
+    double quantity = parseNumber(args[4]);
+
+    double standardQuantity = UnitConverter.convertToStandardUnits(quantity, unit);
+    String standardUnit = UnitConverter.getStandardUnit(unit);
+
+    storage.removeIngredient(name, standardUnit, pricePerUnit, bestBeforeDate, standardQuantity);
+    out.println("Ingredient successfully removed!");
+  }
+
+  private void searchIngredient(String[] args) {
+    requireArguments(args, 2, "search <name> <unit>");
+    String standardUnit = UnitConverter.getStandardUnit(args[1]);
+
+    Ingredient ingredient = storage.findIngredientWithExpired(args[0], standardUnit);
+    if (ingredient != null) {
+      out.println(ingredient);
+    } else {
+      out.println("Ingredient not found");
+    }
+  }
+
+  private void printIngredients(Ingredient[] ingredients, String emptyMessage) {
+    if (ingredients.length == 0) {
+      out.println(emptyMessage);
+      return;
+    }
+    for (Ingredient ingredient : ingredients) {
+      out.println(ingredient);
+    }
+  }
+
+  private void writeReport(String[] args) throws IOException {
+    requireArguments(args, 1, "report csv|json [expired]");
+    boolean expiredOnly = args.length > 1 && args[1].equalsIgnoreCase("expired");
+    StockReportWriter report = switch (args[0].toLowerCase()) {
+      case "csv" -> new CsvStockReportWriter(out);
+      case "json" -> new JsonStockReportWriter(out);
+      default -> throw new IllegalArgumentException("Expected: report csv|json [expired]");
+    };
+    report.setExpiredOnly(expiredOnly);
+    report.write(storage);
+  }
+
+  private boolean addRecipe(int lineNumber, String[] args) {
+    validation.clear();
+    if (args.length < 4 || args[0].isBlank()) {
+      validation.reject("arguments", "Expected: recipe <name> | <description> | <instructions>"
+          + " | <name> <quantity> <unit>, ...");
+      return reportRejected(lineNumber);
+    }
+
+    Map<String, Double> ingredients = new HashMap<>();
+    Map<String, String> units = new HashMap<>();
+    for (String entry : args[3].split(",")) {
+      String[] fields = entry.trim().split("\\s+");
+      if (fields.length < 3 || fields[0].isBlank()) {
+        validation.reject("ingredients", "Expected: <name> <quantity> <unit>");
+        continue;
+      }
+      String ingredientName = fields[0].toLowerCase();
+      String unit = fields[2].toLowerCase();
+      double quantity = checkNumber(fields[1], "ingredients");
+      if (!UnitConverter.isSupportedUnit(unit)) {
+        validation.reject("units", UnitConverter.invalidUnitMessage(unit));
+      } else if (!Double.isNaN(quantity)) {
+        ingredients.put(ingredientName, UnitConverter.convertToStandardUnits(quantity, unit));
+        units.put(ingredientName, UnitConverter.getStandardUnit(unit));
+      }
+    }
+    boolean parsed = validation.isValid();
+    if (!parsed && ingredients.isEmpty()) {
+      return reportRejected(lineNumber);
+    }
+
+    String name = args[0].trim().toLowerCase();
+    if (!parsed) {
+      // Collects the remaining problems without building a recipe that would be thrown away
+      InputValidation.checkRecipe(name, args[1].trim(), args[2].trim(), ingredients, units, 1,
+          validation);
+      return reportRejected(lineNumber);
+    }
+    Recipe recipe = Recipe.tryCreate(name, args[1].trim(), args[2].trim(), ingredients, units, 1,
+        validation);
+    if (recipe == null) {
+      return reportRejected(lineNumber);
+    }
+    cookbook.addRecipe(recipe);
+    out.println("Recipe successfully added!");
+    return true;
+  }
+
+  private void suggestRecipes() {
+    List<Recipe> canMakeRecipes = cookbook.suggestRecipes(storage);
+    if (canMakeRecipes.isEmpty()) {
+      out.println("No recipes can be made with current ingredients.");
+    } else {
+      out.println("Recipes you can make:");
+      for (Recipe recipe : canMakeRecipes) {
+        out.println("- " + recipe.getName());
+      }
+    }
+
+    for (Recipe recipe : cookbook.getAllRecipes()) {
+      if (canMakeRecipes.contains(recipe)) {
+        continue;
+      }
+      out.println("- " + recipe.getName() + ":");
+      Map<String, Double> missingIngredients = cookbook.getMissingIngredients(recipe, storage);
+      for (Map.Entry<String, Double> entry : missingIngredients.entrySet()) {
+        out.printf("  Missing %s: %.2f %s%n", entry.getKey(), entry.getValue(),
+            recipe.getUnits().get(entry.getKey()));
+      }
+    }
+  }
+
+  private void cookRecipe(String name) {
+    Recipe recipe = cookbook.getRecipeByName(name);
+    if (recipe == null) {
+      throw new IllegalArgumentException("Recipe not found: " + name.trim());
+    }
+    storage.cook(recipe);
+    out.println("Recipe successfully cooked!");
+  }
+
+  private void printSummary() {
+    out.println();
+    out.println("Command timing summary:");
+    out.printf("%-14s %8s %8s %12s %12s %12s%n",
+        "command", "count", "failed", "total ms", "mean us", "max us");
+    for (Map.Entry<String, CommandStats> entry : stats.entrySet()) {
+      CommandStats commandStats = entry.getValue();
+      out.printf("%-14s %8d %8d %12.3f %12.3f %12.3f%n",
+          entry.getKey(),
+          commandStats.count,
+          commandStats.failed,
+          commandStats.totalNanos / 1_000_000.0,
+          commandStats.totalNanos / 1_000.0 / commandStats.count,
+          commandStats.maxNanos / 1_000.0);
+    }
+  }
+
+  /**
+   * Writes every problem recorded for a rejected row.
+   *
+   * @param lineNumber the line of the row
+   * @return false, so callers can return it as the result of the command
+   */
+  private boolean reportRejected(int lineNumber) {
+    for (int i = 0; i < validation.getErrorCount(); i++) {
+      out.println("Line " + lineNumber + ": " + validation.getMessage(i));
+    }
+    return false;
+  }
+
+  /**
+   * Parses a number, recording a problem instead of throwing if it is not one.
+   *
+   * @param value the text to parse
+   * @param field the field the number is for
+   * @return the number, or NaN if the text is not a number
+   */
+  private double checkNumber(String value, String field) {
+    String trimmed = value.trim();
+    if (!NUMBER.matcher(trimmed).matches()) {
+      validation.reject(field, "'" + value + "' is not a valid number.");
+      return Double.NaN;
+    }
+    return Double.parseDouble(trimmed);
+  }
+
+  /**
+   * Parses a date, recording a problem instead of throwing if it is not one.
+   *
+   * @param value the text to parse
+   * @return the date, or null if the text is not a date
+   */
+  private Date checkDate(String value) {
+    Date date = DATE_FORMAT.parse(value, new ParsePosition(0));
+    if (date == null) {
+      validation.reject("bestBeforeDate", "invalid date format, expected dd.MM.yyyy.");
+    }
+    return date;
+  }
+
+  private static void requireArguments(String[] args, int count, String usage) {
+    if (args.length < count || args[0].isBlank()) {
+      throw new IllegalArgumentException("Expected: " + usage);
+    }
+  }
+
+  private static double parseNumber(String value) {
+    try {
+      return Double.parseDouble(value.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("'" + value + "' is not a valid number.");
+    }
+  }
+
+  /**
+   * Accumulated timings for one command name.
+   */
+  private static class CommandStats {
+
+    private long count;
+    private long failed;
+    private long totalNanos;
+    private long maxNanos;
+
+    private void record(long elapsedNanos, boolean success) {
+      count++;
+      if (!success) {
+        failed++;
+      }
+      totalNanos += elapsedNanos;
+      maxNanos = Math.max(maxNanos, elapsedNanos);
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package edu.ntnu.idi.idatt.views;
+
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import java.io.Writer;
+
+/**
+ * The CsvStockReportWriter class writes a stock report as comma-separated values with a header
+ * line. The first column tells the kind of row: {@code lot}, {@code subtotal} or {@code total}.
+ * The columns value, waste_value, lots and expired_lots add up, so a subtotal is the sum of the
+ * lot rows above it and the total is the sum of every lot row:
+ * <pre>
+ * type,name,unit,quantity,best_before,price_per_unit,value,waste_value,lots,expired_lots
+ * lot,Milk,liter,1.5,2030-01-31,20,30,0,1,0
+ * subtotal,milk,,,,,30,0,1,0
+ * total,,,,,,30,0,1,0
+ * </pre>
+ * Names and units that contain a comma, a quote or a line break are quoted.
+ */
+public class CsvStockReportWriter extends StockReportWriter {
+
+  /**
+   * Constructs a CsvStockReportWriter that writes to the given writer.
+   *
+   * @param out where the report is written
+   * @throws IllegalArgumentException if out is null
+   */
+  public CsvStockReportWriter(Writer out) {
+    super(out);
+  }
+
+  @Override
+  protected void writeHeader(StringBuilder out) {
+    out.append("type,name,unit,quantity,best_before,price_per_unit,value,waste_value,lots,"
+        + "expired_lots\n");
+  }
+
+  @Override
+  protected void writeLot(StringBuilder out, Ingredient lot, long bestBefore, boolean expired) {
+    long value = lot.getTotalValueMicros();
+    out.append("lot,");
+    appendField(out, lot.getName());
+    out.append(',');
+    appendField(out, lot.getUnit());
+    out.append(',');
+    appendMicros(out, lot.getQuantityMicros());
+    out.append(',');
+    appendDate(out, bestBefore);
+    out.append(',');
+    appendMicros(out, lot.getPricePerUnitMicros());
+    out.append(',');
+    appendMicros(out, value);
+    out.append(',');
+    appendMicros(out, expired ? value : 0);
+    out.append(expired ? ",1,1\n" : ",1,0\n");
+  }
+
+  @Override
+  protected void writeSubtotal(StringBuilder out, String group, Totals totals) {
+    out.append("subtotal,");
+    appendField(out, group);
+    out.append(",,,,,");
+    appendSums(out, totals);
+  }
+
+  @Override
+  protected void writeTotal(StringBuilder out, Totals totals) {
+    out.append("total,,,,,,");
+    appendSums(out, totals);
+  }
+
+  private static void appendSums(StringBuilder out, Totals totals) {
+    appendMicros(out, totals.getValueMicros());
+    out.append(',');
+    appendMicros(out, totals.getWasteMicros());
+    out.append(',').append(totals.getLotCount())
+        .append(',').append(totals.getExpiredLotCount()).append('\n');
+  }
+
+  private static void appendField(StringBuilder out, String value) {
+    boolean quote = false;
+    for (int i = 0; i < value.length() && !quote; i++) {
+      char c = value.charAt(i);
+      quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+    if (!quote) {
+      out.append(value);
+      return;
+    }
+    out.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"') {
+        out.append('"');
+      }
+      out.append(c);
+    }
+    out.append('"');
+  }
+}
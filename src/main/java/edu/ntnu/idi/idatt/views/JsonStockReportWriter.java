@@ -0,0 +1,104 @@
+package edu.ntnu.idi.idatt.views;
+
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import java.io.Writer;
+
+/**
+ * The JsonStockReportWriter class writes a stock report as one JSON object, with a group for each
+ * ingredient name holding its lots and subtotal, followed by the total. Amounts are plain JSON
+ * numbers with up to six decimals and dates are yyyy-MM-dd strings:
+ * <pre>
+ * {"groups":[
+ * {"name":"milk","lots":[
+ * {"name":"Milk","unit":"liter","quantity":1.5,"bestBefore":"2030-01-31","pricePerUnit":20,
+ * "value":30,"expired":false}
+ * ],"value":30,"wasteValue":0,"lotCount":1,"expiredLotCount":0}
+ * ],"value":30,"wasteValue":0,"lotCount":1,"expiredLotCount":0}
+ * </pre>
+ */
+public class JsonStockReportWriter extends StockReportWriter {
+
+  private boolean firstGroup;
+  private boolean firstLot;
+
+  /**
+   * Constructs a JsonStockReportWriter that writes to the given writer.
+   *
+   * @param out where the report is written
+   * @throws IllegalArgumentException if out is null
+   */
+  public JsonStockReportWriter(Writer out) {
+    super(out);
+  }
+
+  @Override
+  protected void writeHeader(StringBuilder out) {
+    out.append("{\"groups\":[");
+    firstGroup = true;
+  }
+
+  @Override
+  protected void writeGroupStart(StringBuilder out, String group) {
+    out.append(firstGroup ? "\n{\"name\":" : ",\n{\"name\":");
+    appendString(out, group);
+    out.append(",\"lots\":[");
+    firstGroup = false;
+    firstLot = true;
+  }
+
+  @Override
+  protected void writeLot(StringBuilder out, Ingredient lot, long bestBefore, boolean expired) {
+    out.append(firstLot ? "\n{\"name\":" : ",\n{\"name\":");
+    appendString(out, lot.getName());
+    out.append(",\"unit\":");
+    appendString(out, lot.getUnit());
+    out.append(",\"quantity\":");
+    appendMicros(out, lot.getQuantityMicros());
+    out.append(",\"bestBefore\":\"");
+    appendDate(out, bestBefore);
+    out.append("\",\"pricePerUnit\":");
+    appendMicros(out, lot.getPricePerUnitMicros());
+    out.append(",\"value\":");
+    appendMicros(out, lot.getTotalValueMicros());
+    out.append(expired ? ",\"expired\":true}" : ",\"expired\":false}");
+    firstLot = false;
+  }
+
+  @Override
+  protected void writeSubtotal(StringBuilder out, String group, Totals totals) {
+    out.append("\n]");
+    appendSums(out, totals);
+  }
+
+  @Override
+  protected void writeTotal(StringBuilder out, Totals totals) {
+    out.append(firstGroup ? "]" : "\n]");
+    appendSums(out, totals);
+    out.append('\n');
+  }
+
+  private static void appendSums(StringBuilder out, Totals totals) {
+    out.append(",\"value\":");
+    appendMicros(out, totals.getValueMicros());
+    out.append(",\"wasteValue\":");
+    appendMicros(out, totals.getWasteMicros());
+    out.append(",\"lotCount\":").append(totals.getLotCount())
+        .append(",\"expiredLotCount\":").append(totals.getExpiredLotCount()).append('}');
+  }
+
+  private static void appendString(StringBuilder out, String value) {
+    out.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        out.append('\\').append(c);
+      } else if (c < 0x20) {
+        out.append("\\u00").append(Character.forDigit(c >> 4, 16))
+            .append(Character.forDigit(c & 0xF, 16));
+      } else {
+        out.append(c);
+      }
+    }
+    out.append('"');
+  }
+}
@@ -0,0 +1,254 @@
+package edu.ntnu.idi.idatt.views;
+
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.foodstorage.IngredientOrder;
+import edu.ntnu.idi.idatt.foodstorage.IngredientPage;
+import edu.ntnu.idi.idatt.foodstorage.StorageView;
+import edu.ntnu.idi.idatt.utils.FixedPoint;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * The StockReportWriter class writes a report of every lot in a storage, grouped by ingredient
+ * name with a subtotal after each group and a total at the end. The subclasses decide the format.
+ * A {@link edu.ntnu.idi.idatt.foodstorage.FederatedStorage} is reported as one storage, with the
+ * lots of every location in one group per name.
+ *
+ * <p>The storage is walked once, a page at a time in name order, so only one page of lots is held
+ * at any time and the report takes the same memory for a thousand lots as for millions. Each page
+ * is read under the read lock of each storage, which is released between pages, so a report of a
+ * storage that changes meanwhile shows every lot that was there the whole time, and may or may
+ * not show lots added or removed during the walk. Rows are written into one reused buffer that is
+ * handed to the writer in large chunks, and numbers are written digit by digit from micro-units
+ * without going through {@code String.format}.
+ *
+ * <p>A waste report, of only the expired lots, is written after {@link #setExpiredOnly(boolean)}.
+ */
+public abstract class StockReportWriter {
+
+  private static final int PAGE_SIZE = 512;
+  private static final int CHUNK_SIZE = 8192;
+
+  private final Writer out;
+  private final StringBuilder buffer;
+  private final char[] chunk;
+  private final ZoneId zone;
+  private final Totals groupTotals;
+  private final Totals reportTotals;
+  private boolean expiredOnly;
+
+  /**
+   * Constructs a StockReportWriter that writes to the given writer.
+   *
+   * @param out where the report is written
+   * @throws IllegalArgumentException if out is null
+   */
+  protected StockReportWriter(Writer out) {
+    if (out == null) {
+      throw new IllegalArgumentException("Writer cannot be null.");
+    }
+    this.out = out;
+    this.buffer = new StringBuilder(2 * CHUNK_SIZE);
+    this.chunk = new char[2 * CHUNK_SIZE];
+    this.zone = ZoneId.systemDefault();
+    this.groupTotals = new Totals();
+    this.reportTotals = new Totals();
+  }
+
+  /**
+   * Sets whether only expired lots are reported. The subtotals and total then add up the waste.
+   *
+   * @param expiredOnly true to report only expired lots
+   */
+  public void setExpiredOnly(boolean expiredOnly) {
+    this.expiredOnly = expiredOnly;
+  }
+
+  /**
+   * Writes the report of a storage. The writer is neither flushed nor closed, so a caller that
+   * buffers its output decides when it is flushed.
+   *
+   * @param storage the storage to report on
+   * @return the number of lots in the report
+   * @throws IOException              if the report cannot be written
+   * @throws IllegalArgumentException if storage is null
+   */
+  public long write(StorageView storage) throws IOException {
+    if (storage == null) {
+      throw new IllegalArgumentException("Storage cannot be null.");
+    }
+    buffer.setLength(0);
+    reportTotals.clear();
+    groupTotals.clear();
+    writeHeader(buffer);
+
+    String group = null;
+    String cursor = null;
+    do {
+      IngredientPage page =
+          storage.listIngredientsPage(IngredientOrder.NAME, expiredOnly, cursor, PAGE_SIZE);
+      // Taken after the page is read, so every lot listed as expired is still expired now
+      long now = System.currentTimeMillis();
+      for (Ingredient lot : page.getIngredients()) {
+        if (group != null && !group.equalsIgnoreCase(lot.getName())) {
+          writeSubtotal(buffer, group, groupTotals);
+          groupTotals.clear();
+          group = null;
+        }
+        if (group == null) {
+          group = lot.getName().toLowerCase();
+          writeGroupStart(buffer, group);
+        }
+        long bestBefore = lot.getBestBeforeDate().getTime();
+        boolean expired = bestBefore < now;
+        groupTotals.add(lot.getTotalValueMicros(), expired);
+        reportTotals.add(lot.getTotalValueMicros(), expired);
+        writeLot(buffer, lot, bestBefore, expired);
+        if (buffer.length() >= CHUNK_SIZE) {
+          drain();
+        }
+      }
+      cursor = page.getNextCursor();
+    } while (cursor != null);
+
+    if (group != null) {
+      writeSubtotal(buffer, group, groupTotals);
+    }
+    writeTotal(buffer, reportTotals);
+    drain();
+    return reportTotals.getLotCount();
+  }
+
+  /**
+   * Writes what comes before the first group.
+   *
+   * @param out the buffer to write to
+   */
+  protected abstract void writeHeader(StringBuilder out);
+
+  /**
+   * Writes what comes before the first lot of a group. Does nothing unless overridden.
+   *
+   * @param out   the buffer to write to
+   * @param group the lowercase name of the ingredient
+   */
+  protected void writeGroupStart(StringBuilder out, String group) {
+  }
+
+  /**
+   * Writes one lot.
+   *
+   * @param out        the buffer to write to
+   * @param lot        the lot
+   * @param bestBefore the best-before date of the lot in milliseconds since the epoch
+   * @param expired    true if the lot has expired
+   */
+  protected abstract void writeLot(StringBuilder out, Ingredient lot, long bestBefore,
+      boolean expired);
+
+  /**
+   * Writes the subtotal after the last lot of a group.
+   *
+   * @param out    the buffer to write to
+   * @param group  the lowercase name of the ingredient
+   * @param totals the sums over the lots of the group
+   */
+  protected abstract void writeSubtotal(StringBuilder out, String group, Totals totals);
+
+  /**
+   * Writes the total after the last group.
+   *
+   * @param out    the buffer to write to
+   * @param totals the sums over every lot in the report
+   */
+  protected abstract void writeTotal(StringBuilder out, Totals totals);
+
+  /**
+   * Appends an amount in micro-units as a plain decimal number, with no more decimals than needed.
+   *
+   * @param out    the buffer to write to
+   * @param micros the amount in micro-units
+   */
+  protected static void appendMicros(StringBuilder out, long micros) {
+    if (micros < 0) {
+      out.append('-');
+    }
+    out.append(Math.abs(micros / FixedPoint.SCALE));
+    long fraction = Math.abs(micros % FixedPoint.SCALE);
+    if (fraction != 0) {
+      out.append('.');
+      for (long digit = FixedPoint.SCALE / 10; fraction != 0; digit /= 10) {
+        out.append((char) ('0' + fraction / digit));
+        fraction %= digit;
+      }
+    }
+  }
+
+  /**
+   * Appends a date as yyyy-MM-dd in the local time zone.
+   *
+   * @param out    the buffer to write to
+   * @param millis the date in milliseconds since the epoch
+   */
+  protected void appendDate(StringBuilder out, long millis) {
+    DateTimeFormatter.ISO_LOCAL_DATE.formatTo(
+        LocalDate.ofInstant(Instant.ofEpochMilli(millis), zone), out);
+  }
+
+  private void drain() throws IOException {
+    int length = buffer.length();
+    for (int offset = 0; offset < length; offset += chunk.length) {
+      int count = Math.min(chunk.length, length - offset);
+      buffer.getChars(offset, offset + count, chunk, 0);
+      out.write(chunk, 0, count);
+    }
+    buffer.setLength(0);
+  }
+
+  /**
+   * The number and value of the lots in a group or in the whole report.
+   */
+  protected static final class Totals {
+
+    private long lotCount;
+    private long expiredLotCount;
+    private long valueMicros;
+    private long wasteMicros;
+
+    private void clear() {
+      lotCount = 0;
+      expiredLotCount = 0;
+      valueMicros = 0;
+      wasteMicros = 0;
+    }
+
+    private void add(long lotValueMicros, boolean expired) {
+      lotCount++;
+      valueMicros += lotValueMicros;
+      if (expired) {
+        expiredLotCount++;
+        wasteMicros += lotValueMicros;
+      }
+    }
+
+    public long getLotCount() {
+      return lotCount;
+    }
+
+    public long getExpiredLotCount() {
+      return expiredLotCount;
+    }
+
+    public long getValueMicros() {
+      return valueMicros;
+    }
+
+    public long getWasteMicros() {
+      return wasteMicros;
+    }
+  }
+}
@@ -3,13 +3,14 @@ package edu.ntnu.idi.idatt.views;
 import edu.ntnu.idi.idatt.foodstorage.Cookbook;
 import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
 import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.foodstorage.IngredientOrder;
+import edu.ntnu.idi.idatt.foodstorage.IngredientPage;
 import edu.ntnu.idi.idatt.foodstorage.Recipe;
+import edu.ntnu.idi.idatt.foodstorage.UndoHistory;
 import edu.ntnu.idi.idatt.utils.UnitConverter;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.InputMismatchException;
@@ -27,7 +28,11 @@ public class UserInterface {
   private FoodStorage storage;
   private Cookbook cookbook;
   private Scanner scanner;
+  private UndoHistory history;
   private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("dd.MM.yyyy");
+  private static final int PAGE_SIZE = 10;
+  private static final int UNDO_CAPACITY = 1000;
+  private static final int NEAREST_RECIPES = 5;
 
 
   /**
@@ -46,6 +51,7 @@ public class UserInterface {
     } catch (ParseException e) {
       System.out.println("Error preloading data: " + e.getMessage());
     }
+    history = new UndoHistory(storage, cookbook, UNDO_CAPACITY);
   }
 
 
@@ -61,8 +67,8 @@ public class UserInterface {
         int choice = scanner.nextInt();
         scanner.nextLine(); // Consume the newline character
 
-        if (choice < 1 || choice > 10) {
-          System.out.println("Invalid choice. Please enter a number between 1 and 10.");
+        if (choice < 1 || choice > 12) {
+          System.out.println("Invalid choice. Please enter a number between 1 and 12.");
           continue; // Prompt the user again
         }
 
@@ -95,6 +101,12 @@ public class UserInterface {
             suggestRecipes();
             break;
           case 10:
+            undo();
+            break;
+          case 11:
+            redo();
+            break;
+          case 12:
             exit = true;
             System.out.println("Exiting the program. Goodbye!");
             break;
@@ -103,7 +115,7 @@ public class UserInterface {
             System.out.println("Invalid choice. Try again.");
         }
       } catch (InputMismatchException e) {
-        System.out.println("Invalid input. Please enter a valid number between 1 and 10.");
+        System.out.println("Invalid input. Please enter a valid number between 1 and 12.");
         scanner.nextLine(); // Consume the invalid input to avoid an infinite loop
       }
     }
@@ -123,7 +135,9 @@ public class UserInterface {
         7. Calculate Total Expired Value
         8. Add Recipe
         9. Suggest Recipes
-        10. Exit
+        10. Undo Last Change
+        11. Redo
+        12. Exit
         """);
   }
 
@@ -207,34 +221,64 @@ public class UserInterface {
       printIngredient(ingredient);
     } else {
       System.out.println("Ingredient not found");
+      List<String> suggestions = storage.searchIngredientNames(name, 5);
+      if (!suggestions.isEmpty()) {
+        System.out.println("Did you mean: " + String.join(", ", suggestions) + "?");
+      }
     }
   }
 
   private void listAllIngredients() {
-    Ingredient[] ingredients = storage.listAllIngredients();
-    if (ingredients.length == 0) {
-      System.out.println("No ingredients in storage.");
-    } else {
-      Arrays.stream(ingredients)
-          .sorted(Comparator
-              .comparing(Ingredient::getName, String.CASE_INSENSITIVE_ORDER)
-              .thenComparing(Ingredient::getBestBeforeDate))
-          .forEach(this::printIngredient);
+    listIngredientsPaged(false, "No ingredients in storage.");
+  }
 
+  private void listAllExpiredIngredients() {
+    listIngredientsPaged(true, "No expired ingredients in storage");
+  }
+
+  private void listIngredientsPaged(boolean expiredOnly, String emptyMessage) {
+    System.out.println("Sort by (1) name or (2) best-before date: ");
+    IngredientOrder order = scanner.nextLine().trim().equals("2")
+        ? IngredientOrder.EXPIRY : IngredientOrder.NAME;
+
+    IngredientPage page = storage.listIngredientsPage(order, expiredOnly, null, PAGE_SIZE);
+    if (page.getIngredients().isEmpty()) {
+      System.out.println(emptyMessage);
+      return;
+    }
+
+    page.getIngredients().forEach(this::printIngredient);
+    while (page.hasNext()) {
+      System.out.println("Press Enter for the next page, or q to stop: ");
+      if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+        return;
+      }
+      page = storage.listIngredientsPage(order, expiredOnly, page.getNextCursor(), PAGE_SIZE);
+      page.getIngredients().forEach(this::printIngredient);
     }
   }
 
-  private void listAllExpiredIngredients() {
-    Ingredient[] expiredIngredients = storage.listExpiredIngredients();
-    if (expiredIngredients.length == 0) {
-      System.out.println("No expired ingredients in storage");
-    } else {
-      Arrays.stream(expiredIngredients)
-          .sorted(Comparator
-              .comparing(Ingredient::getName, String.CASE_INSENSITIVE_ORDER)
-              .thenComparing(Ingredient::getBestBeforeDate))
-          .forEach(this::printIngredient);
+  private void undo() {
+    try {
+      if (history.undo()) {
+        System.out.println("Last change undone.");
+      } else {
+        System.out.println("Nothing to undo.");
+      }
+    } catch (IllegalArgumentException e) {
+      System.out.println("Could not undo: " + e.getMessage());
+    }
+  }
 
+  private void redo() {
+    try {
+      if (history.redo()) {
+        System.out.println("Change redone.");
+      } else {
+        System.out.println("Nothing to redo.");
+      }
+    } catch (IllegalArgumentException e) {
+      System.out.println("Could not redo: " + e.getMessage());
     }
   }
 
@@ -296,20 +340,12 @@ public class UserInterface {
     // Get recipes that can be made using the cookbook's method
     List<Recipe> canMakeRecipes = cookbook.suggestRecipes(storage);
 
-    // Get all recipes from the cookbook
-    List<Recipe> allRecipes = cookbook.getAllRecipes();
-
-    // Determine recipes that cannot be made
-    List<Recipe> cannotMakeRecipes = new ArrayList<>(allRecipes);
-    cannotMakeRecipes.removeAll(canMakeRecipes);
-
-    // Map to hold missing ingredients for recipes that cannot be made
-    Map<Recipe, Map<String, Double>> missingIngredientsMap = new HashMap<>();
-
-    // Populate missing ingredients map
-    for (Recipe recipe : cannotMakeRecipes) {
-      Map<String, Double> missingIngredients = recipe.getMissingIngredients(storage);
-      missingIngredientsMap.put(recipe, missingIngredients);
+    // Find the recipes closest to being makeable, leaving out those that can be made
+    List<Recipe> nearestRecipes = new ArrayList<>(
+        cookbook.nearestRecipes(storage, NEAREST_RECIPES + canMakeRecipes.size()));
+    nearestRecipes.removeAll(canMakeRecipes);
+    if (nearestRecipes.size() > NEAREST_RECIPES) {
+      nearestRecipes = nearestRecipes.subList(0, NEAREST_RECIPES);
     }
 
     // Display recipes that can be made
@@ -334,12 +370,11 @@ public class UserInterface {
       }
     }
 
-    // Display recipes that cannot be made and their missing ingredients
-    if (!missingIngredientsMap.isEmpty()) {
-      System.out.println("\nRecipes you cannot make and their missing ingredients:");
-      for (Map.Entry<Recipe, Map<String, Double>> entry : missingIngredientsMap.entrySet()) {
-        Recipe recipe = entry.getKey();
-        Map<String, Double> missingIngredients = entry.getValue();
+    // Display the closest recipes and their missing ingredients
+    if (!nearestRecipes.isEmpty()) {
+      System.out.println("\nRecipes you are closest to making and their missing ingredients:");
+      for (Recipe recipe : nearestRecipes) {
+        Map<String, Double> missingIngredients = cookbook.getMissingIngredients(recipe, storage);
         System.out.println("- " + recipe.getName() + ":");
         for (Map.Entry<String, Double> ingredientEntry : missingIngredients.entrySet()) {
           String ingredientName = ingredientEntry.getKey();
@@ -0,0 +1,125 @@
+package edu.ntnu.idi.idatt;
+
+import edu.ntnu.idi.idatt.foodstorage.Cookbook;
+import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
+import edu.ntnu.idi.idatt.views.BatchRunner;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class BatchRunnerTest {
+
+  private FoodStorage storage;
+  private Cookbook cookbook;
+
+  @BeforeEach
+  public void setUp() {
+    storage = new FoodStorage();
+    cookbook = new Cookbook();
+  }
+
+  /**
+   * Runs a script, given one line per argument, and returns the lines written.
+   */
+  private List<String> run(String... script) throws IOException {
+    StringWriter out = new StringWriter();
+    new BatchRunner(storage, cookbook).run(new StringReader(String.join("\n", script)), out);
+    return out.toString().lines().toList();
+  }
+
+  @Test
+  @DisplayName("Test a script runs its commands in order and skips comments and blank lines")
+  public void BatchRunnerTest1() throws IOException {
+    List<String> lines = run(
+        "# Weekly stock",
+        "add Milk liter 2 01.01.2090 20",
+        "",
+        "add Butter kilogram 0.5 01.01.2090 90",
+        "value",
+        "remove Milk liter 20 01.01.2090 0.5",
+        "recipe Toast | Toast. | Toast it. | butter 10 g",
+        "suggest",
+        "cook toast",
+        "value");
+
+    Assertions.assertEquals(List.of(
+        "Ingredient successfully added!",
+        "Ingredient successfully added!",
+        "Total value of all ingredients: 85.00",
+        "Ingredient successfully removed!",
+        "Recipe successfully added!",
+        "Recipes you can make:",
+        "- toast",
+        "Recipe successfully cooked!",
+        "Total value of all ingredients: 74.10"), lines.subList(0, 9));
+    Assertions.assertEquals(2, storage.size());
+    Assertions.assertNotNull(cookbook.getRecipeByName("toast"));
+  }
+
+  @Test
+  @DisplayName("Test failed lines are reported with their line number and every problem")
+  public void BatchRunnerTest2() throws IOException {
+    List<String> lines = run(
+        "add Milk liter 2 01.01.2090 20",
+        "add Cheese parsec abc 01.01.2090 5",
+        "frobnicate",
+        "remove Milk liter 20",
+        "recipe Pancakes | Thin. | Fry. | milk 2 dl, flour x g",
+        "add Milk liter -1 01.01.2090 20");
+
+    Assertions.assertEquals("Ingredient successfully added!", lines.get(0));
+    Assertions.assertEquals("Line 2: 'abc' is not a valid number.", lines.get(1));
+    Assertions.assertTrue(lines.get(2).startsWith("Line 2: Invalid unit 'parsec'."));
+    Assertions.assertEquals("Line 3: unknown command 'frobnicate'", lines.get(3));
+    Assertions.assertEquals(
+        "Line 4: Expected: remove <name> <unit> <price> <dd.MM.yyyy> <quantity>", lines.get(4));
+    Assertions.assertEquals("Line 5: 'x' is not a valid number.", lines.get(5));
+    Assertions.assertTrue(lines.get(6).startsWith("Line 6: "));
+    Assertions.assertEquals("", lines.get(7));
+
+    // Failed rows change nothing, and the script goes on after them
+    Assertions.assertEquals(1, storage.size());
+    Assertions.assertNull(cookbook.getRecipeByName("pancakes"));
+  }
+
+  @Test
+  @DisplayName("Test the timing summary counts every command and its failures")
+  public void BatchRunnerTest3() throws IOException {
+    List<String> lines = run(
+        "add Milk liter 2 01.01.2090 20",
+        "add Milk furlong 2 01.01.2090 20",
+        "# A comment is not a command",
+        "list",
+        "add Butter kilogram 0.5 01.01.2090 90",
+        "frobnicate");
+
+    int header = lines.indexOf("Command timing summary:");
+    Assertions.assertTrue(header > 0);
+    Assertions.assertEquals("", lines.get(header - 1));
+    Assertions.assertEquals(List.of("command", "count", "failed", "total", "ms", "mean", "us",
+        "max", "us"), List.of(lines.get(header + 1).trim().split("\\s+")));
+
+    // One row per command, in the order the commands first appear
+    List<String> rows = lines.subList(header + 2, lines.size());
+    Assertions.assertEquals(3, rows.size());
+    assertSummaryRow(rows.get(0), "add", 3, 1);
+    assertSummaryRow(rows.get(1), "list", 1, 0);
+    assertSummaryRow(rows.get(2), "frobnicate", 1, 1);
+  }
+
+  private static void assertSummaryRow(String row, String command, int count, int failed) {
+    String[] columns = row.trim().split("\\s+");
+    Assertions.assertEquals(6, columns.length, row);
+    Assertions.assertEquals(command, columns[0]);
+    Assertions.assertEquals(count, Integer.parseInt(columns[1]));
+    Assertions.assertEquals(failed, Integer.parseInt(columns[2]));
+    for (int i = 3; i < columns.length; i++) {
+      Assertions.assertTrue(columns[i].matches("\\d+[.,]\\d{3}"), row);
+    }
+  }
+}
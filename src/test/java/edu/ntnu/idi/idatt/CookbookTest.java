@@ -0,0 +1,227 @@
+package edu.ntnu.idi.idatt;
+
+import edu.ntnu.idi.idatt.foodstorage.Cookbook;
+import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.foodstorage.Recipe;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class CookbookTest {
+
+  private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("dd.MM.yyyy");
+
+  private Cookbook cookbook;
+  private FoodStorage storage;
+  private Date freshDate;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    cookbook = new Cookbook();
+    storage = new FoodStorage();
+    freshDate = DATE_FORMAT.parse("01.01.2090");
+    cookbook.addRecipe(new Recipe("Pancakes", "Thin pancakes.", "Mix and fry.",
+        Map.of("milk", 0.5, "butter", 0.05), Map.of("milk", "liter", "butter", "kilogram")));
+  }
+
+  @Test
+  @DisplayName("Test modification versions grow on every change")
+  public void CookbookTest1() {
+    long cookbookVersion = cookbook.getModificationVersion();
+    long storageVersion = storage.getModificationVersion();
+
+    cookbook.addRecipe(new Recipe("Toast", "Toast.", "Toast it.",
+        Map.of("bread", 0.1), Map.of("bread", "kilogram")));
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter", freshDate, 20.0));
+    storage.removeIngredient("Milk", "liter", 20.0, freshDate, 0.5);
+
+    Assertions.assertTrue(cookbook.getModificationVersion() > cookbookVersion);
+    Assertions.assertEquals(storageVersion + 2, storage.getModificationVersion());
+  }
+
+  @Test
+  @DisplayName("Test suggestions are reused until the storage changes")
+  public void CookbookTest2() {
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter", freshDate, 20.0));
+
+    List<Recipe> first = cookbook.suggestRecipes(storage);
+    Assertions.assertTrue(first.isEmpty());
+    Assertions.assertSame(first, cookbook.suggestRecipes(storage));
+
+    storage.addIngredient(new Ingredient("Butter", 0.1, "kilogram", freshDate, 30.0));
+    List<Recipe> second = cookbook.suggestRecipes(storage);
+    Assertions.assertEquals(1, second.size());
+    Assertions.assertEquals("Pancakes", second.get(0).getName());
+  }
+
+  @Test
+  @DisplayName("Test missing ingredients are cached per recipe")
+  public void CookbookTest3() {
+    Recipe pancakes = cookbook.getRecipeByName("pancakes");
+
+    Map<String, Double> missing = cookbook.getMissingIngredients(pancakes, storage);
+    Assertions.assertEquals(2, missing.size());
+    Assertions.assertSame(missing, cookbook.getMissingIngredients(pancakes, storage));
+
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter", freshDate, 20.0));
+    Assertions.assertEquals(1, cookbook.getMissingIngredients(pancakes, storage).size());
+  }
+
+  @Test
+  @DisplayName("Test nearest recipes are ranked by missing ingredients")
+  public void CookbookTest4() {
+    cookbook.addRecipe(new Recipe("Omelette", "Omelette.", "Whisk and fry.",
+        Map.of("egg", 3.0, "milk", 0.1, "cheese", 0.05),
+        Map.of("egg", "pieces", "milk", "dl", "cheese", "g")));
+    cookbook.addRecipe(new Recipe("Toast", "Toast.", "Toast it.",
+        Map.of("bread", 0.1), Map.of("bread", "kilogram")));
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter", freshDate, 20.0));
+    storage.addIngredient(new Ingredient("Egg", 6, "pieces", freshDate, 3.0));
+
+    // Omelette misses cheese, Pancakes butter and Toast bread, but Omelette has two in stock
+    List<Recipe> nearest = cookbook.nearestRecipes(storage, 3);
+    Assertions.assertEquals(List.of("Omelette", "Pancakes", "Toast"),
+        nearest.stream().map(Recipe::getName).toList());
+    Assertions.assertEquals(1, cookbook.nearestRecipes(storage, 1).size());
+    Assertions.assertEquals(3, cookbook.nearestRecipes(storage, 10).size());
+
+    storage.addIngredient(new Ingredient("Bread", 0.5, "kilogram", freshDate, 40.0));
+    Assertions.assertEquals("Toast", cookbook.nearestRecipes(storage, 1).get(0).getName());
+  }
+
+  @Test
+  @DisplayName("Test nearest recipes ignore expired lots and follow cookbook changes")
+  public void CookbookTest5() throws Exception {
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter", freshDate, 20.0));
+    storage.addIngredient(new Ingredient("Butter", 0.1, "kilogram",
+        DATE_FORMAT.parse("01.01.2000"), 30.0));
+    Recipe toast = new Recipe("Toast", "Toast.", "Toast it.",
+        Map.of("butter", 10.0), Map.of("butter", "g"));
+    cookbook.addRecipe(toast);
+
+    // Both miss the butter, which has expired, but Pancakes has the milk in stock
+    Recipe pancakes = cookbook.getRecipeByName("Pancakes");
+    Assertions.assertEquals(List.of(pancakes, toast), cookbook.nearestRecipes(storage, 5));
+
+    cookbook.removeRecipe(pancakes);
+    Assertions.assertEquals(List.of(toast), cookbook.nearestRecipes(storage, 5));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> cookbook.nearestRecipes(storage, 0));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> cookbook.nearestRecipes(null, 1));
+  }
+
+  @Test
+  @DisplayName("Test texts of removed recipes do not keep growing the text store")
+  public void CookbookTest6() {
+    Random random = new Random(7);
+    String kept = randomText(random, 30_000);
+    Recipe stew = new Recipe("Stew", "Slow stew.", kept, Map.of("beef", 0.5), Map.of("beef", "kg"));
+    cookbook.addRecipe(stew);
+    Recipe scaled = stew.scale(4);
+
+    for (int i = 0; i < 400; i++) {
+      String instructions = randomText(random, 20_000);
+      Recipe soup = new Recipe("Soup " + i, "Soup.", instructions,
+          Map.of("water", 1.0), Map.of("water", "liter"));
+      cookbook.addRecipe(soup);
+      cookbook.removeRecipe(soup);
+      Assertions.assertEquals(instructions, soup.getInstructions());
+    }
+
+    // Without compaction the removed texts would take about six megabytes
+    Assertions.assertTrue(cookbook.getStoredTextBytes() < 2_500_000,
+        "Stored " + cookbook.getStoredTextBytes() + " bytes");
+    Assertions.assertEquals(kept, stew.getInstructions());
+    Assertions.assertEquals(kept, scaled.getInstructions());
+    Assertions.assertEquals("Slow stew.", cookbook.getRecipeByName("stew").getDescription());
+  }
+
+  @Test
+  @DisplayName("Test text search still finds the right recipes after most have been removed")
+  public void CookbookTest7() {
+    for (int i = 0; i < 200; i++) {
+      cookbook.addRecipe(new Recipe("Soup " + i, "Soup number n" + i + ".",
+          i % 20 == 0 ? "Boil with onion." : "Boil.", Map.of("water", 1.0),
+          Map.of("water", "liter")));
+    }
+    for (int i = 0; i < 200; i++) {
+      if (i % 10 != 0) {
+        cookbook.removeRecipe(cookbook.getRecipeByName("Soup " + i));
+      }
+    }
+    cookbook.addRecipe(new Recipe("Onion Soup", "Soup of onion.", "Fry onion and boil.",
+        Map.of("onion", 0.5), Map.of("onion", "kg")));
+
+    List<Recipe> boiled = cookbook.searchText("boil");
+    Assertions.assertEquals(21, boiled.size());
+    Assertions.assertEquals("Soup 0", boiled.get(0).getName());
+    Assertions.assertEquals("Onion Soup", boiled.get(20).getName());
+    Assertions.assertEquals(List.of(cookbook.getRecipeByName("Soup 50")),
+        cookbook.searchText("n50"));
+    Assertions.assertEquals("Onion Soup", cookbook.searchTextRanked("onion", 1).get(0).getName());
+    Assertions.assertEquals(11, cookbook.searchTextRanked("onion", 20).size());
+  }
+
+  private static String randomText(Random random, int length) {
+    StringBuilder text = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      text.append((char) ('a' + random.nextInt(26)));
+    }
+    return text.toString();
+  }
+
+  @Test
+  @DisplayName("Test nearest recipes stay right as recipes are added between queries")
+  public void CookbookTest8() {
+    Random random = new Random(8);
+    for (int i = 0; i < 300; i += 3) {
+      storage.addIngredient(new Ingredient("ingredient " + i, 1.0, "kilogram", freshDate, 10.0));
+    }
+
+    List<Recipe> added = new ArrayList<>(cookbook.getAllRecipes());
+    for (int batch = 0; batch < 12; batch++) {
+      for (int i = 0; i < 40; i++) {
+        Map<String, Double> ingredients = new HashMap<>();
+        Map<String, String> units = new HashMap<>();
+        for (int count = 2 + random.nextInt(6); ingredients.size() < count; ) {
+          // Late batches bring new ingredients that soon become the most common ones
+          int id = batch < 6 ? (int) Math.pow(random.nextInt(150), 1.3)
+              : 150 + random.nextInt(150);
+          ingredients.put("ingredient " + id, 100.0);
+          units.put("ingredient " + id, "g");
+        }
+        Recipe recipe = new Recipe("Recipe " + added.size(), "Generated.", "Cook.", ingredients,
+            units);
+        cookbook.addRecipe(recipe);
+        added.add(recipe);
+      }
+
+      List<Recipe> expected = new ArrayList<>(added);
+      expected.sort(Comparator.comparingInt((Recipe recipe) -> missing(recipe))
+          .thenComparingInt(recipe -> missing(recipe) - recipe.getIngredients().size()));
+      Assertions.assertEquals(expected.subList(0, 10), cookbook.nearestRecipes(storage, 10),
+          "after batch " + batch);
+    }
+  }
+
+  private int missing(Recipe recipe) {
+    int missing = 0;
+    for (String name : recipe.getIngredients().keySet()) {
+      if (storage.getAggregate(name, recipe.getUnits().get(name)) == null) {
+        missing++;
+      }
+    }
+    return missing;
+  }
+}
@@ -0,0 +1,134 @@
+package edu.ntnu.idi.idatt;
+
+import edu.ntnu.idi.idatt.foodstorage.Cookbook;
+import edu.ntnu.idi.idatt.foodstorage.FederatedStorage;
+import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.foodstorage.IngredientAggregate;
+import edu.ntnu.idi.idatt.foodstorage.IngredientOrder;
+import edu.ntnu.idi.idatt.foodstorage.IngredientPage;
+import edu.ntnu.idi.idatt.foodstorage.LocatedLot;
+import edu.ntnu.idi.idatt.foodstorage.Recipe;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class FederatedStorageTest {
+
+  private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("dd.MM.yyyy");
+
+  private FoodStorage fridge;
+  private FoodStorage freezer;
+  private FederatedStorage home;
+  private Date freshDate;
+  private Date expiredDate;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    fridge = new FoodStorage();
+    freezer = new FoodStorage();
+    Map<String, FoodStorage> locations = new LinkedHashMap<>();
+    locations.put("fridge", fridge);
+    locations.put("freezer", freezer);
+    home = new FederatedStorage(locations);
+    freshDate = DATE_FORMAT.parse("01.01.2090");
+    expiredDate = DATE_FORMAT.parse("01.01.2000");
+  }
+
+  @Test
+  @DisplayName("Test lookups report the location the lot is taken from")
+  public void FederatedStorageTest1() {
+    Ingredient frozenButter = new Ingredient("Butter", 0.5, "kilogram", freshDate, 90.0);
+    freezer.addIngredient(frozenButter);
+    fridge.addIngredient(new Ingredient("Butter", 0.2, "kilogram", expiredDate, 80.0));
+
+    LocatedLot butter = home.findLot("butter", "g");
+    Assertions.assertEquals("freezer", butter.getLocation());
+    Assertions.assertSame(freezer.searchIngredient("Butter", "kilogram", 90.0, freshDate),
+        butter.getLot());
+    Assertions.assertEquals("freezer", home.locationOf(butter.getLot()));
+    Assertions.assertNull(home.findLot("milk", "liter"));
+
+    Ingredient fridgeButter = new Ingredient("Butter", 0.1, "kilogram", freshDate, 85.0);
+    fridge.addIngredient(fridgeButter);
+    Assertions.assertEquals("fridge", home.findLot("butter", "kilogram").getLocation());
+    Assertions.assertEquals(List.of("fridge", "freezer"), home.getLocations());
+    Assertions.assertEquals(3, home.size());
+    Assertions.assertEquals(3, home.listAllIngredients().length);
+  }
+
+  @Test
+  @DisplayName("Test aggregates are merged across locations")
+  public void FederatedStorageTest2() {
+    fridge.addIngredient(new Ingredient("Milk", 1.0, "liter", freshDate, 20.0));
+    fridge.addIngredient(new Ingredient("Milk", 2.0, "dl", expiredDate, 2.0));
+    freezer.addIngredient(new Ingredient("Milk", 500, "ml", freshDate, 0.02));
+    freezer.addIngredient(new Ingredient("Peas", 1.0, "kilogram", freshDate, 40.0));
+
+    IngredientAggregate milk = home.getAggregate("milk", "dl");
+    Assertions.assertEquals(1.7, milk.getTotalQuantity(), 1e-9);
+    Assertions.assertEquals(1.5, milk.getNonExpiredQuantity(), 1e-9);
+    Assertions.assertEquals(3, milk.getLotCount());
+    Assertions.assertEquals(34.0, milk.getTotalValue(), 1e-9);
+    Assertions.assertSame(freezer.getAggregate("peas", "g"), home.getAggregate("peas", "g"));
+    Assertions.assertEquals(2, home.getAggregates().size());
+    Assertions.assertEquals(fridge.calculateTotalValue() + freezer.calculateTotalValue(),
+        home.calculateTotalValue(), 1e-9);
+  }
+
+  @Test
+  @DisplayName("Test recipes are checked against every location together")
+  public void FederatedStorageTest3() {
+    Cookbook cookbook = new Cookbook();
+    Recipe pancakes = new Recipe("Pancakes", "Thin pancakes.", "Mix and fry.",
+        Map.of("milk", 0.5, "butter", 0.05), Map.of("milk", "liter", "butter", "kilogram"));
+    cookbook.addRecipe(pancakes);
+    fridge.addIngredient(new Ingredient("Milk", 1.0, "liter", freshDate, 20.0));
+
+    Assertions.assertFalse(pancakes.canMake(fridge));
+    Assertions.assertTrue(cookbook.suggestRecipes(home).isEmpty());
+    Assertions.assertEquals(Map.of("butter", 0.05), cookbook.getMissingIngredients(pancakes, home));
+
+    // A change in any location is seen through the view
+    freezer.addIngredient(new Ingredient("Butter", 0.5, "kilogram", freshDate, 90.0));
+    Assertions.assertTrue(pancakes.canMake(home));
+    Assertions.assertEquals(List.of(pancakes), cookbook.suggestRecipes(home));
+    Assertions.assertEquals(2, pancakes.maxServings(home));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> new FederatedStorage(Map.of()));
+  }
+
+  @Test
+  @DisplayName("Test pages merge the locations in order and list a lot kept in both once each")
+  public void FederatedStorageTest4() {
+    fridge.addIngredient(new Ingredient("Milk", 1.0, "liter", freshDate, 20.0));
+    fridge.addIngredient(new Ingredient("Butter", 0.5, "kilogram", freshDate, 90.0));
+    fridge.addIngredient(new Ingredient("Peas", 100, "g", expiredDate, 0.05));
+    freezer.addIngredient(new Ingredient("Milk", 2.0, "liter", freshDate, 20.0));
+    freezer.addIngredient(new Ingredient("Ice Cream", 1.0, "liter", freshDate, 40.0));
+
+    List<Ingredient> listed = new ArrayList<>();
+    IngredientPage page = home.listIngredientsPage(IngredientOrder.NAME, false, null, 2);
+    listed.addAll(page.getIngredients());
+    while (page.hasNext()) {
+      Assertions.assertEquals(2, page.getIngredients().size());
+      page = home.listIngredientsPage(IngredientOrder.NAME, false, page.getNextCursor(), 2);
+      listed.addAll(page.getIngredients());
+    }
+
+    Assertions.assertEquals(List.of("Butter", "Ice Cream", "Milk", "Milk", "Peas"),
+        listed.stream().map(Ingredient::getName).toList());
+    // The lot of the fridge comes first, as it is the first location
+    Assertions.assertEquals(List.of(1.0, 2.0),
+        listed.subList(2, 4).stream().map(Ingredient::getQuantity).toList());
+    Assertions.assertEquals(List.of("Peas"), home.listIngredientsPage(IngredientOrder.EXPIRY,
+        true, null, 10).getIngredients().stream().map(Ingredient::getName).toList());
+  }
+}
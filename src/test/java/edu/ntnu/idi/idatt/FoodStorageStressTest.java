@@ -0,0 +1,232 @@
+package edu.ntnu.idi.idatt;
+
+import edu.ntnu.idi.idatt.foodstorage.Cookbook;
+import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.foodstorage.IngredientAggregate;
+import edu.ntnu.idi.idatt.foodstorage.Recipe;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs adds, removes, searches and recipe suggestions from many threads at once and checks the
+ * storage afterwards. Every worker keeps count of what it added and removed, so any lost update
+ * shows up as a wrong quantity.
+ *
+ * <p>Each test runs a fixed number of operations per worker. Set the system property
+ * {@code stress.soakSeconds} to run each test for that many seconds instead.
+ */
+public class FoodStorageStressTest {
+
+  private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("dd.MM.yyyy");
+  private static final String[] NAMES = {"milk", "flour", "butter", "egg", "sugar", "cheese"};
+  private static final String[] UNITS = {"liter", "kilogram"};
+  private static final double[] PRICES = {10.0, 25.5};
+  private static final int OPERATIONS_PER_WORKER = 2_000;
+
+  private FoodStorage storage;
+  private Cookbook cookbook;
+  private List<Ingredient> templates;
+  private Map<String, Double> listenedQuantities;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    storage = new FoodStorage();
+    cookbook = new Cookbook();
+    templates = new ArrayList<>();
+    Date[] dates = {DATE_FORMAT.parse("01.01.2000"), DATE_FORMAT.parse("01.01.2090"),
+        DATE_FORMAT.parse("01.06.2090")};
+    for (String name : NAMES) {
+      for (double price : PRICES) {
+        for (Date date : dates) {
+          templates.add(new Ingredient(name, 1, UNITS[name.length() % 2], date, price));
+        }
+      }
+    }
+    for (int i = 0; i < NAMES.length; i++) {
+      String first = NAMES[i];
+      String second = NAMES[(i + 1) % NAMES.length];
+      cookbook.addRecipe(new Recipe("recipe " + i, "Stress test.", "Mix.",
+          Map.of(first, 2.0, second, 1.0),
+          Map.of(first, UNITS[first.length() % 2], second, UNITS[second.length() % 2])));
+    }
+    listenedQuantities = new ConcurrentHashMap<>();
+    storage.addListener((operation, lot, quantityDelta) ->
+        listenedQuantities.merge(keyOf(lot), quantityDelta, Double::sum));
+  }
+
+  @Test
+  @DisplayName("Test parallel adds and removes on platform threads lose no updates")
+  public void FoodStorageStressTest1() throws Exception {
+    runWorkers(Executors.newFixedThreadPool(8), 8, false);
+  }
+
+  @Test
+  @DisplayName("Test parallel adds, removes and suggestions on virtual threads lose no updates")
+  public void FoodStorageStressTest2() throws Exception {
+    runWorkers(Executors.newVirtualThreadPerTaskExecutor(), 200, true);
+  }
+
+  @Test
+  @DisplayName("Test platform and virtual threads together keep the storage consistent")
+  public void FoodStorageStressTest3() throws Exception {
+    ExecutorService platform = Executors.newFixedThreadPool(4);
+    ExecutorService virtual = Executors.newVirtualThreadPerTaskExecutor();
+    ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+    long deadline = soakDeadline();
+    List<Future<long[]>> results = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      results.add(platform.submit(worker(i, true, deadline, failures)));
+    }
+    for (int i = 4; i < 100; i++) {
+      results.add(virtual.submit(worker(i, true, deadline, failures)));
+    }
+    checkResults(results, failures);
+    platform.shutdown();
+    virtual.shutdown();
+  }
+
+  private void runWorkers(ExecutorService executor, int workers, boolean suggest)
+      throws Exception {
+    ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+    long deadline = soakDeadline();
+    List<Future<long[]>> results = new ArrayList<>();
+    for (int i = 0; i < workers; i++) {
+      results.add(executor.submit(worker(i, suggest, deadline, failures)));
+    }
+    checkResults(results, failures);
+    executor.shutdown();
+  }
+
+  /**
+   * Creates a worker that runs random operations and returns, per template, the quantity it added
+   * minus the quantity it removed.
+   *
+   * @param seed     the seed of the worker
+   * @param suggest  true to also ask for recipe suggestions
+   * @param deadline the System.nanoTime to stop at, or 0 to run a fixed number of operations
+   * @param failures collects invariant violations seen while running
+   * @return the worker
+   */
+  private Callable<long[]> worker(int seed, boolean suggest, long deadline,
+      ConcurrentLinkedQueue<Throwable> failures) {
+    return () -> {
+      Random random = new Random(seed);
+      long[] net = new long[templates.size()];
+      for (int i = 0; deadline == 0 ? i < OPERATIONS_PER_WORKER : System.nanoTime() < deadline;
+          i++) {
+        int index = random.nextInt(templates.size());
+        Ingredient template = templates.get(index);
+        try {
+          int operation = random.nextInt(suggest ? 10 : 9);
+          if (operation < 4) {
+            int quantity = 1 + random.nextInt(3);
+            storage.addIngredient(copy(template, quantity));
+            net[index] += quantity;
+          } else if (operation < 7) {
+            try {
+              storage.removeIngredient(template.getName(), template.getUnit(),
+                  template.getPricePerUnit(), template.getBestBeforeDate(), 1);
+              net[index]--;
+            } catch (IllegalArgumentException e) {
+              // Another worker took the last of the lot first
+            }
+          } else if (operation == 7) {
+            Ingredient lot = storage.searchIngredient(template.getName(), template.getUnit(),
+                template.getPricePerUnit(), template.getBestBeforeDate());
+            if (lot != null && lot.getQuantity() < 0) {
+              failures.add(new AssertionError("Negative quantity seen: " + lot));
+            }
+          } else if (operation == 8) {
+            if (storage.calculateTotalValue() < 0) {
+              failures.add(new AssertionError("Negative total value seen."));
+            }
+          } else {
+            for (Recipe recipe : cookbook.suggestRecipes(storage)) {
+              if (cookbook.getRecipeByName(recipe.getName()) != recipe) {
+                failures.add(new AssertionError("Unknown recipe suggested: " + recipe.getName()));
+              }
+            }
+          }
+        } catch (RuntimeException e) {
+          failures.add(e);
+        }
+      }
+      return net;
+    };
+  }
+
+  private void checkResults(List<Future<long[]>> results,
+      ConcurrentLinkedQueue<Throwable> failures) throws Exception {
+    long[] expected = new long[templates.size()];
+    for (Future<long[]> result : results) {
+      long[] net = result.get();
+      for (int i = 0; i < expected.length; i++) {
+        expected[i] += net[i];
+      }
+    }
+    Assertions.assertTrue(failures.isEmpty(), "Failures while running: " + failures);
+
+    // No lost updates: every lot holds exactly what the workers added and removed
+    for (int i = 0; i < expected.length; i++) {
+      Ingredient template = templates.get(i);
+      Ingredient lot = storage.searchIngredient(template.getName(), template.getUnit(),
+          template.getPricePerUnit(), template.getBestBeforeDate());
+      if (expected[i] == 0) {
+        Assertions.assertNull(lot, "Lot left at zero quantity: " + template.getName());
+      } else {
+        Assertions.assertEquals(expected[i], lot.getQuantity(), 1e-9);
+      }
+      Assertions.assertEquals(expected[i],
+          listenedQuantities.getOrDefault(keyOf(template), 0.0), 1e-9);
+    }
+
+    // Quantities are positive, and the totals and aggregates equal the sums of the lots
+    Ingredient[] lots = storage.listAllIngredients();
+    double totalValue = 0;
+    Map<String, Double> quantityByName = new HashMap<>();
+    for (Ingredient lot : lots) {
+      Assertions.assertTrue(lot.getQuantity() > 0, "Lot not removed at zero: " + lot);
+      totalValue += lot.getTotalValue();
+      quantityByName.merge(lot.getName(), lot.getQuantity(), Double::sum);
+    }
+    Assertions.assertEquals(totalValue, storage.calculateTotalValue(), 1e-6);
+    for (String name : NAMES) {
+      IngredientAggregate aggregate = storage.getAggregate(name, UNITS[name.length() % 2]);
+      double quantity = quantityByName.getOrDefault(name, 0.0);
+      Assertions.assertEquals(quantity, aggregate == null ? 0 : aggregate.getTotalQuantity(),
+          1e-6);
+    }
+  }
+
+  private static long soakDeadline() {
+    String soakSeconds = System.getProperty("stress.soakSeconds");
+    return soakSeconds == null ? 0
+        : System.nanoTime() + Long.parseLong(soakSeconds) * 1_000_000_000L;
+  }
+
+  private static Ingredient copy(Ingredient template, double quantity) {
+    return new Ingredient(template.getName(), quantity, template.getUnit(),
+        template.getBestBeforeDate(), template.getPricePerUnit());
+  }
+
+  private static String keyOf(Ingredient lot) {
+    return lot.getName() + '\u0000' + lot.getPricePerUnit() + '\u0000'
+        + lot.getBestBeforeDate().getTime();
+  }
+}
@@ -2,13 +2,22 @@ package edu.ntnu.idi.idatt;
 
 import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
 import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.foodstorage.IngredientAggregate;
+import edu.ntnu.idi.idatt.foodstorage.IngredientOrder;
+import edu.ntnu.idi.idatt.foodstorage.IngredientPage;
+import edu.ntnu.idi.idatt.foodstorage.Recipe;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 
 import java.text.SimpleDateFormat;
+import java.util.ConcurrentModificationException;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.stream.Stream;
 
 public class FoodStorageTest {
 
@@ -178,4 +187,245 @@ public class FoodStorageTest {
     Ingredient[] ingredients = storage.listAllIngredients();
     Assertions.assertEquals(2, ingredients.length);
   }
+
+  @Test
+  @DisplayName("Test listing ingredients page by page in name and expiry order")
+  public void FoodStorageTest13() throws Exception {
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter",
+        DATE_FORMAT.parse("01.01.2020"), 20.0));
+    storage.addIngredient(new Ingredient("Butter", 0.2, "kilogram",
+        DATE_FORMAT.parse("01.01.2090"), 30.0));
+    storage.addIngredient(new Ingredient("Cheese", 0.5, "kilogram",
+        DATE_FORMAT.parse("01.01.2019"), 50.0));
+
+    IngredientPage first = storage.listIngredientsPage(IngredientOrder.NAME, false, null, 2);
+    Assertions.assertEquals(2, first.getIngredients().size());
+    Assertions.assertEquals("Butter", first.getIngredients().get(0).getName());
+    Assertions.assertEquals("Cheese", first.getIngredients().get(1).getName());
+    Assertions.assertTrue(first.hasNext());
+
+    IngredientPage second = storage.listIngredientsPage(IngredientOrder.NAME, false,
+        first.getNextCursor(), 2);
+    Assertions.assertEquals(1, second.getIngredients().size());
+    Assertions.assertEquals("Milk", second.getIngredients().get(0).getName());
+    Assertions.assertFalse(second.hasNext());
+
+    IngredientPage expired = storage.listIngredientsPage(IngredientOrder.EXPIRY, true, null, 10);
+    Assertions.assertEquals(2, expired.getIngredients().size());
+    Assertions.assertEquals("Cheese", expired.getIngredients().get(0).getName());
+    Assertions.assertEquals("Milk", expired.getIngredients().get(1).getName());
+  }
+
+  @Test
+  @DisplayName("Test top-K lots by expiry and value and ingredients by quantity")
+  public void FoodStorageTest14() throws Exception {
+    Date soon = DATE_FORMAT.parse("01.01.2080");
+    Date later = DATE_FORMAT.parse("01.01.2090");
+    storage.addIngredient(new Ingredient("Milk", 2.0, "liter", later, 20.0));
+    storage.addIngredient(new Ingredient("Milk", 500.0, "ml", soon, 0.02));
+    storage.addIngredient(new Ingredient("Beef", 1.0, "kilogram", later, 200.0));
+    storage.addIngredient(new Ingredient("Cheese", 0.5, "kilogram",
+        DATE_FORMAT.parse("01.01.2019"), 100.0));
+
+    List<Ingredient> soonest = storage.soonestExpiring(2);
+    Assertions.assertEquals(2, soonest.size());
+    Assertions.assertEquals("ml", soonest.get(0).getUnit());
+
+    List<Ingredient> valuable = storage.highestValue(2);
+    Assertions.assertEquals("Beef", valuable.get(0).getName());
+    Assertions.assertEquals("Cheese", valuable.get(1).getName());
+
+    storage.removeIngredient("Beef", "kilogram", 200.0, later, 0.9);
+    Assertions.assertEquals("Cheese", storage.highestValue(1).get(0).getName());
+
+    List<IngredientAggregate> largest = storage.largestQuantities(1);
+    Assertions.assertEquals("milk", largest.get(0).getName());
+    Assertions.assertEquals("liter", largest.get(0).getUnit());
+    Assertions.assertEquals(2.5, largest.get(0).getTotalQuantity(), 0.0001);
+    Assertions.assertEquals(2, largest.get(0).getLotCount());
+  }
+
+  @Test
+  @DisplayName("Test aggregates combine lots in standard units and follow every change")
+  public void FoodStorageTest15() throws Exception {
+    Date fresh = DATE_FORMAT.parse("01.01.2090");
+    Date expired = DATE_FORMAT.parse("01.01.2019");
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter", fresh, 20.0));
+    storage.addIngredient(new Ingredient("Milk", 5.0, "dl", fresh, 2.0));
+    storage.addIngredient(new Ingredient("Milk", 2.0, "liter", expired, 10.0));
+
+    IngredientAggregate milk = storage.getAggregate("MILK", "ml");
+    Assertions.assertEquals(3.5, milk.getTotalQuantity(), 0.0001);
+    Assertions.assertEquals(1.5, milk.getNonExpiredQuantity(), 0.0001);
+    Assertions.assertEquals(50.0, milk.getTotalValue(), 0.0001);
+    Assertions.assertEquals(3, milk.getLotCount());
+
+    storage.removeIngredient("Milk", "dl", 2.0, fresh, 5.0);
+    storage.removeIngredient("Milk", "liter", 10.0, expired, 1.0);
+    Assertions.assertEquals(2.0, milk.getTotalQuantity(), 0.0001);
+    Assertions.assertEquals(1.0, milk.getNonExpiredQuantity(), 0.0001);
+    Assertions.assertEquals(30.0, milk.getTotalValue(), 0.0001);
+    Assertions.assertEquals(2, milk.getLotCount());
+
+    storage.removeIngredient("Milk", "liter", 20.0, fresh, 1.0);
+    storage.removeIngredient("Milk", "liter", 10.0, expired, 1.0);
+    Assertions.assertNull(storage.getAggregate("milk", "liter"));
+  }
+
+  @Test
+  @DisplayName("Test cooking takes from the soonest expiring lots across units")
+  public void FoodStorageTest16() throws Exception {
+    Date expired = DATE_FORMAT.parse("01.01.2000");
+    Date soon = DATE_FORMAT.parse("01.01.2080");
+    Date later = DATE_FORMAT.parse("01.01.2090");
+    storage.addIngredient(new Ingredient("Milk", 2.0, "liter", expired, 10.0));
+    storage.addIngredient(new Ingredient("Milk", 3.0, "dl", soon, 2.0));
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter", later, 20.0));
+    Recipe recipe = new Recipe("Pancakes", "Pancakes.", "Fry.",
+        Map.of("milk", 0.5), Map.of("milk", "liter"));
+
+    List<Ingredient> taken = storage.cook(recipe);
+
+    Assertions.assertEquals(2, taken.size());
+    Assertions.assertEquals(3.0, taken.get(0).getQuantity(), 1e-9);
+    Assertions.assertEquals(0.2, taken.get(1).getQuantity(), 1e-9);
+    Assertions.assertNull(storage.searchIngredient("Milk", "dl", 2.0, soon));
+    Assertions.assertEquals(0.8,
+        storage.searchIngredient("Milk", "liter", 20.0, later).getQuantity(), 1e-9);
+    Assertions.assertEquals(2.0,
+        storage.searchIngredient("Milk", "liter", 10.0, expired).getQuantity(), 1e-9);
+  }
+
+  @Test
+  @DisplayName("Test cooking with a missing ingredient changes nothing")
+  public void FoodStorageTest17() throws Exception {
+    Date date = DATE_FORMAT.parse("01.01.2090");
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter", date, 20.0));
+    storage.addIngredient(new Ingredient("Flour", 0.1, "kilogram", date, 15.0));
+    Recipe recipe = new Recipe("Pancakes", "Pancakes.", "Fry.",
+        Map.of("milk", 0.5, "flour", 0.2), Map.of("milk", "liter", "flour", "kilogram"));
+    long version = storage.getModificationVersion();
+
+    Assertions.assertThrows(IllegalArgumentException.class, () -> storage.cook(recipe));
+    Assertions.assertEquals(version, storage.getModificationVersion());
+    Assertions.assertEquals(1.0, storage.getAggregate("milk", "liter").getTotalQuantity(), 1e-9);
+    Assertions.assertEquals(0.1,
+        storage.getAggregate("flour", "kilogram").getTotalQuantity(), 1e-9);
+  }
+
+  @Test
+  @DisplayName("Test quantities added in small steps are removed exactly")
+  public void FoodStorageTest18() throws Exception {
+    Date date = DATE_FORMAT.parse("01.01.2090");
+    for (int i = 0; i < 10; i++) {
+      storage.addIngredient(new Ingredient("Milk", 0.1, "liter", date, 20.0));
+    }
+
+    storage.removeIngredient("Milk", "liter", 20.0, date, 1.0);
+
+    Assertions.assertEquals(0, storage.size());
+    Assertions.assertNull(storage.getAggregate("milk", "liter"));
+    Assertions.assertEquals(0.0, storage.calculateTotalValue());
+  }
+
+  @Test
+  @DisplayName("Test aggregates equal the sum of their lots after many changes")
+  public void FoodStorageTest19() throws Exception {
+    Date date = DATE_FORMAT.parse("01.01.2090");
+    for (int i = 1; i <= 100; i++) {
+      storage.addIngredient(new Ingredient("Flour", 0.3, "g", date, 0.013 * i));
+      storage.addIngredient(new Ingredient("Flour", 0.7, "kilogram", date, 15.1));
+      storage.removeIngredient("Flour", "kilogram", 15.1, date, 0.3);
+    }
+
+    long quantity = 0;
+    long value = 0;
+    for (Ingredient lot : storage.listAllIngredients()) {
+      quantity += lot.getUnit().equals("g") ? lot.getQuantityMicros() / 1000
+          : lot.getQuantityMicros();
+      value += lot.getTotalValueMicros();
+    }
+    IngredientAggregate flour = storage.getAggregate("flour", "kilogram");
+    Assertions.assertEquals(quantity, flour.getTotalQuantityMicros());
+    Assertions.assertEquals(40.03, flour.getTotalQuantity());
+    Assertions.assertEquals(value / 1e6, flour.getTotalValue());
+    Assertions.assertEquals(flour.getTotalValue(), storage.calculateTotalValue());
+  }
+
+  @Test
+  @DisplayName("Test streams over the lots see every lot once, also in parallel")
+  public void FoodStorageTest20() throws Exception {
+    Date date = DATE_FORMAT.parse("01.01.2090");
+    for (int i = 0; i < 5_000; i++) {
+      storage.addIngredient(new Ingredient("Item " + i, 1 + i % 7, "kilogram", date, 2.5));
+    }
+    storage.removeIngredient("Item 10", "kilogram", 2.5, date, 4);
+
+    Assertions.assertEquals(4_999, storage.stream().count());
+    Assertions.assertEquals(4_999, storage.stream().parallel().map(Ingredient::getName)
+        .distinct().count());
+    Assertions.assertEquals(storage.calculateTotalValue(),
+        storage.stream().parallel().mapToDouble(Ingredient::getTotalValue).sum(), 1e-6);
+
+    Spliterator<Ingredient> spliterator = storage.spliterator();
+    Assertions.assertTrue(spliterator.hasCharacteristics(Spliterator.SUBSIZED));
+    Spliterator<Ingredient> prefix = spliterator.trySplit();
+    Assertions.assertEquals(4_999, prefix.estimateSize() + spliterator.estimateSize());
+  }
+
+  @Test
+  @DisplayName("Test iterating fails fast when the storage changes")
+  public void FoodStorageTest21() throws Exception {
+    Date date = DATE_FORMAT.parse("01.01.2090");
+    for (int i = 0; i < 1_000; i++) {
+      storage.addIngredient(new Ingredient("Item " + i, 1, "kilogram", date, 2.5));
+    }
+
+    Assertions.assertThrows(ConcurrentModificationException.class, () -> storage.forEach(lot ->
+        storage.addIngredient(new Ingredient("Extra", 1, "kilogram", date, 1.0))));
+    Stream<Ingredient> stream = storage.stream();
+    storage.removeIngredient("Extra", "kilogram", 1.0, date, 1);
+    Assertions.assertThrows(ConcurrentModificationException.class, stream::toList);
+
+    int count = 0;
+    for (Ingredient lot : storage) {
+      count++;
+    }
+    Assertions.assertEquals(storage.size(), count);
+  }
+
+  @Test
+  @DisplayName("Test lots of one name are listed by name in best-before order")
+  public void FoodStorageTest22() throws Exception {
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter",
+        DATE_FORMAT.parse("02.01.2090"), 10.0));
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter",
+        DATE_FORMAT.parse("15.12.2089"), 9.0));
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter",
+        DATE_FORMAT.parse("01.02.2089"), 12.0));
+    storage.addIngredient(new Ingredient("Apple", 3.0, "piece",
+        DATE_FORMAT.parse("01.01.2095"), 5.0));
+
+    List<Ingredient> lots =
+        storage.listIngredientsPage(IngredientOrder.NAME, false, null, 10).getIngredients();
+    Assertions.assertEquals(List.of("Apple", "Milk", "Milk", "Milk"),
+        lots.stream().map(Ingredient::getName).toList());
+    Assertions.assertEquals(List.of(12.0, 9.0, 10.0),
+        lots.subList(1, 4).stream().map(Ingredient::getPricePerUnit).toList());
+  }
+
+  @Test
+  @DisplayName("Test lots cannot be changed behind the back of the storage")
+  public void FoodStorageTest23() throws Exception {
+    Date date = DATE_FORMAT.parse("01.01.2090");
+    Ingredient milk = new Ingredient("Milk", 1.0, "liter", date, 10.0);
+    storage.addIngredient(milk);
+    milk.setQuantity(5.0);
+
+    Ingredient stored = storage.searchIngredient("Milk", "liter", 10.0, date);
+    Assertions.assertEquals(1.0, stored.getQuantity());
+    Assertions.assertThrows(UnsupportedOperationException.class, () -> stored.setQuantity(5.0));
+    Assertions.assertEquals(10.0, storage.calculateTotalValue(), 1e-9);
+    Assertions.assertEquals(1.0, storage.getAggregate("milk", "liter").getTotalQuantity(), 1e-9);
+  }
 }
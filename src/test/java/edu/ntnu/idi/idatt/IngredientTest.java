@@ -3,10 +3,12 @@ package edu.ntnu.idi.idatt;
 import static org.junit.jupiter.api.Assertions.*;
 
 import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.utils.ValidationResult;
 import java.text.SimpleDateFormat;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import java.util.Date;
+import java.util.List;
 
 public class IngredientTest {
 
@@ -139,4 +141,25 @@ public class IngredientTest {
     String expectedString = "Milk: 1.75 liter, Best before: 15.12.2024, Price per unit: 33.6";
     assertEquals(expectedString, ingredient.toString());
   }
+
+  @Test
+  @DisplayName("Testing tryCreate collects every problem without throwing")
+  public void IngredientTest14() throws Exception {
+    Date bestBeforeDate = DATE_FORMAT.parse("15.12.2024");
+    ValidationResult result = new ValidationResult();
+
+    assertNull(Ingredient.tryCreate(" ", -1.0, "liter", null, -5.0, result));
+    assertEquals(4, result.getErrorCount());
+    assertEquals("name", result.getField(0));
+    assertEquals("Ingredient name cannot be null or empty.", result.getMessage(0));
+    assertEquals("Ingredient quantity cannot be negative.", result.getMessage(1));
+    assertEquals("bestBeforeDate", result.getField(3));
+
+    result.clear();
+    Ingredient milk = Ingredient.tryCreate("Milk", 1.75, "liter", bestBeforeDate, 33.60, result);
+    assertTrue(result.isValid());
+    assertEquals(1.75, milk.getQuantity(), 0.001);
+    assertNull(Ingredient.tryCreate("Milk", Double.NaN, "liter", bestBeforeDate, 33.60, result));
+    assertEquals(List.of("Value NaN is out of range."), result.getMessages());
+  }
 }
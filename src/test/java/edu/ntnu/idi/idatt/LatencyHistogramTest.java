@@ -0,0 +1,44 @@
+package edu.ntnu.idi.idatt;
+
+import edu.ntnu.idi.idatt.metrics.LatencyHistogram;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  @DisplayName("Test empty histogram reports zero")
+  public void LatencyHistogramTest1() {
+    LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+    Assertions.assertEquals(0, snapshot.getCount());
+    Assertions.assertEquals(0, snapshot.getPercentile(99));
+    Assertions.assertEquals(0.0, snapshot.getMean());
+  }
+
+  @Test
+  @DisplayName("Test percentiles stay within the bucket precision")
+  public void LatencyHistogramTest2() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 1; value <= 10_000; value++) {
+      histogram.record(value * 1_000);
+    }
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+    Assertions.assertEquals(10_000, snapshot.getCount());
+    Assertions.assertEquals(10_000_000, snapshot.getMax());
+    Assertions.assertEquals(5_000_500.0, snapshot.getMean(), 0.001);
+    Assertions.assertEquals(5_000_000, snapshot.getPercentile(50), 5_000_000 * 0.125);
+    Assertions.assertEquals(9_900_000, snapshot.getPercentile(99), 9_900_000 * 0.125);
+    Assertions.assertTrue(snapshot.getPercentile(99) <= snapshot.getMax());
+  }
+
+  @Test
+  @DisplayName("Test reset clears recorded values")
+  public void LatencyHistogramTest3() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(42);
+    histogram.reset();
+    Assertions.assertEquals(0, histogram.snapshot().getCount());
+  }
+}
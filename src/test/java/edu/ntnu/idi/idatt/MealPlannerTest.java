@@ -0,0 +1,78 @@
+package edu.ntnu.idi.idatt;
+
+import edu.ntnu.idi.idatt.foodstorage.Cookbook;
+import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.foodstorage.MealPlan;
+import edu.ntnu.idi.idatt.foodstorage.MealPlanner;
+import edu.ntnu.idi.idatt.foodstorage.Recipe;
+import java.util.Date;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class MealPlannerTest {
+
+  private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+  private FoodStorage storage;
+  private Cookbook cookbook;
+
+  @BeforeEach
+  public void setUp() {
+    storage = new FoodStorage();
+    cookbook = new Cookbook();
+  }
+
+  private static Date inDays(double days) {
+    return new Date(System.currentTimeMillis() + (long) (days * DAY_MILLIS));
+  }
+
+  @Test
+  @DisplayName("Test the plan prefers the recipe using the stock that expires soonest")
+  public void MealPlannerTest1() {
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter", inDays(1), 20.0));
+    storage.addIngredient(new Ingredient("Flour", 1.0, "kilogram", inDays(300), 30.0));
+    cookbook.addRecipe(new Recipe("Porridge", "Porridge.", "Boil.",
+        Map.of("milk", 1.0), Map.of("milk", "liter")));
+    cookbook.addRecipe(new Recipe("Bread", "Bread.", "Bake.",
+        Map.of("flour", 1.0), Map.of("flour", "kilogram")));
+
+    MealPlan plan = new MealPlanner(3, 0).plan(storage, cookbook);
+
+    Assertions.assertEquals(1, plan.getMeals().size());
+    Assertions.assertEquals("Porridge", plan.getMeals().get(0).getName());
+    Assertions.assertEquals(20.0, plan.getSavedValue(), 1e-9);
+    Assertions.assertEquals(20.0, plan.getExpiringValue(), 1e-9);
+  }
+
+  @Test
+  @DisplayName("Test meals share the stock and are cooked before it expires")
+  public void MealPlannerTest2() {
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter", inDays(2), 10.0));
+    storage.addIngredient(new Ingredient("Eggs", 4.0, "kilogram", inDays(1.5), 5.0));
+    cookbook.addRecipe(new Recipe("Pancakes", "Pancakes.", "Fry.",
+        Map.of("milk", 0.5, "eggs", 2.0), Map.of("milk", "liter", "eggs", "kilogram")));
+    cookbook.addRecipe(new Recipe("Omelette", "Omelette.", "Fry.",
+        Map.of("eggs", 2.0), Map.of("eggs", "kilogram")));
+
+    MealPlan plan = new MealPlanner(5, 50).plan(storage, cookbook);
+
+    // Eggs last only until tomorrow, so at most two meals can use them
+    Assertions.assertEquals(2, plan.getMeals().size());
+    Assertions.assertEquals("Pancakes", plan.getMeals().get(1).getName());
+    Assertions.assertEquals(30.0, plan.getSavedValue(), 1e-9);
+    Assertions.assertEquals(30.0, plan.getExpiringValue(), 1e-9);
+  }
+
+  @Test
+  @DisplayName("Test invalid planner arguments are rejected")
+  public void MealPlannerTest3() {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new MealPlanner(0, 10));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new MealPlanner(7, -1));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> new MealPlanner(7, 0).plan(storage, null));
+  }
+}
@@ -0,0 +1,127 @@
+package edu.ntnu.idi.idatt;
+
+import edu.ntnu.idi.idatt.utils.NameIndex;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class NameIndexTest {
+
+  private NameIndex index;
+
+  @BeforeEach
+  public void setUp() {
+    index = new NameIndex();
+    index.add("Milk");
+    index.add("Milk Chocolate");
+    index.add("Mild Cheddar");
+    index.add("Butter");
+    index.add("Buttermilk");
+  }
+
+  @Test
+  @DisplayName("Test exact match ranks before longer prefix matches")
+  public void NameIndexTest1() {
+    List<String> matches = index.search("milk", 10);
+    Assertions.assertEquals("milk", matches.get(0));
+    Assertions.assertEquals("milk chocolate", matches.get(1));
+  }
+
+  @Test
+  @DisplayName("Test prefix matches are found from partial words")
+  public void NameIndexTest2() {
+    List<String> matches = index.search("  BUT ", 10);
+    Assertions.assertEquals(List.of("butter", "buttermilk"), matches);
+  }
+
+  @Test
+  @DisplayName("Test misspelled names are found within the edit distance")
+  public void NameIndexTest3() {
+    Assertions.assertEquals(List.of("butter"), index.search("buter", 10));
+    Assertions.assertEquals(List.of("milk"), index.search("mlik", 10).subList(0, 1));
+    Assertions.assertTrue(index.search("xyz", 10).isEmpty());
+  }
+
+  @Test
+  @DisplayName("Test names stay until every reference is removed")
+  public void NameIndexTest4() {
+    index.add("Milk");
+    index.remove("milk");
+    Assertions.assertTrue(index.contains("milk"));
+    index.remove("MILK");
+    Assertions.assertFalse(index.contains("milk"));
+    Assertions.assertFalse(index.search("milk", 10).contains("milk"));
+  }
+
+  @Test
+  @DisplayName("Test typos are still found among many names with the same first and last letter")
+  public void NameIndexTest5() {
+    index.add("Mozzarella");
+    // Many names starting with "m" and ending with "k" like "milk"
+    for (int i = 0; i <= 20_000; i++) {
+      StringBuilder name = new StringBuilder("m");
+      for (int n = i, letter = 0; letter < 4; letter++, n /= 26) {
+        name.append((char) ('a' + n % 26));
+      }
+      index.add(name.append('k').toString());
+    }
+
+    Assertions.assertTrue(index.search("mlik", 50).contains("milk"));
+    Assertions.assertEquals(List.of("mozzarella"), index.search("mozarela", 5));
+  }
+
+  @Test
+  @DisplayName("Test the shortest prefix matches are found behind many longer ones")
+  public void NameIndexTest6() {
+    for (int i = 0; i < 100; i++) {
+      index.add("Mild Salsa " + i);
+    }
+    index.add("Mint");
+    index.add("Mince");
+
+    Assertions.assertEquals(List.of("milk", "mint", "mince"), index.search("mi", 3));
+    Assertions.assertEquals(List.of("milk", "mild cheddar"), index.search("mil", 2));
+    IllegalArgumentException e =
+        Assertions.assertThrows(IllegalArgumentException.class, () -> index.add(" "));
+    Assertions.assertEquals("Name cannot be null or empty.", e.getMessage());
+  }
+
+  @Test
+  @DisplayName("Test names are found from queries with up to two edits anywhere in them")
+  public void NameIndexTest7() {
+    Random random = new Random(7);
+    List<String> names = new ArrayList<>();
+    for (int i = 0; i < 2_000; i++) {
+      StringBuilder name = new StringBuilder();
+      for (int length = 7 + random.nextInt(8); name.length() < length; ) {
+        name.append((char) ('a' + random.nextInt(4)));
+      }
+      names.add(name.toString());
+      index.add(name.toString());
+    }
+
+    for (String name : names) {
+      StringBuilder query = new StringBuilder(name);
+      int at = random.nextInt(query.length() - 1);
+      if (random.nextInt(4) == 0) {
+        // Two swapped letters are one edit
+        query.setCharAt(at, name.charAt(at + 1));
+        query.setCharAt(at + 1, name.charAt(at));
+      } else {
+        for (int edit = 0; edit < 2; edit++, at = random.nextInt(query.length() - 1)) {
+          switch (random.nextInt(3)) {
+            case 0 -> query.deleteCharAt(at);
+            case 1 -> query.insert(at, (char) ('a' + random.nextInt(4)));
+            default -> query.setCharAt(at, (char) ('a' + random.nextInt(4)));
+          }
+        }
+      }
+      Assertions.assertTrue(index.search(query.toString(), 5_000).contains(name),
+          name + " from " + query);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package edu.ntnu.idi.idatt;
+
+import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.foodstorage.OffHeapLotStore;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class OffHeapLotStoreTest {
+
+  private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("dd.MM.yyyy");
+
+  private OffHeapLotStore store;
+  private Date freshDate;
+  private Date expiredDate;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    store = new OffHeapLotStore();
+    freshDate = DATE_FORMAT.parse("01.01.2090");
+    expiredDate = DATE_FORMAT.parse("01.01.2000");
+  }
+
+  @AfterEach
+  public void tearDown() {
+    store.close();
+  }
+
+  @Test
+  @DisplayName("Test lots with the same key are merged and removed at zero quantity")
+  public void OffHeapLotStoreTest1() {
+    store.addIngredient(new Ingredient("Milk", 1.0, "liter", freshDate, 20.0));
+    store.addIngredient(new Ingredient(" milk ", 2.0, "Liter", freshDate, 20.001));
+    store.addIngredient(new Ingredient("Milk", 1.0, "liter", expiredDate, 20.0));
+
+    Assertions.assertEquals(2, store.size());
+    Ingredient milk = store.searchIngredient("MILK", "liter", 20.0, freshDate);
+    Assertions.assertEquals("Milk", milk.getName());
+    Assertions.assertEquals(3.0, milk.getQuantity(), 1e-9);
+
+    store.removeIngredient("milk", "liter", 20.0, freshDate, 3.0);
+    Assertions.assertNull(store.searchIngredient("milk", "liter", 20.0, freshDate));
+    Assertions.assertEquals(1, store.size());
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> store.removeIngredient("milk", "liter", 20.0, expiredDate, 2.0));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> store.removeIngredient("cheese", "kilogram", 20.0, freshDate, 1.0));
+  }
+
+  @Test
+  @DisplayName("Test values and lookups match FoodStorage after many random changes")
+  public void OffHeapLotStoreTest2() {
+    FoodStorage storage = new FoodStorage();
+    Random random = new Random(7);
+    long day = 24L * 60 * 60 * 1000;
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < 5_000; i++) {
+      String name = "ingredient " + random.nextInt(50);
+      double price = 10 + random.nextInt(5);
+      Date bestBefore = new Date(now + (random.nextInt(40) - 10) * day);
+      if (random.nextInt(3) == 0) {
+        Ingredient lot = storage.searchIngredient(name, "kilogram", price, bestBefore);
+        if (lot != null) {
+          double quantity = lot.getQuantity() / (1 + random.nextInt(2));
+          storage.removeIngredient(name, "kilogram", price, bestBefore, quantity);
+          store.removeIngredient(name, "kilogram", price, bestBefore, quantity);
+        }
+      } else {
+        Ingredient lot = new Ingredient(name, 1 + random.nextInt(5), "kilogram", bestBefore,
+            price);
+        storage.addIngredient(lot);
+        store.addIngredient(lot);
+      }
+    }
+
+    Assertions.assertEquals(storage.listAllIngredients().length, store.size());
+    Assertions.assertEquals(storage.calculateTotalValue(), store.calculateTotalValue(), 1e-6);
+    Assertions.assertEquals(storage.calculateExpiredIngredientsValue(),
+        store.calculateExpiredIngredientsValue(), 1e-6);
+    for (Ingredient lot : store.listAllIngredients()) {
+      Ingredient stored = storage.searchIngredient(lot.getName(), lot.getUnit(),
+          lot.getPricePerUnit(), lot.getBestBeforeDate());
+      Assertions.assertEquals(stored.getQuantity(), lot.getQuantity(), 1e-9);
+    }
+    Ingredient found = store.findIngredientByNameAndUnit("Ingredient 3", "gram");
+    Assertions.assertEquals(storage.findIngredientByNameAndUnit("Ingredient 3", "gram") == null,
+        found == null);
+  }
+
+  @Test
+  @DisplayName("Test a closed store can no longer be used")
+  public void OffHeapLotStoreTest3() {
+    store.addIngredient(new Ingredient("Milk", 1.0, "liter", freshDate, 20.0));
+    Assertions.assertTrue(store.allocatedBytes() > 0);
+
+    store.close();
+    store.close();
+
+    Assertions.assertEquals(0, store.allocatedBytes());
+    Assertions.assertThrows(IllegalStateException.class, () -> store.calculateTotalValue());
+    Assertions.assertThrows(IllegalStateException.class,
+        () -> store.addIngredient(new Ingredient("Milk", 1.0, "liter", freshDate, 20.0)));
+  }
+
+  @Test
+  @DisplayName("Test prices are told apart in whole hundredths like in FoodStorage")
+  public void OffHeapLotStoreTest4() {
+    FoodStorage storage = new FoodStorage();
+    for (double price : new double[] {1.005, 0.285, 2.675}) {
+      Ingredient lot = new Ingredient("Salt", 1.0, "kilogram", freshDate, price);
+      storage.addIngredient(lot);
+      store.addIngredient(lot);
+    }
+
+    for (double price : new double[] {1.01, 0.29, 2.68, 1.0049, 0.2851}) {
+      Assertions.assertEquals(storage.searchIngredient("Salt", "kilogram", price, freshDate)
+          != null, store.searchIngredient("Salt", "kilogram", price, freshDate) != null);
+    }
+    Assertions.assertNotNull(store.searchIngredient("Salt", "kilogram", 1.01, freshDate));
+    Assertions.assertNotNull(store.searchIngredient("Salt", "kilogram", 0.29, freshDate));
+    Assertions.assertNull(store.searchIngredient("Salt", "kilogram", Double.NaN, freshDate));
+    Assertions.assertNull(storage.searchIngredient("Salt", "kilogram", Double.NaN, freshDate));
+  }
+}
@@ -0,0 +1,121 @@
+package edu.ntnu.idi.idatt;
+
+import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.foodstorage.Recipe;
+import edu.ntnu.idi.idatt.utils.ValidationResult;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class RecipeTest {
+
+  private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("dd.MM.yyyy");
+
+  private Recipe pancakes;
+  private FoodStorage storage;
+  private Date freshDate;
+  private Date expiredDate;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    pancakes = new Recipe("Pancakes", "Thin pancakes.", "Mix and fry.",
+        Map.of("milk", 5.0, "flour", 200.0), Map.of("milk", "dl", "flour", "g"), 4);
+    storage = new FoodStorage();
+    freshDate = DATE_FORMAT.parse("01.01.2090");
+    expiredDate = DATE_FORMAT.parse("01.01.2000");
+  }
+
+  @Test
+  @DisplayName("Test recipes default to one serving")
+  public void RecipeTest1() {
+    Recipe toast = new Recipe("Toast", "Toast.", "Toast it.",
+        Map.of("bread", 0.1), Map.of("bread", "kilogram"));
+
+    Assertions.assertEquals(1, toast.getServings());
+    Assertions.assertEquals(4, pancakes.getServings());
+  }
+
+  @Test
+  @DisplayName("Test scaling a recipe scales every quantity")
+  public void RecipeTest2() {
+    Recipe scaled = pancakes.scale(6);
+
+    Assertions.assertEquals(6, scaled.getServings());
+    Assertions.assertEquals(7.5, scaled.getIngredients().get("milk"), 1e-9);
+    Assertions.assertEquals(300.0, scaled.getIngredients().get("flour"), 1e-9);
+    Assertions.assertEquals("dl", scaled.getUnits().get("milk"));
+    Assertions.assertEquals(5.0, pancakes.getIngredients().get("milk"), 1e-9);
+    Assertions.assertThrows(IllegalArgumentException.class, () -> pancakes.scale(0));
+  }
+
+  @Test
+  @DisplayName("Test max servings is limited by the scarcest ingredient in converted units")
+  public void RecipeTest3() {
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter", freshDate, 20.0));
+    storage.addIngredient(new Ingredient("Milk", 10.0, "liter", expiredDate, 20.0));
+    storage.addIngredient(new Ingredient("Flour", 2.0, "kilogram", freshDate, 15.0));
+
+    // 1 liter of milk is two batches of 5 dl, each making 4 servings
+    Assertions.assertEquals(8, pancakes.maxServings(storage));
+
+    storage.addIngredient(new Ingredient("Milk", 0.125, "liter", freshDate, 20.0));
+    Assertions.assertEquals(9, pancakes.maxServings(storage));
+  }
+
+  @Test
+  @DisplayName("Test max servings is zero when an ingredient is missing")
+  public void RecipeTest4() {
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter", freshDate, 20.0));
+
+    Assertions.assertEquals(0, pancakes.maxServings(storage));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> pancakes.maxServings(null));
+  }
+
+  @Test
+  @DisplayName("Test tryCreate reports the same problems as the constructor without throwing")
+  public void RecipeTest5() {
+    Map<String, Double> ingredients = new HashMap<>();
+    ingredients.put("milk", -1.0);
+    ingredients.put("flour", 200.0);
+    Map<String, String> units = Map.of("milk", "dl", "sugar", "g");
+    ValidationResult result = new ValidationResult();
+
+    Assertions.assertNull(Recipe.tryCreate("", "Bad.", null, ingredients, units, 0, result));
+    Assertions.assertEquals(5, result.getErrorCount());
+    Assertions.assertTrue(result.getMessages().containsAll(List.of(
+        "Recipe name cannot be null or empty.", "Instructions cannot be null.",
+        "Servings must be positive.", "Quantity for ingredient 'milk' must be positive.",
+        "Unit for ingredient 'flour' cannot be null or empty.")));
+
+    IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+        () -> new Recipe("Bad", "Bad.", "Mix.", ingredients, units));
+    Assertions.assertTrue(result.getMessages().contains(exception.getMessage()));
+
+    result.clear();
+    Recipe toast = Recipe.tryCreate("Toast", "Toast.", "Toast it.", Map.of("bread", 0.1),
+        Map.of("bread", "kilogram"), 2, result);
+    Assertions.assertTrue(result.isValid());
+    Assertions.assertEquals(2, toast.getServings());
+  }
+
+  @Test
+  @DisplayName("Test max servings counts exactly enough stock and not a micro-unit less")
+  public void RecipeTest6() {
+    Recipe stew = new Recipe("Stew", "A large stew.", "Simmer.",
+        Map.of("beef", 1000.0, "salt", 1.0), Map.of("beef", "kilogram", "salt", "dl"), 1);
+    storage.addIngredient(new Ingredient("Beef", 2999.999999, "kilogram", freshDate, 100.0));
+    storage.addIngredient(new Ingredient("Salt", 0.3, "liter", freshDate, 5.0));
+
+    // 3000 kg of beef would make 3 servings, but one micro-unit less is not enough
+    Assertions.assertEquals(2, stew.maxServings(storage));
+    storage.addIngredient(new Ingredient("Beef", 0.000001, "kilogram", freshDate, 100.0));
+    Assertions.assertEquals(3, stew.maxServings(storage));
+  }
+}
@@ -0,0 +1,106 @@
+package edu.ntnu.idi.idatt;
+
+import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.foodstorage.Recipe;
+import edu.ntnu.idi.idatt.foodstorage.ShoppingItem;
+import edu.ntnu.idi.idatt.foodstorage.ShoppingList;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class ShoppingListTest {
+
+  private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("dd.MM.yyyy");
+
+  private Recipe pancakes;
+  private Recipe porridge;
+  private FoodStorage storage;
+  private Date freshDate;
+  private Date expiredDate;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    pancakes = new Recipe("Pancakes", "Thin pancakes.", "Mix and fry.",
+        Map.of("milk", 5.0, "flour", 200.0), Map.of("milk", "dl", "flour", "g"));
+    porridge = new Recipe("Porridge", "Oat porridge.", "Boil.",
+        Map.of("milk", 1.0, "oats", 0.1), Map.of("milk", "liter", "oats", "kilogram"));
+    storage = new FoodStorage();
+    freshDate = DATE_FORMAT.parse("01.01.2090");
+    expiredDate = DATE_FORMAT.parse("01.01.2000");
+  }
+
+  @Test
+  @DisplayName("Test requirements of planned recipes are added up in standard units")
+  public void ShoppingListTest1() {
+    ShoppingList list = new ShoppingList().addRecipe(pancakes, 2).addRecipe(porridge, 1);
+
+    List<ShoppingItem> requirements = list.getRequirements();
+
+    Assertions.assertEquals(3, requirements.size());
+    Assertions.assertEquals("flour", requirements.get(0).getName());
+    Assertions.assertEquals("kilogram", requirements.get(0).getUnit());
+    Assertions.assertEquals(0.4, requirements.get(0).getQuantity(), 1e-9);
+    Assertions.assertEquals("milk", requirements.get(1).getName());
+    Assertions.assertEquals("liter", requirements.get(1).getUnit());
+    Assertions.assertEquals(2.0, requirements.get(1).getQuantity(), 1e-9);
+  }
+
+  @Test
+  @DisplayName("Test purchases subtract the stock that has not expired")
+  public void ShoppingListTest2() {
+    storage.addIngredient(new Ingredient("Milk", 1.5, "liter", freshDate, 20.0));
+    storage.addIngredient(new Ingredient("Milk", 5.0, "liter", expiredDate, 20.0));
+    storage.addIngredient(new Ingredient("Flour", 1.0, "kilogram", freshDate, 15.0));
+    ShoppingList list = new ShoppingList().addRecipe(pancakes, 1).addRecipe(porridge, 1)
+        .addRecipe(pancakes, 1);
+
+    List<ShoppingItem> purchases = list.getPurchases(storage);
+
+    Assertions.assertEquals(2, purchases.size());
+    Assertions.assertEquals("milk", purchases.get(0).getName());
+    Assertions.assertEquals(0.5, purchases.get(0).getQuantity(), 1e-9);
+    Assertions.assertEquals("oats", purchases.get(1).getName());
+    Assertions.assertEquals(0.1, purchases.get(1).getQuantity(), 1e-9);
+  }
+
+  @Test
+  @DisplayName("Test invalid plans are rejected")
+  public void ShoppingListTest3() {
+    ShoppingList list = new ShoppingList();
+
+    Assertions.assertThrows(IllegalArgumentException.class, () -> list.addRecipe(null, 1));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> list.addRecipe(pancakes, 0));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> list.getPurchases(null));
+  }
+
+  @Test
+  @DisplayName("Test recipes planned by servings are scaled from their own servings")
+  public void ShoppingListTest4() {
+    Recipe soup = new Recipe("Soup", "Tomato soup.", "Boil.",
+        Map.of("tomato", 1.0), Map.of("tomato", "kilogram"), 4);
+    ShoppingList list = new ShoppingList().addServings(soup, 6).addServings(soup, 2);
+
+    Assertions.assertEquals(2.0, list.getRecipes().get(soup), 1e-9);
+    Assertions.assertEquals(2.0, list.getRequirements().get(0).getQuantity(), 1e-9);
+  }
+
+  @Test
+  @DisplayName("Test a stock that exactly covers the plan leaves nothing to buy")
+  public void ShoppingListTest5() {
+    Recipe smallCup = new Recipe("Small Cup", "Warm milk.", "Heat.",
+        Map.of("milk", 1.0), Map.of("milk", "dl"));
+    Recipe largeCup = new Recipe("Large Cup", "More warm milk.", "Heat.",
+        Map.of("milk", 2.0), Map.of("milk", "dl"));
+    storage.addIngredient(new Ingredient("Milk", 0.3, "liter", freshDate, 20.0));
+    ShoppingList list = new ShoppingList().addRecipe(smallCup, 1).addRecipe(largeCup, 1);
+
+    Assertions.assertEquals(0.3, list.getRequirements().get(0).getQuantity());
+    Assertions.assertTrue(list.getPurchases(storage).isEmpty());
+  }
+}
@@ -0,0 +1,224 @@
+package edu.ntnu.idi.idatt;
+
+import edu.ntnu.idi.idatt.foodstorage.Cookbook;
+import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.foodstorage.UndoHistory;
+import edu.ntnu.idi.idatt.history.HistoryAggregation;
+import edu.ntnu.idi.idatt.history.HistoryColumn;
+import edu.ntnu.idi.idatt.history.HistorySeries;
+import edu.ntnu.idi.idatt.history.StockHistory;
+import edu.ntnu.idi.idatt.history.StockHistoryRecorder;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.Date;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class StockHistoryTest {
+
+  private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("dd.MM.yyyy");
+  private static final LocalDate START = LocalDate.of(2020, 1, 1);
+
+  private Path file;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    file = Files.createTempFile("stock-history", ".bin");
+    Files.delete(file);
+  }
+
+  @AfterEach
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  private static long[] sample(long day) {
+    long[] values = new long[HistoryColumn.values().length];
+    values[HistoryColumn.STOCK_VALUE.ordinal()] = 1_000_000_000L + day * 1_500_000L;
+    values[HistoryColumn.LOT_COUNT.ordinal()] = 40 + day % 7;
+    values[HistoryColumn.WASTED_VALUE.ordinal()] = day % 10 == 0 ? 25_000_000L : 0;
+    return values;
+  }
+
+  @Test
+  @DisplayName("Test range queries over several blocks survive reopening the file")
+  public void StockHistoryTest1() throws IOException {
+    try (StockHistory history = new StockHistory(file)) {
+      // Every other day for about five years, so the samples span several blocks
+      for (long day = 0; day < 2000; day += 2) {
+        history.record(START.plusDays(day), sample(day));
+      }
+    }
+
+    try (StockHistory history = new StockHistory(file)) {
+      Assertions.assertEquals(1000, history.size());
+      Assertions.assertEquals(START, history.getFirstDay());
+      Assertions.assertEquals(START.plusDays(1998), history.getLastDay());
+
+      HistorySeries stock =
+          history.read(HistoryColumn.STOCK_VALUE, START.plusDays(501), START.plusDays(1100));
+      Assertions.assertEquals(300, stock.size());
+      Assertions.assertEquals(START.plusDays(502), stock.getDay(0));
+      Assertions.assertEquals(1000.0 + 502 * 1.5, stock.getValue(0), 1e-9);
+      Assertions.assertEquals(START.plusDays(1100), stock.getDay(299));
+      Assertions.assertEquals(sample(1100)[HistoryColumn.STOCK_VALUE.ordinal()],
+          stock.getRawValue(299));
+
+      // Recording continues in the block that was open when the file was closed
+      history.record(START.plusDays(2000), sample(2000));
+      Assertions.assertEquals(0,
+          history.read(HistoryColumn.LOT_COUNT, START.minusDays(10), START.minusDays(1)).size());
+    }
+    try (StockHistory history = new StockHistory(file)) {
+      Assertions.assertEquals(1001, history.size());
+      HistorySeries lots =
+          history.read(HistoryColumn.LOT_COUNT, START.plusDays(1990), START.plusDays(3000));
+      Assertions.assertEquals(6, lots.size());
+      Assertions.assertEquals(40 + 2000 % 7, lots.getRawValue(5));
+    }
+  }
+
+  @Test
+  @DisplayName("Test downsampling sums counters and averages gauges per bucket")
+  public void StockHistoryTest2() throws IOException {
+    try (StockHistory history = new StockHistory(file)) {
+      for (long day = 0; day < 1000; day++) {
+        history.record(START.plusDays(day), sample(day));
+      }
+
+      // One bucket for the whole range is answered from the block headers
+      HistorySeries waste = history.downsample(HistoryColumn.WASTED_VALUE, START,
+          START.plusDays(999), 1000, HistoryAggregation.SUM);
+      Assertions.assertEquals(1, waste.size());
+      Assertions.assertEquals(100 * 25.0, waste.getValue(0), 1e-9);
+
+      HistorySeries weekly = history.downsample(HistoryColumn.STOCK_VALUE, START.plusDays(3),
+          START.plusDays(23), 7, HistoryAggregation.AVERAGE);
+      Assertions.assertEquals(3, weekly.size());
+      Assertions.assertEquals(START.plusDays(10), weekly.getDay(1));
+      Assertions.assertEquals(1000.0 + 13 * 1.5, weekly.getValue(1), 1e-9);
+
+      HistorySeries peaks = history.downsample(HistoryColumn.LOT_COUNT, START, START.plusDays(999),
+          300, HistoryAggregation.MAX);
+      Assertions.assertEquals(4, peaks.size());
+      Assertions.assertEquals(46, peaks.getRawValue(3));
+      Assertions.assertEquals(sample(999)[HistoryColumn.STOCK_VALUE.ordinal()],
+          history.downsample(HistoryColumn.STOCK_VALUE, START, START.plusDays(999), 365,
+              HistoryAggregation.LAST).getRawValue(2));
+      Assertions.assertEquals(0, history.downsample(HistoryColumn.STOCK_VALUE,
+          START.plusDays(2000), START.plusDays(3000), 30, HistoryAggregation.LAST).size());
+      Assertions.assertThrows(IllegalArgumentException.class,
+          () -> history.record(START.plusDays(500), sample(500)));
+      Assertions.assertThrows(IllegalArgumentException.class,
+          () -> history.downsample(HistoryColumn.STOCK_VALUE, START, START, 0,
+              HistoryAggregation.SUM));
+    }
+  }
+
+  @Test
+  @DisplayName("Test the recorder counts added, consumed and wasted value")
+  public void StockHistoryTest3() throws Exception {
+    Date fresh = DATE_FORMAT.parse("01.01.2090");
+    Date expired = DATE_FORMAT.parse("01.01.2000");
+    FoodStorage storage = new FoodStorage();
+    try (StockHistory history = new StockHistory(file)) {
+      StockHistoryRecorder recorder = new StockHistoryRecorder(storage, history);
+      storage.addIngredient(new Ingredient("Milk", 2.0, "liter", fresh, 20.0));
+      storage.addIngredient(new Ingredient("Yoghurt", 1.0, "liter", expired, 30.0));
+      recorder.sample(START);
+      storage.removeIngredient("Milk", "liter", 20.0, fresh, 0.5);
+      storage.removeIngredient("Yoghurt", "liter", 30.0, expired, 1.0);
+      recorder.sample(START.plusDays(1));
+      recorder.stop();
+      storage.removeIngredient("Milk", "liter", 20.0, fresh, 0.5);
+      recorder.sample(START.plusDays(1));
+
+      Assertions.assertEquals(70.0,
+          history.read(HistoryColumn.ADDED_VALUE, START, START).getValue(0), 1e-9);
+      Assertions.assertEquals(30.0,
+          history.read(HistoryColumn.EXPIRED_VALUE, START, START).getValue(0), 1e-9);
+      HistorySeries consumed =
+          history.read(HistoryColumn.CONSUMED_VALUE, START, START.plusDays(1));
+      Assertions.assertEquals(2, consumed.size());
+      Assertions.assertEquals(10.0, consumed.getValue(1), 1e-9);
+      Assertions.assertEquals(30.0, history.read(HistoryColumn.WASTED_VALUE, START.plusDays(1),
+          START.plusDays(1)).getValue(0), 1e-9);
+      // The gauges of a day sampled twice are replaced, after the last removal was not counted
+      Assertions.assertEquals(20.0, history.read(HistoryColumn.STOCK_VALUE, START.plusDays(1),
+          START.plusDays(1)).getValue(0), 1e-9);
+      Assertions.assertEquals(1, history.read(HistoryColumn.LOT_COUNT, START.plusDays(1),
+          START.plusDays(1)).getRawValue(0));
+    }
+  }
+
+  @Test
+  @DisplayName("Test a write cut off by a crash loses only the sample being written")
+  public void StockHistoryTest4() throws IOException {
+    try (StockHistory history = new StockHistory(file)) {
+      for (long day = 0; day < 300; day++) {
+        history.record(START.plusDays(day), sample(day));
+      }
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 3);
+    }
+
+    try (StockHistory history = new StockHistory(file)) {
+      // The previous version of the open block is still whole in the other slot
+      Assertions.assertEquals(299, history.size());
+      Assertions.assertEquals(START.plusDays(298), history.getLastDay());
+      Assertions.assertEquals(sample(298)[HistoryColumn.STOCK_VALUE.ordinal()], history.read(
+          HistoryColumn.STOCK_VALUE, START.plusDays(298), START.plusDays(298)).getRawValue(0));
+      history.record(START.plusDays(300), sample(300));
+      history.record(START.plusDays(301), sample(301));
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 3);
+    }
+    try (StockHistory history = new StockHistory(file)) {
+      // This time only the older version, at the end of the file, was cut off
+      Assertions.assertEquals(301, history.size());
+      Assertions.assertEquals(START.plusDays(301), history.getLastDay());
+      Assertions.assertEquals(256,
+          history.read(HistoryColumn.LOT_COUNT, START, START.plusDays(255)).size());
+    }
+    Files.writeString(file, "not a history");
+    Assertions.assertThrows(IOException.class, () -> new StockHistory(file));
+  }
+
+  @Test
+  @DisplayName("Test undone changes are taken back out of the counters they went into")
+  public void StockHistoryTest5() throws Exception {
+    Date fresh = DATE_FORMAT.parse("01.01.2090");
+    FoodStorage storage = new FoodStorage();
+    UndoHistory undoHistory = new UndoHistory(storage, new Cookbook(), 16);
+    try (StockHistory history = new StockHistory(file)) {
+      StockHistoryRecorder recorder = new StockHistoryRecorder(storage, history, undoHistory);
+      storage.addIngredient(new Ingredient("Milk", 2.0, "liter", fresh, 20.0));
+      storage.addIngredient(new Ingredient("Cheese", 1.0, "kilogram", fresh, 100.0));
+      storage.removeIngredient("Milk", "liter", 20.0, fresh, 0.5);
+      undoHistory.undo();
+      undoHistory.undo();
+      recorder.sample(START);
+      undoHistory.redo();
+      recorder.sample(START.plusDays(1));
+
+      HistorySeries added = history.read(HistoryColumn.ADDED_VALUE, START, START.plusDays(1));
+      Assertions.assertEquals(40.0, added.getValue(0), 1e-9);
+      Assertions.assertEquals(100.0, added.getValue(1), 1e-9);
+      HistorySeries consumed =
+          history.read(HistoryColumn.CONSUMED_VALUE, START, START.plusDays(1));
+      Assertions.assertEquals(0.0, consumed.getValue(0), 1e-9);
+      Assertions.assertEquals(0.0, consumed.getValue(1), 1e-9);
+    }
+  }
+}
@@ -0,0 +1,265 @@
+package edu.ntnu.idi.idatt;
+
+import edu.ntnu.idi.idatt.foodstorage.FederatedStorage;
+import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.views.CsvStockReportWriter;
+import edu.ntnu.idi.idatt.views.JsonStockReportWriter;
+import edu.ntnu.idi.idatt.views.StockReportWriter;
+import java.io.StringWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class StockReportWriterTest {
+
+  private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("dd.MM.yyyy");
+
+  private FoodStorage storage;
+  private Date freshDate;
+  private Date expiredDate;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    storage = new FoodStorage();
+    freshDate = DATE_FORMAT.parse("01.01.2090");
+    expiredDate = DATE_FORMAT.parse("01.01.2000");
+  }
+
+  @Test
+  @DisplayName("Test CSV report groups lots by name with subtotals and a total")
+  public void StockReportWriterTest1() throws Exception {
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter", freshDate, 20.0));
+    storage.addIngredient(new Ingredient("milk", 2.0, "dl", expiredDate, 2.0));
+    storage.addIngredient(new Ingredient("Butter", 0.5, "kilogram", freshDate, 90.0));
+
+    StringWriter out = new StringWriter();
+    Assertions.assertEquals(3, new CsvStockReportWriter(out).write(storage));
+
+    List<String> lines = out.toString().lines().toList();
+    Assertions.assertEquals(7, lines.size());
+    Assertions.assertEquals("type,name,unit,quantity,best_before,price_per_unit,value,"
+        + "waste_value,lots,expired_lots", lines.get(0));
+    Assertions.assertEquals("lot,Butter,kilogram,0.5,2090-01-01,90,45,0,1,0", lines.get(1));
+    Assertions.assertEquals("subtotal,butter,,,,,45,0,1,0", lines.get(2));
+    Assertions.assertTrue(lines.subList(3, 5).containsAll(List.of(
+        "lot,Milk,liter,1,2090-01-01,20,20,0,1,0",
+        "lot,milk,dl,2,2000-01-01,2,4,4,1,1")));
+    Assertions.assertEquals("subtotal,milk,,,,,24,4,2,1", lines.get(5));
+    Assertions.assertEquals("total,,,,,,69,4,3,1", lines.get(6));
+  }
+
+  @Test
+  @DisplayName("Test JSON waste report holds only expired lots and escapes names")
+  public void StockReportWriterTest2() throws Exception {
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter", freshDate, 20.0));
+    storage.addIngredient(new Ingredient("\"Sour\" cream", 0.25, "liter", expiredDate, 0.1));
+
+    StringWriter out = new StringWriter();
+    StockReportWriter report = new JsonStockReportWriter(out);
+    report.setExpiredOnly(true);
+    Assertions.assertEquals(1, report.write(storage));
+
+    Map<String, Object> root = parseObject(out.toString());
+    List<Object> groups = asList(root.get("groups"));
+    Assertions.assertEquals(1, groups.size());
+    Map<String, Object> group = asObject(groups.get(0));
+    Assertions.assertEquals("\"sour\" cream", group.get("name"));
+    Assertions.assertEquals(1.0, group.get("lotCount"));
+    Assertions.assertEquals(1.0, group.get("expiredLotCount"));
+    Assertions.assertEquals(0.025, group.get("wasteValue"));
+    List<Object> lots = asList(group.get("lots"));
+    Assertions.assertEquals(1, lots.size());
+    Map<String, Object> lot = asObject(lots.get(0));
+    Assertions.assertEquals("\"Sour\" cream", lot.get("name"));
+    Assertions.assertEquals("liter", lot.get("unit"));
+    Assertions.assertEquals(0.25, lot.get("quantity"));
+    Assertions.assertEquals("2000-01-01", lot.get("bestBefore"));
+    Assertions.assertEquals(0.1, lot.get("pricePerUnit"));
+    Assertions.assertEquals(0.025, lot.get("value"));
+    Assertions.assertEquals(Boolean.TRUE, lot.get("expired"));
+    Assertions.assertEquals(0.025, root.get("value"));
+    Assertions.assertEquals(1.0, root.get("lotCount"));
+
+    StringWriter empty = new StringWriter();
+    new JsonStockReportWriter(empty).write(new FoodStorage());
+    Map<String, Object> emptyRoot = parseObject(empty.toString());
+    Assertions.assertTrue(asList(emptyRoot.get("groups")).isEmpty());
+    Assertions.assertEquals(0.0, emptyRoot.get("value"));
+    Assertions.assertEquals(0.0, emptyRoot.get("lotCount"));
+  }
+
+  @Test
+  @DisplayName("Test report spanning many pages keeps one subtotal per name")
+  public void StockReportWriterTest3() throws Exception {
+    for (int i = 0; i < 1500; i++) {
+      Date date = new Date(freshDate.getTime() + i * 86_400_000L);
+      storage.addIngredient(new Ingredient("Item" + (i % 3), 1.0, "piece", date, 1.5));
+    }
+
+    StringWriter out = new StringWriter();
+    Assertions.assertEquals(1500, new CsvStockReportWriter(out).write(storage));
+
+    List<String> lines = out.toString().lines().toList();
+    Assertions.assertEquals(1 + 1500 + 3 + 1, lines.size());
+    Assertions.assertEquals(List.of("subtotal,item0,,,,,750,0,500,0",
+            "subtotal,item1,,,,,750,0,500,0", "subtotal,item2,,,,,750,0,500,0"),
+        lines.stream().filter(line -> line.startsWith("subtotal")).toList());
+    Assertions.assertEquals("total,,,,,,2250,0,1500,0", lines.get(lines.size() - 1));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> new CsvStockReportWriter(null));
+  }
+
+  @Test
+  @DisplayName("Test report of several locations leaves the writer unflushed")
+  public void StockReportWriterTest4() throws Exception {
+    FoodStorage freezer = new FoodStorage();
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter", freshDate, 20.0));
+    freezer.addIngredient(new Ingredient("Milk", 1.0, "liter", freshDate, 20.0));
+    freezer.addIngredient(new Ingredient("Peas", 500, "g", expiredDate, 0.05));
+    Map<String, FoodStorage> locations = new LinkedHashMap<>();
+    locations.put("fridge", storage);
+    locations.put("freezer", freezer);
+
+    int[] flushes = {0};
+    StringWriter out = new StringWriter() {
+      @Override
+      public void flush() {
+        flushes[0]++;
+      }
+    };
+    Assertions.assertEquals(3,
+        new CsvStockReportWriter(out).write(new FederatedStorage(locations)));
+
+    Assertions.assertEquals(0, flushes[0]);
+    List<String> lines = out.toString().lines().toList();
+    Assertions.assertEquals(List.of(
+        "lot,Milk,liter,1,2090-01-01,20,20,0,1,0",
+        "lot,Milk,liter,1,2090-01-01,20,20,0,1,0",
+        "subtotal,milk,,,,,40,0,2,0",
+        "lot,Peas,g,500,2000-01-01,0.05,25,25,1,1",
+        "subtotal,peas,,,,,25,25,1,1",
+        "total,,,,,,65,25,3,1"), lines.subList(1, lines.size()));
+  }
+
+  /**
+   * Parses a JSON object into maps, lists, strings, doubles and booleans, failing on a repeated
+   * key so a report that writes a key twice cannot pass.
+   */
+  private static Map<String, Object> parseObject(String json) {
+    int[] position = {0};
+    Object value = parseValue(json, position);
+    skipWhitespace(json, position);
+    Assertions.assertEquals(json.length(), position[0], "Unexpected text after the JSON value");
+    return asObject(value);
+  }
+
+  private static Object parseValue(String json, int[] position) {
+    skipWhitespace(json, position);
+    char c = json.charAt(position[0]);
+    if (c == '{') {
+      Map<String, Object> object = new LinkedHashMap<>();
+      position[0]++;
+      skipWhitespace(json, position);
+      if (json.charAt(position[0]) == '}') {
+        position[0]++;
+        return object;
+      }
+      while (true) {
+        skipWhitespace(json, position);
+        String key = parseString(json, position);
+        skipWhitespace(json, position);
+        expect(json, position, ':');
+        Object previous = object.put(key, parseValue(json, position));
+        Assertions.assertNull(previous, "Duplicate key " + key);
+        skipWhitespace(json, position);
+        char next = json.charAt(position[0]++);
+        if (next == '}') {
+          return object;
+        }
+        Assertions.assertEquals(',', next);
+      }
+    }
+    if (c == '[') {
+      List<Object> array = new ArrayList<>();
+      position[0]++;
+      skipWhitespace(json, position);
+      if (json.charAt(position[0]) == ']') {
+        position[0]++;
+        return array;
+      }
+      while (true) {
+        array.add(parseValue(json, position));
+        skipWhitespace(json, position);
+        char next = json.charAt(position[0]++);
+        if (next == ']') {
+          return array;
+        }
+        Assertions.assertEquals(',', next);
+      }
+    }
+    if (c == '"') {
+      return parseString(json, position);
+    }
+    if (json.startsWith("true", position[0])) {
+      position[0] += 4;
+      return Boolean.TRUE;
+    }
+    if (json.startsWith("false", position[0])) {
+      position[0] += 5;
+      return Boolean.FALSE;
+    }
+    int start = position[0];
+    while (position[0] < json.length()
+        && "+-0123456789.eE".indexOf(json.charAt(position[0])) >= 0) {
+      position[0]++;
+    }
+    return Double.parseDouble(json.substring(start, position[0]));
+  }
+
+  private static String parseString(String json, int[] position) {
+    expect(json, position, '"');
+    StringBuilder text = new StringBuilder();
+    char c;
+    while ((c = json.charAt(position[0]++)) != '"') {
+      if (c == '\\') {
+        c = json.charAt(position[0]++);
+        if (c == 'u') {
+          c = (char) Integer.parseInt(json.substring(position[0], position[0] + 4), 16);
+          position[0] += 4;
+        }
+      }
+      text.append(c);
+    }
+    return text.toString();
+  }
+
+  private static void expect(String json, int[] position, char expected) {
+    Assertions.assertEquals(expected, json.charAt(position[0]++));
+  }
+
+  private static void skipWhitespace(String json, int[] position) {
+    while (position[0] < json.length() && Character.isWhitespace(json.charAt(position[0]))) {
+      position[0]++;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> asObject(Object value) {
+    Assertions.assertTrue(value instanceof Map);
+    return (Map<String, Object>) value;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Object> asList(Object value) {
+    Assertions.assertTrue(value instanceof List);
+    return (List<Object>) value;
+  }
+}
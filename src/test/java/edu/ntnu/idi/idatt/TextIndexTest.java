@@ -0,0 +1,80 @@
+package edu.ntnu.idi.idatt;
+
+import edu.ntnu.idi.idatt.utils.TextIndex;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class TextIndexTest {
+
+  private TextIndex index;
+
+  @BeforeEach
+  public void setUp() {
+    index = new TextIndex();
+    index.addDocument(0, "Creamy mashed potatoes.", "Boil the potatoes. Stir in milk and butter.");
+    index.addDocument(1, "Potato soup with beef.", "Cook potatoes and beef. Add cream.");
+    index.addDocument(2, "Pancakes.", "Whisk milk, eggs and flour. Fry in butter.");
+    index.addDocument(5, "Beef stew.", "Brown the beef, add water and simmer. Add more beef.");
+  }
+
+  @Test
+  @DisplayName("Test tokenizing drops punctuation and single letters")
+  public void TextIndexTest1() {
+    Assertions.assertEquals(List.of("step", "boil", "the", "potatoes"),
+        TextIndex.tokenize("1. Step a: Boil the POTATOES!"));
+  }
+
+  @Test
+  @DisplayName("Test boolean AND, OR and NOT queries")
+  public void TextIndexTest2() {
+    Assertions.assertArrayEquals(new int[] {0, 2}, index.search("milk butter"));
+    Assertions.assertArrayEquals(new int[] {0, 1}, index.search("potatoes cream OR creamy"));
+    Assertions.assertArrayEquals(new int[] {1, 5}, index.search("beef"));
+    Assertions.assertArrayEquals(new int[] {5}, index.search("beef -potatoes"));
+    Assertions.assertArrayEquals(new int[0], index.search("chocolate"));
+  }
+
+  @Test
+  @DisplayName("Test ranked queries put the most relevant document first")
+  public void TextIndexTest3() {
+    int[] ranked = index.searchRanked("beef", 10);
+    Assertions.assertArrayEquals(new int[] {5, 1}, ranked);
+    Assertions.assertEquals(1, index.searchRanked("milk butter", 1).length);
+  }
+
+  @Test
+  @DisplayName("Test removed documents are skipped and order is enforced")
+  public void TextIndexTest4() {
+    index.removeDocument(5, "Beef stew.",
+        "Brown the beef, add water and simmer. Add more beef.");
+    Assertions.assertArrayEquals(new int[] {1}, index.search("beef"));
+    Assertions.assertArrayEquals(new int[] {1}, index.searchRanked("beef", 10));
+    Assertions.assertEquals(3, index.size());
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> index.addDocument(3, "Too late."));
+  }
+
+  @Test
+  @DisplayName("Test removed documents no longer count for ranking and are dropped from postings")
+  public void TextIndexTest5() {
+    TextIndex potatoes = new TextIndex();
+    for (int document = 0; document <= 10; document++) {
+      potatoes.addDocument(document, "Boiled potato.");
+    }
+    potatoes.addDocument(11, "Fry onion.");
+    long bytesBefore = potatoes.postingBytes();
+    for (int document = 0; document < 10; document++) {
+      potatoes.removeDocument(document, "Boiled potato.");
+    }
+
+    // One potato and one onion are left, so both terms weigh the same
+    Assertions.assertArrayEquals(new int[] {10, 11}, potatoes.searchRanked("potato onion", 10));
+    Assertions.assertArrayEquals(new int[] {11}, potatoes.searchRanked("onion", 10));
+    Assertions.assertTrue(potatoes.postingBytes() < bytesBefore / 2);
+    potatoes.addDocument(12, "Potato and onion.");
+    Assertions.assertArrayEquals(new int[] {10, 12}, potatoes.search("potato"));
+  }
+}
@@ -0,0 +1,91 @@
+package edu.ntnu.idi.idatt;
+
+import edu.ntnu.idi.idatt.utils.TextStore;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class TextStoreTest {
+
+  @Test
+  @DisplayName("Test texts are read back unchanged through their handles")
+  public void TextStoreTest1() {
+    TextStore store = new TextStore(false);
+    long first = store.append("Mix the flour and milk.");
+    long second = store.append("R\u00f8r inn sm\u00f8r, s\u00e5 er du ferdig.");
+    long empty = store.append("");
+
+    Assertions.assertEquals("R\u00f8r inn sm\u00f8r, s\u00e5 er du ferdig.", store.read(second));
+    Assertions.assertEquals("Mix the flour and milk.", store.read(first));
+    Assertions.assertEquals("", store.read(empty));
+  }
+
+  @Test
+  @DisplayName("Test long repetitive texts are stored compressed")
+  public void TextStoreTest2() {
+    String text = "Stir the pot slowly and let it simmer. ".repeat(200);
+    TextStore plain = new TextStore(false);
+    TextStore compressed = new TextStore(true);
+
+    long handle = compressed.append(text);
+    plain.append(text);
+
+    Assertions.assertEquals(text, compressed.read(handle));
+    Assertions.assertTrue(compressed.storedBytes() * 10 < plain.storedBytes());
+  }
+
+  @Test
+  @DisplayName("Test texts span several chunks and invalid handles are rejected")
+  public void TextStoreTest3() {
+    TextStore store = new TextStore(false);
+    String large = "x".repeat(700_000);
+    long first = store.append(large);
+    long second = store.append(large + "y");
+
+    Assertions.assertEquals(large, store.read(first));
+    Assertions.assertEquals(large + "y", store.read(second));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> store.read(99L << 32));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> store.append(null));
+  }
+
+  @Test
+  @DisplayName("Test texts are read from other threads while more are appended")
+  public void TextStoreTest4() throws InterruptedException {
+    TextStore store = new TextStore(true);
+    int count = 2000;
+    AtomicLongArray handles = new AtomicLongArray(count);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread[] readers = new Thread[3];
+    for (int r = 0; r < readers.length; r++) {
+      readers[r] = new Thread(() -> {
+        try {
+          for (int i = 0; i < count; i++) {
+            long handle;
+            while ((handle = handles.get(i)) == 0) {
+              Thread.onSpinWait();
+            }
+            Assertions.assertEquals(text(i), store.read(handle - 1));
+          }
+        } catch (Throwable e) {
+          failure.compareAndSet(null, e);
+        }
+      });
+      readers[r].start();
+    }
+
+    for (int i = 0; i < count; i++) {
+      // Stored one higher, so zero can mean not yet appended
+      handles.set(i, store.append(text(i)) + 1);
+    }
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    Assertions.assertNull(failure.get());
+  }
+
+  private static String text(int i) {
+    return ("Step " + i + ": stir and simmer. ").repeat(1 + i % 40);
+  }
+}
@@ -0,0 +1,163 @@
+package edu.ntnu.idi.idatt;
+
+import edu.ntnu.idi.idatt.foodstorage.Cookbook;
+import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.foodstorage.Recipe;
+import edu.ntnu.idi.idatt.foodstorage.UndoHistory;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class UndoHistoryTest {
+
+  private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("dd.MM.yyyy");
+
+  private FoodStorage storage;
+  private Cookbook cookbook;
+  private Date date;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    storage = new FoodStorage();
+    cookbook = new Cookbook();
+    date = DATE_FORMAT.parse("01.01.2090");
+  }
+
+  @Test
+  @DisplayName("Test adding and removing ingredients can be undone and redone")
+  public void UndoHistoryTest1() {
+    UndoHistory history = new UndoHistory(storage, cookbook, 10);
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter", date, 20.0));
+    storage.removeIngredient("Milk", "liter", 20.0, date, 0.25);
+
+    Assertions.assertTrue(history.undo());
+    Assertions.assertEquals(1.0,
+        storage.searchIngredient("Milk", "liter", 20.0, date).getQuantity(), 1e-9);
+    Assertions.assertTrue(history.undo());
+    Assertions.assertEquals(0, storage.size());
+    Assertions.assertFalse(history.undo());
+
+    Assertions.assertTrue(history.redo());
+    Assertions.assertTrue(history.redo());
+    Assertions.assertEquals(0.75,
+        storage.searchIngredient("Milk", "liter", 20.0, date).getQuantity(), 1e-9);
+    Assertions.assertFalse(history.redo());
+  }
+
+  @Test
+  @DisplayName("Test cooking is undone as one change and recipes can be undone")
+  public void UndoHistoryTest2() throws Exception {
+    Date later = DATE_FORMAT.parse("01.01.2095");
+    boolean[] refuseLater = new boolean[1];
+    storage = new FoodStorage() {
+      @Override
+      public void removeIngredient(String name, String unit, double pricePerUnit,
+          Date bestBeforeDate, double quantity) {
+        if (refuseLater[0] && bestBeforeDate.equals(later)) {
+          throw new IllegalArgumentException("Insufficient quantity.");
+        }
+        super.removeIngredient(name, unit, pricePerUnit, bestBeforeDate, quantity);
+      }
+    };
+    storage.addIngredient(new Ingredient("Milk", 0.3, "liter", date, 20.0));
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter", later, 20.0));
+    UndoHistory history = new UndoHistory(storage, cookbook, 10);
+    Recipe recipe = new Recipe("Porridge", "Porridge.", "Boil.",
+        Map.of("milk", 0.5), Map.of("milk", "liter"));
+    cookbook.addRecipe(recipe);
+    storage.cook(recipe);
+
+    Assertions.assertEquals(1, storage.size());
+    Assertions.assertTrue(history.undo());
+    Assertions.assertEquals(2, storage.size());
+    Assertions.assertEquals(1.3, storage.getAggregate("milk", "liter").getTotalQuantity(), 1e-9);
+
+    Assertions.assertTrue(history.undo());
+    Assertions.assertNull(cookbook.getRecipeByName("Porridge"));
+    Assertions.assertTrue(history.redo());
+    Assertions.assertSame(recipe, cookbook.getRecipeByName("Porridge"));
+  }
+
+  @Test
+  @DisplayName("Test a new change clears redo and the oldest changes are forgotten")
+  public void UndoHistoryTest3() {
+    UndoHistory history = new UndoHistory(storage, cookbook, 2);
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter", date, 20.0));
+    storage.addIngredient(new Ingredient("Eggs", 1.0, "kilogram", date, 40.0));
+    storage.addIngredient(new Ingredient("Flour", 1.0, "kilogram", date, 15.0));
+    Assertions.assertEquals(2, history.size());
+
+    Assertions.assertTrue(history.undo());
+    storage.addIngredient(new Ingredient("Salt", 1.0, "kilogram", date, 5.0));
+    Assertions.assertFalse(history.canRedo());
+
+    Assertions.assertTrue(history.undo());
+    Assertions.assertTrue(history.undo());
+    Assertions.assertFalse(history.undo());
+    Assertions.assertEquals(1, storage.size());
+    Assertions.assertNotNull(storage.searchIngredient("Milk", "liter", 20.0, date));
+  }
+
+  @Test
+  @DisplayName("Test a change that fails halfway through is taken back as a whole")
+  public void UndoHistoryTest4() throws Exception {
+    Date later = DATE_FORMAT.parse("01.01.2095");
+    boolean[] refuseLater = new boolean[1];
+    storage = new FoodStorage() {
+      @Override
+      public void removeIngredient(String name, String unit, double pricePerUnit,
+          Date bestBeforeDate, double quantity) {
+        if (refuseLater[0] && bestBeforeDate.equals(later)) {
+          throw new IllegalArgumentException("Insufficient quantity.");
+        }
+        super.removeIngredient(name, unit, pricePerUnit, bestBeforeDate, quantity);
+      }
+    };
+    storage.addIngredient(new Ingredient("Milk", 0.3, "liter", date, 20.0));
+    storage.addIngredient(new Ingredient("Milk", 1.0, "liter", later, 20.0));
+    Recipe recipe = new Recipe("Porridge", "Porridge.", "Boil.",
+        Map.of("milk", 0.5), Map.of("milk", "liter"));
+    cookbook.addRecipe(recipe);
+    UndoHistory history = new UndoHistory(storage, cookbook, 10);
+    storage.cook(recipe);
+    Assertions.assertTrue(history.undo());
+
+    // The second lot can no longer give its 0.2 liters, after the first has given 0.3
+    refuseLater[0] = true;
+    Assertions.assertThrows(IllegalArgumentException.class, history::redo);
+    Assertions.assertEquals(0.3,
+        storage.searchIngredient("Milk", "liter", 20.0, date).getQuantity(), 1e-9);
+    Assertions.assertEquals(1.0,
+        storage.searchIngredient("Milk", "liter", 20.0, later).getQuantity(), 1e-9);
+    Assertions.assertTrue(history.canRedo());
+    Assertions.assertFalse(history.canUndo());
+  }
+
+  @Test
+  @DisplayName("Test a change larger than the history is forgotten instead of kept in part")
+  public void UndoHistoryTest5() throws Exception {
+    for (String day : new String[] {"01.01.2090", "02.01.2090", "03.01.2090"}) {
+      storage.addIngredient(new Ingredient("Milk", 0.1, "liter", DATE_FORMAT.parse(day), 20.0));
+    }
+    Recipe recipe = new Recipe("Porridge", "Porridge.", "Boil.",
+        Map.of("milk", 0.3), Map.of("milk", "liter"));
+    cookbook.addRecipe(recipe);
+    UndoHistory history = new UndoHistory(storage, cookbook, 2);
+    storage.addIngredient(new Ingredient("Salt", 1.0, "kilogram", date, 5.0));
+
+    storage.cook(recipe);
+    Assertions.assertEquals(0, history.size());
+    Assertions.assertFalse(history.canUndo());
+    Assertions.assertEquals(1, storage.size());
+
+    storage.addIngredient(new Ingredient("Flour", 1.0, "kilogram", date, 15.0));
+    Assertions.assertTrue(history.undo());
+    Assertions.assertFalse(history.undo());
+    Assertions.assertEquals(1, storage.size());
+  }
+}
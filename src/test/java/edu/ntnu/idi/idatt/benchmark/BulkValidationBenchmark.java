@@ -0,0 +1,62 @@
+package edu.ntnu.idi.idatt.benchmark;
+
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.utils.ValidationResult;
+import java.util.Date;
+
+/**
+ * Validates a million ingredient rows, a tenth of them bad, first by constructing each Ingredient
+ * and catching the exception of the bad ones, then with {@link Ingredient#tryCreate} and one
+ * reused {@link ValidationResult}, and prints the time per row of both.
+ *
+ * <p>Run the main method with the test classpath. The share of bad rows can be changed with the
+ * first argument, between 0 and 1.
+ */
+public class BulkValidationBenchmark {
+
+  private static final int ROWS = 1_000_000;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the share of bad rows
+   */
+  public static void main(String[] args) {
+    double badShare = args.length > 0 ? Double.parseDouble(args[0]) : 0.1;
+    Date bestBeforeDate = new Date(System.currentTimeMillis() + 7L * 24 * 60 * 60 * 1000);
+    double[] quantities = new double[ROWS];
+    for (int i = 0; i < ROWS; i++) {
+      quantities[i] = (i * 0.618_034) % 1 < badShare ? -1 : 1 + i % 10;
+    }
+
+    for (int round = 0; round < 3; round++) {
+      long start = System.nanoTime();
+      int rejected = 0;
+      for (double quantity : quantities) {
+        try {
+          new Ingredient("milk", quantity, "liter", bestBeforeDate, 20.0);
+        } catch (IllegalArgumentException e) {
+          rejected++;
+        }
+      }
+      print("throwing", rejected, start);
+
+      start = System.nanoTime();
+      rejected = 0;
+      ValidationResult result = new ValidationResult();
+      for (double quantity : quantities) {
+        result.clear();
+        if (Ingredient.tryCreate("milk", quantity, "liter", bestBeforeDate, 20.0, result)
+            == null) {
+          rejected++;
+        }
+      }
+      print("collecting", rejected, start);
+    }
+  }
+
+  private static void print(String mode, int rejected, long start) {
+    System.out.printf("%-12s %,9d rejected %8.1f ns per row%n", mode, rejected,
+        (System.nanoTime() - start) / (double) ROWS);
+  }
+}
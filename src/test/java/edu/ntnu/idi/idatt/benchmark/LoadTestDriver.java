@@ -0,0 +1,138 @@
+package edu.ntnu.idi.idatt.benchmark;
+
+import edu.ntnu.idi.idatt.benchmark.WorkloadGenerator.Kind;
+import edu.ntnu.idi.idatt.benchmark.WorkloadGenerator.Operation;
+import edu.ntnu.idi.idatt.foodstorage.Cookbook;
+import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.metrics.LatencyHistogram;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Loads a FoodStorage and a Cookbook with generated lots and recipes, then replays a generated
+ * stream of mixed operations against them and prints the throughput of each phase and the latency
+ * percentiles of each kind of operation. Removals of lots that are already gone are counted as
+ * misses.
+ *
+ * <p>Run the main method with the test classpath. The optional arguments are the number of lots,
+ * recipes and operations and the seed, by default 1 000 000, 10 000, 1 000 000 and 42. A heap of a
+ * few gigabytes is needed for the default sizes.
+ */
+public class LoadTestDriver {
+
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+  /**
+   * Runs the load test.
+   *
+   * @param args the number of lots, recipes and operations and the seed, all optional
+   */
+  public static void main(String[] args) {
+    int lots = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int recipes = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+    int operations = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+    long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+    WorkloadGenerator generator = new WorkloadGenerator(seed);
+
+    FoodStorage storage = new FoodStorage();
+    LatencyHistogram loadLatency = new LatencyHistogram();
+    long start = System.nanoTime();
+    for (int i = 0; i < lots; i++) {
+      Ingredient lot = generator.nextLot();
+      long operationStart = System.nanoTime();
+      storage.addIngredient(lot);
+      loadLatency.record(System.nanoTime() - operationStart);
+    }
+    printThroughput("load lots", lots, start);
+    System.out.printf("%,d lots of %d ingredient names in storage%n", storage.size(),
+        generator.nameCount());
+
+    Cookbook cookbook = new Cookbook();
+    start = System.nanoTime();
+    for (int i = 0; i < recipes; i++) {
+      cookbook.addRecipe(generator.nextRecipe(i));
+    }
+    printThroughput("load recipes", recipes, start);
+
+    Map<Kind, LatencyHistogram> latencies = new EnumMap<>(Kind.class);
+    for (Kind kind : Kind.values()) {
+      latencies.put(kind, new LatencyHistogram());
+    }
+    int misses = 0;
+    start = System.nanoTime();
+    for (int i = 0; i < operations; i++) {
+      Operation operation = generator.nextOperation();
+      long operationStart = System.nanoTime();
+      if (!replay(operation, storage, cookbook)) {
+        misses++;
+      }
+      latencies.get(operation.getKind()).record(System.nanoTime() - operationStart);
+    }
+    printThroughput("mixed operations", operations, start);
+    System.out.printf("%,d removals missed%n%n", misses);
+
+    System.out.printf("%-12s %10s %10s", "operation", "count", "mean us");
+    for (double percentile : PERCENTILES) {
+      System.out.printf(" %10s", "p" + percentile + " us");
+    }
+    System.out.printf(" %10s%n", "max us");
+    printLatencies("LOAD", loadLatency.snapshot());
+    for (Map.Entry<Kind, LatencyHistogram> entry : latencies.entrySet()) {
+      printLatencies(entry.getKey().name(), entry.getValue().snapshot());
+    }
+  }
+
+  /**
+   * Runs one operation.
+   *
+   * @param operation the operation
+   * @param storage   the storage to run it against
+   * @param cookbook  the cookbook to run it against
+   * @return false if the operation was a removal of a lot that is no longer stored
+   */
+  private static boolean replay(Operation operation, FoodStorage storage, Cookbook cookbook) {
+    Ingredient lot = operation.getLot();
+    switch (operation.getKind()) {
+      case ADD:
+        storage.addIngredient(lot);
+        return true;
+      case REMOVE:
+        try {
+          storage.removeIngredient(lot.getName(), lot.getUnit(), lot.getPricePerUnit(),
+              lot.getBestBeforeDate(), operation.getQuantity());
+          return true;
+        } catch (IllegalArgumentException e) {
+          return false;
+        }
+      case SEARCH:
+        storage.searchIngredient(lot.getName(), lot.getUnit(), lot.getPricePerUnit(),
+            lot.getBestBeforeDate());
+        return true;
+      case FIND:
+        storage.findIngredientByNameAndUnit(lot.getName(), lot.getUnit());
+        return true;
+      case SUGGEST:
+        cookbook.suggestRecipes(storage);
+        return true;
+      default:
+        storage.calculateTotalValue();
+        return true;
+    }
+  }
+
+  private static void printThroughput(String phase, int count, long start) {
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("%-16s %,12d in %8.2f s, %,12.0f ops/s%n", phase, count, seconds,
+        count / seconds);
+  }
+
+  private static void printLatencies(String name, LatencyHistogram.Snapshot snapshot) {
+    System.out.printf("%-12s %,10d %10.1f", name, snapshot.getCount(),
+        snapshot.getMean() / 1000);
+    for (double percentile : PERCENTILES) {
+      System.out.printf(" %10.1f", snapshot.getPercentile(percentile) / 1000.0);
+    }
+    System.out.printf(" %10.1f%n", snapshot.getMax() / 1000.0);
+  }
+}
@@ -0,0 +1,98 @@
+package edu.ntnu.idi.idatt.benchmark;
+
+import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.foodstorage.OffHeapLotStore;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * Fills an OffHeapLotStore and then a FoodStorage with the same lots, and prints for each how
+ * much heap stays in use after a full garbage collection, how long that collection takes and, for
+ * the off-heap store, how much native memory it allocated.
+ *
+ * <p>Run the main method with the test classpath and a heap large enough for the FoodStorage, for
+ * example {@code -Xmx4g}. The number of lots can be given as the first argument.
+ */
+public class LotStoreFootprintBenchmark {
+
+  private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+  private static final int DEFAULT_LOTS = 1_000_000;
+  private static final int INGREDIENTS = 5_000;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args the number of lots, optional
+   */
+  public static void main(String[] args) {
+    int lots = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_LOTS;
+    long baseline = usedHeapAfterGc();
+    System.out.printf("%,d lots, empty heap %,d KiB%n", lots, baseline / 1024);
+
+    try (OffHeapLotStore store = new OffHeapLotStore()) {
+      long start = System.nanoTime();
+      fill(lots, null, store);
+      double fillMillis = (System.nanoTime() - start) / 1_000_000.0;
+      report("OffHeapLotStore", fillMillis, baseline, store.allocatedBytes());
+    }
+
+    FoodStorage storage = new FoodStorage();
+    long start = System.nanoTime();
+    fill(lots, storage, null);
+    double fillMillis = (System.nanoTime() - start) / 1_000_000.0;
+    report("FoodStorage", fillMillis, baseline, 0);
+    Reference.reachabilityFence(storage);
+  }
+
+  private static void fill(int lots, FoodStorage storage, OffHeapLotStore store) {
+    Random random = new Random(42);
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < lots; i++) {
+      Ingredient lot = new Ingredient("ingredient " + random.nextInt(INGREDIENTS),
+          0.5 + random.nextInt(20), i % 2 == 0 ? "kilogram" : "liter",
+          new Date(now + (random.nextInt(3_650) - 30) * DAY_MILLIS), 1 + random.nextInt(500));
+      if (storage != null) {
+        storage.addIngredient(lot);
+      } else {
+        store.addIngredient(lot);
+      }
+    }
+  }
+
+  private static void report(String name, double fillMillis, long baseline, long offHeapBytes) {
+    long gcCountBefore = gcCount();
+    long gcMillisBefore = gcMillis();
+    long start = System.nanoTime();
+    long used = usedHeapAfterGc();
+    double fullGcMillis = (System.nanoTime() - start) / 1_000_000.0;
+    System.out.printf("%-16s filled in %,8.0f ms, heap %,9d KiB, off-heap %,9d KiB, "
+            + "full GC %,6.1f ms (%d collections, %d ms by the collectors)%n",
+        name, fillMillis, (used - baseline) / 1024, offHeapBytes / 1024, fullGcMillis,
+        gcCount() - gcCountBefore, gcMillis() - gcMillisBefore);
+  }
+
+  private static long usedHeapAfterGc() {
+    System.gc();
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  private static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, collector.getCollectionCount());
+    }
+    return count;
+  }
+
+  private static long gcMillis() {
+    long millis = 0;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      millis += Math.max(0, collector.getCollectionTime());
+    }
+    return millis;
+  }
+}
@@ -0,0 +1,78 @@
+package edu.ntnu.idi.idatt.benchmark;
+
+import edu.ntnu.idi.idatt.foodstorage.Cookbook;
+import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.foodstorage.MealPlan;
+import edu.ntnu.idi.idatt.foodstorage.MealPlanner;
+import edu.ntnu.idi.idatt.foodstorage.Recipe;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Fills a storage with 2 000 lots of 150 ingredients expiring over the next two months and a
+ * cookbook with 500 recipes of three to eight ingredients each, then plans two weeks of meals with
+ * the greedy pass only and with growing local search budgets, printing how much of the expiring
+ * value each plan uses up.
+ *
+ * <p>Run the main method with the test classpath, for example from the IDE.
+ */
+public class MealPlannerBenchmark {
+
+  private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+  private static final int INGREDIENTS = 150;
+  private static final int LOTS = 2_000;
+  private static final int RECIPES = 500;
+  private static final int HORIZON_DAYS = 14;
+  private static final long[] BUDGETS_MILLIS = {0, 10, 50, 200, 1_000};
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args not used
+   */
+  public static void main(String[] args) {
+    Random random = new Random(42);
+    long now = System.currentTimeMillis();
+
+    FoodStorage storage = new FoodStorage();
+    for (int i = 0; i < LOTS; i++) {
+      int ingredient = random.nextInt(INGREDIENTS);
+      Date bestBefore = new Date(now + DAY_MILLIS / 2 + random.nextInt(60) * DAY_MILLIS);
+      storage.addIngredient(new Ingredient("ingredient " + ingredient,
+          0.2 + random.nextInt(20) / 10.0, unitOf(ingredient), bestBefore,
+          5 + random.nextInt(100)));
+    }
+
+    Cookbook cookbook = new Cookbook();
+    for (int i = 0; i < RECIPES; i++) {
+      Map<String, Double> ingredients = new HashMap<>();
+      Map<String, String> units = new HashMap<>();
+      int count = 3 + random.nextInt(6);
+      while (ingredients.size() < count) {
+        int ingredient = random.nextInt(INGREDIENTS);
+        ingredients.put("ingredient " + ingredient, 0.1 + random.nextInt(10) / 10.0);
+        units.put("ingredient " + ingredient, unitOf(ingredient));
+      }
+      cookbook.addRecipe(new Recipe("recipe " + i, "Generated.", "Cook.", ingredients, units));
+    }
+
+    for (int warmup = 0; warmup < 5; warmup++) {
+      new MealPlanner(HORIZON_DAYS, 20).plan(storage, cookbook);
+    }
+    for (long budget : BUDGETS_MILLIS) {
+      long start = System.nanoTime();
+      MealPlan plan = new MealPlanner(HORIZON_DAYS, budget).plan(storage, cookbook);
+      double millis = (System.nanoTime() - start) / 1_000_000.0;
+      System.out.printf("budget %5d ms: %2d meals, saved %9.2f of %9.2f NOK (%4.1f%%) in %.1f ms%n",
+          budget, plan.getMeals().size(), plan.getSavedValue(), plan.getExpiringValue(),
+          100 * plan.getSavedValue() / plan.getExpiringValue(), millis);
+    }
+  }
+
+  private static String unitOf(int ingredient) {
+    return ingredient % 2 == 0 ? "kilogram" : "liter";
+  }
+}
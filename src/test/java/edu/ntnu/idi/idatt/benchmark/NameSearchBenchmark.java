@@ -0,0 +1,90 @@
+package edu.ntnu.idi.idatt.benchmark;
+
+import edu.ntnu.idi.idatt.utils.NameIndex;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Fills a {@link NameIndex} with a million generated names and measures prefix and fuzzy
+ * searches, among them short prefixes matching a large part of the index and misspellings of
+ * names that share their first and last letters with many others.
+ *
+ * <p>Names are made of random syllables, and one in ten starts with a common food, so prefixes
+ * like "tomato" are shared by thousands of names. Run the main method with the test classpath. The
+ * number of names can be changed with the first argument.
+ */
+public class NameSearchBenchmark {
+
+  private static final String[] SYLLABLES = {
+      "ka", "mo", "tu", "re", "lin", "do", "bas", "si", "ve", "ra", "no", "pel", "qu", "an", "to",
+      "mi", "lk", "ber", "ch", "ee", "sa", "gor", "fi", "xa", "ul", "tem", "ob", "ri", "za", "en"
+  };
+  private static final String[] FOODS = {
+      "milk", "tomato", "potato", "cheese", "apple", "salmon", "butter", "onion"
+  };
+  private static final String[] QUERIES = {
+      "a", "xq", "milk", "mlik", "tomato", "tomatoe", "potatos", "chese", "kamotu", "bas si",
+      "zzzzzz"
+  };
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the number of names
+   */
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    Random random = new Random(42);
+    Set<String> generated = new HashSet<>();
+    while (generated.size() < count) {
+      generated.add(name(random));
+    }
+    for (String food : FOODS) {
+      generated.add(food);
+    }
+
+    NameIndex index = new NameIndex();
+    long start = System.nanoTime();
+    for (String name : generated) {
+      index.add(name);
+    }
+    double buildMillis = (System.nanoTime() - start) / 1e6;
+    Runtime runtime = Runtime.getRuntime();
+    System.gc();
+    System.out.printf("indexed %,d names in %.0f ms, %,d MB heap in use%n", index.size(),
+        buildMillis, (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+
+    for (int round = 0; round < 3; round++) {
+      for (String query : QUERIES) {
+        List<String> results = index.search(query, 10);
+        int rounds = 200;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+          results = index.search(query, 10);
+        }
+        double micros = (System.nanoTime() - start) / 1e3 / rounds;
+        if (round == 2) {
+          System.out.printf("%-10s %10.1f us  %s%n", query, micros,
+              results.subList(0, Math.min(3, results.size())));
+        }
+      }
+    }
+  }
+
+  private static String name(Random random) {
+    StringBuilder name = new StringBuilder();
+    if (random.nextInt(10) == 0) {
+      name.append(FOODS[random.nextInt(FOODS.length)]).append(' ');
+    }
+    int syllables = 2 + random.nextInt(4);
+    for (int i = 0; i < syllables; i++) {
+      if (i > 0 && random.nextInt(6) == 0) {
+        name.append(' ');
+      }
+      name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+    }
+    return name.toString();
+  }
+}
@@ -0,0 +1,76 @@
+package edu.ntnu.idi.idatt.benchmark;
+
+import edu.ntnu.idi.idatt.foodstorage.Cookbook;
+import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
+import edu.ntnu.idi.idatt.foodstorage.IngredientAggregate;
+import edu.ntnu.idi.idatt.foodstorage.Recipe;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a cookbook of 100 000 generated recipes and a storage of generated lots, then measures
+ * how long it takes to find the ten recipes closest to being makeable. The first query also
+ * builds the ingredient bitsets of the recipes and is reported on its own, and so are queries
+ * that each follow the addition of one recipe.
+ *
+ * <p>Run the main method with the test classpath, for example from the IDE. The recipe and lot
+ * counts can be changed with the first and second argument.
+ */
+public class RecipeCoverageBenchmark {
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the number of recipes and the number of lots to generate
+   */
+  public static void main(String[] args) {
+    int recipeCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+    int lotCount = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+    WorkloadGenerator generator = new WorkloadGenerator(42);
+
+    Cookbook cookbook = new Cookbook();
+    for (int i = 0; i < recipeCount; i++) {
+      cookbook.addRecipe(generator.nextRecipe(i));
+    }
+    FoodStorage storage = new FoodStorage();
+    for (int i = 0; i < lotCount; i++) {
+      storage.addIngredient(generator.nextLot());
+    }
+
+    long start = System.nanoTime();
+    List<Recipe> nearest = cookbook.nearestRecipes(storage, 10);
+    System.out.printf("First query with index build: %.1f ms%n",
+        (System.nanoTime() - start) / 1_000_000.0);
+
+    for (int i = 0; i < 50; i++) {
+      nearest = cookbook.nearestRecipes(storage, 10);
+    }
+    int rounds = 500;
+    start = System.nanoTime();
+    for (int i = 0; i < rounds; i++) {
+      nearest = cookbook.nearestRecipes(storage, 10);
+    }
+    double micros = (System.nanoTime() - start) / 1_000.0 / rounds;
+    System.out.printf("Top 10 of %d recipes against %d ingredients: %.1f us per query%n",
+        recipeCount, storage.getAggregates().size(), micros);
+
+    start = System.nanoTime();
+    for (int i = 0; i < rounds; i++) {
+      cookbook.addRecipe(generator.nextRecipe(recipeCount + i));
+      nearest = cookbook.nearestRecipes(storage, 10);
+    }
+    System.out.printf("Add one recipe and query: %.1f us per query%n",
+        (System.nanoTime() - start) / 1_000.0 / rounds);
+    for (Recipe recipe : nearest) {
+      int inStock = 0;
+      for (Map.Entry<String, String> unit : recipe.getUnits().entrySet()) {
+        IngredientAggregate aggregate = storage.getAggregate(unit.getKey(), unit.getValue());
+        if (aggregate != null && aggregate.getNonExpiredQuantity() > 0) {
+          inStock++;
+        }
+      }
+      System.out.printf("  %-14s %d of %d ingredients in stock%n", recipe.getName(), inStock,
+          recipe.getIngredients().size());
+    }
+  }
+}
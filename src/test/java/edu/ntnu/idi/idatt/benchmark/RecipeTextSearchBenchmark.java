@@ -0,0 +1,91 @@
+package edu.ntnu.idi.idatt.benchmark;
+
+import edu.ntnu.idi.idatt.foodstorage.Cookbook;
+import edu.ntnu.idi.idatt.foodstorage.Recipe;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Builds a cookbook of 100 000 generated recipes and measures indexing, boolean search and BM25
+ * ranked search over the recipe descriptions and instructions. Word frequencies follow a Zipf
+ * distribution, like words in real recipe text.
+ *
+ * <p>Run the main method with the test classpath, for example from the IDE. The recipe count can
+ * be changed with the first argument.
+ */
+public class RecipeTextSearchBenchmark {
+
+  private static final int VOCABULARY_SIZE = 20_000;
+  private static final String[] QUERIES = {
+      "w1 w2", "w3 OR w40", "w5 w17 -w2", "w120 w800", "w9000 OR w12000 w4"
+  };
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the number of recipes to generate
+   */
+  public static void main(String[] args) {
+    int recipeCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+    Random random = new Random(42);
+    double[] cumulative = zipf(VOCABULARY_SIZE, 1.07);
+
+    Cookbook cookbook = new Cookbook();
+    long start = System.nanoTime();
+    for (int i = 0; i < recipeCount; i++) {
+      String description = words(random, cumulative, 8 + random.nextInt(12));
+      String instructions = words(random, cumulative, 40 + random.nextInt(60));
+      cookbook.addRecipe(new Recipe("recipe " + i, description, instructions,
+          Map.of("flour", 0.5), Map.of("flour", "kilogram")));
+    }
+    double buildMillis = (System.nanoTime() - start) / 1_000_000.0;
+    System.out.printf("Indexed %d recipes in %.1f ms (%.1f us per recipe)%n",
+        recipeCount, buildMillis, buildMillis * 1_000 / recipeCount);
+
+    for (String query : QUERIES) {
+      measure("boolean", query, () -> cookbook.searchText(query).size());
+      measure("bm25 top 10", query, () -> cookbook.searchTextRanked(query, 10).size());
+    }
+  }
+
+  private static void measure(String kind, String query, QueryRun run) {
+    int results = 0;
+    for (int i = 0; i < 20; i++) {
+      results = run.execute();
+    }
+    int rounds = 200;
+    long start = System.nanoTime();
+    for (int i = 0; i < rounds; i++) {
+      run.execute();
+    }
+    double micros = (System.nanoTime() - start) / 1_000.0 / rounds;
+    System.out.printf("%-12s %-22s %8d results %10.1f us%n", kind, query, results, micros);
+  }
+
+  private static String words(Random random, double[] cumulative, int count) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      int index = java.util.Arrays.binarySearch(cumulative, random.nextDouble());
+      text.append('w').append(index < 0 ? -index - 1 : index).append(' ');
+    }
+    return text.toString();
+  }
+
+  private static double[] zipf(int size, double exponent) {
+    double[] cumulative = new double[size];
+    double sum = 0;
+    for (int i = 0; i < size; i++) {
+      sum += 1 / Math.pow(i + 1, exponent);
+      cumulative[i] = sum;
+    }
+    for (int i = 0; i < size; i++) {
+      cumulative[i] /= sum;
+    }
+    return cumulative;
+  }
+
+  private interface QueryRun {
+
+    int execute();
+  }
+}
@@ -0,0 +1,88 @@
+package edu.ntnu.idi.idatt.benchmark;
+
+import edu.ntnu.idi.idatt.history.HistoryAggregation;
+import edu.ntnu.idi.idatt.history.HistoryColumn;
+import edu.ntnu.idi.idatt.history.StockHistory;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Records thirty years of daily samples into a {@link StockHistory}, then prints the size of the
+ * file per day and the time of a one-year range query, a weekly downsampled query over every year
+ * and a yearly one.
+ *
+ * <p>Run the main method with the test classpath. The number of years can be changed with the
+ * first argument.
+ */
+public class StockHistoryBenchmark {
+
+  private static final LocalDate START = LocalDate.of(2000, 1, 1);
+  private static final int QUERIES = 200;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the number of years
+   */
+  public static void main(String[] args) throws IOException {
+    int years = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+    int days = years * 365;
+    Path file = Files.createTempFile("stock-history", ".bin");
+    Files.delete(file);
+    Random random = new Random(42);
+
+    try (StockHistory history = new StockHistory(file)) {
+      long start = System.nanoTime();
+      long[] values = new long[HistoryColumn.values().length];
+      long stock = 2_000_000_000L;
+      for (int day = 0; day < days; day++) {
+        long added = random.nextInt(4) == 0 ? random.nextInt(800_000_000) : 0;
+        long consumed = Math.min(stock, random.nextInt(120_000_000));
+        long wasted = random.nextInt(10) == 0 ? random.nextInt(40_000_000) : 0;
+        stock += added - consumed - wasted;
+        values[HistoryColumn.STOCK_VALUE.ordinal()] = stock;
+        values[HistoryColumn.EXPIRED_VALUE.ordinal()] = random.nextInt(60_000_000);
+        values[HistoryColumn.LOT_COUNT.ordinal()] = 80 + random.nextInt(20);
+        values[HistoryColumn.ADDED_VALUE.ordinal()] = added;
+        values[HistoryColumn.CONSUMED_VALUE.ordinal()] = consumed;
+        values[HistoryColumn.WASTED_VALUE.ordinal()] = wasted;
+        history.record(START.plusDays(day), values);
+      }
+      System.out.printf("recorded %,d days in %.1f ms, %.1f bytes per day%n", days,
+          (System.nanoTime() - start) / 1e6, Files.size(file) / (double) days);
+
+      for (int round = 0; round < 3; round++) {
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+          LocalDate from = START.plusDays(random.nextInt(days - 365));
+          history.read(HistoryColumn.WASTED_VALUE, from, from.plusDays(364));
+        }
+        print("1-year range", start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+          history.downsample(HistoryColumn.STOCK_VALUE, START, START.plusDays(days - 1), 7,
+              HistoryAggregation.AVERAGE);
+        }
+        print("weekly, all", start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+          history.downsample(HistoryColumn.WASTED_VALUE, START, START.plusDays(days - 1), 365,
+              HistoryAggregation.SUM);
+        }
+        print("yearly, all", start);
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  private static void print(String query, long start) {
+    System.out.printf("%-12s %8.1f us per query%n", query,
+        (System.nanoTime() - start) / 1e3 / QUERIES);
+  }
+}
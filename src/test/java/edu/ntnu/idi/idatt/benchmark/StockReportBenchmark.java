@@ -0,0 +1,77 @@
+package edu.ntnu.idi.idatt.benchmark;
+
+import edu.ntnu.idi.idatt.foodstorage.FoodStorage;
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.views.CsvStockReportWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Date;
+
+/**
+ * Writes a report of every lot in a storage, first the old way, listing every lot and printing
+ * {@link Ingredient#toString()} followed by the expired value, then with a
+ * {@link CsvStockReportWriter}, and prints the time per lot of both.
+ *
+ * <p>Run the main method with the test classpath. The number of lots can be changed with the first
+ * argument. The report is written to a writer that only counts characters, so the time is spent
+ * on walking and formatting.
+ */
+public class StockReportBenchmark {
+
+  private static final long DAY = 24L * 60 * 60 * 1000;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the number of lots
+   */
+  public static void main(String[] args) throws IOException {
+    int lots = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+    long today = System.currentTimeMillis();
+    FoodStorage storage = new FoodStorage();
+    for (int i = 0; i < lots; i++) {
+      Date bestBeforeDate = new Date(today + (i % 1000 - 100) * DAY);
+      storage.addIngredient(new Ingredient("item" + i % 5000, 1 + i % 7, "kilogram",
+          bestBeforeDate, 10 + i / 5000 * 0.01));
+    }
+
+    for (int round = 0; round < 3; round++) {
+      CountingWriter out = new CountingWriter();
+      long start = System.nanoTime();
+      for (Ingredient ingredient : storage.listAllIngredients()) {
+        out.write(ingredient.toString());
+        out.write('\n');
+      }
+      out.write(String.format("%.2f%n", storage.calculateExpiredIngredientsValue()));
+      print("toString", out, lots, start);
+
+      out = new CountingWriter();
+      start = System.nanoTime();
+      new CsvStockReportWriter(out).write(storage);
+      print("streaming", out, lots, start);
+    }
+  }
+
+  private static void print(String mode, CountingWriter out, int lots, long start) {
+    System.out.printf("%-10s %,12d chars %8.1f ns per lot%n", mode, out.count,
+        (System.nanoTime() - start) / (double) lots);
+  }
+
+  private static class CountingWriter extends Writer {
+
+    private long count;
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+      count += length;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
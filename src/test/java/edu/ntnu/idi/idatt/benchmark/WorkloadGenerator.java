@@ -0,0 +1,316 @@
+package edu.ntnu.idi.idatt.benchmark;
+
+import edu.ntnu.idi.idatt.foodstorage.Ingredient;
+import edu.ntnu.idi.idatt.foodstorage.Recipe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates reproducible test data for load tests: lots, recipes and a mixed stream of storage and
+ * cookbook operations. The same seed always gives the same data.
+ *
+ * <p>Ingredient names are built from a list of foods and qualifiers, and both lots and recipes
+ * pick them with a Zipf distribution, so a few ingredients like milk and flour are everywhere
+ * while most are rare. Every name belongs to a category that decides its units, price range and
+ * shelf life, from days for dairy to years for dry goods. A small share of lots is already
+ * expired.
+ */
+public class WorkloadGenerator {
+
+  /**
+   * The kinds of operations in an operation stream.
+   */
+  public enum Kind {
+    ADD, REMOVE, SEARCH, FIND, SUGGEST, TOTAL_VALUE
+  }
+
+  /**
+   * One operation of an operation stream. Only the fields its kind needs are set.
+   */
+  public static class Operation {
+
+    private final Kind kind;
+    private final Ingredient lot;
+    private final double quantity;
+
+    private Operation(Kind kind, Ingredient lot, double quantity) {
+      this.kind = kind;
+      this.lot = lot;
+      this.quantity = quantity;
+    }
+
+    public Kind getKind() {
+      return kind;
+    }
+
+    /**
+     * Returns the lot to add, or the lot to remove from or look up.
+     *
+     * @return the lot, or null for operations on the whole storage
+     */
+    public Ingredient getLot() {
+      return lot;
+    }
+
+    /**
+     * Returns the quantity to remove.
+     *
+     * @return the quantity, 0 unless the kind is REMOVE
+     */
+    public double getQuantity() {
+      return quantity;
+    }
+  }
+
+  private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+  private static final double EXPIRED_SHARE = 0.05;
+  private static final int RECENT_LOTS = 1 << 16;
+
+  private static final String[] FOODS = {
+      "milk", "flour", "butter", "egg", "sugar", "salt", "rice", "pasta", "tomato", "onion",
+      "garlic", "potato", "carrot", "cheese", "cream", "yoghurt", "chicken", "beef", "pork",
+      "salmon", "cod", "apple", "banana", "lemon", "orange", "spinach", "broccoli", "pepper",
+      "cucumber", "lettuce", "oats", "barley", "lentils", "beans", "peas", "corn", "mushroom",
+      "olive oil", "vinegar", "honey", "jam", "coffee", "tea", "juice", "bread", "shrimp",
+      "mackerel", "lamb", "sour cream", "cream cheese", "berries", "cabbage", "leek", "celery"
+  };
+  private static final String[] QUALIFIERS = {
+      "", "organic ", "fresh ", "frozen ", "smoked ", "whole ", "light ", "local ", "dried ",
+      "grated ", "sliced ", "premium "
+  };
+  private static final String[] VOLUME_UNITS = {"liter", "dl", "ml"};
+  private static final String[] WEIGHT_UNITS = {"kilogram", "g"};
+
+  private final Random random;
+  private final String[] names;
+  private final int[] categories;
+  private final double[] popularity;
+  private final long now;
+  private final List<Ingredient> recentLots;
+  private final double[] operationShares;
+
+  /**
+   * Constructs a WorkloadGenerator.
+   *
+   * @param seed       the seed all data is derived from
+   * @param zipfSkew   the skew of ingredient popularity, 0 for uniform and about 1 for realistic
+   * @param writeShare the share of adds and removes in the operation stream, between 0 and 1
+   * @param scanShare  the share of recipe suggestions, and again of total value computations, in
+   *                   the operation stream, between 0 and 1
+   * @throws IllegalArgumentException if a share is outside 0 to 1 or the skew is negative
+   */
+  public WorkloadGenerator(long seed, double zipfSkew, double writeShare, double scanShare) {
+    if (zipfSkew < 0 || writeShare < 0 || scanShare < 0 || writeShare + 2 * scanShare > 1) {
+      throw new IllegalArgumentException("Invalid workload parameters.");
+    }
+    this.random = new Random(seed);
+    this.now = System.currentTimeMillis();
+    this.recentLots = new ArrayList<>();
+
+    this.names = new String[FOODS.length * QUALIFIERS.length];
+    this.categories = new int[names.length];
+    // Plain names come first, so the most popular ingredients are the familiar ones
+    List<String> plain = new ArrayList<>(Arrays.asList(FOODS));
+    List<String> qualified = new ArrayList<>();
+    for (int i = 1; i < QUALIFIERS.length; i++) {
+      for (String food : FOODS) {
+        qualified.add(QUALIFIERS[i] + food);
+      }
+    }
+    Collections.shuffle(plain, random);
+    Collections.shuffle(qualified, random);
+    plain.addAll(qualified);
+    for (int i = 0; i < names.length; i++) {
+      names[i] = plain.get(i);
+      categories[i] = categoryOf(names[i]);
+    }
+
+    this.popularity = new double[names.length];
+    double sum = 0;
+    for (int i = 0; i < names.length; i++) {
+      sum += 1 / Math.pow(i + 1, zipfSkew);
+      popularity[i] = sum;
+    }
+    for (int i = 0; i < names.length; i++) {
+      popularity[i] /= sum;
+    }
+
+    double lookupShare = 1 - writeShare - 2 * scanShare;
+    this.operationShares = new double[] {
+        writeShare * 0.6, writeShare * 0.4, lookupShare / 2, lookupShare / 2, scanShare, scanShare
+    };
+  }
+
+  /**
+   * Constructs a WorkloadGenerator with realistic skew, 20 percent writes and rare scans of the
+   * whole storage.
+   *
+   * @param seed the seed all data is derived from
+   */
+  public WorkloadGenerator(long seed) {
+    this(seed, 1.0, 0.2, 0.0005);
+  }
+
+  /**
+   * Generates the next lot.
+   *
+   * @return a new lot
+   */
+  public Ingredient nextLot() {
+    int name = nextName();
+    int category = categories[name];
+    String[] units = category == 0 ? VOLUME_UNITS : WEIGHT_UNITS;
+    String unit = units[random.nextInt(units.length)];
+    double quantity = unit.equals("liter") || unit.equals("kilogram")
+        ? 0.25 * (1 + random.nextInt(8)) : 50 * (1 + random.nextInt(20));
+
+    long shelfLifeDays = shelfLifeDays(category);
+    long offsetDays = random.nextDouble() < EXPIRED_SHARE
+        ? -1 - random.nextInt(30) : random.nextInt((int) shelfLifeDays + 1);
+    Date bestBefore = new Date(now + offsetDays * DAY_MILLIS + DAY_MILLIS / 2);
+    double price = Math.round(priceOf(category, unit) * 100) / 100.0;
+
+    Ingredient lot = new Ingredient(names[name], quantity, unit, bestBefore, price);
+    if (recentLots.size() < RECENT_LOTS) {
+      recentLots.add(lot);
+    } else {
+      recentLots.set(random.nextInt(RECENT_LOTS), lot);
+    }
+    return lot;
+  }
+
+  /**
+   * Generates a recipe whose ingredients are picked by popularity.
+   *
+   * @param number the number of the recipe, used in its name
+   * @return a new recipe
+   */
+  public Recipe nextRecipe(int number) {
+    int count = 3 + random.nextInt(8);
+    Map<String, Double> ingredients = new HashMap<>();
+    Map<String, String> units = new HashMap<>();
+    while (ingredients.size() < count) {
+      int name = nextName();
+      String unit = categories[name] == 0 ? "dl" : "g";
+      ingredients.put(names[name], unit.equals("dl") ? 0.5 * (1 + random.nextInt(6))
+          : 25.0 * (1 + random.nextInt(12)));
+      units.put(names[name], unit);
+    }
+    return new Recipe("recipe " + number, "Generated recipe number " + number + ".",
+        "Combine everything and cook.", ingredients, units, 1 + random.nextInt(6));
+  }
+
+  /**
+   * Generates the next operation of the stream. Removals and lookups refer to lots generated
+   * earlier, so they mostly hit.
+   *
+   * @return a new operation
+   */
+  public Operation nextOperation() {
+    double draw = random.nextDouble();
+    int kind = 0;
+    while (kind < operationShares.length - 1 && draw >= operationShares[kind]) {
+      draw -= operationShares[kind];
+      kind++;
+    }
+    Kind chosen = Kind.values()[kind];
+    if (recentLots.isEmpty() && chosen != Kind.SUGGEST && chosen != Kind.TOTAL_VALUE) {
+      chosen = Kind.ADD;
+    }
+    switch (chosen) {
+      case ADD:
+        return new Operation(chosen, nextLot(), 0);
+      case REMOVE:
+        Ingredient lot = recentLots.get(random.nextInt(recentLots.size()));
+        return new Operation(chosen, lot, lot.getQuantity() / (1 + random.nextInt(3)));
+      case SEARCH:
+      case FIND:
+        return new Operation(chosen, recentLots.get(random.nextInt(recentLots.size())), 0);
+      default:
+        return new Operation(chosen, null, 0);
+    }
+  }
+
+  /**
+   * Returns the number of distinct ingredient names the generator picks from.
+   *
+   * @return the number of names
+   */
+  public int nameCount() {
+    return names.length;
+  }
+
+  private int nextName() {
+    int index = Arrays.binarySearch(popularity, random.nextDouble());
+    return Math.min(index < 0 ? -index - 1 : index, names.length - 1);
+  }
+
+  private static int categoryOf(String name) {
+    for (String liquid : new String[] {"milk", "cream", "yoghurt", "oil", "vinegar", "juice"}) {
+      if (name.endsWith(liquid)) {
+        return 0;
+      }
+    }
+    if (name.startsWith("frozen ") || name.startsWith("dried ")) {
+      return 3;
+    }
+    for (String dry : new String[] {"flour", "sugar", "salt", "rice", "pasta", "oats", "barley",
+        "lentils", "beans", "coffee", "tea", "honey", "jam"}) {
+      if (name.endsWith(dry)) {
+        return 3;
+      }
+    }
+    for (String fresh : new String[] {"chicken", "beef", "pork", "salmon", "cod", "shrimp",
+        "mackerel", "lamb", "bread", "cheese"}) {
+      if (name.endsWith(fresh)) {
+        return 1;
+      }
+    }
+    return 2;
+  }
+
+  private long shelfLifeDays(int category) {
+    switch (category) {
+      case 0:
+        return 3 + random.nextInt(12);
+      case 1:
+        return 2 + random.nextInt(8);
+      case 2:
+        return 5 + random.nextInt(25);
+      default:
+        return 90 + random.nextInt(630);
+    }
+  }
+
+  private double priceOf(int category, String unit) {
+    double perStandardUnit;
+    switch (category) {
+      case 0:
+        perStandardUnit = 15 + random.nextInt(60);
+        break;
+      case 1:
+        perStandardUnit = 80 + random.nextInt(250);
+        break;
+      case 2:
+        perStandardUnit = 20 + random.nextInt(60);
+        break;
+      default:
+        perStandardUnit = 15 + random.nextInt(120);
+    }
+    switch (unit) {
+      case "dl":
+        return perStandardUnit / 10;
+      case "ml":
+      case "g":
+        return perStandardUnit / 1000;
+      default:
+        return perStandardUnit;
+    }
+  }
+}